@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.benchmarks;
+
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.CancelException;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Call graph and pointer analysis construction with {@link
+ * com.ibm.wala.ipa.callgraph.propagation.cfa.ZeroXCFABuilder}, from a fresh IR cache each time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CallGraphBenchmark {
+
+  @Param({"Lslice/TestMessageFormat", "Ldemandpa/TestHashSet"})
+  public String mainClass;
+
+  @Param({"0-CFA", "0-1-CFA"})
+  public String policy;
+
+  /** see {@link com.ibm.wala.ipa.callgraph.AnalysisOptions#setNumberOfSolverThreads(int)} */
+  @Param({"1", "2", "4"})
+  public int solverThreads;
+
+  private IClassHierarchy cha;
+
+  @Setup
+  public void setUp() throws IOException, ClassHierarchyException {
+    cha = Subjects.makeClassHierarchy();
+  }
+
+  @Benchmark
+  public CallGraph makeCallGraph() throws CancelException {
+    SSAPropagationCallGraphBuilder builder = Subjects.makeBuilder(cha, mainClass, policy);
+    builder.getOptions().setNumberOfSolverThreads(solverThreads);
+    return builder.makeCallGraph(builder.getOptions(), null);
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.benchmarks;
+
+import com.ibm.wala.util.intset.BitVector;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.MutableSharedBitVectorIntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import com.ibm.wala.util.intset.SparseIntSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Union of two sets of the given size, drawn from a universe of the given density, in the set
+ * representations that dominate the solvers' running time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntSetBenchmark {
+
+  @Param({"16", "1024", "65536"})
+  public int size;
+
+  /** the fraction of the universe that each set covers */
+  @Param({"0.01", "0.5"})
+  public double density;
+
+  private SparseIntSet sparseA;
+
+  private SparseIntSet sparseB;
+
+  private BitVector bitsA;
+
+  private BitVector bitsB;
+
+  private MutableSharedBitVectorIntSet sharedA;
+
+  private MutableSharedBitVectorIntSet sharedB;
+
+  @Setup
+  public void setUp() {
+    Random r = new Random(size);
+    int universe = (int) (size / density);
+    bitsA = randomBits(r, universe);
+    bitsB = randomBits(r, universe);
+    sparseA = MutableSparseIntSet.make(new BitVectorIntSet(bitsA));
+    sparseB = MutableSparseIntSet.make(new BitVectorIntSet(bitsB));
+    sharedA = new MutableSharedBitVectorIntSet(sparseA);
+    sharedB = new MutableSharedBitVectorIntSet(sparseB);
+  }
+
+  private BitVector randomBits(Random r, int universe) {
+    BitVector result = new BitVector(universe);
+    for (int n = 0; n < size; ) {
+      int i = r.nextInt(universe);
+      if (!result.get(i)) {
+        result.set(i);
+        n++;
+      }
+    }
+    return result;
+  }
+
+  @Benchmark
+  public MutableSparseIntSet sparseAddAll() {
+    MutableSparseIntSet result = MutableSparseIntSet.make(sparseA);
+    result.addAll(sparseB);
+    return result;
+  }
+
+  @Benchmark
+  public BitVector bitVectorOr() {
+    BitVector result = new BitVector(bitsA);
+    result.or(bitsB);
+    return result;
+  }
+
+  @Benchmark
+  public MutableSharedBitVectorIntSet sharedBitVectorAddAll() {
+    MutableSharedBitVectorIntSet result = new MutableSharedBitVectorIntSet(sharedA);
+    result.addAll(sharedB);
+    return result;
+  }
+}
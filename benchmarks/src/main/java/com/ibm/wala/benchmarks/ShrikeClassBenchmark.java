@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.benchmarks;
+
+import com.ibm.wala.classLoader.IClassLoader;
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.classLoader.ModuleEntry;
+import com.ibm.wala.classLoader.ShrikeClass;
+import com.ibm.wala.core.util.shrike.ShrikeClassReaderHandle;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.shrike.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.types.ClassLoaderReference;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Parsing the class files of the subjects into {@link ShrikeClass}es. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ShrikeClassBenchmark {
+
+  private IClassHierarchy cha;
+
+  private IClassLoader loader;
+
+  private final List<ModuleEntry> classFiles = new ArrayList<>();
+
+  @Setup
+  public void setUp() throws IOException, ClassHierarchyException {
+    cha = Subjects.makeClassHierarchy();
+    loader = cha.getLoader(ClassLoaderReference.Application);
+    for (Module m : cha.getScope().getModules(ClassLoaderReference.Application)) {
+      for (Iterator<? extends ModuleEntry> it = m.getEntries(); it.hasNext(); ) {
+        ModuleEntry e = it.next();
+        if (e.isClassFile()) {
+          classFiles.add(e);
+        }
+      }
+    }
+  }
+
+  @Benchmark
+  public void parse(Blackhole bh) throws InvalidClassFileException {
+    for (ModuleEntry e : classFiles) {
+      ShrikeClass klass = new ShrikeClass(new ShrikeClassReaderHandle(e), loader, cha);
+      bh.consume(klass.getDeclaredMethods());
+      bh.consume(klass.getDeclaredInstanceFields());
+    }
+  }
+}
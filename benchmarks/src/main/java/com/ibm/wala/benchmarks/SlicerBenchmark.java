@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.benchmarks;
+
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.util.CallGraphSearchUtil;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ipa.slicer.Slicer;
+import com.ibm.wala.ipa.slicer.Slicer.ControlDependenceOptions;
+import com.ibm.wala.ipa.slicer.Slicer.DataDependenceOptions;
+import com.ibm.wala.ipa.slicer.SlicerUtil;
+import com.ibm.wala.ipa.slicer.Statement;
+import com.ibm.wala.util.CancelException;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Backward slicing from a call in the main method of a subject, including the construction of the
+ * system dependence graph.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SlicerBenchmark {
+
+  /** main class and the name of the method called by the seed statement, separated by ':' */
+  @Param({"Lslice/Slice1:println", "Lslice/TestMessageFormat:format"})
+  public String subject;
+
+  @Param({"FULL", "NO_BASE_PTRS"})
+  public DataDependenceOptions dOptions;
+
+  @Param({"NONE", "FULL"})
+  public ControlDependenceOptions cOptions;
+
+  private CallGraph cg;
+
+  private PointerAnalysis<InstanceKey> pa;
+
+  private Statement seed;
+
+  @Setup
+  public void setUp() throws IOException, ClassHierarchyException, CancelException {
+    String[] mainAndCallee = subject.split(":");
+    IClassHierarchy cha = Subjects.makeClassHierarchy();
+    SSAPropagationCallGraphBuilder builder =
+        Subjects.makeBuilder(cha, mainAndCallee[0], "0-1-CFA");
+    cg = builder.makeCallGraph(builder.getOptions(), null);
+    pa = builder.getPointerAnalysis();
+    CGNode main = CallGraphSearchUtil.findMainMethod(cg);
+    seed = SlicerUtil.findCallTo(main, mainAndCallee[1]);
+  }
+
+  @Benchmark
+  public Collection<Statement> computeBackwardSlice() throws CancelException {
+    return Slicer.computeBackwardSlice(seed, cg, pa, dOptions, cOptions);
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.benchmarks;
+
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.util.config.AnalysisScopeReader;
+import com.ibm.wala.core.util.io.FileProvider;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import java.io.IOException;
+
+/**
+ * The programs the benchmarks analyze: a jar of some of core's test subjects, built by the {@code
+ * subjectsJar} task and passed in the {@value #SUBJECTS_PROPERTY} system property.
+ */
+final class Subjects {
+
+  static final String SUBJECTS_PROPERTY = "wala.benchmarks.subjects";
+
+  private Subjects() {}
+
+  static AnalysisScope makeScope() throws IOException {
+    String jar = System.getProperty(SUBJECTS_PROPERTY);
+    if (jar == null) {
+      throw new IllegalStateException(SUBJECTS_PROPERTY + " is not set");
+    }
+    return AnalysisScopeReader.instance.makeJavaBinaryAnalysisScope(
+        jar, new FileProvider().getFile(CallGraphTestUtil.REGRESSION_EXCLUSIONS));
+  }
+
+  static IClassHierarchy makeClassHierarchy() throws IOException, ClassHierarchyException {
+    return ClassHierarchyFactory.make(makeScope());
+  }
+
+  /**
+   * @param policy "0-CFA" or "0-1-CFA"
+   * @return a call graph builder for the given policy, with the main method of mainClass as the
+   *     entrypoint
+   */
+  static SSAPropagationCallGraphBuilder makeBuilder(
+      IClassHierarchy cha, String mainClass, String policy) {
+    AnalysisOptions options =
+        new AnalysisOptions(cha.getScope(), Util.makeMainEntrypoints(cha, mainClass));
+    switch (policy) {
+      case "0-CFA":
+        return Util.makeZeroCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha);
+      case "0-1-CFA":
+        return Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha);
+      default:
+        throw new IllegalArgumentException("unknown policy " + policy);
+    }
+  }
+}
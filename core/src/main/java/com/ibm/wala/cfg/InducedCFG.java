@@ -12,6 +12,7 @@ package com.ibm.wala.cfg;
 
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.summaries.SummarizedMethod;
 import com.ibm.wala.ssa.SSAArrayLengthInstruction;
 import com.ibm.wala.ssa.SSAArrayLoadInstruction;
 import com.ibm.wala.ssa.SSAArrayStoreInstruction;
@@ -222,6 +223,12 @@ public class InducedCFG extends AbstractCFG<SSAInstruction, InducedCFG.BasicBloc
     }
   }
 
+  /** @see SummarizedMethod#isFlowInsensitive() */
+  private boolean isFlowInsensitiveSummary() {
+    return getMethod() instanceof SummarizedMethod
+        && ((SummarizedMethod) getMethod()).isFlowInsensitive();
+  }
+
   /** This visitor identifies basic block boundaries induced by branch instructions. */
   public class BranchVisitor extends SSAInstruction.Visitor {
     private final boolean[] r;
@@ -274,6 +281,10 @@ public class InducedCFG extends AbstractCFG<SSAInstruction, InducedCFG.BasicBloc
     public void visitPhi(SSAPhiInstruction instruction) {
       // we can have more than one phi instruction in a row. break the basic block
       // only before the first one.
+      if (index == 0 && isFlowInsensitiveSummary()) {
+        // the statements of a flow-insensitive summary may start with its phis
+        return;
+      }
       if (!(instructions[index - 1] instanceof SSAPhiInstruction)) {
         breakBasicBlock(index - 1);
       }
@@ -11,16 +11,19 @@
 package com.ibm.wala.classLoader;
 
 import com.ibm.wala.core.util.io.FileSuffixes;
+import com.ibm.wala.core.util.io.MappedZipFile;
 import com.ibm.wala.core.util.warnings.Warning;
 import com.ibm.wala.core.util.warnings.Warnings;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.debug.Assertions;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.jar.JarInputStream;
 import java.util.zip.ZipEntry;
 
@@ -37,22 +40,64 @@ public abstract class AbstractNestedJarFileModule implements Module {
    */
   private HashMap<String, byte[]> cache = null;
 
+  /**
+   * the nested jar file read in place, when its contents are available as a buffer; the entries are
+   * then read on demand rather than cached
+   */
+  private MappedZipFile zip = null;
+
+  /** the names of the class and source files in the nested jar file */
+  private List<String> names = null;
+
   protected abstract InputStream getNestedContents() throws IOException;
 
+  /**
+   * @return the contents of the nested jar file, or null if they are only available through {@link
+   *     #getNestedContents()}
+   */
+  protected ByteBuffer getNestedBuffer() throws IOException {
+    return null;
+  }
+
   protected AbstractNestedJarFileModule(Module container) {
     this.container = container;
   }
 
   public InputStream getInputStream(String name) {
+    try {
+      return new ByteArrayInputStream(getBytes(name));
+    } catch (IOException e) {
+      e.printStackTrace();
+      Assertions.UNREACHABLE();
+      return null;
+    }
+  }
+
+  private byte[] getBytes(String name) throws IOException {
     populateCache();
-    byte[] b = cache.get(name);
-    return new ByteArrayInputStream(b);
+    return zip != null ? zip.getBytes(name) : cache.get(name);
   }
 
   private void populateCache() {
-    if (cache != null) {
+    if (names != null) {
       return;
     }
+    names = new ArrayList<>();
+    try {
+      ByteBuffer contents = getNestedBuffer();
+      if (contents != null) {
+        zip = new MappedZipFile(contents);
+        for (String name : zip.getNames()) {
+          if (FileSuffixes.isClassFile(name) || FileSuffixes.isSourceFile(name)) {
+            names.add(name);
+          }
+        }
+        return;
+      }
+    } catch (IOException e) {
+      // read it as a stream instead
+      zip = null;
+    }
     cache = HashMapFactory.make();
     try (final JarInputStream stream = new JarInputStream(getNestedContents(), false)) {
       for (ZipEntry z = stream.getNextEntry(); z != null; z = stream.getNextEntry()) {
@@ -61,15 +106,9 @@ public abstract class AbstractNestedJarFileModule implements Module {
           System.err.println(("got entry: " + name));
         }
         if (FileSuffixes.isClassFile(name) || FileSuffixes.isSourceFile(name)) {
-          ByteArrayOutputStream out = new ByteArrayOutputStream();
-          byte[] temp = new byte[1024];
-          int n = stream.read(temp);
-          while (n != -1) {
-            out.write(temp, 0, n);
-            n = stream.read(temp);
+          if (cache.put(name, stream.readAllBytes()) == null) {
+            names.add(name);
           }
-          byte[] bb = out.toByteArray();
-          cache.put(name, bb);
         }
       }
     } catch (IOException e) {
@@ -88,14 +127,13 @@ public abstract class AbstractNestedJarFileModule implements Module {
 
   protected long getEntrySize(String name) {
     populateCache();
-    byte[] b = cache.get(name);
-    return b.length;
+    return zip != null ? zip.getSize(name) : cache.get(name).length;
   }
 
   @Override
   public Iterator<ModuleEntry> getEntries() {
     populateCache();
-    final Iterator<String> it = cache.keySet().iterator();
+    final Iterator<String> it = names.iterator();
     return new Iterator<>() {
       String next = null;
 
@@ -159,6 +197,11 @@ public abstract class AbstractNestedJarFileModule implements Module {
       return AbstractNestedJarFileModule.this.getInputStream(name);
     }
 
+    @Override
+    public byte[] getBytes() throws IOException {
+      return AbstractNestedJarFileModule.this.getBytes(name);
+    }
+
     @Override
     public boolean isModuleFile() {
       return false;
@@ -306,6 +306,7 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
 
   @Override
   public Collection<IField> getDeclaredInstanceFields() {
+    computeFieldsIfNeeded();
     if (instanceFields == null) {
       return Collections.emptySet();
     } else {
@@ -315,6 +316,7 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
 
   @Override
   public Collection<IField> getDeclaredStaticFields() {
+    computeFieldsIfNeeded();
     return Collections.unmodifiableList(Arrays.asList(staticFields));
   }
 
@@ -490,6 +492,7 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
 
     List<IField> result = new ArrayList<>(1);
 
+    computeFieldsIfNeeded();
     if (instanceFields != null) {
       for (IField instanceField : instanceFields) {
         if (instanceField.getName() == name) {
@@ -529,6 +532,12 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
     L.add(f);
   }
 
+  /**
+   * set up the {@link #instanceFields} and {@link #staticFields} arrays, for subclasses that do not
+   * do so when they are constructed
+   */
+  protected void computeFieldsIfNeeded() {}
+
   /** set up the methodMap mapping */
   protected void computeMethodMapIfNeeded() throws InvalidClassFileException {
     if (methodMap == null) {
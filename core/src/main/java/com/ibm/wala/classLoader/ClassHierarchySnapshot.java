@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.classLoader;
+
+import com.ibm.wala.core.util.io.HashedFileStore;
+import com.ibm.wala.core.util.strings.ImmutableByteArray;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An on-disk cache of the class headers found in jar files, so that a class hierarchy can be built
+ * without parsing every class file again.
+ *
+ * <p>The snapshot keeps one file per jar file in a directory, named by the SHA-256 hash of the jar
+ * contents. For each class file in the jar, the file records the name of the class, its superclass
+ * and interfaces and its modifiers. A {@link ClassLoaderImpl} that is given a snapshot creates
+ * {@link ShrikeClass}es from these headers; the fields and methods of such a class are read from
+ * the jar only when they are first needed. A jar whose contents have changed has a different hash,
+ * so its classes are parsed as usual and a new file is written for it. So is a jar whose file is
+ * damaged, for instance by a negative array length.
+ *
+ * <p>Class files in nested jars and in other kinds of modules are always parsed.
+ */
+public class ClassHierarchySnapshot {
+
+  private static final int MAGIC = 0x57434853;
+
+  private static final int VERSION = 1;
+
+  private static final String SUFFIX = ".chs";
+
+  /** the snapshot files */
+  private final HashedFileStore store;
+
+  /** the snapshot of each jar file seen so far, indexed by the hash of its contents */
+  private final Map<String, ModuleSnapshot> modules = new ConcurrentHashMap<>();
+
+  /** how many classes were created from a recorded header */
+  private final AtomicInteger hits = new AtomicInteger();
+
+  /** how many classes were not recorded, and so had to be parsed */
+  private final AtomicInteger misses = new AtomicInteger();
+
+  /** @throws IllegalArgumentException if directory is null */
+  public ClassHierarchySnapshot(File directory) {
+    this.store = new HashedFileStore(directory, SUFFIX, MAGIC, VERSION);
+  }
+
+  public File getDirectory() {
+    return store.getDirectory();
+  }
+
+  /** @return how many classes have been created from a recorded header */
+  public int getNumberOfHits() {
+    return hits.get();
+  }
+
+  /** @return how many class files have been parsed because they were not recorded */
+  public int getNumberOfMisses() {
+    return misses.get();
+  }
+
+  /** The header of a class file, as recorded in a snapshot. */
+  static final class ClassHeader {
+    /** the name of the class in bytecode format; null if the class file is invalid */
+    final ImmutableByteArray name;
+
+    final ImmutableByteArray superName;
+
+    final ImmutableByteArray[] interfaceNames;
+
+    final int modifiers;
+
+    private static final ClassHeader INVALID = new ClassHeader(null, null, null, 0);
+
+    private ClassHeader(
+        ImmutableByteArray name,
+        ImmutableByteArray superName,
+        ImmutableByteArray[] interfaceNames,
+        int modifiers) {
+      this.name = name;
+      this.superName = superName;
+      this.interfaceNames = interfaceNames;
+      this.modifiers = modifiers;
+    }
+
+    boolean isValid() {
+      return name != null;
+    }
+  }
+
+  /** The recorded class headers of one jar file, indexed by entry name. */
+  static final class ModuleSnapshot {
+    private final String hash;
+
+    private final ClassHierarchySnapshot owner;
+
+    private final Map<String, ClassHeader> classes;
+
+    /** have classes been recorded since this snapshot was last written? */
+    private volatile boolean dirty;
+
+    private ModuleSnapshot(
+        ClassHierarchySnapshot owner, String hash, Map<String, ClassHeader> classes) {
+      this.owner = owner;
+      this.hash = hash;
+      this.classes = classes;
+    }
+
+    /** @return the recorded header of the class file entry, or null if there is none */
+    ClassHeader lookup(ModuleEntry entry) {
+      ClassHeader h = classes.get(entry.getName());
+      if (h == null) {
+        owner.misses.incrementAndGet();
+      } else {
+        owner.hits.incrementAndGet();
+      }
+      return h;
+    }
+
+    /**
+     * record the header of the class parsed from entry
+     *
+     * @param klass the class, or null if the class file is invalid
+     */
+    void record(ModuleEntry entry, ShrikeClass klass) {
+      ClassHeader h =
+          klass == null
+              ? ClassHeader.INVALID
+              : new ClassHeader(
+                  ImmutableByteArray.make(klass.getName().toString()),
+                  klass.superName,
+                  klass.interfaceNames,
+                  klass.getModifiers());
+      classes.put(entry.getName(), h);
+      dirty = true;
+    }
+  }
+
+  /**
+   * @param digest a digest from {@link HashedFileStore#makeDigest()} that has hashed the
+   *     contents of a jar file
+   * @return the snapshot of that jar file; it is empty if no snapshot has been written for it or if
+   *     the snapshot cannot be read
+   */
+  ModuleSnapshot getModule(MessageDigest digest) {
+    return modules.computeIfAbsent(
+        HashedFileStore.toHash(digest), h -> new ModuleSnapshot(this, h, read(h)));
+  }
+
+  private Map<String, ClassHeader> read(String hash) {
+    Map<String, ClassHeader> classes = store.read(hash, ClassHierarchySnapshot::readClasses);
+    // a missing or damaged snapshot will be rewritten from the parsed class files
+    return classes == null ? new ConcurrentHashMap<>() : classes;
+  }
+
+  private static Map<String, ClassHeader> readClasses(ByteBuffer buffer) {
+    Map<String, ClassHeader> result = new ConcurrentHashMap<>();
+    int count = buffer.getInt();
+    for (int i = 0; i < count; i++) {
+      String entry = new String(HashedFileStore.readBytes(buffer), StandardCharsets.UTF_8);
+      if (buffer.get() == 0) {
+        result.put(entry, ClassHeader.INVALID);
+      } else {
+        ImmutableByteArray name = new ImmutableByteArray(HashedFileStore.readBytes(buffer));
+        ImmutableByteArray superName =
+            buffer.get() == 0 ? null : new ImmutableByteArray(HashedFileStore.readBytes(buffer));
+        int modifiers = buffer.getInt();
+        ImmutableByteArray[] interfaceNames = new ImmutableByteArray[buffer.getInt()];
+        for (int j = 0; j < interfaceNames.length; j++) {
+          interfaceNames[j] = new ImmutableByteArray(HashedFileStore.readBytes(buffer));
+        }
+        result.put(entry, new ClassHeader(name, superName, interfaceNames, modifiers));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Write the snapshots of all jar files for which classes have been recorded since they were last
+   * written.
+   */
+  public void save() throws IOException {
+    for (ModuleSnapshot m : modules.values()) {
+      if (m.dirty) {
+        write(m);
+        m.dirty = false;
+      }
+    }
+  }
+
+  private void write(ModuleSnapshot m) throws IOException {
+    Map<String, ClassHeader> classes = m.classes;
+    store.write(
+        m.hash,
+        out -> {
+          out.writeInt(classes.size());
+          for (Map.Entry<String, ClassHeader> e : classes.entrySet()) {
+            HashedFileStore.writeBytes(out, e.getKey().getBytes(StandardCharsets.UTF_8));
+            ClassHeader h = e.getValue();
+            if (!h.isValid()) {
+              out.writeByte(0);
+              continue;
+            }
+            out.writeByte(1);
+            writeBytes(out, h.name);
+            if (h.superName == null) {
+              out.writeByte(0);
+            } else {
+              out.writeByte(1);
+              writeBytes(out, h.superName);
+            }
+            out.writeInt(h.modifiers);
+            out.writeInt(h.interfaceNames.length);
+            for (ImmutableByteArray i : h.interfaceNames) {
+              writeBytes(out, i);
+            }
+          }
+        });
+  }
+
+  private static void writeBytes(DataOutputStream out, ImmutableByteArray b) throws IOException {
+    HashedFileStore.writeBytes(out, b.substring(0, b.length()));
+  }
+}
@@ -33,6 +33,12 @@ public class ClassLoaderFactoryImpl implements ClassLoaderFactory {
   /** A Mapping from ClassLoaderReference to IClassLoader */
   private final HashMap<ClassLoaderReference, IClassLoader> map = HashMapFactory.make(3);
 
+  /** How many threads should each {@link ClassLoaderImpl} use to read and parse class files? */
+  private int numberOfThreads = 1;
+
+  /** recorded class headers for each {@link ClassLoaderImpl} to use, or null */
+  private ClassHierarchySnapshot snapshot;
+
   /** @param exclusions A set of classes that class loaders should pretend don't exist. */
   public ClassLoaderFactoryImpl(SetOfClasses exclusions) {
     this.exclusions = exclusions;
@@ -128,10 +134,42 @@ public class ClassLoaderFactoryImpl implements ClassLoaderFactory {
                   classLoaderReference, scope.getArrayClassLoader(), parent, exclusions, cha);
         }
       }
+    if (cl instanceof ClassLoaderImpl) {
+      ((ClassLoaderImpl) cl).setNumberOfThreads(numberOfThreads);
+      ((ClassLoaderImpl) cl).setSnapshot(snapshot);
+    }
     cl.init(scope.getModules(classLoaderReference));
     return cl;
   }
 
+  public int getNumberOfThreads() {
+    return numberOfThreads;
+  }
+
+  /**
+   * @param n how many threads the class loaders should use to read and parse class files; 1 (the
+   *     default) loads classes sequentially
+   */
+  public void setNumberOfThreads(int n) {
+    if (n < 1) {
+      throw new IllegalArgumentException("invalid number of threads: " + n);
+    }
+    numberOfThreads = n;
+  }
+
+  public ClassHierarchySnapshot getSnapshot() {
+    return snapshot;
+  }
+
+  /**
+   * @param snapshot recorded class headers the class loaders should use instead of parsing the
+   *     class files of unchanged jar files, and which they should extend; null (the default) parses
+   *     all class files
+   */
+  public void setSnapshot(ClassHierarchySnapshot snapshot) {
+    this.snapshot = snapshot;
+  }
+
   /** A waring when we fail to load an appropriate class loader implementation */
   private static class InvalidClassLoaderImplementation extends Warning {
 
@@ -10,8 +10,10 @@
  */
 package com.ibm.wala.classLoader;
 
+import com.ibm.wala.classLoader.ClassHierarchySnapshot.ModuleSnapshot;
 import com.ibm.wala.core.util.io.FileProvider;
 import com.ibm.wala.core.util.io.FileSuffixes;
+import com.ibm.wala.core.util.io.HashedFileStore;
 import com.ibm.wala.core.util.shrike.ShrikeClassReaderHandle;
 import com.ibm.wala.core.util.strings.Atom;
 import com.ibm.wala.core.util.warnings.Warning;
@@ -25,22 +27,26 @@ import com.ibm.wala.types.TypeName;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.concurrent.WorkerPool;
 import com.ibm.wala.util.config.SetOfClasses;
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.JarInputStream;
@@ -72,6 +78,15 @@ public class ClassLoaderImpl implements IClassLoader {
   /** an object to delegate to for loading of array classes */
   private final ArrayClassLoader arrayClassLoader;
 
+  /** How many threads read and parse class files in {@link #init(List)}? */
+  private int numberOfThreads = 1;
+
+  /** In parallel mode, how many class files does a single task parse? */
+  private static final int PARSE_BATCH_SIZE = 256;
+
+  /** recorded class headers to create classes from instead of parsing them, or null */
+  private ClassHierarchySnapshot snapshot;
+
   /**
    * @param loader class loader reference identifying this loader
    * @param parent parent loader for delegation
@@ -206,75 +221,129 @@ public class ClassLoaderImpl implements IClassLoader {
   }
 
   /** Set up the set of classes loaded by this object. */
-  @SuppressWarnings("unused")
   private void loadAllClasses(
-      Collection<ModuleEntry> moduleEntries, Map<String, Object> fileContents, boolean isJMODType) {
+      Collection<ModuleEntry> moduleEntries,
+      Map<String, Object> fileContents,
+      boolean isJMODType,
+      Module archive,
+      ModuleSnapshot moduleSnapshot) {
     for (ModuleEntry entry : moduleEntries) {
-      // java11 support for jmod files
-      if (!entry.isClassFile()
-          || (isJMODType && entry.getClassName().startsWith("classes/module-info"))) {
+      String className = getClassNameToLoad(entry, isJMODType);
+      if (className == null) {
         continue;
       }
-
-      @SuppressWarnings("NonConstantStringShouldBeStringBuffer")
-      String className = entry.getClassName().replace('.', '/');
-
-      // java11 support for jmod files
-      if (isJMODType && className.startsWith("classes/")) {
-        className = className.replace("classes/", "");
-      }
-
       if (DEBUG_LEVEL > 0) {
-        System.err.println("Consider " + className);
+        System.err.println("Load class " + className);
       }
-
-      if (exclusions != null && exclusions.contains(className)) {
-        if (DEBUG_LEVEL > 0) {
-          System.err.println("Excluding " + className);
+      TypeName T = TypeName.string2TypeName(className);
+      if (loadedClasses.get(T) != null) {
+        Warnings.add(MultipleImplementationsWarning.create(className));
+      } else if (parent != null && parent.lookupClass(T) != null) {
+        Warnings.add(MultipleImplementationsWarning.create(className));
+      } else {
+        IClass klass =
+            parseClass(
+                entry,
+                T,
+                fileContents,
+                entry.getContainer() == archive ? moduleSnapshot : null);
+        if (klass != null) {
+          loadedClasses.put(T, klass);
+          if (DEBUG_LEVEL > 1) {
+            System.err.println("put " + T + ' ');
+          }
+        } else {
+          Warnings.add(InvalidClassFile.create(className));
         }
-        continue;
       }
+    }
+  }
+
+  /**
+   * @return the name, in bytecode format, of the class that entry defines, or null if entry should
+   *     not be loaded
+   */
+  private String getClassNameToLoad(ModuleEntry entry, boolean isJMODType) {
+    // java11 support for jmod files
+    if (!entry.isClassFile()
+        || (isJMODType && entry.getClassName().startsWith("classes/module-info"))) {
+      return null;
+    }
 
-      ShrikeClassReaderHandle entryReader = new ShrikeClassReaderHandle(entry);
+    @SuppressWarnings("NonConstantStringShouldBeStringBuffer")
+    String className = entry.getClassName().replace('.', '/');
 
-      className = 'L' + className;
+    // java11 support for jmod files
+    if (isJMODType && className.startsWith("classes/")) {
+      className = className.replace("classes/", "");
+    }
+
+    if (DEBUG_LEVEL > 0) {
+      System.err.println("Consider " + className);
+    }
+
+    if (exclusions != null && exclusions.contains(className)) {
       if (DEBUG_LEVEL > 0) {
-        System.err.println("Load class " + className);
+        System.err.println("Excluding " + className);
       }
-      try {
-        TypeName T = TypeName.string2TypeName(className);
-        if (loadedClasses.get(T) != null) {
-          Warnings.add(MultipleImplementationsWarning.create(className));
-        } else if (parent != null && parent.lookupClass(T) != null) {
-          Warnings.add(MultipleImplementationsWarning.create(className));
-        } else {
-          // try to read from memory
-          ShrikeClassReaderHandle reader = entryReader;
-          if (fileContents != null) {
-            final Object contents = fileContents.get(entry.getName());
-            if (contents != null) {
-              // reader that uses the in-memory bytes
-              reader = new ByteArrayReaderHandle(entry, (byte[]) contents);
-            }
-          }
-          ShrikeClass tmpKlass = new ShrikeClass(reader, this, cha);
-          if (tmpKlass.getReference().getName().equals(T)) {
-            // always used the reader based on the entry after this point,
-            // so we can null out and re-read class file contents
-            loadedClasses.put(T, new ShrikeClass(entryReader, this, cha));
-            if (DEBUG_LEVEL > 1) {
-              System.err.println("put " + T + ' ');
-            }
-          } else {
-            Warnings.add(InvalidClassFile.create(className));
-          }
+      return null;
+    }
+    return 'L' + className;
+  }
+
+  /**
+   * Parse the class file in entry. This touches no state of this loader, so it may run
+   * concurrently for different entries.
+   *
+   * @param moduleSnapshot if not null, the class is created from the header recorded there, if
+   *     any; otherwise, the header of the parsed class is recorded there
+   * @return the class, or null if the class file is invalid or does not define class T
+   */
+  private IClass parseClass(
+      ModuleEntry entry,
+      TypeName T,
+      Map<String, Object> fileContents,
+      ModuleSnapshot moduleSnapshot) {
+    ShrikeClassReaderHandle entryReader = new ShrikeClassReaderHandle(entry);
+    if (moduleSnapshot != null) {
+      ClassHierarchySnapshot.ClassHeader header = moduleSnapshot.lookup(entry);
+      if (header != null) {
+        if (!header.isValid()) {
+          return null;
         }
-      } catch (InvalidClassFileException e) {
-        if (DEBUG_LEVEL > 0) {
-          System.err.println("Ignoring class " + className + " due to InvalidClassFileException");
+        TypeName name = TypeName.findOrCreate(header.name);
+        return name.equals(T) ? new ShrikeClass(entryReader, this, cha, name, header) : null;
+      }
+    }
+    ShrikeClass klass = parseClass(entry, entryReader, fileContents);
+    if (moduleSnapshot != null) {
+      moduleSnapshot.record(entry, klass);
+    }
+    return klass != null && klass.getReference().getName().equals(T) ? klass : null;
+  }
+
+  /** @return the class defined in entry, or null if the class file is invalid */
+  private ShrikeClass parseClass(
+      ModuleEntry entry, ShrikeClassReaderHandle entryReader, Map<String, Object> fileContents) {
+    try {
+      // try to read from memory
+      ShrikeClassReaderHandle reader = entryReader;
+      if (fileContents != null) {
+        final Object contents = fileContents.get(entry.getName());
+        if (contents != null) {
+          // reader that uses the in-memory bytes
+          reader = new ByteArrayReaderHandle(entry, (byte[]) contents);
         }
-        Warnings.add(InvalidClassFile.create(className));
       }
+      ShrikeClass tmpKlass = new ShrikeClass(reader, this, cha);
+      // always used the reader based on the entry after this point,
+      // so we can null out and re-read class file contents
+      return reader == entryReader ? tmpKlass : new ShrikeClass(entryReader, this, cha);
+    } catch (InvalidClassFileException e) {
+      if (DEBUG_LEVEL > 0) {
+        System.err.println("Ignoring " + entry + " due to InvalidClassFileException");
+      }
+      return null;
     }
   }
 
@@ -324,18 +393,7 @@ public class ClassLoaderImpl implements IClassLoader {
     if (size == null) {
       return null;
     }
-    ByteArrayOutputStream S = new ByteArrayOutputStream();
-    int n = 0;
-    long count = 0;
-    byte[] buffer = new byte[1024];
-    while (n > -1 && count < size) {
-      n = is.read(buffer, 0, 1024);
-      if (n > -1) {
-        S.write(buffer, 0, n);
-        count += n;
-      }
-    }
-    return S.toByteArray();
+    return is.readNBytes(Math.toIntExact(size));
   }
 
   /** A warning when we find more than one implementation of a given class name */
@@ -454,6 +512,13 @@ public class ClassLoaderImpl implements IClassLoader {
     if (modules == null) {
       throw new IllegalArgumentException("modules is null");
     }
+    if (numberOfThreads > 1) {
+      initConcurrently(modules);
+      if (snapshot != null) {
+        snapshot.save();
+      }
+      return;
+    }
 
     // module are loaded according to the given order (same as in Java VM)
     Set<ModuleEntry> classModuleEntries = HashSetFactory.make();
@@ -468,6 +533,7 @@ public class ClassLoaderImpl implements IClassLoader {
         System.err.println("add archive: " + archive);
       }
       // byte[] jarFileContents = null;
+      ModuleSnapshot moduleSnapshot = null;
       if (OPTIMIZE_JAR_FILE_IO && archive instanceof JarFileModule) {
         // if we have a jar file, we read the whole thing into memory and operate on that; enables
         // more
@@ -485,7 +551,7 @@ public class ClassLoaderImpl implements IClassLoader {
         // a JarFile.  Will leave this as is for now.  --MS
         // jarFileContents = archive instanceof JarFileModule ? getJarFileContents((JarFileModule)
         // archive) : null;
-        getJarFileContents((JarFileModule) archive);
+        moduleSnapshot = readJarFile((JarFileModule) archive);
       }
       Set<ModuleEntry> classFiles = getClassFiles(archive);
       removeClassFiles(classFiles, classModuleEntries);
@@ -502,11 +568,205 @@ public class ClassLoaderImpl implements IClassLoader {
         // }
         // jarFileContents = null;
       }
-      loadAllClasses(classFiles, allClassAndSourceFileContents, isJMODType);
+      loadAllClasses(
+          classFiles, allClassAndSourceFileContents, isJMODType, archive, moduleSnapshot);
       loadAllSources(sourceFiles);
       classModuleEntries.addAll(classFiles);
       sourceModuleEntries.addAll(sourceFiles);
     }
+    if (snapshot != null) {
+      snapshot.save();
+    }
+  }
+
+  /** The class and source files found in one module, and the classes to load from it. */
+  private static class ArchiveContents {
+    final Set<ModuleEntry> classFiles;
+
+    final Set<ModuleEntry> sourceFiles;
+
+    final boolean isJMODType;
+
+    final Module archive;
+
+    /** the recorded class headers of the archive, or null */
+    final ModuleSnapshot snapshot;
+
+    final List<PendingClass> classes = new ArrayList<>();
+
+    ArchiveContents(
+        Set<ModuleEntry> classFiles,
+        Set<ModuleEntry> sourceFiles,
+        boolean isJMODType,
+        Module archive,
+        ModuleSnapshot snapshot) {
+      this.classFiles = classFiles;
+      this.sourceFiles = sourceFiles;
+      this.isJMODType = isJMODType;
+      this.archive = archive;
+      this.snapshot = snapshot;
+    }
+  }
+
+  /** A class file to be parsed by a worker thread, then entered into {@link #loadedClasses}. */
+  private static class PendingClass {
+    final ModuleEntry entry;
+
+    final String className;
+
+    final TypeName name;
+
+    /** does the parent loader already define this class, so it need not be parsed? */
+    final boolean shadowed;
+
+    /** the recorded class headers of the module that holds entry, or null */
+    final ModuleSnapshot snapshot;
+
+    /** the parsed class; null if the class file is invalid */
+    IClass klass;
+
+    PendingClass(
+        ModuleEntry entry,
+        String className,
+        TypeName name,
+        boolean shadowed,
+        ModuleSnapshot snapshot) {
+      this.entry = entry;
+      this.className = className;
+      this.name = name;
+      this.shadowed = shadowed;
+      this.snapshot = snapshot;
+    }
+  }
+
+  /**
+   * A parallel version of {@link #init(List)}. The modules are scanned for class and source files
+   * concurrently, and then all class files are parsed concurrently. Finally the classes are entered
+   * into {@link #loadedClasses} on the calling thread in module order, so the result, including
+   * which of several definitions of a class is chosen, is the same as with a single thread.
+   */
+  private void initConcurrently(List<Module> modules) throws IOException {
+    ExecutorService executor = WorkerPool.make(numberOfThreads, "class loader worker");
+    try {
+      List<Future<ArchiveContents>> scans = new ArrayList<>(modules.size());
+      for (Module archive : modules) {
+        scans.add(executor.submit(() -> scanArchive(archive)));
+      }
+      List<ArchiveContents> archives = new ArrayList<>(modules.size());
+      for (Future<ArchiveContents> f : scans) {
+        archives.add(getWorkerResult(f));
+      }
+
+      // decide which class files to parse, in module order as in the sequential loader
+      Set<ModuleEntry> classModuleEntries = HashSetFactory.make();
+      List<PendingClass> pending = new ArrayList<>();
+      for (ArchiveContents archive : archives) {
+        removeClassFiles(archive.classFiles, classModuleEntries);
+        for (ModuleEntry entry : archive.classFiles) {
+          String className = getClassNameToLoad(entry, archive.isJMODType);
+          if (className != null) {
+            TypeName T = TypeName.string2TypeName(className);
+            boolean shadowed = parent != null && parent.lookupClass(T) != null;
+            ModuleSnapshot s = entry.getContainer() == archive.archive ? archive.snapshot : null;
+            PendingClass p = new PendingClass(entry, className, T, shadowed, s);
+            archive.classes.add(p);
+            pending.add(p);
+          }
+        }
+        classModuleEntries.addAll(archive.classFiles);
+      }
+
+      List<Future<?>> parses = new ArrayList<>();
+      for (int i = 0; i < pending.size(); i += PARSE_BATCH_SIZE) {
+        List<PendingClass> batch =
+            pending.subList(i, Math.min(i + PARSE_BATCH_SIZE, pending.size()));
+        parses.add(
+            executor.submit(
+                () -> {
+                  for (PendingClass p : batch) {
+                    if (!p.shadowed) {
+                      p.klass = parseClass(p.entry, p.name, null, p.snapshot);
+                    }
+                  }
+                }));
+      }
+      for (Future<?> f : parses) {
+        getWorkerResult(f);
+      }
+
+      for (ArchiveContents archive : archives) {
+        for (PendingClass p : archive.classes) {
+          if (p.shadowed || loadedClasses.get(p.name) != null) {
+            Warnings.add(MultipleImplementationsWarning.create(p.className));
+          } else if (p.klass != null) {
+            loadedClasses.put(p.name, p.klass);
+          } else {
+            Warnings.add(InvalidClassFile.create(p.className));
+          }
+        }
+        loadAllSources(archive.sourceFiles);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private ArchiveContents scanArchive(Module archive) throws IOException {
+    boolean isJMODType = false;
+    ModuleSnapshot moduleSnapshot = null;
+    if (archive instanceof JarFileModule) {
+      JarFile jarFile = ((JarFileModule) archive).getJarFile();
+      isJMODType = (jarFile != null) && jarFile.getName().endsWith(".jmod");
+      if (OPTIMIZE_JAR_FILE_IO) {
+        moduleSnapshot = readJarFile((JarFileModule) archive);
+      }
+    }
+    return new ArchiveContents(
+        getClassFiles(archive), getSourceFiles(archive), isJMODType, archive, moduleSnapshot);
+  }
+
+  private static <T> T getWorkerResult(Future<T> f) throws IOException {
+    return WorkerPool.getResult(
+        f, IOException.class, e -> new IOException("interrupted while loading classes", e));
+  }
+
+  public int getNumberOfThreads() {
+    return numberOfThreads;
+  }
+
+  /**
+   * @param n how many threads should read and parse class files when this loader is initialized; 1
+   *     selects the sequential loader
+   */
+  public void setNumberOfThreads(int n) {
+    if (n < 1) {
+      throw new IllegalArgumentException("invalid number of threads: " + n);
+    }
+    numberOfThreads = n;
+  }
+
+  public ClassHierarchySnapshot getSnapshot() {
+    return snapshot;
+  }
+
+  /**
+   * @param snapshot recorded class headers to create classes from instead of parsing the class
+   *     files of unchanged jar files; the headers of classes that are parsed are added to it. null
+   *     (the default) parses all class files.
+   */
+  public void setSnapshot(ClassHierarchySnapshot snapshot) {
+    this.snapshot = snapshot;
+  }
+
+  /**
+   * Read the jar file into memory to warm up the file system cache.
+   *
+   * @return the recorded class headers of the jar file, or null if this loader has no snapshot
+   */
+  private ModuleSnapshot readJarFile(JarFileModule archive) {
+    MessageDigest digest = snapshot == null ? null : HashedFileStore.makeDigest();
+    boolean read = getJarFileContents(archive, digest);
+    return read && digest != null ? snapshot.getModule(digest) : null;
   }
 
   @SuppressWarnings("unused")
@@ -526,8 +786,12 @@ public class ClassLoaderImpl implements IClassLoader {
     return result;
   }
 
-  /** get the contents of a jar file. if any IO exceptions occur, catch and return null. */
-  private static void getJarFileContents(JarFileModule archive) {
+  /**
+   * get the contents of a jar file, and hash them with digest if it is not null.
+   *
+   * @return false if any IO exceptions occur
+   */
+  private static boolean getJarFileContents(JarFileModule archive, MessageDigest digest) {
     String jarFileName = archive.getJarFile().getName();
     InputStream s = null;
     try {
@@ -537,9 +801,14 @@ public class ClassLoaderImpl implements IClassLoader {
       byte[] b = new byte[1024];
       int n = s.read(b);
       while (n != -1) {
+        if (digest != null) {
+          digest.update(b, 0, n);
+        }
         n = s.read(b);
       }
+      return true;
     } catch (IOException e) {
+      return false;
     } finally {
       try {
         if (s != null) {
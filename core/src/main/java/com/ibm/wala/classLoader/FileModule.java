@@ -16,7 +16,9 @@ import com.ibm.wala.util.debug.UnimplementedError;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
 import java.util.Iterator;
 
 /** A module which is a wrapper around a file in the filesystem */
@@ -83,6 +85,12 @@ public abstract class FileModule implements Module, ModuleEntry {
     }
   }
 
+  /** read the file in one call, into an array of its size */
+  @Override
+  public byte[] getBytes() throws IOException {
+    return Files.readAllBytes(file.toPath());
+  }
+
   @Override
   public boolean isModuleFile() {
     return false;
@@ -13,6 +13,7 @@ package com.ibm.wala.classLoader;
 
 import com.ibm.wala.core.util.io.FileSuffixes;
 import com.ibm.wala.util.debug.Assertions;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.jar.JarFile;
 
@@ -51,6 +52,12 @@ public class JarFileEntry implements ModuleEntry {
     }
   }
 
+  /** read the entry in place from the mapped jar file if possible, rather than through a stream */
+  @Override
+  public byte[] getBytes() throws IOException {
+    return jarFileModule.readEntry(entryName);
+  }
+
   public long getSize() {
     // TODO: cache this?
     return jarFileModule.getJarFile().getEntry(entryName).getSize();
@@ -10,12 +10,14 @@
  */
 package com.ibm.wala.classLoader;
 
+import com.ibm.wala.core.util.io.MappedZipFile;
 import com.ibm.wala.core.util.ref.CacheReference;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.debug.Assertions;
-import com.ibm.wala.util.io.FileUtil;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -34,6 +36,11 @@ public class JarFileModule implements Module {
    */
   private final HashMap<ZipEntry, Object> cache = HashMapFactory.make();
 
+  /** the jar file mapped into memory, or null if it has not been mapped or cannot be */
+  private MappedZipFile mapped;
+
+  private boolean triedMapping = false;
+
   public JarFileModule(JarFile f) {
     if (f == null) {
       throw new IllegalArgumentException("null f");
@@ -98,10 +105,8 @@ public class JarFileModule implements Module {
     }
 
     try {
-      InputStream s = file.getInputStream(entry);
-      byte[] bb = FileUtil.readBytes(s);
+      byte[] bb = readEntry(entry.getName());
       cache.put(entry, CacheReference.make(bb));
-      s.close();
       return bb;
     } catch (IOException e) {
       e.printStackTrace();
@@ -110,6 +115,49 @@ public class JarFileModule implements Module {
     }
   }
 
+  /**
+   * @return the contents of a nested archive. For a stored entry this is a slice of the mapped jar
+   *     file, so the nested archive can be read in place.
+   */
+  public ByteBuffer getContentsBuffer(ZipEntry entry) {
+    MappedZipFile m = getMappedFile();
+    if (m != null && m.containsEntry(entry.getName())) {
+      try {
+        return m.getContents(entry.getName());
+      } catch (IOException e) {
+        // read it through the jar file instead
+      }
+    }
+    return ByteBuffer.wrap(getContents(entry));
+  }
+
+  /** @return a new array holding the contents of the entry with the given name */
+  byte[] readEntry(String name) throws IOException {
+    MappedZipFile m = getMappedFile();
+    if (m != null && m.containsEntry(name)) {
+      return m.getBytes(name);
+    }
+    try (InputStream s = file.getInputStream(file.getEntry(name))) {
+      return s.readAllBytes();
+    }
+  }
+
+  /**
+   * Map the jar file into memory on first use. Jar files that {@link MappedZipFile} does not
+   * support are read through {@link JarFile} instead.
+   */
+  private synchronized MappedZipFile getMappedFile() {
+    if (!triedMapping) {
+      triedMapping = true;
+      try {
+        mapped = MappedZipFile.open(new File(file.getName()));
+      } catch (IOException e) {
+        mapped = null;
+      }
+    }
+    return mapped;
+  }
+
   public JarFile getJarFile() {
     return file;
   }
@@ -11,6 +11,7 @@
 
 package com.ibm.wala.classLoader;
 
+import java.io.IOException;
 import java.io.InputStream;
 
 /** A ModuleEntry represents a wrapper around a file representation in a {@link Module}. */
@@ -28,6 +29,16 @@ public interface ModuleEntry {
   /** @return an InputStream which provides the contents of this logical file. */
   InputStream getInputStream();
 
+  /**
+   * @return a new array holding the contents of this logical file. Entries that know their size,
+   *     or can read their contents in place, override this to avoid copying through a stream.
+   */
+  default byte[] getBytes() throws IOException {
+    try (InputStream s = getInputStream()) {
+      return s.readAllBytes();
+    }
+  }
+
   /**
    * @return true iff this module entry (file) represents a module in its own right. e.g., a jar
    *     file which is an entry in another jar file.
@@ -12,6 +12,7 @@ package com.ibm.wala.classLoader;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.zip.ZipEntry;
 
 public class NestedJarFileModule extends AbstractNestedJarFileModule {
@@ -37,6 +38,11 @@ public class NestedJarFileModule extends AbstractNestedJarFileModule {
     return new ByteArrayInputStream(parent.getContents(entry));
   }
 
+  @Override
+  protected ByteBuffer getNestedBuffer() {
+    return parent.getContentsBuffer(entry);
+  }
+
   @Override
   public String toString() {
     return "Nested Jar File:" + entry.getName();
@@ -47,6 +47,9 @@ public final class ShrikeClass extends JVMClass<IClassLoader> {
   /** The Shrike object that knows how to read the class file */
   private final ShrikeClassReaderHandle reader;
 
+  /** have the fields been read from the class file yet? */
+  private volatile boolean fieldsComputed;
+
   /** @throws IllegalArgumentException if reader is null */
   public ShrikeClass(ShrikeClassReaderHandle reader, IClassLoader loader, IClassHierarchy cha)
       throws InvalidClassFileException {
@@ -63,6 +66,43 @@ public final class ShrikeClass extends JVMClass<IClassLoader> {
     computeModifiers();
     computeInterfaceNames();
     computeFields();
+    fieldsComputed = true;
+  }
+
+  /**
+   * Create a class whose header was recorded in a {@link ClassHierarchySnapshot}. Nothing is read
+   * from the class file until the fields or methods of the class are needed.
+   */
+  ShrikeClass(
+      ShrikeClassReaderHandle reader,
+      IClassLoader loader,
+      IClassHierarchy cha,
+      TypeName name,
+      ClassHierarchySnapshot.ClassHeader header) {
+    super(loader, cha);
+    this.reader = reader;
+    typeReference = TypeReference.findOrCreate(loader.getReference(), name);
+    this.hashCode = 2161 * getReference().hashCode();
+    superName = header.superName;
+    modifiers = header.modifiers;
+    interfaceNames = header.interfaceNames;
+  }
+
+  @Override
+  protected void computeFieldsIfNeeded() {
+    if (!fieldsComputed) {
+      synchronized (this) {
+        if (!fieldsComputed) {
+          try {
+            computeFields();
+          } catch (InvalidClassFileException e) {
+            e.printStackTrace();
+            Assertions.UNREACHABLE();
+          }
+          fieldsComputed = true;
+        }
+      }
+    }
   }
 
   /**
@@ -17,6 +17,7 @@ import com.ibm.wala.shrike.shrikeCT.InvalidClassFileException;
 import com.ibm.wala.ssa.DefUse;
 import com.ibm.wala.ssa.IR;
 import com.ibm.wala.ssa.IRFactory;
+import com.ibm.wala.ssa.IRSerializer;
 import com.ibm.wala.ssa.SSAArrayLengthInstruction;
 import com.ibm.wala.ssa.SSABuilder;
 import com.ibm.wala.ssa.SSACFG;
@@ -28,6 +29,7 @@ import com.ibm.wala.ssa.SymbolTable;
 import com.ibm.wala.ssa.analysis.DeadAssignmentElimination;
 import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.WalaRuntimeException;
+import java.io.IOException;
 import java.util.Collection;
 
 /** An {@link IRFactory} that for methods that originate from Shrike. */
@@ -59,6 +61,62 @@ public class ShrikeIRFactory implements IRFactory<IBytecodeMethod<IInstruction>>
 
     final SSACFG newCfg = new SSACFG(method, shrikeCFG, newInstrs);
 
+    return makeIR(method, options, shrikeCFG, symbolTable, newInstrs, newCfg, null, null);
+  }
+
+  /**
+   * Rebuild the IR for a method from the binary form written by {@link IRSerializer}, skipping SSA
+   * construction.
+   *
+   * @param data the result of {@link IRSerializer#toBytes(IR)} for an IR this factory built for
+   *     method with equivalent options
+   * @throws IOException if data is damaged or does not match the method's bytecode
+   */
+  public IR restoreIR(
+      final IBytecodeMethod<IInstruction> method, final SSAOptions options, byte[] data)
+      throws IOException {
+    if (method == null) {
+      throw new IllegalArgumentException("null method");
+    }
+    com.ibm.wala.shrike.shrikeBT.IInstruction[] shrikeInstructions = null;
+    try {
+      shrikeInstructions = method.getInstructions();
+    } catch (InvalidClassFileException e) {
+      throw new WalaRuntimeException("bad method bytecodes", e);
+    }
+    final ShrikeCFG shrikeCFG = makeCFG(method);
+
+    final SymbolTable symbolTable = new SymbolTable(method.getNumberOfParameters());
+    final SSAInstruction[] newInstrs = new SSAInstruction[shrikeInstructions.length];
+
+    final SSACFG newCfg = new SSACFG(method, shrikeCFG, newInstrs);
+
+    IR.SSA2LocalMap localMap =
+        IRSerializer.fromBytes(data, method, shrikeCFG, newCfg, newInstrs, symbolTable);
+    return makeIR(
+        method,
+        options,
+        shrikeCFG,
+        symbolTable,
+        newInstrs,
+        newCfg,
+        localMap,
+        new ShrikeIndirectionData(newInstrs.length));
+  }
+
+  /**
+   * @param restoredIndirectionData if non-null, the instructions, symbol table and cfg have been
+   *     restored from a serialized IR, and the SSA construction is skipped
+   */
+  private static IR makeIR(
+      final IBytecodeMethod<IInstruction> method,
+      final SSAOptions options,
+      final ShrikeCFG shrikeCFG,
+      final SymbolTable symbolTable,
+      final SSAInstruction[] newInstrs,
+      final SSACFG newCfg,
+      final IR.SSA2LocalMap restoredLocalMap,
+      final ShrikeIndirectionData restoredIndirectionData) {
     return new IR(method, newInstrs, symbolTable, newCfg, options) {
       private final SSA2LocalMap localMap;
 
@@ -142,22 +200,27 @@ public class ShrikeIRFactory implements IRFactory<IBytecodeMethod<IInstruction>>
       }
 
       {
-        SSABuilder builder =
-            SSABuilder.make(
-                method,
-                newCfg,
-                shrikeCFG,
-                newInstrs,
-                symbolTable,
-                buildLocalMap,
-                options.getPiNodePolicy());
-        builder.build();
-        if (buildLocalMap) localMap = builder.getLocalMap();
-        else localMap = null;
-
-        indirectionData = builder.getIndirectionData();
-
-        eliminateDeadPhis();
+        if (restoredIndirectionData != null) {
+          localMap = restoredLocalMap;
+          indirectionData = restoredIndirectionData;
+        } else {
+          SSABuilder builder =
+              SSABuilder.make(
+                  method,
+                  newCfg,
+                  shrikeCFG,
+                  newInstrs,
+                  symbolTable,
+                  buildLocalMap,
+                  options.getPiNodePolicy());
+          builder.build();
+          if (buildLocalMap) localMap = builder.getLocalMap();
+          else localMap = null;
+
+          indirectionData = builder.getIndirectionData();
+
+          eliminateDeadPhis();
+        }
         pruneExceptionsForSafeArrayCreations();
 
         setupLocationMap();
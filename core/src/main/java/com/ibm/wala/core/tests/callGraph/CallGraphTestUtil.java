@@ -11,23 +11,43 @@
 package com.ibm.wala.core.tests.callGraph;
 
 import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.util.TestConstants;
 import com.ibm.wala.core.util.config.AnalysisScopeReader;
 import com.ibm.wala.core.util.io.FileProvider;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
 import com.ibm.wala.ipa.callgraph.AnalysisOptions;
 import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
 import com.ibm.wala.ipa.callgraph.Entrypoint;
 import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
+import com.ibm.wala.ipa.callgraph.impl.AbstractRootMethod;
 import com.ibm.wala.ipa.callgraph.impl.Util;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.LocalPointerKey;
 import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
 import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
+import com.ibm.wala.ssa.SSACheckCastInstruction;
+import com.ibm.wala.ssa.SSAFieldAccessInstruction;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSANewInstruction;
 import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Pair;
 import com.ibm.wala.util.perf.StopwatchGC;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /** Utilities for call graph tests */
 public class CallGraphTestUtil {
@@ -208,4 +228,101 @@ public class CallGraphTestUtil {
     }
     return Pair.make(cg, builder.getPointerAnalysis());
   }
+
+  /** @return the class hierarchy of the regression test data, with the regression exclusions */
+  public static IClassHierarchy makeRegressionClassHierarchy()
+      throws ClassHierarchyException, IOException {
+    return ClassHierarchyFactory.make(
+        makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA, REGRESSION_EXCLUSIONS));
+  }
+
+  /**
+   * @return a 0-1-CFA builder with default options for the main method of mainClass; the options
+   *     may still be changed before the call graph is built
+   */
+  public static SSAPropagationCallGraphBuilder makeZeroOneCFABuilder(
+      IClassHierarchy cha, String mainClass) {
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(cha, mainClass);
+    AnalysisOptions options = makeAnalysisOptions(cha.getScope(), entrypoints);
+    return Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha);
+  }
+
+  /**
+   * @return the {@link #pointsToSets(PointerAnalysis)} of a 0-1-CFA of the main method of
+   *     mainClass, built with the default options as changed by configuration
+   */
+  public static Map<String, Set<String>> zeroOneCFAPointsToSets(
+      IClassHierarchy cha, String mainClass, Consumer<AnalysisOptions> configuration)
+      throws IllegalArgumentException, CancelException {
+    SSAPropagationCallGraphBuilder builder = makeZeroOneCFABuilder(cha, mainClass);
+    configuration.accept(builder.getOptions());
+    builder.makeCallGraph(builder.getOptions(), null);
+    return pointsToSets(builder.getPointerAnalysis());
+  }
+
+  /** @return the nodes and edges of cg, as strings, for comparing call graphs */
+  public static Set<String> edges(CallGraph cg) {
+    Set<String> result = HashSetFactory.make();
+    for (CGNode n : cg) {
+      result.add(n.toString());
+      for (Iterator<CGNode> it = cg.getSuccNodes(n); it.hasNext(); ) {
+        result.add(n + " -> " + it.next());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the non-empty points-to sets of pa, as strings, for comparing pointer analyses. The
+   *     value numbers of locals of the synthetic root methods depend on the order in which nodes
+   *     were discovered, so these locals are named by their defining instruction instead, and
+   *     locals with the same name share one set.
+   */
+  public static Map<String, Set<String>> pointsToSets(PointerAnalysis<InstanceKey> pa) {
+    Map<String, Set<String>> result = HashMapFactory.make();
+    for (PointerKey pk : pa.getPointerKeys()) {
+      Set<String> pts = HashSetFactory.make();
+      for (InstanceKey ik : pa.getPointsToSet(pk)) {
+        pts.add(ik.toString());
+      }
+      if (!pts.isEmpty()) {
+        result.computeIfAbsent(nameOf(pk), k -> HashSetFactory.make()).addAll(pts);
+      }
+    }
+    return result;
+  }
+
+  private static String nameOf(PointerKey pk) {
+    if (pk instanceof LocalPointerKey) {
+      LocalPointerKey lpk = (LocalPointerKey) pk;
+      if (lpk.getNode().getMethod() instanceof AbstractRootMethod) {
+        AbstractRootMethod root = (AbstractRootMethod) lpk.getNode().getMethod();
+        return lpk.getNode() + " " + definitionOf(root, lpk.getValueNumber());
+      }
+    }
+    return pk.toString();
+  }
+
+  /** @return a description of the instruction of root that defines vn, without value numbers */
+  private static String definitionOf(AbstractRootMethod root, int vn) {
+    for (SSAInstruction s : root.statements) {
+      for (int i = 0; i < s.getNumberOfDefs(); i++) {
+        if (s.getDef(i) == vn) {
+          String kind = s.getClass().getSimpleName() + " def " + i;
+          if (s instanceof SSANewInstruction) {
+            return kind + ' ' + ((SSANewInstruction) s).getConcreteType();
+          } else if (s instanceof SSAAbstractInvokeInstruction) {
+            return kind + ' ' + ((SSAAbstractInvokeInstruction) s).getDeclaredTarget();
+          } else if (s instanceof SSAFieldAccessInstruction) {
+            return kind + ' ' + ((SSAFieldAccessInstruction) s).getDeclaredField();
+          } else if (s instanceof SSACheckCastInstruction) {
+            SSACheckCastInstruction cast = (SSACheckCastInstruction) s;
+            return kind + ' ' + Arrays.toString(cast.getDeclaredResultTypes());
+          }
+          return kind;
+        }
+      }
+    }
+    return "constant";
+  }
 }
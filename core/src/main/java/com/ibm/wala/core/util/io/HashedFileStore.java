@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.util.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A directory of files that cache what was derived from some input, each named by the SHA-256 hash
+ * of that input. Every file starts with a header of a magic number and format versions; a file
+ * whose header differs, or that cannot be read, is ignored. Files are read through a memory map,
+ * and written to a temporary file first, so that readers never see a partial file.
+ */
+public class HashedFileStore {
+
+  /**
+   * Reads the contents of a file after its header. If the contents are damaged, it may throw a
+   * {@link BufferUnderflowException}, {@link IllegalArgumentException} or {@link
+   * NegativeArraySizeException}, and the file is then ignored.
+   */
+  @FunctionalInterface
+  public interface ContentReader<T> {
+    T read(ByteBuffer buffer) throws IOException;
+  }
+
+  /** Writes the contents of a file after its header. */
+  @FunctionalInterface
+  public interface ContentWriter {
+    void write(DataOutputStream out) throws IOException;
+  }
+
+  private final File directory;
+
+  private final String suffix;
+
+  private final int magic;
+
+  private final int[] versions;
+
+  /**
+   * @param suffix the suffix of the file names, after the hash
+   * @param magic the first int of each file
+   * @param versions the ints that follow the magic number; a file with other versions is ignored
+   * @throws IllegalArgumentException if directory is null
+   */
+  public HashedFileStore(File directory, String suffix, int magic, int... versions) {
+    if (directory == null) {
+      throw new IllegalArgumentException("directory is null");
+    }
+    this.directory = directory;
+    this.suffix = suffix;
+    this.magic = magic;
+    this.versions = versions.clone();
+  }
+
+  public File getDirectory() {
+    return directory;
+  }
+
+  /** @return a digest to hash the input of a file with */
+  public static MessageDigest makeDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  /** @return the hash computed by digest, as a file name; the digest is reset */
+  public static String toHash(MessageDigest digest) {
+    StringBuilder hash = new StringBuilder();
+    for (byte b : digest.digest()) {
+      hash.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+    }
+    return hash.toString();
+  }
+
+  /**
+   * @return the contents of the file named by hash, or null if there is no such file, its header
+   *     differs or it is damaged
+   */
+  public <T> @Nullable T read(String hash, ContentReader<T> reader) {
+    File file = new File(directory, hash + suffix);
+    if (!file.isFile()) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.getInt() != magic) {
+        return null;
+      }
+      for (int v : versions) {
+        if (buffer.getInt() != v) {
+          return null;
+        }
+      }
+      return reader.read(buffer);
+    } catch (IOException
+        | BufferUnderflowException
+        | IllegalArgumentException
+        | NegativeArraySizeException e) {
+      return null;
+    }
+  }
+
+  /** Write the file named by hash, replacing any previous one. */
+  public void write(String hash, ContentWriter writer) throws IOException {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("could not create " + directory);
+    }
+    File tmp = File.createTempFile(hash, ".tmp", directory);
+    try {
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+        out.writeInt(magic);
+        for (int v : versions) {
+          out.writeInt(v);
+        }
+        writer.write(out);
+      }
+      // write to a temporary file first, so that readers never see a partial file
+      Files.move(
+          tmp.toPath(),
+          new File(directory, hash + suffix).toPath(),
+          StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(tmp.toPath());
+    }
+  }
+
+  /** Read an array written by {@link #writeBytes(DataOutputStream, byte[])}. */
+  public static byte[] readBytes(ByteBuffer buffer) {
+    byte[] b = new byte[buffer.getInt()];
+    buffer.get(b);
+    return b;
+  }
+
+  /** Write an array preceded by its length. */
+  public static void writeBytes(DataOutputStream out, byte[] b) throws IOException {
+    out.writeInt(b.length);
+    out.write(b);
+  }
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.util.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * A read-only view of a zip or jar archive held in a {@link ByteBuffer}, usually a memory-mapped
+ * file. The central directory is read once. After that, stored entries are read in place as slices
+ * of the buffer. Deflated entries are inflated straight into arrays of their exact size, by {@link
+ * Inflater}s taken from a pool. Stored archives nested in an archive, as in Spring Boot
+ * executables, can be opened in place with {@link #MappedZipFile(ByteBuffer)}.
+ *
+ * <p>Archives that need ZIP64 extensions, span several disks, are encrypted or use compression
+ * methods other than deflate are not supported. For these, the constructor throws an {@link
+ * IOException}, and callers should fall back to {@link java.util.zip.ZipFile}.
+ */
+public class MappedZipFile {
+
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+
+  private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+
+  private static final int END_SIGNATURE = 0x06054b50;
+
+  private static final int LOCAL_HEADER_SIZE = 30;
+
+  private static final int CENTRAL_HEADER_SIZE = 46;
+
+  private static final int END_SIZE = 22;
+
+  private static final int STORED = 0;
+
+  private static final int DEFLATED = 8;
+
+  /** the largest number of idle inflaters to keep */
+  private static final int MAX_POOLED_INFLATERS = 16;
+
+  /** idle inflaters; each one holds native memory, so they are reused rather than created anew */
+  private static final ArrayDeque<Inflater> inflaters = new ArrayDeque<>();
+
+  /** the whole archive, in little-endian order; only absolute gets are used, so it can be shared */
+  private final ByteBuffer buffer;
+
+  /** the entries, by name, in the order of the central directory */
+  private final Map<String, Entry> entries;
+
+  private static final class Entry {
+    final boolean stored;
+
+    final int compressedSize;
+
+    final int size;
+
+    final int localHeaderOffset;
+
+    /** the offset of the entry data, found from the local header when first needed */
+    int dataOffset = -1;
+
+    Entry(boolean stored, int compressedSize, int size, int localHeaderOffset) {
+      this.stored = stored;
+      this.compressedSize = compressedSize;
+      this.size = size;
+      this.localHeaderOffset = localHeaderOffset;
+    }
+  }
+
+  /**
+   * @param buffer the archive, from its position to its limit
+   * @throws IOException if the archive is not a zip archive, or is not supported
+   */
+  public MappedZipFile(ByteBuffer buffer) throws IOException {
+    if (buffer == null) {
+      throw new IllegalArgumentException("buffer is null");
+    }
+    this.buffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+    this.entries = readCentralDirectory();
+  }
+
+  /**
+   * Map a file into memory and read its central directory.
+   *
+   * @throws IOException if the file cannot be mapped, is not a zip archive, or is not supported
+   */
+  public static MappedZipFile open(File f) throws IOException {
+    if (f == null) {
+      throw new IllegalArgumentException("f is null");
+    }
+    try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("too large to map: " + f);
+      }
+      return new MappedZipFile(channel.map(MapMode.READ_ONLY, 0, size));
+    }
+  }
+
+  private int u16(int offset) {
+    return buffer.getShort(offset) & 0xffff;
+  }
+
+  /** @return the unsigned 32-bit value at offset, or -1 if it does not fit in an int */
+  private int u32(int offset) {
+    long value = buffer.getInt(offset) & 0xffffffffL;
+    return value > Integer.MAX_VALUE ? -1 : (int) value;
+  }
+
+  private Map<String, Entry> readCentralDirectory() throws IOException {
+    int limit = buffer.limit();
+    // the end record is followed by a comment of at most 65535 bytes
+    int end = -1;
+    for (int p = limit - END_SIZE; p >= 0 && p >= limit - END_SIZE - 0xffff; p--) {
+      if (buffer.getInt(p) == END_SIGNATURE) {
+        end = p;
+        break;
+      }
+    }
+    if (end == -1) {
+      throw new IOException("not a zip archive");
+    }
+    if (u16(end + 4) != 0 || u16(end + 6) != 0) {
+      throw new IOException("multi-disk archives are not supported");
+    }
+    int count = u16(end + 10);
+    int directorySize = u32(end + 12);
+    int directoryOffset = u32(end + 16);
+    if (count == 0xffff || directorySize == -1 || directoryOffset == -1) {
+      throw new IOException("ZIP64 archives are not supported");
+    }
+    if (directoryOffset + (long) directorySize > end) {
+      throw new IOException("bad central directory");
+    }
+
+    Map<String, Entry> result = new LinkedHashMap<>();
+    int p = directoryOffset;
+    for (int i = 0; i < count; i++) {
+      if (p + CENTRAL_HEADER_SIZE > end || buffer.getInt(p) != CENTRAL_HEADER_SIGNATURE) {
+        throw new IOException("bad central directory");
+      }
+      int flags = u16(p + 8);
+      int method = u16(p + 10);
+      int compressedSize = u32(p + 20);
+      int size = u32(p + 24);
+      int nameLength = u16(p + 28);
+      int extraLength = u16(p + 30);
+      int commentLength = u16(p + 32);
+      int localHeaderOffset = u32(p + 42);
+      if ((flags & 1) != 0) {
+        throw new IOException("encrypted entries are not supported");
+      }
+      if (method != STORED && method != DEFLATED) {
+        throw new IOException("unsupported compression method " + method);
+      }
+      if (compressedSize == -1 || size == -1 || localHeaderOffset == -1) {
+        throw new IOException("ZIP64 entries are not supported");
+      }
+      if ((method == STORED && compressedSize != size)
+          || p + CENTRAL_HEADER_SIZE + nameLength > end) {
+        throw new IOException("bad central directory");
+      }
+      byte[] name = new byte[nameLength];
+      buffer.duplicate().position(p + CENTRAL_HEADER_SIZE).get(name);
+      result.put(
+          new String(name, StandardCharsets.UTF_8),
+          new Entry(method == STORED, compressedSize, size, localHeaderOffset));
+      p += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+    }
+    return result;
+  }
+
+  private Entry getEntry(String name) {
+    Entry e = entries.get(name);
+    if (e == null) {
+      throw new IllegalArgumentException("no entry " + name);
+    }
+    return e;
+  }
+
+  /** @return a slice of the buffer holding the data of e */
+  private ByteBuffer getData(Entry e) throws IOException {
+    if (e.dataOffset == -1) {
+      int h = e.localHeaderOffset;
+      if (h + LOCAL_HEADER_SIZE > buffer.limit() || buffer.getInt(h) != LOCAL_HEADER_SIGNATURE) {
+        throw new IOException("bad local header");
+      }
+      e.dataOffset = h + LOCAL_HEADER_SIZE + u16(h + 26) + u16(h + 28);
+    }
+    if (e.dataOffset + (long) e.compressedSize > buffer.limit()) {
+      throw new IOException("truncated entry");
+    }
+    ByteBuffer data = buffer.duplicate();
+    data.limit(e.dataOffset + e.compressedSize).position(e.dataOffset);
+    return data.slice();
+  }
+
+  /** @return the names of all entries, in the order of the central directory */
+  public Set<String> getNames() {
+    return Collections.unmodifiableSet(entries.keySet());
+  }
+
+  public boolean containsEntry(String name) {
+    return entries.containsKey(name);
+  }
+
+  /**
+   * @return the uncompressed size of an entry
+   * @throws IllegalArgumentException if there is no such entry
+   */
+  public long getSize(String name) {
+    return getEntry(name).size;
+  }
+
+  /**
+   * @return the contents of an entry: a read-only slice of the archive if the entry is stored, and
+   *     a new buffer otherwise
+   * @throws IllegalArgumentException if there is no such entry
+   * @throws IOException if the entry is corrupt
+   */
+  public ByteBuffer getContents(String name) throws IOException {
+    Entry e = getEntry(name);
+    return e.stored ? getData(e).asReadOnlyBuffer() : ByteBuffer.wrap(inflate(name, e));
+  }
+
+  /**
+   * @return a new array holding the contents of an entry
+   * @throws IllegalArgumentException if there is no such entry
+   * @throws IOException if the entry is corrupt
+   */
+  public byte[] getBytes(String name) throws IOException {
+    Entry e = getEntry(name);
+    if (e.stored) {
+      byte[] result = new byte[e.size];
+      getData(e).get(result);
+      return result;
+    }
+    return inflate(name, e);
+  }
+
+  private byte[] inflate(String name, Entry e) throws IOException {
+    byte[] result = new byte[e.size];
+    Inflater inflater = takeInflater();
+    try {
+      inflater.setInput(getData(e));
+      for (int n = 0; n < result.length; ) {
+        int k = inflater.inflate(result, n, result.length - n);
+        if (k == 0
+            && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+          throw new IOException("truncated entry " + name);
+        }
+        n += k;
+      }
+    } catch (DataFormatException x) {
+      throw new IOException("bad entry " + name, x);
+    } finally {
+      releaseInflater(inflater);
+    }
+    return result;
+  }
+
+  private static Inflater takeInflater() {
+    synchronized (inflaters) {
+      Inflater result = inflaters.poll();
+      return result == null ? new Inflater(true) : result;
+    }
+  }
+
+  private static void releaseInflater(Inflater inflater) {
+    inflater.reset();
+    synchronized (inflaters) {
+      if (inflaters.size() < MAX_POOLED_INFLATERS) {
+        inflaters.push(inflater);
+        return;
+      }
+    }
+    inflater.end();
+  }
+}
@@ -15,9 +15,7 @@ import com.ibm.wala.core.util.ref.CacheReference;
 import com.ibm.wala.shrike.shrikeCT.ClassReader;
 import com.ibm.wala.shrike.shrikeCT.InvalidClassFileException;
 import com.ibm.wala.util.debug.Assertions;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 
 /**
  * A soft handle to a Shrike class reader
@@ -61,33 +59,19 @@ public class ShrikeClassReaderHandle {
           }
         }
       }
-      ByteArrayOutputStream S = new ByteArrayOutputStream();
+      byte[] bytes = null;
       try {
-        InputStream s = entry.getInputStream();
-        readBytes(s, S);
-        s.close();
+        bytes = entry.getBytes();
       } catch (IOException e) {
         e.printStackTrace();
         Assertions.UNREACHABLE();
       }
-      result = new ClassReader(S.toByteArray());
+      result = new ClassReader(bytes);
       reader = CacheReference.make(result);
     }
     return result;
   }
 
-  /** Read is into bytes */
-  private static void readBytes(InputStream is, ByteArrayOutputStream bytes) throws IOException {
-    int n = 0;
-    byte[] buffer = new byte[1024];
-    while (n > -1) {
-      n = is.read(buffer, 0, 1024);
-      if (n > -1) {
-        bytes.write(buffer, 0, n);
-      }
-    }
-  }
-
   public String getFileName() {
     return entry.getName();
   }
@@ -11,6 +11,7 @@
 package com.ibm.wala.dataflow.IFDS;
 
 import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A {@link TabulationSolver} that gives up after a finite bound.
@@ -28,7 +29,7 @@ public class BoundedTabulationSolver<T, P, F> extends TabulationSolver<T, P, F>
 
   private final int bound;
 
-  private int numSteps = 0;
+  private final AtomicInteger numSteps = new AtomicInteger();
 
   protected BoundedTabulationSolver(
       TabulationProblem<T, P, F> p, int bound, IProgressMonitor monitor) {
@@ -38,18 +39,18 @@ public class BoundedTabulationSolver<T, P, F> extends TabulationSolver<T, P, F>
 
   @Override
   protected boolean propagate(T s_p, int i, T n, int j) {
-    if (numSteps < bound) {
-      numSteps++;
+    // claim a step atomically, since workers of a concurrent tabulation propagate concurrently
+    if (numSteps.getAndUpdate(s -> s < bound ? s + 1 : s) < bound) {
       return super.propagate(s_p, i, n, j);
     }
     return false;
   }
 
   public int getNumSteps() {
-    return numSteps;
+    return numSteps.get();
   }
 
   public void resetBound() {
-    numSteps = 0;
+    numSteps.set(0);
   }
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.dataflow.IFDS;
+
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import java.util.Arrays;
+
+/**
+ * A set of path edges for a particular procedure entry s_p, used when the {@link TabulationSolver}
+ * stores path edges compactly.
+ *
+ * <p>For each local block number n, the pairs (d1,d2) s.t. &lt;s_p, d1&gt; -&gt; &lt;n, d2&gt; is a
+ * path edge are packed into longs and kept in an open-addressing hash table backed by a primitive
+ * array. This costs at least 12 bytes per edge, independent of how the facts are distributed, at
+ * the price of queries by d1 or d2 scanning all the edges at n.
+ *
+ * <p>All operations lock this object, so the set may be shared by the workers of a concurrent
+ * tabulation. Sets are returned as fresh copies.
+ */
+final class CompactLocalPathEdges extends LocalPathEdges {
+
+  /** marks a free slot; no packed pair of non-negative facts is negative */
+  private static final long FREE = -1L;
+
+  /** the hash table for each local block number, or null if no edge reaches the block */
+  private long[][] tables = new long[8][];
+
+  /** how many edges reach each local block number */
+  private int[] sizes = new int[8];
+
+  CompactLocalPathEdges() {
+    super(false);
+  }
+
+  private static long pack(int d1, int d2) {
+    return ((long) d1 << 32) | (d2 & 0xffffffffL);
+  }
+
+  private static int source(long edge) {
+    return (int) (edge >>> 32);
+  }
+
+  private static int target(long edge) {
+    return (int) edge;
+  }
+
+  /** @return the slot holding edge in t, or the free slot where it belongs */
+  private static int slot(long[] t, long edge) {
+    int mask = t.length - 1;
+    int h = (int) (edge ^ (edge >>> 32)) * 0x9E3779B9;
+    int i = (h ^ (h >>> 16)) & mask;
+    while (t[i] != FREE && t[i] != edge) {
+      i = (i + 1) & mask;
+    }
+    return i;
+  }
+
+  private long[] table(int n) {
+    return n < tables.length ? tables[n] : null;
+  }
+
+  /** @return true iff the edge was not already present */
+  private boolean insert(int n, long edge) {
+    if (n >= tables.length) {
+      int length = Math.max(n + 1, 2 * tables.length);
+      tables = Arrays.copyOf(tables, length);
+      sizes = Arrays.copyOf(sizes, length);
+    }
+    long[] t = tables[n];
+    if (t == null) {
+      t = new long[4];
+      Arrays.fill(t, FREE);
+      tables[n] = t;
+    }
+    int i = slot(t, edge);
+    if (t[i] == edge) {
+      return false;
+    }
+    t[i] = edge;
+    if (++sizes[n] * 3 > t.length * 2) {
+      rehash(n);
+    }
+    return true;
+  }
+
+  private void rehash(int n) {
+    long[] old = tables[n];
+    long[] t = new long[2 * old.length];
+    Arrays.fill(t, FREE);
+    for (long edge : old) {
+      if (edge != FREE) {
+        t[slot(t, edge)] = edge;
+      }
+    }
+    tables[n] = t;
+  }
+
+  @Override
+  public synchronized void addPathEdge(int i, int n, int j) {
+    insert(n, pack(i, j));
+  }
+
+  @Override
+  synchronized boolean addIfAbsent(int i, int n, int j) {
+    return insert(n, pack(i, j));
+  }
+
+  @Override
+  public synchronized boolean contains(int i, int n, int j) {
+    long[] t = table(n);
+    if (t == null) {
+      return false;
+    }
+    long edge = pack(i, j);
+    return t[slot(t, edge)] == edge;
+  }
+
+  @Override
+  public synchronized IntSet getInverse(int n, int d2) {
+    long[] t = table(n);
+    if (t == null) {
+      return null;
+    }
+    MutableSparseIntSet result = null;
+    for (long edge : t) {
+      if (edge != FREE && target(edge) == d2) {
+        if (result == null) {
+          result = MutableSparseIntSet.makeEmpty();
+        }
+        result.add(source(edge));
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public synchronized IntSet getReachable(int n, int d1) {
+    MutableSparseIntSet result = MutableSparseIntSet.makeEmpty();
+    long[] t = table(n);
+    if (t != null) {
+      for (long edge : t) {
+        if (edge != FREE && source(edge) == d1) {
+          result.add(target(edge));
+        }
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public synchronized IntSet getReachable(int n) {
+    MutableSparseIntSet result = MutableSparseIntSet.makeEmpty();
+    long[] t = table(n);
+    if (t != null) {
+      for (long edge : t) {
+        if (edge != FREE) {
+          result.add(target(edge));
+        }
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public synchronized IntSet getReachedNodeNumbers() {
+    MutableSparseIntSet result = MutableSparseIntSet.makeEmpty();
+    for (int n = 0; n < sizes.length; n++) {
+      if (sizes[n] > 0) {
+        result.add(n);
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.dataflow.IFDS;
+
+import com.ibm.wala.util.intset.IntSet;
+
+/**
+ * A thread-safe set of call flow edges which lead to a particular procedure entry s_p, used by the
+ * concurrent {@link TabulationSolver}. All operations lock this object; sets are returned as
+ * copies.
+ */
+final class ConcurrentCallFlowEdges extends CallFlowEdges {
+
+  @Override
+  public synchronized void addCallEdge(int c, int d1, int d2) {
+    super.addCallEdge(c, d1, d2);
+  }
+
+  @Override
+  public synchronized IntSet getCallFlowSources(int c, int d2) {
+    return ConcurrentLocalPathEdges.copy(super.getCallFlowSources(c, d2));
+  }
+
+  @Override
+  public synchronized IntSet getCallFlowSourceNodes(int d2) {
+    return ConcurrentLocalPathEdges.copy(super.getCallFlowSourceNodes(d2));
+  }
+}
@@ -22,22 +22,29 @@ import com.ibm.wala.util.collections.Heap;
 import com.ibm.wala.util.collections.Iterator2Collection;
 import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.collections.MapUtil;
+import com.ibm.wala.util.collections.Pair;
 import com.ibm.wala.util.collections.ToStringComparator;
+import com.ibm.wala.util.concurrent.WorkerPool;
 import com.ibm.wala.util.heapTrace.HeapTracer;
 import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntSetAction;
 import com.ibm.wala.util.intset.MutableIntSet;
 import com.ibm.wala.util.intset.MutableSparseIntSet;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * A precise interprocedural tabulation solver.
@@ -53,7 +60,21 @@ import java.util.TreeSet;
  *   <li>it stores summary edges at each callee instead of at each call site.
  * </ul>
  *
- * <p>
+ * <p>With {@link #setNumberOfThreads(int)}, path edges are processed by several worker threads that
+ * share one work list. The edge sets are then kept in thread-safe {@link LocalPathEdges}, {@link
+ * LocalSummaryEdges} and {@link CallFlowEdges}, and the supergraph, flow functions and domain of
+ * the problem must tolerate concurrent use. Since IFDS flow functions are distributive, the
+ * concurrent solver computes the same result as the sequential one; only the order in which path
+ * edges are discovered differs. Problems with an {@link IMergeFunction} are always solved
+ * sequentially, since the result of a merge depends on that order.
+ *
+ * <p>With {@link #setCompactPathEdges(boolean)}, path edges are only stored at the nodes where the
+ * algorithm looks them up or where flow merges: entries, exits, call nodes, return sites, and nodes
+ * with other than one predecessor, which include all loop heads. A path edge to any other node is
+ * passed on to the work list without being recorded, and {@link #getResult(Object)} recomputes the
+ * facts at such a node from its single predecessor. The stored edges are kept in dense primitive
+ * arrays. This saves much space for problems that only query results at a few nodes, at the cost of
+ * recomputation for the others. Problems with an {@link IMergeFunction} always store all edges.
  *
  * @param <T> type of node in the supergraph
  * @param <P> type of a procedure (like a box in an RSM)
@@ -109,7 +130,7 @@ public class TabulationSolver<T, P, F> {
    * <p>Logically, this represents a set of edges (s_p,d_i) -&gt; (n, d_j). The data structure is
    * chosen to attempt to save space over representing each edge explicitly.
    */
-  private final Map<T, LocalPathEdges> pathEdges = HashMapFactory.make();
+  private final Map<T, LocalPathEdges> pathEdges = new ConcurrentHashMap<>();
 
   /**
    * A map from Object (entry node in supergraph) -&gt; CallFlowEdges.
@@ -117,10 +138,10 @@ public class TabulationSolver<T, P, F> {
    * <p>Logically, this represents a set of edges (c,d_i) -&gt; (s_p, d_j). The data structure is
    * chosen to attempt to save space over representing each edge explicitly.
    */
-  private final Map<T, CallFlowEdges> callFlowEdges = HashMapFactory.make();
+  private final Map<T, CallFlowEdges> callFlowEdges = new ConcurrentHashMap<>();
 
   /** A map from Object (procedure) -&gt; LocalSummaryEdges. */
-  protected final Map<P, LocalSummaryEdges> summaryEdges = HashMapFactory.make();
+  protected final Map<P, LocalSummaryEdges> summaryEdges = new ConcurrentHashMap<>();
 
   /**
    * the set of all {@link PathEdge}s that were used as seeds during the tabulation, grouped by
@@ -129,11 +150,14 @@ public class TabulationSolver<T, P, F> {
   private final Map<P, Set<PathEdge<T>>> seeds = HashMapFactory.make();
 
   /** All seeds, stored redundantly for quick access. */
-  private final Set<PathEdge<T>> allSeeds = HashSetFactory.make();
+  private final Set<PathEdge<T>> allSeeds = Collections.synchronizedSet(HashSetFactory.make());
 
   /** The worklist */
   private ITabulationWorklist<T> worklist;
 
+  /** The worklist in concurrent mode, which is also {@link #worklist}; null otherwise */
+  private ConcurrentWorklist concurrentWorklist;
+
   /** A progress monitor. can be null. */
   protected final IProgressMonitor progressMonitor;
 
@@ -152,6 +176,43 @@ public class TabulationSolver<T, P, F> {
    */
   private PathEdge<T> curSummaryEdge;
 
+  /**
+   * How many threads should process path edges? A value of 1 (the default) selects the classic
+   * sequential solver.
+   */
+  private int numberOfThreads = 1;
+
+  /** Is the current tabulation running on worker threads? */
+  private volatile boolean concurrent = false;
+
+  /** Should the next tabulation store path edges compactly? */
+  private boolean compactPathEdges = false;
+
+  /** Does the current tabulation store path edges compactly? */
+  private boolean compact = false;
+
+  /**
+   * In compact mode, the targets of seeds. Path edges are always stored at these nodes, since they
+   * cannot be recomputed from a predecessor. Seeds added while tabulating should therefore target
+   * nodes where edges are stored anyway, like the return sites used by {@link
+   * PartiallyBalancedTabulationSolver}; edges that reached another node before it became a seed
+   * target are lost.
+   */
+  private final Set<T> seedTargets = ConcurrentHashMap.newKeySet();
+
+  /**
+   * In compact mode, the path edges on the work list that are not recorded. A path edge only enters
+   * this set while it waits on the work list, so the set stays small, but it keeps the same edge
+   * from being queued twice when several facts at a predecessor flow to the same fact.
+   */
+  private final Set<PathEdge<T>> queuedUnrecordedEdges = ConcurrentHashMap.newKeySet();
+
+  /** In concurrent mode, the path edge each worker is processing; see {@link #curPathEdge} */
+  private final ThreadLocal<PathEdge<T>> concurrentCurPathEdge = new ThreadLocal<>();
+
+  /** In concurrent mode, the summary edge each worker is applying; see {@link #curSummaryEdge} */
+  private final ThreadLocal<PathEdge<T>> concurrentCurSummaryEdge = new ThreadLocal<>();
+
   /**
    * @param p a description of the dataflow problem to solve
    * @throws IllegalArgumentException if p is null
@@ -187,6 +248,13 @@ public class TabulationSolver<T, P, F> {
   public TabulationResult<T, P, F> solve() throws CancelException {
 
     try {
+      if (compactPathEdges && problem.getMergeFunction() == null && pathEdges.isEmpty()) {
+        // edges already stored at all nodes could not be recomputed, so only switch up front
+        compact = true;
+      }
+      if (numberOfThreads > 1 && problem.getMergeFunction() == null) {
+        startConcurrentMode();
+      }
       initialize();
       forwardTabulateSLRPs();
       Result r = new Result();
@@ -207,19 +275,27 @@ public class TabulationSolver<T, P, F> {
 
   /** Restart tabulation from a particular path edge. Use with care. */
   public void addSeed(PathEdge<T> seed) {
-    Set<PathEdge<T>> s = MapUtil.findOrCreateSet(seeds, supergraph.getProcOf(seed.entry));
-    s.add(seed);
+    synchronized (seeds) {
+      Set<PathEdge<T>> s = MapUtil.findOrCreateSet(seeds, supergraph.getProcOf(seed.entry));
+      s.add(seed);
+    }
     allSeeds.add(seed);
+    if (compact) {
+      seedTargets.add(seed.target);
+    }
     propagate(seed.entry, seed.d1, seed.target, seed.d2);
   }
 
   /** See POPL 95 paper for this algorithm, Figure 3 */
-  @SuppressWarnings("unused")
   private void forwardTabulateSLRPs() throws CancelException {
-    assert curPathEdge == null : "curPathEdge should not be non-null here";
+    assert getCurPathEdge() == null : "curPathEdge should not be non-null here";
     if (worklist == null) {
       worklist = makeWorklist();
     }
+    if (concurrent) {
+      forwardTabulateConcurrently();
+      return;
+    }
     while (worklist.size() > 0) {
       MonitorUtil.throwExceptionIfCanceled(progressMonitor);
       if (verbose) {
@@ -229,39 +305,97 @@ public class TabulationSolver<T, P, F> {
         tendToSoftCaches();
       }
 
-      final PathEdge<T> edge = popFromWorkList();
-      if (DEBUG_LEVEL > 0) {
-        System.err.println("TABULATE " + edge);
-      }
-      curPathEdge = edge;
-      int j = merge(edge.entry, edge.d1, edge.target, edge.d2);
-      if (j == -1 && DEBUG_LEVEL > 0) {
-        System.err.println("merge -1: DROPPING");
-      }
-      if (j != -1) {
-        if (j != edge.d2) {
-          // this means that we don't want to push the edge. instead,
-          // we'll push the merged fact. a little tricky, but i think should
-          // work.
-          if (DEBUG_LEVEL > 0) {
-            System.err.println("propagating merged fact " + j);
-          }
-          propagate(edge.entry, edge.d1, edge.target, j);
+      tabulate(popFromWorkList());
+    }
+    curPathEdge = null;
+  }
+
+  /** Process one path edge taken from the work list: lines [13 - 37] of the algorithm */
+  @SuppressWarnings("unused")
+  private void tabulate(final PathEdge<T> edge) {
+    if (DEBUG_LEVEL > 0) {
+      System.err.println("TABULATE " + edge);
+    }
+    setCurPathEdge(edge);
+    if (compact) {
+      queuedUnrecordedEdges.remove(edge);
+    }
+    int j = merge(edge.entry, edge.d1, edge.target, edge.d2);
+    if (j == -1 && DEBUG_LEVEL > 0) {
+      System.err.println("merge -1: DROPPING");
+    }
+    if (j != -1) {
+      if (j != edge.d2) {
+        // this means that we don't want to push the edge. instead,
+        // we'll push the merged fact. a little tricky, but i think should
+        // work.
+        if (DEBUG_LEVEL > 0) {
+          System.err.println("propagating merged fact " + j);
+        }
+        propagate(edge.entry, edge.d1, edge.target, j);
+      } else {
+        if (supergraph.isCall(edge.target)) {
+          // [13]
+          processCall(edge);
+        } else if (supergraph.isExit(edge.target)) {
+          // [21]
+          processExit(edge);
         } else {
-          if (supergraph.isCall(edge.target)) {
-            // [13]
-            processCall(edge);
-          } else if (supergraph.isExit(edge.target)) {
-            // [21]
-            processExit(edge);
-          } else {
-            // [33]
-            processNormal(edge);
-          }
+          // [33]
+          processNormal(edge);
         }
       }
     }
-    curPathEdge = null;
+  }
+
+  /** Switch to concurrent tabulation, before any path edges are recorded. */
+  private void startConcurrentMode() {
+    if (concurrent || !pathEdges.isEmpty()) {
+      // edges recorded by an earlier sequential tabulation are not in thread-safe sets, so that
+      // tabulation goes on sequentially
+      return;
+    }
+    concurrent = true;
+    concurrentWorklist = new ConcurrentWorklist();
+    worklist = concurrentWorklist;
+  }
+
+  /**
+   * Concurrent variant of the main loop of {@link #forwardTabulateSLRPs()}.
+   *
+   * <p>Each worker repeatedly takes a path edge from the shared work list and processes it exactly
+   * as the sequential loop would. Tabulation ends when the work list is empty and no worker is
+   * processing an edge, since only a worker can add new edges.
+   *
+   * <p>A path edge is recorded before it is queued, and a worker records a call flow edge before it
+   * looks up the summary edges of the callee, while processing an exit records the summary edge
+   * before it looks up the call flow edges. So when a call and a return of the same callee are
+   * processed concurrently, at least one of the workers sees the other's edge and applies the
+   * summary edge.
+   */
+  private void forwardTabulateConcurrently() throws CancelException {
+    ConcurrentWorklist shared = concurrentWorklist;
+    // an earlier tabulation aborted the work list when it ended; seeds added since then are queued
+    shared.restart();
+    ExecutorService executor = WorkerPool.make(numberOfThreads, "tabulation solver worker");
+    try {
+      List<Future<Void>> results = new ArrayList<>(numberOfThreads);
+      for (int i = 0; i < numberOfThreads; i++) {
+        results.add(
+            executor.submit(
+                () -> {
+                  shared.drain();
+                  return null;
+                }));
+      }
+      for (Future<Void> f : results) {
+        WorkerPool.getResult(
+            f, CancelException.class, e -> CancelException.make("interrupted while solving"));
+      }
+    } finally {
+      shared.abort();
+      executor.shutdownNow();
+    }
   }
 
   /**
@@ -337,8 +471,8 @@ public class TabulationSolver<T, P, F> {
     if (!summaries.contains(s_p_n, x, edge.d1, edge.d2)) {
       summaries.insertSummaryEdge(s_p_n, x, edge.d1, edge.d2);
     }
-    assert curSummaryEdge == null : "curSummaryEdge should be null here";
-    curSummaryEdge = edge;
+    assert getCurSummaryEdge() == null : "curSummaryEdge should be null here";
+    setCurSummaryEdge(edge);
 
     final CallFlowEdges callFlow = findOrCreateCallFlowEdges(edge.entry);
 
@@ -354,7 +488,7 @@ public class TabulationSolver<T, P, F> {
         propagateToReturnSites(edge, supergraph.getNode(globalC), D4);
       }
     }
-    curSummaryEdge = null;
+    setCurSummaryEdge(null);
   }
 
   /**
@@ -478,8 +612,9 @@ public class TabulationSolver<T, P, F> {
                     d3 -> {
                       // set curPathEdge to be consistent with its setting in processCall() when
                       // applying a summary edge
-                      curPathEdge = PathEdge.createPathEdge(s_p, d3, c, d4);
-                      newSummaryEdge(curPathEdge, edge, retSite, d5);
+                      PathEdge<T> edgeToCallSite = PathEdge.createPathEdge(s_p, d3, c, d4);
+                      setCurPathEdge(edgeToCallSite);
+                      newSummaryEdge(edgeToCallSite, edge, retSite, d5);
                       propagate(s_p, d3, retSite, d5);
                     });
               }
@@ -617,7 +752,12 @@ public class TabulationSolver<T, P, F> {
       System.err.println(" reached: " + reached);
     }
     if (reached != null) {
-      final LocalSummaryEdges summaries = summaryEdges.get(supergraph.getProcOf(calleeEntry));
+      // in concurrent mode, a worker processing an exit of the callee may be about to record the
+      // first summary edge, so make sure we look at the same set
+      final LocalSummaryEdges summaries =
+          concurrent
+              ? findOrCreateLocalSummaryEdges(supergraph.getProcOf(calleeEntry))
+              : summaryEdges.get(supergraph.getProcOf(calleeEntry));
       final CallFlowEdges callFlow = findOrCreateCallFlowEdges(calleeEntry);
       final int s_p_num = supergraph.getLocalBlockNumber(calleeEntry);
 
@@ -653,15 +793,18 @@ public class TabulationSolver<T, P, F> {
                           flowFunctionMap.getReturnFlowFunction(edge.target, exit, returnSite);
                       reachedBySummary.foreach(
                           d2 -> {
-                            assert curSummaryEdge == null : "curSummaryEdge should be null here";
-                            curSummaryEdge = PathEdge.createPathEdge(calleeEntry, d1, exit, d2);
+                            assert getCurSummaryEdge() == null
+                                : "curSummaryEdge should be null here";
+                            PathEdge<T> summaryEdge =
+                                PathEdge.createPathEdge(calleeEntry, d1, exit, d2);
+                            setCurSummaryEdge(summaryEdge);
                             if (retf instanceof IBinaryReturnFlowFunction) {
                               final IntSet D51 =
                                   computeBinaryFlow(edge.d2, d2, (IBinaryReturnFlowFunction) retf);
                               if (D51 != null) {
                                 D51.foreach(
                                     d5 -> {
-                                      newSummaryEdge(edge, curSummaryEdge, returnSite, d5);
+                                      newSummaryEdge(edge, summaryEdge, returnSite, d5);
                                       propagate(edge.entry, edge.d1, returnSite, d5);
                                     });
                               }
@@ -670,12 +813,12 @@ public class TabulationSolver<T, P, F> {
                               if (D52 != null) {
                                 D52.foreach(
                                     d5 -> {
-                                      newSummaryEdge(edge, curSummaryEdge, returnSite, d5);
+                                      newSummaryEdge(edge, summaryEdge, returnSite, d5);
                                       propagate(edge.entry, edge.d1, returnSite, d5);
                                     });
                               }
                             }
-                            curSummaryEdge = null;
+                            setCurSummaryEdge(null);
                           });
                     }
                   }
@@ -734,7 +877,9 @@ public class TabulationSolver<T, P, F> {
     // horrible. don't use in performance-critical
     assert worklist != null;
     PathEdge<T> result = worklist.take();
-    worklist.insert(result);
+    if (result != null) {
+      worklist.insert(result);
+    }
     return result;
   }
 
@@ -756,25 +901,59 @@ public class TabulationSolver<T, P, F> {
     }
     assert number >= 0;
 
-    LocalPathEdges pLocal = findOrCreateLocalPathEdges(s_p);
-
     assert j >= 0;
 
-    if (!pLocal.contains(i, number, j)) {
+    if (compact && !storesPathEdgesAt(n)) {
+      // the edge can be recomputed from the single predecessor of n; flow cannot cycle without
+      // passing a node with several predecessors, where the edge is recorded
+      if (!queuedUnrecordedEdges.add(PathEdge.createPathEdge(s_p, i, n, j))) {
+        return false;
+      }
+      if (DEBUG_LEVEL > 0) {
+        System.err.println("propagate unrecorded " + s_p + "  " + i + ' ' + number + ' ' + j);
+      }
+      addToWorkList(s_p, i, n, j);
+      return true;
+    }
+
+    LocalPathEdges pLocal = findOrCreateLocalPathEdges(s_p);
+
+    if (pLocal.addIfAbsent(i, number, j)) {
       if (DEBUG_LEVEL > 0) {
         System.err.println("propagate " + s_p + "  " + i + ' ' + number + ' ' + j);
       }
-      pLocal.addPathEdge(i, number, j);
       addToWorkList(s_p, i, n, j);
       return true;
     }
     return false;
   }
 
+  /**
+   * Note that when path edges are stored compactly, the result only holds the edges to the nodes
+   * where edges are stored.
+   */
   public LocalPathEdges getLocalPathEdges(T s_p) {
     return pathEdges.get(s_p);
   }
 
+  /**
+   * In compact mode, are path edges to n stored, rather than recomputed from its predecessor? This
+   * holds unless n has a single predecessor, which reaches it by a normal flow edge, and n is not
+   * otherwise special.
+   */
+  private boolean storesPathEdgesAt(T n) {
+    if (seedTargets.contains(n)
+        || supergraph.isEntry(n)
+        || supergraph.isExit(n)
+        || supergraph.isCall(n)
+        || supergraph.isReturn(n)
+        || supergraph.getPredNodeCount(n) != 1) {
+      return true;
+    }
+    T pred = supergraph.getPredNodes(n).next();
+    return supergraph.isCall(pred) || supergraph.isExit(pred);
+  }
+
   /**
    * Merging: suppose we're doing propagate &lt;s_p,i&gt; -&gt; &lt;n,j&gt; but we already have path
    * edges &lt;s_p,i&gt; -&gt; &lt;n, x&gt;, &lt;s_p,i&gt; -&gt; &lt;n,y&gt;, and &lt;s_p,i&gt;
@@ -821,13 +1000,18 @@ public class TabulationSolver<T, P, F> {
   protected LocalPathEdges findOrCreateLocalPathEdges(T s_p) {
     LocalPathEdges result = pathEdges.get(s_p);
     if (result == null) {
-      result = makeLocalPathEdges();
-      pathEdges.put(s_p, result);
+      result = pathEdges.computeIfAbsent(s_p, k -> makeLocalPathEdges());
     }
     return result;
   }
 
   private LocalPathEdges makeLocalPathEdges() {
+    if (compact) {
+      return new CompactLocalPathEdges();
+    }
+    if (concurrent) {
+      return new ConcurrentLocalPathEdges();
+    }
     return problem.getMergeFunction() == null
         ? new LocalPathEdges(false)
         : new LocalPathEdges(true);
@@ -836,8 +1020,9 @@ public class TabulationSolver<T, P, F> {
   protected LocalSummaryEdges findOrCreateLocalSummaryEdges(P proc) {
     LocalSummaryEdges result = summaryEdges.get(proc);
     if (result == null) {
-      result = new LocalSummaryEdges();
-      summaryEdges.put(proc, result);
+      result =
+          summaryEdges.computeIfAbsent(
+              proc, k -> concurrent ? new ConcurrentLocalSummaryEdges() : new LocalSummaryEdges());
     }
     return result;
   }
@@ -845,8 +1030,9 @@ public class TabulationSolver<T, P, F> {
   protected CallFlowEdges findOrCreateCallFlowEdges(T s_p) {
     CallFlowEdges result = callFlowEdges.get(s_p);
     if (result == null) {
-      result = new CallFlowEdges();
-      callFlowEdges.put(s_p, result);
+      result =
+          callFlowEdges.computeIfAbsent(
+              s_p, k -> concurrent ? new ConcurrentCallFlowEdges() : new CallFlowEdges());
     }
     return result;
   }
@@ -857,16 +1043,66 @@ public class TabulationSolver<T, P, F> {
    * @return IntSet representing the bitvector
    */
   public IntSet getResult(T node) {
+    if (!compact || storesPathEdgesAt(node)) {
+      return getStoredResult(node);
+    }
+    // walk back to the closest node where path edges are stored, then apply the flow functions
+    // forward
+    List<T> chain = new ArrayList<>();
+    Set<T> visited = HashSetFactory.make();
+    T n = node;
+    do {
+      chain.add(n);
+      visited.add(n);
+      n = supergraph.getPredNodes(n).next();
+      if (visited.contains(n)) {
+        // a cycle of nodes with single predecessors and no seed, which no path edge can enter
+        return MutableSparseIntSet.makeEmpty();
+      }
+    } while (!storesPathEdgesAt(n));
+    IntSet result = getStoredResult(n);
+    for (int k = chain.size() - 1; k >= 0; k--) {
+      T succ = chain.get(k);
+      result = getFlowToUnstoredNode(n, succ, result);
+      n = succ;
+    }
+    return result;
+  }
+
+  /**
+   * In compact mode, compute the facts at a node whose path edges are not stored from the facts at
+   * its predecessor.
+   *
+   * @param pred the single predecessor of n
+   * @param predFacts the facts that hold at pred
+   */
+  private IntSet getFlowToUnstoredNode(T pred, T n, IntSet predFacts) {
+    IUnaryFlowFunction f = flowFunctionMap.getNormalFlowFunction(pred, n);
+    MutableIntSet result = MutableSparseIntSet.makeEmpty();
+    predFacts.foreach(
+        d -> {
+          IntSet D = computeFlow(d, f);
+          if (D != null) {
+            result.addAll(D);
+          }
+        });
+    return result;
+  }
+
+  /** @return the facts recorded by path edges to node */
+  private IntSet getStoredResult(T node) {
     P proc = supergraph.getProcOf(node);
     int n = supergraph.getLocalBlockNumber(node);
     T[] entries = supergraph.getEntriesForProcedure(proc);
     MutableIntSet result = MutableSparseIntSet.makeEmpty();
 
     Set<T> allEntries = HashSetFactory.make(Arrays.asList(entries));
-    Set<PathEdge<T>> pSeeds = seeds.get(proc);
-    if (pSeeds != null) {
-      for (PathEdge<T> seed : pSeeds) {
-        allEntries.add(seed.entry);
+    synchronized (seeds) {
+      Set<PathEdge<T>> pSeeds = seeds.get(proc);
+      if (pSeeds != null) {
+        for (PathEdge<T> seed : pSeeds) {
+          allEntries.add(seed.entry);
+        }
       }
     }
 
@@ -938,10 +1174,37 @@ public class TabulationSolver<T, P, F> {
           result.add(supergraph.getLocalBlock(proc, ii.next()));
         }
       }
+      if (compact) {
+        addUnstoredNodesReached(result);
+      }
 
       return result;
     }
 
+    /**
+     * In compact mode, add to reached the nodes without stored path edges that are reached from the
+     * nodes in it. Each such node has a single predecessor, so we follow the chains of them
+     * forward.
+     */
+    private void addUnstoredNodesReached(Collection<T> reached) {
+      List<Pair<T, IntSet>> todo = new ArrayList<>();
+      for (T n : reached) {
+        todo.add(Pair.make(n, getResult(n)));
+      }
+      while (!todo.isEmpty()) {
+        Pair<T, IntSet> p = todo.remove(todo.size() - 1);
+        for (T succ : Iterator2Iterable.make(supergraph.getSuccNodes(p.fst))) {
+          if (!storesPathEdgesAt(succ) && !reached.contains(succ)) {
+            IntSet facts = getFlowToUnstoredNode(p.fst, succ, p.snd);
+            if (!facts.isEmpty()) {
+              reached.add(succ);
+              todo.add(Pair.make(succ, facts));
+            }
+          }
+        }
+      }
+    }
+
     /**
      * @return set of d2 s.t. (n1,d1) -&gt; (n2,d2) is recorded as a summary edge, or null if none
      *     found
@@ -980,6 +1243,106 @@ public class TabulationSolver<T, P, F> {
     }
   }
 
+  /**
+   * The work list shared by the workers in concurrent mode. It keeps the priority order of {@link
+   * Worklist}, and tracks how many edges are being processed so that idle workers can tell whether
+   * more work may arrive.
+   */
+  private final class ConcurrentWorklist extends Worklist {
+
+    /** how many edges have been taken by workers and are still being processed */
+    private int active = 0;
+
+    /** set when tabulation ends early; workers stop taking edges */
+    private boolean aborted = false;
+
+    /** @return the first edge, or null if the work list is empty */
+    @Override
+    public synchronized PathEdge<T> take() {
+      return isEmpty() ? null : super.take();
+    }
+
+    @Override
+    public synchronized void insert(PathEdge<T> elt) {
+      super.insert(elt);
+      notify();
+    }
+
+    @Override
+    public synchronized int size() {
+      return super.size();
+    }
+
+    /**
+     * Wait until an edge is available.
+     *
+     * @return the next edge to process, or null if tabulation is finished
+     */
+    private synchronized PathEdge<T> takeOrWait() throws CancelException {
+      try {
+        while (!aborted && isEmpty() && active > 0) {
+          wait();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw CancelException.make("interrupted while solving");
+      }
+      if (aborted || isEmpty()) {
+        return null;
+      }
+      active++;
+      return super.take();
+    }
+
+    /** Record that a worker has finished processing an edge. */
+    private synchronized void done() {
+      active--;
+      if (active == 0 && isEmpty()) {
+        // tabulation is finished; release the idle workers
+        notifyAll();
+      }
+    }
+
+    private synchronized void abort() {
+      aborted = true;
+      notifyAll();
+    }
+
+    /** Let workers take edges again after an earlier tabulation was aborted. */
+    private synchronized void restart() {
+      aborted = false;
+      active = 0;
+    }
+
+    /** The main loop of a worker thread. */
+    private void drain() throws CancelException {
+      boolean finished = false;
+      try {
+        for (PathEdge<T> edge = takeOrWait(); edge != null; edge = takeOrWait()) {
+          try {
+            MonitorUtil.throwExceptionIfCanceled(progressMonitor);
+            if (verbose) {
+              performVerboseAction();
+            }
+            if (PERIODIC_WIPE_SOFT_CACHES) {
+              tendToSoftCaches();
+            }
+            tabulate(edge);
+          } finally {
+            done();
+          }
+        }
+        finished = true;
+      } finally {
+        if (!finished) {
+          // let the other workers stop as well
+          abort();
+        }
+        setCurPathEdge(null);
+      }
+    }
+  }
+
   /**
    * @return set of d1 s.t. (n1,d1) -&gt; (n2,d2) is recorded as a summary edge, or null if none
    *     found
@@ -1010,11 +1373,56 @@ public class TabulationSolver<T, P, F> {
   }
 
   protected PathEdge<T> getCurPathEdge() {
-    return curPathEdge;
+    return concurrent ? concurrentCurPathEdge.get() : curPathEdge;
   }
 
   protected PathEdge<T> getCurSummaryEdge() {
-    return curSummaryEdge;
+    return concurrent ? concurrentCurSummaryEdge.get() : curSummaryEdge;
+  }
+
+  private void setCurPathEdge(PathEdge<T> edge) {
+    if (concurrent) {
+      concurrentCurPathEdge.set(edge);
+    } else {
+      curPathEdge = edge;
+    }
+  }
+
+  private void setCurSummaryEdge(PathEdge<T> edge) {
+    if (concurrent) {
+      concurrentCurSummaryEdge.set(edge);
+    } else {
+      curSummaryEdge = edge;
+    }
+  }
+
+  public int getNumberOfThreads() {
+    return numberOfThreads;
+  }
+
+  /**
+   * Select concurrent tabulation for the next call to {@link #solve()}. Problems with a merge
+   * function are always solved sequentially.
+   *
+   * @param n how many threads should process path edges; 1 selects the sequential solver
+   */
+  public void setNumberOfThreads(int n) {
+    if (n < 1) {
+      throw new IllegalArgumentException("invalid number of threads: " + n);
+    }
+    numberOfThreads = n;
+  }
+
+  public boolean isCompactPathEdges() {
+    return compactPathEdges;
+  }
+
+  /**
+   * Select compact path edge storage for the next call to {@link #solve()}. Problems with a merge
+   * function always store all path edges.
+   */
+  public void setCompactPathEdges(boolean compactPathEdges) {
+    this.compactPathEdges = compactPathEdges;
   }
 
   /**
@@ -289,11 +289,35 @@ public class ContextSensitiveReachingDefs {
   /** perform the tabulation analysis and return the {@link TabulationResult} */
   public TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
       analyze() {
+    return analyze(1);
+  }
+
+  /**
+   * perform the tabulation analysis with the given number of solver threads and return the {@link
+   * TabulationResult}. Collecting the seeds builds the whole supergraph and numbers every fact up
+   * front, so the flow functions only read shared state and may run concurrently.
+   */
+  public TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
+      analyze(int numberOfThreads) {
+    return analyze(numberOfThreads, false);
+  }
+
+  /**
+   * perform the tabulation analysis and return the {@link TabulationResult}
+   *
+   * @param numberOfThreads how many solver threads to use
+   * @param compactPathEdges should the solver only store path edges where flow merges, recomputing
+   *     the results elsewhere?
+   */
+  public TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
+      analyze(int numberOfThreads, boolean compactPathEdges) {
     PartiallyBalancedTabulationSolver<
             BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
         solver =
             PartiallyBalancedTabulationSolver.createPartiallyBalancedTabulationSolver(
-                new ReachingDefsProblem(), null);
+                makeProblem(), null);
+    solver.setNumberOfThreads(numberOfThreads);
+    solver.setCompactPathEdges(compactPathEdges);
     TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
         result = null;
     try {
@@ -305,6 +329,13 @@ public class ContextSensitiveReachingDefs {
     return result;
   }
 
+  /** @return a new reaching definitions problem, seeded with all putstatic instructions */
+  PartiallyBalancedTabulationProblem<
+          BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
+      makeProblem() {
+    return new ReachingDefsProblem();
+  }
+
   public ISupergraph<BasicBlockInContext<IExplodedBasicBlock>, CGNode> getSupergraph() {
     return supergraph;
   }
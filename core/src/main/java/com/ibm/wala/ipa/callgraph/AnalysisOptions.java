@@ -12,6 +12,7 @@ package com.ibm.wala.ipa.callgraph;
 
 import com.ibm.wala.analysis.reflection.ReflectionContextInterpreter;
 import com.ibm.wala.analysis.reflection.ReflectionContextSelector;
+import com.ibm.wala.fixedpoint.impl.WorklistStrategy;
 import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
 import com.ibm.wala.ipa.callgraph.propagation.ReflectionHandler;
 import com.ibm.wala.ssa.SSAOptions;
@@ -188,6 +189,75 @@ public class AnalysisOptions {
   /** Should call graph construction handle arrays of zero-length differently? */
   private boolean handleZeroLengthArray = true;
 
+  /**
+   * How many threads should the pointer analysis solver use to evaluate constraints? By default,
+   * the solver is sequential. With more than one thread, simple assignment and filter constraints
+   * are evaluated in parallel; the final points-to sets are the same.
+   */
+  private int numberOfSolverThreads = 1;
+
+  /**
+   * Should the pointer analysis solver propagate only newly discovered instances along assignments
+   * and filters, rather than re-evaluating them over whole points-to sets?
+   */
+  private boolean useDifferencePropagation = false;
+
+  /**
+   * Should the pointer analysis solver detect cycles of assignments as the constraint graph grows,
+   * and merge the points-to sets of the variables on each cycle?
+   */
+  private boolean collapseAssignmentCycles = false;
+
+  /**
+   * Should the pointer analysis hash-cons its points-to sets once the call graph is built, so that
+   * equal sets are stored once?
+   */
+  private boolean compactPointsToSets = false;
+
+  /**
+   * Should the pointer analysis index its keys in tables outside the Java heap, and keep its
+   * points-to sets there once the call graph is built?
+   */
+  private boolean useOffHeapStorage = false;
+
+  /**
+   * Should the pointer analysis record where each of its constraints comes from, so that the call
+   * graph can be updated after code changes rather than built again?
+   */
+  private boolean incrementalUpdates = false;
+
+  /**
+   * Should the call graph builder freeze the call graph once it is built, so that its edges are kept
+   * in compressed sparse row form? See {@link
+   * com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph#freeze()}.
+   */
+  private boolean freezeCallGraph = false;
+
+  /** In which order should the pointer analysis solver evaluate the statements on its work list? */
+  private WorklistStrategy solverWorklistStrategy = WorklistStrategy.TOPOLOGICAL;
+
+  /**
+   * How many milliseconds may call graph construction take? Once the budget is spent, construction
+   * stops and the call graph built so far is returned, marked as incomplete. By default, {@code
+   * timeBudget} is {@code -1}, which indicates that there is no limit.
+   */
+  private long timeBudget = -1;
+
+  /**
+   * How many bytes of heap may be in use during call graph construction? Once the budget is spent,
+   * construction stops and the call graph built so far is returned, marked as incomplete. By
+   * default, {@code heapBudget} is {@code -1}, which indicates that there is no limit.
+   */
+  private long heapBudget = -1;
+
+  /**
+   * How many nodes may the call graph have? Once the budget is spent, construction stops and the
+   * call graph built so far is returned, marked as incomplete. Unlike the other budgets, this one
+   * gives the same call graph on every run. By default, {@code nodeBudget} is {@code -1}, which
+   * indicates that there is no limit.
+   */
+  private int nodeBudget = -1;
+
   // SJF: I'm not sure these factories and caches belong here.
   // TODO: figure out how to clean this up.
 
@@ -394,4 +464,167 @@ public class AnalysisOptions {
   public void setHandleZeroLengthArray(boolean handleZeroLengthArray) {
     this.handleZeroLengthArray = handleZeroLengthArray;
   }
+
+  /** How many threads should the pointer analysis solver use to evaluate constraints? */
+  public int getNumberOfSolverThreads() {
+    return numberOfSolverThreads;
+  }
+
+  /**
+   * How many threads should the pointer analysis solver use to evaluate constraints?
+   *
+   * <p>Only assignments and filters by declared class run on the extra threads. Field and array
+   * accesses, dispatch and the other operators that add constraints, difference propagation, and
+   * all work list bookkeeping stay on the calling thread, which waits for the workers after each
+   * batch of statements. How well this scales with the number of threads has not been established;
+   * the {@code solverThreads} parameter of {@code CallGraphBenchmark} measures it.
+   *
+   * @param n number of threads; 1 selects the sequential solver
+   */
+  public void setNumberOfSolverThreads(int n) {
+    if (n < 1) {
+      throw new IllegalArgumentException("invalid number of solver threads: " + n);
+    }
+    this.numberOfSolverThreads = n;
+  }
+
+  /** Should the pointer analysis solver use difference propagation? */
+  public boolean getUseDifferencePropagation() {
+    return useDifferencePropagation;
+  }
+
+  /** Should the pointer analysis solver use difference propagation? */
+  public void setUseDifferencePropagation(boolean useDifferencePropagation) {
+    this.useDifferencePropagation = useDifferencePropagation;
+  }
+
+  /** Should the pointer analysis solver collapse cycles of assignments? */
+  public boolean getCollapseAssignmentCycles() {
+    return collapseAssignmentCycles;
+  }
+
+  /** Should the pointer analysis solver collapse cycles of assignments? */
+  public void setCollapseAssignmentCycles(boolean collapseAssignmentCycles) {
+    this.collapseAssignmentCycles = collapseAssignmentCycles;
+  }
+
+  /** Should the pointer analysis hash-cons its points-to sets once the call graph is built? */
+  public boolean getCompactPointsToSets() {
+    return compactPointsToSets;
+  }
+
+  /** Should the pointer analysis hash-cons its points-to sets once the call graph is built? */
+  public void setCompactPointsToSets(boolean compactPointsToSets) {
+    this.compactPointsToSets = compactPointsToSets;
+  }
+
+  /** Should the pointer analysis keep its key tables and points-to sets outside the Java heap? */
+  public boolean getUseOffHeapStorage() {
+    return useOffHeapStorage;
+  }
+
+  /**
+   * Should the pointer analysis keep its key tables and points-to sets outside the Java heap? This
+   * implies {@link #setCompactPointsToSets(boolean)}.
+   */
+  public void setUseOffHeapStorage(boolean useOffHeapStorage) {
+    this.useOffHeapStorage = useOffHeapStorage;
+  }
+
+  /** Can the call graph be updated after code changes rather than built again? */
+  public boolean getIncrementalUpdates() {
+    return incrementalUpdates;
+  }
+
+  /**
+   * Should the call graph builder prepare for {@link
+   * com.ibm.wala.ipa.callgraph.propagation.PropagationCallGraphBuilder#updateCallGraph} after code
+   * changes? This costs memory for each constraint, and cannot be combined with {@link
+   * #setCollapseAssignmentCycles(boolean)}.
+   */
+  public void setIncrementalUpdates(boolean incrementalUpdates) {
+    this.incrementalUpdates = incrementalUpdates;
+  }
+
+  /** Does the call graph builder freeze the call graph once it is built? */
+  public boolean getFreezeCallGraph() {
+    return freezeCallGraph;
+  }
+
+  /**
+   * Should the call graph builder freeze the call graph once it is built? A frozen call graph takes
+   * less memory and is faster to traverse, but rejects new nodes and edges. It is not frozen with
+   * {@link #setIncrementalUpdates(boolean)}, since updates change it.
+   */
+  public void setFreezeCallGraph(boolean freezeCallGraph) {
+    this.freezeCallGraph = freezeCallGraph;
+  }
+
+  /** In which order does the pointer analysis solver evaluate statements? */
+  public WorklistStrategy getSolverWorklistStrategy() {
+    return solverWorklistStrategy;
+  }
+
+  /** Select the order in which the pointer analysis solver evaluates statements. */
+  public void setSolverWorklistStrategy(WorklistStrategy strategy) {
+    if (strategy == null) {
+      throw new IllegalArgumentException("null strategy");
+    }
+    this.solverWorklistStrategy = strategy;
+  }
+
+  /** @return milliseconds call graph construction may take, or -1 for no limit */
+  public long getTimeBudget() {
+    return timeBudget;
+  }
+
+  /**
+   * Limit the time call graph construction may take. With a budget, application code is analyzed
+   * first, then library code by its distance from the application.
+   *
+   * @param timeBudget milliseconds, or -1 for no limit
+   */
+  public void setTimeBudget(long timeBudget) {
+    if (timeBudget < -1) {
+      throw new IllegalArgumentException("invalid time budget: " + timeBudget);
+    }
+    this.timeBudget = timeBudget;
+  }
+
+  /** @return bytes of heap that may be in use during call graph construction, or -1 for no limit */
+  public long getHeapBudget() {
+    return heapBudget;
+  }
+
+  /**
+   * Limit the heap that may be in use during call graph construction. With a budget, application
+   * code is analyzed first, then library code by its distance from the application.
+   *
+   * @param heapBudget bytes, or -1 for no limit
+   */
+  public void setHeapBudget(long heapBudget) {
+    if (heapBudget < -1) {
+      throw new IllegalArgumentException("invalid heap budget: " + heapBudget);
+    }
+    this.heapBudget = heapBudget;
+  }
+
+  /** @return the number of nodes the call graph may have, or -1 for no limit */
+  public int getNodeBudget() {
+    return nodeBudget;
+  }
+
+  /**
+   * Limit the number of nodes of the call graph. Construction stops soon after the call graph has
+   * more nodes than that, so it may end up with a few more. With a budget, application code is
+   * analyzed first, then library code by its distance from the application.
+   *
+   * @param nodeBudget number of nodes, or -1 for no limit
+   */
+  public void setNodeBudget(int nodeBudget) {
+    if (nodeBudget < -1) {
+      throw new IllegalArgumentException("invalid node budget: " + nodeBudget);
+    }
+    this.nodeBudget = nodeBudget;
+  }
 }
@@ -10,16 +10,21 @@
  */
 package com.ibm.wala.ipa.callgraph;
 
-import com.ibm.wala.core.util.CancelRuntimeException;
-import com.ibm.wala.dataflow.graph.BitVectorSolver;
-import com.ibm.wala.fixpoint.BitVectorVariable;
 import com.ibm.wala.ipa.modref.GenReach;
-import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.graph.NumberedGraph;
 import com.ibm.wala.util.graph.impl.GraphInverter;
+import com.ibm.wala.util.graph.impl.SlowSparseNumberedGraph;
+import com.ibm.wala.util.intset.MutableMapping;
 import com.ibm.wala.util.intset.OrdinalSet;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 
 /**
@@ -37,20 +42,9 @@ public class CallGraphTransitiveClosure {
    */
   public static <T> Map<CGNode, OrdinalSet<T>> transitiveClosure(
       CallGraph cg, Map<CGNode, Collection<T>> nodeResults) {
-    try {
-      // invert the call graph, to compute the bottom-up result
-      GenReach<CGNode, T> gr = new GenReach<>(GraphInverter.invert(cg), nodeResults);
-      BitVectorSolver<CGNode> solver = new BitVectorSolver<>(gr);
-      solver.solve(null);
-      Map<CGNode, OrdinalSet<T>> result = HashMapFactory.make();
-      for (CGNode n : cg) {
-        BitVectorVariable bv = solver.getOut(n);
-        result.put(n, new OrdinalSet<>(bv.getValue(), gr.getLatticeValues()));
-      }
-      return result;
-    } catch (CancelException e) {
-      throw new CancelRuntimeException(e);
-    }
+    // invert the call graph, to compute the bottom-up result; nodes in one recursive cycle share
+    // their result
+    return GenReach.solve(GraphInverter.invert(cg), nodeResults);
   }
 
   /** Collect analysis result for each {@link CGNode} in a {@link Map}. */
@@ -62,4 +56,112 @@ public class CallGraphTransitiveClosure {
     }
     return result;
   }
+
+  /**
+   * Like {@link #transitiveClosure(CallGraph, Map)}, but compute the result for a node only when it
+   * is first looked up. This computes the individual results only for the node and its transitive
+   * callees, so clients that look at a few nodes do not pay for the whole call graph.
+   *
+   * <p>The returned map is unmodifiable. Iterating over it computes the results for all nodes.
+   *
+   * @param cg the call graph
+   * @param nodeResultComputer computes the analysis result for an individual node
+   * @return a map from each node to the analysis result for the node and its transitive callees
+   */
+  public static <T> Map<CGNode, OrdinalSet<T>> transitiveClosureOnDemand(
+      CallGraph cg, Function<CGNode, Collection<T>> nodeResultComputer) {
+    if (cg == null) {
+      throw new IllegalArgumentException("cg is null");
+    }
+    if (nodeResultComputer == null) {
+      throw new IllegalArgumentException("nodeResultComputer is null");
+    }
+    return new OnDemandClosure<>(cg, nodeResultComputer);
+  }
+
+  /**
+   * The map returned by {@link #transitiveClosureOnDemand(CallGraph, Function)}. A lookup solves a
+   * {@link GenReach} problem over the callees whose results are not yet known, with the call edges
+   * inverted; callees with known results enter it with those results as their values. All
+   * lookups number the values with one growing mapping, so the results of nodes computed by
+   * different lookups can be combined.
+   */
+  private static final class OnDemandClosure<T> extends AbstractMap<CGNode, OrdinalSet<T>> {
+
+    private final CallGraph cg;
+
+    private final Function<CGNode, Collection<T>> nodeResultComputer;
+
+    private final Map<CGNode, OrdinalSet<T>> closure = HashMapFactory.make();
+
+    private final MutableMapping<T> domain = MutableMapping.make();
+
+    private OnDemandClosure(CallGraph cg, Function<CGNode, Collection<T>> nodeResultComputer) {
+      this.cg = cg;
+      this.nodeResultComputer = nodeResultComputer;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return key instanceof CGNode && cg.containsNode((CGNode) key);
+    }
+
+    @Override
+    public int size() {
+      return cg.getNumberOfNodes();
+    }
+
+    @Override
+    public synchronized OrdinalSet<T> get(Object key) {
+      if (!containsKey(key)) {
+        return null;
+      }
+      CGNode n = (CGNode) key;
+      OrdinalSet<T> result = closure.get(n);
+      if (result == null) {
+        compute(n);
+        result = closure.get(n);
+      }
+      return result;
+    }
+
+    @Override
+    public synchronized Set<Entry<CGNode, OrdinalSet<T>>> entrySet() {
+      for (CGNode n : cg) {
+        get(n);
+      }
+      return Collections.unmodifiableMap(closure).entrySet();
+    }
+
+    /** compute the results for root and all its transitive callees whose results are unknown */
+    private void compute(CGNode root) {
+      // the callees without results, and the callees with results that they call directly
+      NumberedGraph<CGNode> callees = SlowSparseNumberedGraph.make();
+      Map<CGNode, Collection<T>> gen = HashMapFactory.make();
+      Deque<CGNode> worklist = new ArrayDeque<>();
+      callees.addNode(root);
+      worklist.push(root);
+      while (!worklist.isEmpty()) {
+        CGNode n = worklist.pop();
+        OrdinalSet<T> known = closure.get(n);
+        if (known != null) {
+          gen.put(n, OrdinalSet.toCollection(known));
+          continue;
+        }
+        gen.put(n, nodeResultComputer.apply(n));
+        for (CGNode callee : Iterator2Iterable.make(cg.getSuccNodes(n))) {
+          if (!callees.containsNode(callee)) {
+            callees.addNode(callee);
+            worklist.push(callee);
+          }
+          callees.addEdge(n, callee);
+        }
+      }
+      Map<CGNode, OrdinalSet<T>> result =
+          GenReach.solve(GraphInverter.invert(callees), gen, domain);
+      for (CGNode n : callees) {
+        closure.putIfAbsent(n, result.get(n));
+      }
+    }
+  }
 }
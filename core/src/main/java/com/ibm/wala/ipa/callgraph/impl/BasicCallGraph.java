@@ -123,6 +123,20 @@ public abstract class BasicCallGraph<T> extends AbstractNumberedGraph<CGNode> im
     }
   }
 
+  /** Forget a node that is being removed from this call graph. */
+  protected void deregisterNode(CGNode N) {
+    nodes.remove(new Key(N.getMethod(), N.getContext()));
+    Set<CGNode> s = mr2Nodes.get(N.getMethod().getReference());
+    if (s != null) {
+      s.remove(N);
+      if (s.isEmpty()) {
+        mr2Nodes.remove(N.getMethod().getReference());
+      }
+    }
+    entrypointNodes.remove(N);
+    nodeManager.removeNode(N);
+  }
+
   private Set<CGNode> findOrCreateMr2Nodes(IMethod method) {
     Set<CGNode> result = mr2Nodes.get(method.getReference());
     if (result == null) {
@@ -160,8 +174,11 @@ public abstract class BasicCallGraph<T> extends AbstractNumberedGraph<CGNode> im
   /** A class that represents the a normal node in a call graph. */
   public abstract static class NodeImpl extends NodeWithNumber implements CGNode {
 
-    /** The method this node represents. */
-    protected final IMethod method;
+    /**
+     * The method this node represents; {@link ExplicitCallGraph#updateMethod(IMethod)} may replace
+     * it with a new version that equals it.
+     */
+    protected IMethod method;
 
     /** The context this node represents. */
     private final Context context;
@@ -25,13 +25,17 @@ import com.ibm.wala.ssa.DefUse;
 import com.ibm.wala.ssa.IR;
 import com.ibm.wala.ssa.ISSABasicBlock;
 import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.types.MethodReference;
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.collections.FilterIterator;
+import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.IntMapIterator;
+import com.ibm.wala.util.collections.Iterator2Collection;
 import com.ibm.wala.util.collections.SparseVector;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.graph.NumberedEdgeManager;
+import com.ibm.wala.util.graph.impl.CompressedSparseRowEdgeManager;
 import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.MutableIntSet;
@@ -41,6 +45,7 @@ import java.lang.ref.WeakReference;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 
 /** A call graph which explicitly holds the target for each call site in each node. */
@@ -56,8 +61,16 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter>
   private final long maxNumberOfNodes;
 
   private final IMethod fakeRootMethod;
-  /** special object to track call graph edges */
-  private final ExplicitEdgeManager edgeManager = makeEdgeManger();
+  /** special object to track call graph edges; a compressed copy once the graph is frozen */
+  private NumberedEdgeManager<CGNode> edgeManager = makeEdgeManger();
+
+  private boolean frozen = false;
+
+  /** Did construction of this call graph reach a fixed point, rather than run out of budget? */
+  private boolean complete = true;
+
+  /** the new versions of methods, see {@link #updateMethod(IMethod)} */
+  private final Map<MethodReference, IMethod> updatedMethods = HashMapFactory.make();
 
   public ExplicitCallGraph(
       IMethod fakeRootMethod, AnalysisOptions options, IAnalysisCacheView cache) {
@@ -106,8 +119,9 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter>
     Key k = new Key(method, context);
     CGNode result = getNode(k);
     if (result == null) {
+      checkNotFrozen();
       if (maxNumberOfNodes == -1 || getNumberOfNodes() < maxNumberOfNodes) {
-        result = makeNode(method, context);
+        result = makeNode(updatedMethods.getOrDefault(method.getReference(), method), context);
         registerNode(k, result);
       } else {
         throw CancelException.make("Too many nodes");
@@ -192,6 +206,7 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter>
     }
 
     protected boolean addTarget(int pc, CGNode tNode) {
+      checkNotFrozen();
       allTargets.add(getCallGraph().getNumber(tNode));
       Object S = targets.get(pc);
       if (S == null) {
@@ -230,6 +245,7 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter>
      *     com.ibm.wala.ipa.callgraph.impl.BasicCallGraph.NodeImpl#removeNodeAndEdges(com.ibm.wala.ipa.callgraph.CGNode)
      */
     public void removeTarget(CGNode target) {
+      checkNotFrozen();
       allTargets.remove(getCallGraph().getNumber(target));
       for (IntIterator it = targets.safeIterateIndices(); it.hasNext(); ) {
         int pc = it.next();
@@ -255,6 +271,51 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter>
       }
     }
 
+    /**
+     * Remove target from the targets of one call site, and the call graph edge to target if no
+     * other site still calls it.
+     *
+     * @return true iff target was a target of site
+     */
+    public boolean removeTarget(CallSiteReference site, CGNode target) {
+      checkNotFrozen();
+      int pc = site.getProgramCounter();
+      int n = getCallGraph().getNumber(target);
+      Object value = targets.get(pc);
+      if (value == null) {
+        return false;
+      } else if (value instanceof CGNode) {
+        if (!value.equals(target)) {
+          return false;
+        }
+        targets.remove(pc);
+      } else {
+        MutableIntSet s = (MutableIntSet) value;
+        if (!s.contains(n)) {
+          return false;
+        }
+        s.remove(n);
+        if (s.size() == 1) {
+          targets.set(pc, getCallGraph().getNode(s.intIterator().next()));
+        }
+      }
+      for (IntIterator it = targets.iterateIndices(); it.hasNext(); ) {
+        Object other = targets.get(it.next());
+        if (other instanceof CGNode ? other.equals(target) : ((IntSet) other).contains(n)) {
+          return true;
+        }
+      }
+      allTargets.remove(n);
+      getCallGraph().getEdgeManager().removeEdge(this, target);
+      return true;
+    }
+
+    /** Forget the cached IR and def-use information, e.g. because the method has changed. */
+    public void clearCachedIR() {
+      ir = new WeakReference<>(null);
+      du = new WeakReference<>(null);
+    }
+
     @Override
     public boolean equals(Object obj) {
       // we can use object equality since these objects are canonical as created
@@ -273,6 +334,7 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter>
     }
 
     public void clearAllTargets() {
+      checkNotFrozen();
       targets.clear();
       allTargets.clear();
     }
@@ -400,12 +462,98 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter>
     }
   }
 
+  /**
+   * Remove a node, together with the call sites targeting it and its own targets. A node with the
+   * same method and context that is created later is a new node.
+   */
+  @Override
+  public void removeNodeAndEdges(CGNode N) {
+    checkNotFrozen();
+    if (!containsNode(N)) {
+      throw new IllegalArgumentException("node not in callgraph " + N);
+    }
+    if (N.equals(getFakeRootNode()) || N.equals(getFakeWorldClinitNode())) {
+      throw new IllegalArgumentException("cannot remove synthetic root " + N);
+    }
+    ExplicitNode n = (ExplicitNode) N;
+    for (CGNode pred : Iterator2Collection.toSet(getPredNodes(N))) {
+      ExplicitNode p = (ExplicitNode) pred;
+      p.removeTarget(N);
+      edgeManager.removeEdge(p, N);
+    }
+    for (CGNode succ : Iterator2Collection.toSet(getSuccNodes(N))) {
+      edgeManager.removeEdge(N, succ);
+    }
+    n.clearAllTargets();
+    deregisterNode(N);
+  }
+
+  /**
+   * Let the nodes of a method, and those created for it later, stand for a new version of the
+   * method, e.g. one read from a changed class file into a new class hierarchy. The new version
+   * equals the old one, so the nodes keep their keys and edges; their cached IRs are dropped.
+   */
+  public void updateMethod(IMethod method) {
+    checkNotFrozen();
+    updatedMethods.put(method.getReference(), method);
+    for (CGNode n : mr2Nodes.getOrDefault(method.getReference(), Collections.emptySet())) {
+      if (n.getMethod().equals(method)) {
+        ExplicitNode node = (ExplicitNode) n;
+        node.method = method;
+        node.clearCachedIR();
+      }
+    }
+  }
+
   /** @return Returns the edgeManger. */
   @Override
   public NumberedEdgeManager<CGNode> getEdgeManager() {
     return edgeManager;
   }
 
+  /**
+   * Freeze this call graph once it is finished. The edges are copied into a {@link
+   * CompressedSparseRowEdgeManager}, and the set of all targets of each node and the predecessor
+   * relation are released; the targets of each call site are kept. After this, creating nodes or
+   * adding or removing targets throws {@link UnsupportedOperationException}.
+   */
+  public void freeze() {
+    if (frozen) {
+      return;
+    }
+    edgeManager = new CompressedSparseRowEdgeManager<>(getNodeManager(), edgeManager);
+    frozen = true;
+    for (CGNode n : this) {
+      ((ExplicitNode) n).allTargets.clear();
+    }
+  }
+
+  /** @return true iff {@link #freeze()} has been called */
+  public boolean isFrozen() {
+    return frozen;
+  }
+
+  /**
+   * Did construction of this call graph reach a fixed point? If it ran out of a budget set in
+   * {@link AnalysisOptions}, the call graph is partial: it holds only nodes and edges of the
+   * complete one, but misses others.
+   */
+  public boolean isComplete() {
+    return complete;
+  }
+
+  /** Record whether construction of this call graph reached a fixed point. */
+  public void setComplete(boolean complete) {
+    this.complete = complete;
+  }
+
+  /** @throws UnsupportedOperationException if this call graph is frozen */
+  protected void checkNotFrozen() {
+    if (frozen) {
+      throw new UnsupportedOperationException("the call graph is frozen");
+    }
+  }
+
   protected ExplicitEdgeManager makeEdgeManger() {
     return new ExplicitEdgeManager();
   }
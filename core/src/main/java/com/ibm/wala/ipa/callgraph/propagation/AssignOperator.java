@@ -12,6 +12,7 @@ package com.ibm.wala.ipa.callgraph.propagation;
 
 import com.ibm.wala.fixpoint.UnaryOperator;
 import com.ibm.wala.fixpoint.UnaryStatement;
+import com.ibm.wala.util.intset.IntSet;
 
 /**
  * Corresponds to: "is a superset of". Used for assignment.
@@ -21,7 +22,8 @@ import com.ibm.wala.fixpoint.UnaryStatement;
  * <p>(Technically, it's a binary op, since it includes lhs as an implicit input; this allows it to
  * compose with other ops that define the same lhs, so long as they're all Assign ops)
  */
-class AssignOperator extends UnaryOperator<PointsToSetVariable> implements IPointerOperator {
+class AssignOperator extends UnaryOperator<PointsToSetVariable>
+    implements IDeltaPointerOperator {
 
   @Override
   public UnaryStatement<PointsToSetVariable> makeEquation(
@@ -45,6 +47,11 @@ class AssignOperator extends UnaryOperator<PointsToSetVariable> implements IPoin
     return changed ? CHANGED : NOT_CHANGED;
   }
 
+  @Override
+  public byte evaluateDelta(PointsToSetVariable lhs, PointsToSetVariable rhs, IntSet delta) {
+    return lhs.addAll(delta) ? CHANGED : NOT_CHANGED;
+  }
+
   @Override
   public String toString() {
     return "Assign";
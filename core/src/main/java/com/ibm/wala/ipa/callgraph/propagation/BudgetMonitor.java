@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+
+/**
+ * A progress monitor that cancels call graph construction once it has run for longer than a time
+ * budget, the heap in use has grown beyond a heap budget, or the call graph has more nodes than a
+ * node budget. Other requests go to a delegate monitor, which may be null.
+ */
+class BudgetMonitor implements IProgressMonitor {
+
+  private final IProgressMonitor delegate;
+
+  /** time at which the budget runs out, as given by {@link System#nanoTime()}, or -1 */
+  private final long deadline;
+
+  /** bytes of heap in use beyond which the budget runs out, or -1 */
+  private final long heapBudget;
+
+  /** the call graph under construction */
+  private final CallGraph callGraph;
+
+  /** number of call graph nodes beyond which the budget runs out, or -1 */
+  private final int nodeBudget;
+
+  private boolean timedOut = false;
+
+  private boolean tooMuchMemory = false;
+
+  private boolean tooManyNodes = false;
+
+  /**
+   * @param timeBudget milliseconds from now, or -1 for no limit
+   * @param heapBudget bytes of heap in use, or -1 for no limit
+   * @param nodeBudget number of nodes of callGraph, or -1 for no limit
+   */
+  BudgetMonitor(
+      IProgressMonitor delegate,
+      long timeBudget,
+      long heapBudget,
+      CallGraph callGraph,
+      int nodeBudget) {
+    this.delegate = delegate;
+    this.deadline = timeBudget < 0 ? -1 : System.nanoTime() + timeBudget * 1000000;
+    this.heapBudget = heapBudget;
+    this.callGraph = callGraph;
+    this.nodeBudget = nodeBudget;
+  }
+
+  /** Has the budget run out? */
+  boolean isExhausted() {
+    if (!timedOut && deadline != -1 && System.nanoTime() - deadline > 0) {
+      timedOut = true;
+    }
+    if (!tooMuchMemory && heapBudget != -1) {
+      Runtime r = Runtime.getRuntime();
+      tooMuchMemory = r.totalMemory() - r.freeMemory() > heapBudget;
+    }
+    if (!tooManyNodes && nodeBudget != -1) {
+      tooManyNodes = callGraph.getNumberOfNodes() > nodeBudget;
+    }
+    return timedOut || tooMuchMemory || tooManyNodes;
+  }
+
+  @Override
+  public void beginTask(String task, int totalWork) {
+    if (delegate != null) {
+      delegate.beginTask(task, totalWork);
+    }
+  }
+
+  @Override
+  public void subTask(String subTask) {
+    if (delegate != null) {
+      delegate.subTask(subTask);
+    }
+  }
+
+  @Override
+  public void cancel() {
+    if (delegate != null) {
+      delegate.cancel();
+    }
+  }
+
+  @Override
+  public boolean isCanceled() {
+    return (delegate != null && delegate.isCanceled()) || isExhausted();
+  }
+
+  @Override
+  public void done() {
+    if (delegate != null) {
+      delegate.done();
+    }
+  }
+
+  @Override
+  public void worked(int units) {
+    if (delegate != null) {
+      delegate.worked(units);
+    }
+  }
+
+  @Override
+  public String getCancelMessage() {
+    if (delegate != null && delegate.isCanceled()) {
+      return delegate.getCancelMessage();
+    }
+    if (tooMuchMemory) {
+      return "exceeded heap budget";
+    } else if (timedOut) {
+      return "exceeded time budget";
+    } else if (tooManyNodes) {
+      return "exceeded node budget";
+    }
+    return "unknown";
+  }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.fixpoint.IFixedPointStatement;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.intset.MutableIntSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Records why each part of a {@link PropagationSystem} exists, so that the parts derived from
+ * code that has changed can be retracted.
+ *
+ * <p>An origin is a {@link CGNode}, for constraints added while translating the node's code; a
+ * statement, for constraints added while evaluating it (e.g. the parameter passing added by a
+ * dispatch); or {@link #PERMANENT} for everything else. A statement, a fact that a variable holds
+ * an instance key, or a call graph edge may have several origins, and only goes away once all of
+ * them have.
+ */
+class ConstraintOrigins {
+
+  /** origin of constraints that are never retracted */
+  static final Object PERMANENT =
+      new Object() {
+        @Override
+        public String toString() {
+          return "PERMANENT origin";
+        }
+      };
+
+  /** A call graph edge from a call site. */
+  static final class CallEdge {
+    final CGNode caller;
+
+    final CallSiteReference site;
+
+    final CGNode target;
+
+    CallEdge(CGNode caller, CallSiteReference site, CGNode target) {
+      this.caller = caller;
+      this.site = site;
+      this.target = target;
+    }
+
+    @Override
+    public int hashCode() {
+      return caller.hashCode() * 8191 + site.hashCode() * 131 + target.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof CallEdge)) {
+        return false;
+      }
+      CallEdge other = (CallEdge) obj;
+      return caller.equals(other.caller) && site.equals(other.site) && target.equals(other.target);
+    }
+
+    @Override
+    public String toString() {
+      return caller + " @" + site.getProgramCounter() + " -> " + target;
+    }
+  }
+
+  private final Map<Object, Set<IFixedPointStatement<PointsToSetVariable>>> statementsByOrigin =
+      HashMapFactory.make();
+
+  private final Map<IFixedPointStatement<PointsToSetVariable>, Set<Object>> originsOfStatement =
+      HashMapFactory.make();
+
+  /** variables that received instance keys directly, by the origin of the instance keys */
+  private final Map<Object, Set<PointsToSetVariable>> instanceTargetsByOrigin =
+      HashMapFactory.make();
+
+  /** the instance keys added directly to a variable, by origin */
+  private final Map<PointsToSetVariable, Map<Object, MutableIntSet>> instancesOfVariable =
+      HashMapFactory.make();
+
+  private final Map<Object, Set<PointerKey>> implicitKeysByOrigin = HashMapFactory.make();
+
+  private final Map<Object, Set<CallEdge>> callEdgesByOrigin = HashMapFactory.make();
+
+  private final Map<CallEdge, Set<Object>> originsOfCallEdge = HashMapFactory.make();
+
+  void recordStatement(Object origin, IFixedPointStatement<PointsToSetVariable> s) {
+    statementsByOrigin.computeIfAbsent(origin, k -> HashSetFactory.make()).add(s);
+    originsOfStatement.computeIfAbsent(s, k -> HashSetFactory.make(1)).add(origin);
+  }
+
+  void recordInstance(Object origin, PointsToSetVariable v, int instance) {
+    instanceTargetsByOrigin.computeIfAbsent(origin, k -> HashSetFactory.make()).add(v);
+    instancesOfVariable
+        .computeIfAbsent(v, k -> HashMapFactory.make(1))
+        .computeIfAbsent(origin, k -> IntSetUtil.make())
+        .add(instance);
+  }
+
+  void recordImplicitKey(Object origin, PointerKey key) {
+    implicitKeysByOrigin.computeIfAbsent(origin, k -> HashSetFactory.make()).add(key);
+  }
+
+  void recordCallEdge(Object origin, CallEdge e) {
+    callEdgesByOrigin.computeIfAbsent(origin, k -> HashSetFactory.make()).add(e);
+    originsOfCallEdge.computeIfAbsent(e, k -> HashSetFactory.make(1)).add(origin);
+  }
+
+  /** @return the origins of s, which must not be modified */
+  Set<Object> getOrigins(IFixedPointStatement<PointsToSetVariable> s) {
+    Set<Object> result = originsOfStatement.get(s);
+    return result == null ? Collections.emptySet() : result;
+  }
+
+  /**
+   * Forget origin as a reason for the statements it created.
+   *
+   * @return the statements that are left without any origin
+   */
+  List<IFixedPointStatement<PointsToSetVariable>> takeStatements(Object origin) {
+    List<IFixedPointStatement<PointsToSetVariable>> result = new ArrayList<>();
+    Set<IFixedPointStatement<PointsToSetVariable>> created = statementsByOrigin.remove(origin);
+    if (created != null) {
+      for (IFixedPointStatement<PointsToSetVariable> s : created) {
+        Set<Object> origins = originsOfStatement.get(s);
+        origins.remove(origin);
+        if (origins.isEmpty()) {
+          originsOfStatement.remove(s);
+          result.add(s);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Forget all origins of s.
+   *
+   * @return the origins s had
+   */
+  Set<Object> removeStatement(IFixedPointStatement<PointsToSetVariable> s) {
+    Set<Object> origins = originsOfStatement.remove(s);
+    if (origins == null) {
+      return Collections.emptySet();
+    }
+    for (Object o : origins) {
+      Set<IFixedPointStatement<PointsToSetVariable>> created = statementsByOrigin.get(o);
+      if (created != null) {
+        created.remove(s);
+      }
+    }
+    return origins;
+  }
+
+  /**
+   * Forget the instance keys origin added to variables directly.
+   *
+   * @return the variables that lost instance keys
+   */
+  Collection<PointsToSetVariable> takeInstanceTargets(Object origin) {
+    Set<PointsToSetVariable> targets = instanceTargetsByOrigin.remove(origin);
+    if (targets == null) {
+      return Collections.emptySet();
+    }
+    for (PointsToSetVariable v : targets) {
+      Map<Object, MutableIntSet> byOrigin = instancesOfVariable.get(v);
+      byOrigin.remove(origin);
+      if (byOrigin.isEmpty()) {
+        instancesOfVariable.remove(v);
+      }
+    }
+    return targets;
+  }
+
+  /** @return the instance keys that are still added to v directly, or null if there are none */
+  @Nullable
+  IntSet getInstances(PointsToSetVariable v) {
+    Map<Object, MutableIntSet> byOrigin = instancesOfVariable.get(v);
+    if (byOrigin == null) {
+      return null;
+    }
+    MutableIntSet result = IntSetUtil.make();
+    for (MutableIntSet s : byOrigin.values()) {
+      result.addAll(s);
+    }
+    return result;
+  }
+
+  /** Forget the pointer keys origin made implicit, and return them. */
+  Collection<PointerKey> takeImplicitKeys(Object origin) {
+    Set<PointerKey> result = implicitKeysByOrigin.remove(origin);
+    return result == null ? Collections.emptySet() : result;
+  }
+
+  /**
+   * Forget origin as a reason for the call graph edges it added.
+   *
+   * @return the edges that are left without any origin
+   */
+  List<CallEdge> takeCallEdges(Object origin) {
+    List<CallEdge> result = new ArrayList<>();
+    Set<CallEdge> created = callEdgesByOrigin.remove(origin);
+    if (created != null) {
+      for (CallEdge e : created) {
+        Set<Object> origins = originsOfCallEdge.get(e);
+        origins.remove(origin);
+        if (origins.isEmpty()) {
+          originsOfCallEdge.remove(e);
+          result.add(e);
+        }
+      }
+    }
+    return result;
+  }
+}
@@ -29,6 +29,33 @@ public interface FilteredPointerKey extends PointerKey {
     boolean addInverseFiltered(
         PropagationSystem system, PointsToSetVariable L, PointsToSetVariable R);
 
+    /**
+     * Like {@link #addFiltered(PropagationSystem, PointsToSetVariable, PointsToSetVariable)}, but
+     * only consider delta, the instances recently added to the right-hand side. By default, this
+     * copies delta into a variable and calls addFiltered.
+     */
+    default boolean addFilteredDelta(
+        PropagationSystem system, PointsToSetVariable L, IntSet delta) {
+      return addFiltered(system, L, toVariable(L, delta));
+    }
+
+    /**
+     * Like {@link #addInverseFiltered(PropagationSystem, PointsToSetVariable,
+     * PointsToSetVariable)}, but only consider delta, the instances recently added to the
+     * right-hand side. By default, this copies delta into a variable and calls addInverseFiltered.
+     */
+    default boolean addInverseFilteredDelta(
+        PropagationSystem system, PointsToSetVariable L, IntSet delta) {
+      return addInverseFiltered(system, L, toVariable(L, delta));
+    }
+
+    /** @return a fresh variable, keyed like L, that holds delta */
+    private static PointsToSetVariable toVariable(PointsToSetVariable L, IntSet delta) {
+      PointsToSetVariable R = new PointsToSetVariable(L.getPointerKey());
+      R.addAll(delta);
+      return R;
+    }
+
     boolean isRootFilter();
   }
 
@@ -77,6 +104,20 @@ public interface FilteredPointerKey extends PointerKey {
       return (f == null) ? L.addAll(R) : L.addAll(IntSetUtil.diff(R.getValue(), f));
     }
 
+    @Override
+    public boolean addFilteredDelta(
+        PropagationSystem system, PointsToSetVariable L, IntSet delta) {
+      IntSet f = system.getInstanceKeysForClass(concreteType);
+      return (f == null) ? false : L.addAllInIntersection(delta, f);
+    }
+
+    @Override
+    public boolean addInverseFilteredDelta(
+        PropagationSystem system, PointsToSetVariable L, IntSet delta) {
+      IntSet f = system.getInstanceKeysForClass(concreteType);
+      return (f == null) ? L.addAll(delta) : L.addAll(IntSetUtil.diff(delta, f));
+    }
+
     @Override
     public boolean isRootFilter() {
       return concreteType.equals(concreteType.getClassHierarchy().getRootClass());
@@ -155,6 +196,20 @@ public interface FilteredPointerKey extends PointerKey {
       return (f == null) ? L.addAll(R) : L.addAll(IntSetUtil.diff(R.getValue(), f));
     }
 
+    @Override
+    public boolean addFilteredDelta(
+        PropagationSystem system, PointsToSetVariable L, IntSet delta) {
+      IntSet f = bits(system);
+      return (f == null) ? false : L.addAllInIntersection(delta, f);
+    }
+
+    @Override
+    public boolean addInverseFilteredDelta(
+        PropagationSystem system, PointsToSetVariable L, IntSet delta) {
+      IntSet f = bits(system);
+      return (f == null) ? L.addAll(delta) : L.addAll(IntSetUtil.diff(delta, f));
+    }
+
     @Override
     public boolean isRootFilter() {
       return concreteType.length == 1
@@ -213,6 +268,30 @@ public interface FilteredPointerKey extends PointerKey {
       }
     }
 
+    @Override
+    public boolean addFilteredDelta(
+        PropagationSystem system, PointsToSetVariable L, IntSet delta) {
+      int idx = system.findOrCreateIndexForInstanceKey(concreteType);
+      if (delta.contains(idx)) {
+        return L.add(idx);
+      }
+
+      return false;
+    }
+
+    @Override
+    public boolean addInverseFilteredDelta(
+        PropagationSystem system, PointsToSetVariable L, IntSet delta) {
+      int idx = system.findOrCreateIndexForInstanceKey(concreteType);
+      if (!delta.contains(idx) || L.contains(idx)) {
+        return L.addAll(delta);
+      } else {
+        MutableIntSet copy = IntSetUtil.makeMutableCopy(delta);
+        copy.remove(idx);
+        return L.addAll(copy);
+      }
+    }
+
     @Override
     public boolean isRootFilter() {
       return false;
@@ -297,6 +376,22 @@ public interface FilteredPointerKey extends PointerKey {
       }
     }
 
+    @Override
+    public boolean addFilteredDelta(
+        PropagationSystem system, PointsToSetVariable L, IntSet delta) {
+      UpdateAction act = new UpdateAction(system, L, true);
+      delta.foreach(act);
+      return act.result;
+    }
+
+    @Override
+    public boolean addInverseFilteredDelta(
+        PropagationSystem system, PointsToSetVariable L, IntSet delta) {
+      UpdateAction act = new UpdateAction(system, L, false);
+      delta.foreach(act);
+      return act.result;
+    }
+
     @Override
     public boolean isRootFilter() {
       return false;
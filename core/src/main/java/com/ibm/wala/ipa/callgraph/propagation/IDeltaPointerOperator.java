@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import com.ibm.wala.util.intset.IntSet;
+
+/**
+ * A unary pointer operator whose effect on the left-hand side can be computed from just the
+ * instances recently added to the right-hand side. Used for difference propagation.
+ *
+ * @see PropagationSystem#setUseDifferencePropagation(boolean)
+ */
+public interface IDeltaPointerOperator extends IPointerOperator {
+
+  /**
+   * Evaluate lhs = op (rhs), given that all of rhs except delta has already been accounted for in
+   * lhs.
+   *
+   * @param delta the instances added to rhs since the last evaluation
+   * @return a code as in {@link com.ibm.wala.fixpoint.FixedPointConstants}
+   */
+  byte evaluateDelta(PointsToSetVariable lhs, PointsToSetVariable rhs, IntSet delta);
+}
@@ -41,8 +41,10 @@ import com.ibm.wala.util.intset.MutableMapping;
 import com.ibm.wala.util.intset.MutableSparseIntSet;
 import com.ibm.wala.util.intset.OrdinalSet;
 import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /** General representation of the results of pointer analysis */
@@ -60,8 +62,17 @@ public class PointerAnalysisImpl extends AbstractPointerAnalysis {
   /** An object that abstracts how to model instances in the heap. */
   private final InstanceKeyFactory iKeyFactory;
 
+  /**
+   * points-to sets of variables whose values were hash-consed by {@link
+   * PropagationSystem#compactPointsToSets()}, by their shared backing set
+   */
+  private final Map<IntSet, OrdinalSet<InstanceKey>> sharedPointsToSets = new IdentityHashMap<>();
+
   protected final PropagationCallGraphBuilder builder;
 
+  /** Did the solver reach a fixed point, rather than run out of budget? */
+  private boolean complete = true;
+
   public PointerAnalysisImpl(
       PropagationCallGraphBuilder builder,
       CallGraph cg,
@@ -93,6 +104,19 @@ public class PointerAnalysisImpl extends AbstractPointerAnalysis {
     return result.toString();
   }
 
+  /**
+   * Did the solver reach a fixed point? If call graph construction ran out of a budget set in
+   * {@link com.ibm.wala.ipa.callgraph.AnalysisOptions}, the points-to sets are partial: they hold
+   * only instances that the complete ones hold, but miss others.
+   */
+  public boolean isComplete() {
+    return complete;
+  }
+
+  void setComplete(boolean complete) {
+    this.complete = complete;
+  }
+
   protected HeapModel makeHeapModel() {
     return new HModel();
   }
@@ -130,10 +154,30 @@ public class PointerAnalysisImpl extends AbstractPointerAnalysis {
       return OrdinalSet.empty();
     } else {
       IntSet S = v.getValue();
+      if (v.isValueShared()) {
+        return findOrCreateSharedPointsToSet(S);
+      }
       return new OrdinalSet<>(S, instanceKeys);
     }
   }
 
+  /**
+   * @return the one points-to set for a shared backing set, so that equal points-to sets are the
+   *     same object
+   */
+  private OrdinalSet<InstanceKey> findOrCreateSharedPointsToSet(IntSet S) {
+    synchronized (sharedPointsToSets) {
+      return sharedPointsToSets.computeIfAbsent(S, s -> new OrdinalSet<>(s, instanceKeys));
+    }
+  }
+
+  /** Forget the points-to sets for shared backing sets, after the backing sets were replaced. */
+  void clearSharedPointsToSets() {
+    synchronized (sharedPointsToSets) {
+      sharedPointsToSets.clear();
+    }
+  }
+
   /** did the pointer analysis use a type filter for a given points-to set? (this is ugly). */
   @Override
   public boolean isFiltered(PointerKey key) {
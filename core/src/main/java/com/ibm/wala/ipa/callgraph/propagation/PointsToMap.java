@@ -26,7 +26,7 @@ import java.util.Iterator;
 public class PointsToMap {
 
   /** An object that manages the numbering of pointer keys */
-  private final MutableMapping<PointerKey> pointerKeys = MutableMapping.make();
+  private final MutableMapping<PointerKey> pointerKeys;
 
   /**
    * pointsToSets[i] says something about the representation of the points-to set for the ith {@link
@@ -68,6 +68,21 @@ public class PointsToMap {
    */
   private final BitVector transitiveRoots = new BitVector();
 
+  public PointsToMap() {
+    this(MutableMapping.make());
+  }
+
+  /**
+   * @param pointerKeys an empty mapping, to number the pointer keys
+   * @throws IllegalArgumentException if pointerKeys is null or not empty
+   */
+  public PointsToMap(MutableMapping<PointerKey> pointerKeys) {
+    if (pointerKeys == null || pointerKeys.getSize() > 0) {
+      throw new IllegalArgumentException("need an empty mapping");
+    }
+    this.pointerKeys = pointerKeys;
+  }
+
   /** @return iterator of all PointerKeys tracked */
   public Iterator<PointerKey> iterateKeys() {
     return pointerKeys.iterator();
@@ -111,6 +126,30 @@ public class PointsToMap {
     pointsToSets.set(i, IMPLICIT);
   }
 
+  /**
+   * forget that a particular points-to-set is represented implicitly, e.g. because the code that
+   * made it implicit has changed
+   */
+  public void forgetImplicit(PointerKey key) {
+    int i = getIndex(key);
+    if (i != -1 && pointsToSets.get(i) == IMPLICIT) {
+      pointsToSets.set(i, null);
+    }
+  }
+
+  /**
+   * give a local back its key without a type filter, e.g. because the code that needed the filter
+   * has changed
+   */
+  void forgetFilter(PointsToSetVariable p) {
+    if (p.getPointerKey() instanceof LocalPointerKeyWithFilter) {
+      LocalPointerKey f = (LocalPointerKey) p.getPointerKey();
+      LocalPointerKey lpk = new LocalPointerKey(f.getNode(), f.getValueNumber());
+      p.setPointerKey(lpk);
+      pointerKeys.replace(f, lpk);
+    }
+  }
+
   public void put(PointerKey key, PointsToSetVariable v) {
     int i = findOrCreateIndex(key);
     pointsToSets.set(i, v);
@@ -19,8 +19,11 @@ import com.ibm.wala.ssa.IR;
 import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.intset.MutableIntSet;
 import com.ibm.wala.util.intset.MutableMapping;
 import com.ibm.wala.util.intset.MutableSparseIntSet;
+import org.jspecify.annotations.Nullable;
 
 /** Representation of a points-to set during an andersen-style analysis. */
 public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
@@ -46,6 +49,15 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
 
   private PointerKey pointerKey;
 
+  /**
+   * Should this variable record the instances added to it in {@link #delta}? This is only needed
+   * while some equation uses this variable with difference propagation.
+   */
+  private boolean trackDelta = false;
+
+  /** if trackDelta, the instances added to this variable since the last call to takeDelta() */
+  @Nullable private MutableIntSet delta;
+
   public PointsToSetVariable(PointerKey key) {
     super();
     if (key == null) {
@@ -85,6 +97,9 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
       checkTypes(m);
     }
     final boolean result = super.add(b);
+    if (result && trackDelta) {
+      recordDelta().add(b);
+    }
     cryIfTooBig();
     return result;
   }
@@ -94,11 +109,80 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
     if (PARANOID) {
       checkTypes(B);
     }
-    boolean v = super.addAll(B);
+    boolean v;
+    if (trackDelta) {
+      IntSet old = getValue();
+      IntSet added = (old == null) ? B : IntSetUtil.diff(B, old);
+      v = super.addAll(added);
+      if (v) {
+        recordDelta().addAll(added);
+      }
+    } else {
+      v = super.addAll(B);
+    }
     cryIfTooBig();
     return v;
   }
 
+  @Override
+  public boolean addAllInIntersection(PointsToSetVariable other, IntSet filter) {
+    if (trackDelta) {
+      IntSet o = other.getValue();
+      return (o == null) ? false : addAllInIntersection(o, filter);
+    } else {
+      return super.addAllInIntersection(other, filter);
+    }
+  }
+
+  @Override
+  public boolean addAllInIntersection(IntSet other, IntSet filter) {
+    if (trackDelta) {
+      return addAll(other.intersection(filter));
+    } else {
+      return super.addAllInIntersection(other, filter);
+    }
+  }
+
+  @Override
+  public void copyState(PointsToSetVariable other) {
+    super.copyState(other);
+    if (trackDelta && getValue() != null) {
+      // conservatively, treat the whole new value as recently added
+      recordDelta().addAll(getValue());
+    }
+  }
+
+  private MutableIntSet recordDelta() {
+    if (delta == null) {
+      delta = IntSetUtil.getDefaultIntSetFactory().make();
+    }
+    return delta;
+  }
+
+  /**
+   * Start recording the instances added to this variable, for difference propagation. Instances
+   * already present are not recorded; equations that start using this variable must account for
+   * them with a full evaluation.
+   */
+  public void setTrackDelta() {
+    trackDelta = true;
+  }
+
+  public boolean isTrackingDelta() {
+    return trackDelta;
+  }
+
+  /**
+   * @return the instances added to this variable since the last call to this method, or null if
+   *     none. The caller owns the returned set.
+   */
+  @Nullable
+  public IntSet takeDelta() {
+    IntSet result = delta;
+    delta = null;
+    return result;
+  }
+
   /** check that the types of all instance keys are assignable to declared type of pointer key */
   private void checkTypes(IntSet b) {
     assert PARANOID;
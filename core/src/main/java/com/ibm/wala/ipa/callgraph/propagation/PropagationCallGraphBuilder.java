@@ -36,18 +36,30 @@ import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
 import com.ibm.wala.ipa.callgraph.propagation.rta.RTAContextInterpreter;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
+import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil;
 import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.debug.Assertions;
+import com.ibm.wala.util.graph.traverse.DFS;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntSetAction;
 import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSet;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * This abstract base class provides the general algorithm for a call graph builder that relies on
@@ -100,6 +112,21 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
    */
   private Set<CGNode> discoveredNodes = HashSetFactory.make();
 
+  /**
+   * When construction runs on a budget, the distance of each discovered node from application code,
+   * which decides the order in which nodes are processed
+   */
+  private Map<CGNode, Integer> depths;
+
+  /**
+   * When construction runs on a budget, the discovered nodes not yet processed for constraints,
+   * least depth first
+   */
+  private TreeSet<CGNode> depthQueue;
+
+  /** Did the last call graph construction reach a fixed point, rather than run out of budget? */
+  private boolean complete = true;
+
   /** Set of calls (CallSiteReferences) that are created by entrypoints */
   protected final Set<CallSiteReference> entrypointCallSites = HashSetFactory.make();
 
@@ -210,9 +237,35 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
     system.setMinEquationsForTopSort(options.getMinEquationsForTopSort());
     system.setTopologicalGrowthFactor(options.getTopologicalGrowthFactor());
     system.setMaxEvalBetweenTopo(options.getMaxEvalBetweenTopo());
+    system.setNumberOfThreads(options.getNumberOfSolverThreads());
+    system.setUseDifferencePropagation(options.getUseDifferencePropagation());
+    system.setCollapseAssignmentCycles(options.getCollapseAssignmentCycles());
+    system.setWorklistStrategy(options.getSolverWorklistStrategy());
+    system.setTrackOrigins(options.getIncrementalUpdates());
 
     discoveredNodes = HashSetFactory.make();
     discoveredNodes.add(callGraph.getFakeRootNode());
+    complete = true;
+    BudgetMonitor budget = null;
+    if (options.getTimeBudget() != -1
+        || options.getHeapBudget() != -1
+        || options.getNodeBudget() != -1) {
+      budget =
+          new BudgetMonitor(
+              monitor,
+              options.getTimeBudget(),
+              options.getHeapBudget(),
+              callGraph,
+              options.getNodeBudget());
+      depths = HashMapFactory.make();
+      depthQueue =
+          new TreeSet<>(
+              Comparator.<CGNode>comparingInt(depths::get)
+                  .thenComparingInt(CGNode::getGraphNodeId));
+    } else {
+      depths = null;
+      depthQueue = null;
+    }
 
     // Set up the initially reachable methods and classes
     for (Entrypoint E : options.getEntrypoints()) {
@@ -245,19 +298,193 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
 
     solver = makeSolver();
     try {
-      solver.solve(monitor);
+      solver.solve(budget == null ? monitor : budget);
     } catch (CancelException | CancelRuntimeException e) {
-      CallGraphBuilderCancelException c =
-          CallGraphBuilderCancelException.createCallGraphBuilderCancelException(
-              e, callGraph, system.extractPointerAnalysis(this));
-      throw c;
+      if (budget == null || !budget.isExhausted() || (monitor != null && monitor.isCanceled())) {
+        CallGraphBuilderCancelException c =
+            CallGraphBuilderCancelException.createCallGraphBuilderCancelException(
+                e, callGraph, system.extractPointerAnalysis(this));
+        throw c;
+      }
+      // out of budget: keep what has been built so far
+      setComplete(false);
+    }
+    if (options.getCompactPointsToSets() || options.getUseOffHeapStorage()) {
+      system.compactPointsToSets();
+    }
+    // an update after code changes adds and removes nodes and edges
+    if (options.getFreezeCallGraph() && !options.getIncrementalUpdates()) {
+      callGraph.freeze();
     }
 
     return callGraph;
   }
 
-  protected PropagationSystem makeSystem(@SuppressWarnings("unused") AnalysisOptions options) {
-    return new PropagationSystem(callGraph, pointerKeyFactory, instanceKeyFactory);
+  /**
+   * Update the call graph and pointer analysis built by {@link #makeCallGraph(AnalysisOptions,
+   * IProgressMonitor)} after the method bodies of some classes have changed, rather than building
+   * them again from scratch. This requires {@link AnalysisOptions#setIncrementalUpdates(boolean)}.
+   *
+   * <p>The constraints derived from the changed nodes, and everything that follows from them, are
+   * retracted; the changed nodes are translated again and the system is solved from the state that
+   * remains. Nodes that are no longer reachable are removed from the call graph. The update runs to
+   * a fixed point without the budgets of {@link AnalysisOptions}, so it also completes a call graph
+   * whose construction ran out of budget, at the cost of translating all its nodes again, and
+   * {@link #isComplete()} holds afterwards.
+   *
+   * <p>To install new bytecode, build a new class hierarchy over the changed class files and pass
+   * its versions of the changed classes. They are matched with the classes of this call graph by
+   * {@link TypeReference}, and the nodes of their methods are bound to the new versions, see {@link
+   * ExplicitCallGraph#updateMethod(IMethod)}; everything else keeps using the class hierarchy the
+   * call graph was built from. A class of that hierarchy may also be passed if the analysis cache
+   * returns new code for its methods. The class hierarchy itself must not have changed: added or
+   * removed classes, supertypes, methods or fields are not supported, and call for a new call
+   * graph.
+   *
+   * @param changedClasses classes whose method bodies have changed
+   * @return the updated call graph, which is the call graph built before
+   * @throws IllegalArgumentException if one of changedClasses is not in the class hierarchy this
+   *     call graph was built from, or has other supertypes, methods or fields there
+   * @throws IllegalStateException if no call graph was built with incremental updates enabled
+   */
+  public CallGraph updateCallGraph(
+      Collection<? extends IClass> changedClasses, IProgressMonitor monitor)
+      throws CallGraphBuilderCancelException {
+    if (changedClasses == null) {
+      throw new IllegalArgumentException("null changedClasses");
+    }
+    if (system == null || solver == null || !system.getTrackOrigins()) {
+      throw new IllegalStateException("no call graph built with incremental updates enabled");
+    }
+    Set<TypeReference> changedTypes = HashSetFactory.make();
+    for (IClass klass : changedClasses) {
+      IClass old = cha.lookupClass(klass.getReference());
+      if (old == null) {
+        throw new IllegalArgumentException(
+            klass
+                + " is not in the class hierarchy of this call graph; "
+                + "added classes call for a new call graph");
+      }
+      if (old != klass && !hasSameMembers(old, klass)) {
+        throw new IllegalArgumentException(
+            klass
+                + " has other supertypes, methods or fields than in the class hierarchy of this "
+                + "call graph, which calls for a new call graph");
+      }
+      changedTypes.add(klass.getReference());
+    }
+    for (IClass klass : changedClasses) {
+      if (cha.lookupClass(klass.getReference()) != klass) {
+        for (IMethod m : klass.getDeclaredMethods()) {
+          callGraph.updateMethod(m);
+        }
+      }
+    }
+    Set<CGNode> changed = HashSetFactory.make();
+    for (CGNode n : callGraph) {
+      if (changedTypes.contains(n.getMethod().getDeclaringClass().getReference())) {
+        changed.add(n);
+        ((ExplicitCallGraph.ExplicitNode) n).clearCachedIR();
+        getAnalysisCache().invalidate(n.getMethod(), n.getContext());
+      }
+    }
+    if (!complete) {
+      // running out of budget may have stopped the constraints of a node or the evaluation of a
+      // statement half way, so the constraints of all nodes visited so far are made again
+      for (CGNode n : callGraph) {
+        if (haveAlreadyVisited(n)) {
+          changed.add(n);
+        }
+      }
+    }
+    Set<CGNode> removed = Collections.emptySet();
+    // the fixed point is open again, and this time it is solved to the end
+    setComplete(true);
+    try {
+      do {
+        Set<CGNode> regenerate = system.retract(changed, removed);
+        forgetRetractedConstraints();
+        for (CGNode n : removed) {
+          alreadyVisited.remove(n);
+          discoveredNodes.remove(n);
+          if (depths != null && depths.containsKey(n)) {
+            // the queue orders by depth, so n can only be looked up while it has one
+            depthQueue.remove(n);
+          }
+          callGraph.removeNodeAndEdges(n);
+        }
+        for (CGNode n : regenerate) {
+          addConstraintsFromChangedNode(n, monitor);
+        }
+        solver.solve(monitor);
+        changed = Collections.emptySet();
+        Set<CGNode> reachable =
+            DFS.getReachableNodes(callGraph, Collections.singleton(callGraph.getFakeRootNode()));
+        removed = HashSetFactory.make();
+        for (CGNode n : callGraph) {
+          if (!reachable.contains(n)) {
+            removed.add(n);
+          }
+        }
+      } while (!changed.isEmpty() || !removed.isEmpty());
+    } catch (CancelException | CancelRuntimeException e) {
+      throw CallGraphBuilderCancelException.createCallGraphBuilderCancelException(
+          e, callGraph, system.extractPointerAnalysis(this));
+    }
+    if (options.getCompactPointsToSets() || options.getUseOffHeapStorage()) {
+      system.compactPointsToSets();
+    }
+    return callGraph;
+  }
+
+  /**
+   * Do two versions of a class, from different class hierarchies, have the same supertypes, methods
+   * and fields? Classes and their members from different hierarchies are equal if their references
+   * are.
+   */
+  private static boolean hasSameMembers(IClass oldClass, IClass newClass) {
+    return Objects.equals(oldClass.getSuperclass(), newClass.getSuperclass())
+        && HashSetFactory.make(oldClass.getDirectInterfaces())
+            .equals(HashSetFactory.make(newClass.getDirectInterfaces()))
+        && HashSetFactory.make(oldClass.getDeclaredMethods())
+            .equals(HashSetFactory.make(newClass.getDeclaredMethods()))
+        && HashSetFactory.make(oldClass.getDeclaredInstanceFields())
+            .equals(HashSetFactory.make(newClass.getDeclaredInstanceFields()))
+        && HashSetFactory.make(oldClass.getDeclaredStaticFields())
+            .equals(HashSetFactory.make(newClass.getDeclaredStaticFields()));
+  }
+
+  /**
+   * Hook for subclasses to forget what they remember about constraints that {@link
+   * #updateCallGraph(Collection, IProgressMonitor)} retracted, so that the nodes translated again
+   * add them anew.
+   */
+  protected void forgetRetractedConstraints() {}
+
+  /**
+   * Did the last call graph construction run to a fixed point? If it ran out of the time, heap or
+   * node budget set in {@link AnalysisOptions}, the call graph and pointer analysis are partial:
+   * they hold only facts that also hold in the complete ones, but miss others. They say so
+   * themselves, see {@link ExplicitCallGraph#isComplete()} and {@link
+   * PointerAnalysisImpl#isComplete()}.
+   */
+  public boolean isComplete() {
+    return complete;
+  }
+
+  /** Record whether the solver reached a fixed point, also on the call graph and points-to sets. */
+  private void setComplete(boolean complete) {
+    this.complete = complete;
+    callGraph.setComplete(complete);
+    PointerAnalysis<InstanceKey> pointerAnalysis = system.extractPointerAnalysis(this);
+    if (pointerAnalysis instanceof PointerAnalysisImpl) {
+      ((PointerAnalysisImpl) pointerAnalysis).setComplete(complete);
+    }
+  }
+
+  protected PropagationSystem makeSystem(AnalysisOptions options) {
+    return new PropagationSystem(
+        callGraph, pointerKeyFactory, instanceKeyFactory, options.getUseOffHeapStorage());
   }
 
   protected abstract IPointsToSolver makeSolver();
@@ -299,18 +526,117 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
    * @return true iff any new constraints are added.
    */
   protected boolean addConstraintsFromNewNodes(IProgressMonitor monitor) throws CancelException {
+    if (depths != null) {
+      return addConstraintsFromNewNodesByDepth(monitor);
+    }
     boolean result = false;
     while (!discoveredNodes.isEmpty()) {
       Iterator<CGNode> it = discoveredNodes.iterator();
       discoveredNodes = HashSetFactory.make();
       while (it.hasNext()) {
         CGNode n = it.next();
+        Object previousOrigin = system.setCurrentOrigin(n);
+        try {
+          result |= addConstraintsFromNode(n, monitor);
+        } finally {
+          system.setCurrentOrigin(previousOrigin);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Add constraints from newly discovered nodes, application code first and then library code by
+   * its distance in calls from application code, so that a budget is spent on the nodes closest to
+   * the application. New call graph edges may lower the distance of nodes still waiting, see {@link
+   * #updateDepths(CGNode, CGNode)}.
+   *
+   * @return true iff any new constraints are added.
+   */
+  private boolean addConstraintsFromNewNodesByDepth(IProgressMonitor monitor)
+      throws CancelException {
+    boolean result = false;
+    while (!discoveredNodes.isEmpty() || !depthQueue.isEmpty()) {
+      for (CGNode n : discoveredNodes) {
+        if (!depths.containsKey(n)) {
+          depths.put(n, computeDepth(n));
+        }
+        depthQueue.add(n);
+      }
+      discoveredNodes = HashSetFactory.make();
+      MonitorUtil.throwExceptionIfCanceled(monitor);
+      CGNode n = depthQueue.pollFirst();
+      Object previousOrigin = system.setCurrentOrigin(n);
+      try {
         result |= addConstraintsFromNode(n, monitor);
+      } finally {
+        system.setCurrentOrigin(previousOrigin);
       }
     }
     return result;
   }
 
+  /**
+   * @return 0 for application code and the synthetic roots, otherwise one more than the least
+   *     depth of a caller, or {@link Integer#MAX_VALUE} if no caller has a depth yet
+   */
+  private int computeDepth(CGNode n) {
+    if (n.getMethod() instanceof AbstractRootMethod
+        || n.getMethod()
+            .getDeclaringClass()
+            .getClassLoader()
+            .getReference()
+            .equals(ClassLoaderReference.Application)) {
+      return 0;
+    }
+    int result = Integer.MAX_VALUE;
+    for (CGNode pred : Iterator2Iterable.make(callGraph.getPredNodes(n))) {
+      Integer d = depths.get(pred);
+      if (d != null && d != Integer.MAX_VALUE && d + 1 < result) {
+        result = d + 1;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * When construction runs on a budget, note a new call graph edge: if it gives target a shorter
+   * path from application code, lower the depth of target and of the nodes it reaches, so that the
+   * order of the nodes not yet processed follows the call graph as it is now.
+   */
+  protected void updateDepths(CGNode caller, CGNode target) {
+    if (depths == null) {
+      return;
+    }
+    Integer d = depths.get(caller);
+    if (d == null || d == Integer.MAX_VALUE) {
+      return;
+    }
+    ArrayDeque<CGNode> lowered = new ArrayDeque<>();
+    lowerDepth(target, d + 1, lowered);
+    while (!lowered.isEmpty()) {
+      CGNode n = lowered.poll();
+      int depth = depths.get(n) + 1;
+      for (CGNode succ : Iterator2Iterable.make(callGraph.getSuccNodes(n))) {
+        lowerDepth(succ, depth, lowered);
+      }
+    }
+  }
+
+  private void lowerDepth(CGNode n, int depth, ArrayDeque<CGNode> lowered) {
+    Integer old = depths.get(n);
+    if (old != null && depth < old) {
+      // the queue orders by depth, so take n out while its depth changes
+      boolean queued = depthQueue.remove(n);
+      depths.put(n, depth);
+      if (queued) {
+        depthQueue.add(n);
+      }
+      lowered.add(n);
+    }
+  }
+
   /**
    * @return the PointerKey that acts as a representative for the class of pointers that includes
    *     the local variable identified by the value number parameter.
@@ -571,7 +897,7 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
    * <p>TODO: these need to be canonicalized.
    */
   public class FilterOperator extends UnaryOperator<PointsToSetVariable>
-      implements IPointerOperator {
+      implements IDeltaPointerOperator {
 
     protected FilterOperator() {}
 
@@ -599,6 +925,13 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
       return changed ? CHANGED : NOT_CHANGED;
     }
 
+    @Override
+    public byte evaluateDelta(PointsToSetVariable lhs, PointsToSetVariable rhs, IntSet delta) {
+      FilteredPointerKey pk = (FilteredPointerKey) lhs.getPointerKey();
+      boolean changed = pk.getTypeFilter().addFilteredDelta(system, lhs, delta);
+      return changed ? CHANGED : NOT_CHANGED;
+    }
+
     @Override
     public boolean isComplex() {
       return false;
@@ -1393,6 +1726,13 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
       }
       return changed ? CHANGED : NOT_CHANGED;
     }
+
+    @Override
+    public byte evaluateDelta(PointsToSetVariable lhs, PointsToSetVariable rhs, IntSet delta) {
+      FilteredPointerKey pk = (FilteredPointerKey) lhs.getPointerKey();
+      boolean changed = pk.getTypeFilter().addInverseFilteredDelta(system, lhs, delta);
+      return changed ? CHANGED : NOT_CHANGED;
+    }
   }
 
   protected IPointsToSolver getSolver() {
@@ -1402,7 +1742,12 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
   /** Add constraints when the interpretation of a node changes (e.g. reflection) */
   public void addConstraintsFromChangedNode(CGNode node, IProgressMonitor monitor)
       throws CancelException {
-    unconditionallyAddConstraintsFromNode(node, monitor);
+    Object previousOrigin = system.setCurrentOrigin(node);
+    try {
+      unconditionallyAddConstraintsFromNode(node, monitor);
+    } finally {
+      system.setCurrentOrigin(previousOrigin);
+    }
   }
 
   protected abstract boolean unconditionallyAddConstraintsFromNode(
@@ -32,16 +32,19 @@ import com.ibm.wala.util.graph.impl.SparseNumberedEdgeManager;
 import com.ibm.wala.util.graph.traverse.Topological;
 import com.ibm.wala.util.heapTrace.HeapTracer;
 import com.ibm.wala.util.intset.BasicNaturalRelation;
+import com.ibm.wala.util.intset.BitVector;
 import com.ibm.wala.util.intset.IBinaryNaturalRelation;
 import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntPair;
 import com.ibm.wala.util.intset.IntSet;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
+import org.jspecify.annotations.Nullable;
 
 /** A dataflow graph implementation specialized for propagation-based pointer analysis */
 public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable> {
@@ -60,8 +63,10 @@ public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable>
 
   private final DelegateGraph delegateGraph = new DelegateGraph();
 
-  private final HashSet<IFixedPointStatement<PointsToSetVariable>> delegateStatements =
-      HashSetFactory.make();
+  /** explicitly represented statements, each mapped to itself so that it can be looked up */
+  private final Map<
+          IFixedPointStatement<PointsToSetVariable>, IFixedPointStatement<PointsToSetVariable>>
+      delegateStatements = HashMapFactory.make();
 
   /**
    * special representation for implicitly represented unary equations. This is a map from
@@ -170,7 +175,7 @@ public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable>
     }
     PointsToSetVariable lhs = eq.getLHS();
     delegateGraph.addEquation(eq);
-    delegateStatements.add(eq);
+    delegateStatements.put(eq, eq);
     if (lhs != null) {
       delegateGraph.addVariable(lhs);
       delegateGraph.addEdge(eq, lhs);
@@ -194,7 +199,7 @@ public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable>
       PointsToSetVariable lhs = eq.getLHS();
       PointsToSetVariable rhs = eq.getRightHandSide();
       delegateGraph.addEquation(eq);
-      delegateStatements.add(eq);
+      delegateStatements.put(eq, eq);
       if (lhs != null) {
         delegateGraph.addVariable(lhs);
         delegateGraph.addEdge(eq, lhs);
@@ -262,7 +267,7 @@ public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable>
   }
 
   /** Iterator of implicit equations that use a particular variable. */
-  private final class ImplicitUseIterator implements Iterator<AbstractStatement> {
+  private final class ImplicitUseIterator implements Iterator<AbstractStatement<?, ?>> {
 
     final PointsToSetVariable use;
 
@@ -627,6 +632,186 @@ public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable>
     return list.iterator();
   }
 
+  /**
+   * @return the statements that use v which are represented explicitly; i.e., all except
+   *     assignments and filters
+   */
+  Iterator<AbstractStatement<?, ?>> getExplicitStatementsThatUse(PointsToSetVariable v) {
+    if (v.getGraphNodeId() == -1) {
+      return EmptyIterator.instance();
+    }
+    List<AbstractStatement<?, ?>> list = new ArrayList<>();
+    for (INodeWithNumber n : Iterator2Iterable.make(delegateGraph.getSuccNodes(v))) {
+      list.add((AbstractStatement<?, ?>) n);
+    }
+    return list.iterator();
+  }
+
+  /**
+   * @return the implicitly represented statements (assignments and filters) that use v. The
+   *     statement objects are created on the fly.
+   */
+  Iterator<AbstractStatement<?, ?>> getImplicitStatementsThatUse(PointsToSetVariable v) {
+    int number = v.getGraphNodeId();
+    if (number == -1) {
+      return EmptyIterator.instance();
+    }
+    Iterator<AbstractStatement<?, ?>> result = EmptyIterator.instance();
+    for (int i = 0; i < invImplicitUnaryMap.size(); i++) {
+      UnaryOperator<PointsToSetVariable> op = invImplicitUnaryMap.getKey(i);
+      IBinaryNaturalRelation R = invImplicitUnaryMap.getValue(i);
+      IntSet s = R.getRelated(number);
+      if (s != null) {
+        result = new CompoundIterator<>(new ImplicitUseIterator(op, v, s), result);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Find the variables that must have the same points-to set as those of the assignment lhs = rhs,
+   * because they lie on a common cycle of assignments.
+   *
+   * @param include only variables satisfying this predicate may appear on the cycle
+   * @return the strongly connected component of lhs and rhs in the graph of assignment equations
+   *     restricted to variables satisfying include, or null if there is no path from lhs back to
+   *     rhs
+   */
+  @Nullable
+  List<PointsToSetVariable> findAssignmentCycle(
+      PointsToSetVariable lhs, PointsToSetVariable rhs, Predicate<PointsToSetVariable> include) {
+    IBinaryNaturalRelation uses = getAssignmentRelation(invImplicitUnaryMap);
+    IBinaryNaturalRelation defs = getAssignmentRelation(implicitUnaryMap);
+    if (uses == null || defs == null) {
+      return null;
+    }
+    int l = lhs.getGraphNodeId();
+    int r = rhs.getGraphNodeId();
+    if (l == -1 || r == -1 || uses.getRelatedCount(l) == 0 || defs.getRelatedCount(r) == 0) {
+      return null;
+    }
+    if (!hasAssignmentPath(l, r, uses, defs, include)) {
+      return null;
+    }
+    // the component is the set of variables both reachable from lhs and reaching lhs. Compute
+    // one of these sets, whichever is found to be smaller, and then the other one within it.
+    BitVector forward = new BitVector();
+    BitVector backward = new BitVector();
+    ArrayDeque<Integer> forwardPending = new ArrayDeque<>();
+    ArrayDeque<Integer> backwardPending = new ArrayDeque<>();
+    forward.set(l);
+    forwardPending.add(l);
+    backward.set(l);
+    backwardPending.add(l);
+    while (!forwardPending.isEmpty() && !backwardPending.isEmpty()) {
+      step(forwardPending, uses, include, forward, null);
+      step(backwardPending, defs, include, backward, null);
+    }
+    if (forwardPending.isEmpty()) {
+      return visitAssignments(l, defs, p -> forward.get(p.getGraphNodeId()), new BitVector());
+    } else {
+      return visitAssignments(l, uses, p -> backward.get(p.getGraphNodeId()), new BitVector());
+    }
+  }
+
+  /**
+   * Is there a path of assignments from the variable numbered src to the one numbered dest? Most
+   * queries fail, so search forward from src and backward from dest in lockstep, which stops as
+   * soon as the smaller of the two searches is exhausted.
+   */
+  private boolean hasAssignmentPath(
+      int src,
+      int dest,
+      IBinaryNaturalRelation uses,
+      IBinaryNaturalRelation defs,
+      Predicate<PointsToSetVariable> include) {
+    BitVector forward = new BitVector();
+    BitVector backward = new BitVector();
+    ArrayDeque<Integer> forwardPending = new ArrayDeque<>();
+    ArrayDeque<Integer> backwardPending = new ArrayDeque<>();
+    forward.set(src);
+    forwardPending.add(src);
+    backward.set(dest);
+    backwardPending.add(dest);
+    while (!forwardPending.isEmpty() && !backwardPending.isEmpty()) {
+      if (step(forwardPending, uses, include, forward, backward)
+          || step(backwardPending, defs, include, backward, forward)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Visit the next pending variable of a breadth-first search over an assignment relation.
+   *
+   * @return true iff the search reached a variable in target
+   */
+  private boolean step(
+      ArrayDeque<Integer> pending,
+      IBinaryNaturalRelation edges,
+      Predicate<PointsToSetVariable> include,
+      BitVector visited,
+      @Nullable BitVector target) {
+    int n = pending.remove();
+    IntSet succ = edges.getRelated(n);
+    if (succ != null) {
+      for (IntIterator it = succ.intIterator(); it.hasNext(); ) {
+        int m = it.next();
+        if (target != null && target.get(m)) {
+          return true;
+        }
+        if (!visited.get(m) && include.test((PointsToSetVariable) delegateGraph.getNode(m))) {
+          visited.set(m);
+          pending.add(m);
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Depth-first traversal of an implicit assignment relation
+   *
+   * @return the variables visited, starting with the one numbered start
+   */
+  private List<PointsToSetVariable> visitAssignments(
+      int start,
+      IBinaryNaturalRelation edges,
+      Predicate<PointsToSetVariable> include,
+      BitVector visited) {
+    List<PointsToSetVariable> result = new ArrayList<>();
+    ArrayDeque<Integer> pending = new ArrayDeque<>();
+    visited.set(start);
+    pending.push(start);
+    while (!pending.isEmpty()) {
+      int n = pending.pop();
+      result.add((PointsToSetVariable) delegateGraph.getNode(n));
+      IntSet succ = edges.getRelated(n);
+      if (succ != null) {
+        for (IntIterator it = succ.intIterator(); it.hasNext(); ) {
+          int m = it.next();
+          if (!visited.get(m) && include.test((PointsToSetVariable) delegateGraph.getNode(m))) {
+            visited.set(m);
+            pending.push(m);
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  @Nullable
+  private static IBinaryNaturalRelation getAssignmentRelation(
+      SmallMap<UnaryOperator<PointsToSetVariable>, IBinaryNaturalRelation> m) {
+    for (int i = 0; i < m.size(); i++) {
+      if (m.getKey(i) instanceof AssignOperator) {
+        return m.getValue(i);
+      }
+    }
+    return null;
+  }
+
   @Override
   @SuppressWarnings("unchecked")
   public Iterator<AbstractStatement<PointsToSetVariable, ?>> getStatementsThatDef(
@@ -738,7 +923,22 @@ public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable>
       UnaryStatement<PointsToSetVariable> ueq = (UnaryStatement<PointsToSetVariable>) eq;
       return containsImplicitStatement(ueq);
     } else {
-      return delegateStatements.contains(eq);
+      return delegateStatements.containsKey(eq);
+    }
+  }
+
+  /**
+   * @return the statement in this graph that is equal to eq, or null if there is none. Assignments
+   *     and filters are represented implicitly and have no identity, so for those eq itself is
+   *     returned if the graph contains it.
+   */
+  @Nullable
+  IFixedPointStatement<PointsToSetVariable> findStatement(
+      IFixedPointStatement<PointsToSetVariable> eq) {
+    if (useImplicitRepresentation(eq)) {
+      return containsImplicitStatement((UnaryStatement<PointsToSetVariable>) eq) ? eq : null;
+    } else {
+      return delegateStatements.get(eq);
     }
   }
 
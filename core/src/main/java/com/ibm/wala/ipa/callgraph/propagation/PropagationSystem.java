@@ -11,33 +11,49 @@
 package com.ibm.wala.ipa.callgraph.propagation;
 
 import com.ibm.wala.classLoader.ArrayClass;
+import com.ibm.wala.classLoader.CallSiteReference;
 import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.core.util.ref.ReferenceCleanser;
 import com.ibm.wala.fixedpoint.impl.DefaultFixedPointSolver;
-import com.ibm.wala.fixedpoint.impl.Worklist;
+import com.ibm.wala.fixedpoint.impl.IWorklist;
 import com.ibm.wala.fixpoint.AbstractOperator;
 import com.ibm.wala.fixpoint.AbstractStatement;
+import com.ibm.wala.fixpoint.IFixedPointStatement;
 import com.ibm.wala.fixpoint.IFixedPointSystem;
 import com.ibm.wala.fixpoint.IVariable;
 import com.ibm.wala.fixpoint.UnaryOperator;
 import com.ibm.wala.fixpoint.UnaryStatement;
+import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.ContextKey;
+import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
 import com.ibm.wala.ipa.callgraph.propagation.PropagationCallGraphBuilder.FilterOperator;
 import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.collections.MapUtil;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.debug.VerboseAction;
 import com.ibm.wala.util.graph.Graph;
 import com.ibm.wala.util.graph.NumberedGraph;
 import com.ibm.wala.util.heapTrace.HeapTracer;
+import com.ibm.wala.util.intset.BasicNaturalRelation;
+import com.ibm.wala.util.intset.BitVector;
+import com.ibm.wala.util.intset.IBinaryNaturalRelation;
 import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSet;
 import com.ibm.wala.util.intset.MutableMapping;
+import com.ibm.wala.util.intset.OffHeapIntSetStore;
+import com.ibm.wala.util.intset.OffHeapMutableMapping;
+import com.ibm.wala.util.intset.SharedIntSetRepository;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -47,6 +63,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import org.jspecify.annotations.Nullable;
 
 /** System of constraints that define propagation for call graph construction */
 public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariable> {
@@ -60,13 +77,19 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
   private static final int DEBUG_MEM_INTERVAL = 5;
 
   /** object that tracks points-to sets */
-  protected final PointsToMap pointsToMap = new PointsToMap();
+  protected final PointsToMap pointsToMap;
 
   /** Implementation of the underlying dataflow graph */
   private final PropagationGraph flowGraph = new PropagationGraph();
 
   /** bijection from InstanceKey &lt;=&gt; Integer */
-  protected final MutableMapping<InstanceKey> instanceKeys = MutableMapping.make();
+  protected final MutableMapping<InstanceKey> instanceKeys;
+
+  /** does {@link #compactPointsToSets()} keep the points-to sets outside the heap? */
+  private final boolean offHeapStorage;
+
+  /** are the values of some variables in an {@link OffHeapIntSetStore}? */
+  private boolean offHeapValues = false;
 
   /**
    * A mapping from IClass -&gt; MutableSharedBitVectorIntSet The range represents the instance keys
@@ -98,12 +121,75 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
 
   private int periodicMaintainInterval = DEFAULT_PERIODIC_MAINTENANCE_INTERVAL;
 
-  @SuppressWarnings("unused")
+  /**
+   * Should assignments and filters propagate only the instances newly added to their right-hand
+   * side, rather than re-evaluating over the whole set?
+   *
+   * <p>With difference propagation, each variable used by such an equation records the instances
+   * added to it since it was last propagated (see {@link PointsToSetVariable#takeDelta()}). When
+   * the variable changes, a single {@link DeltaPropagationOperator} statement is queued instead of
+   * one statement per assignment; evaluating it pushes the delta along all outgoing assignments
+   * and filters at once. Newly created equations still get one full evaluation.
+   */
+  private boolean useDifferencePropagation = false;
+
+  /** singleton operator for difference propagation */
+  private final DeltaPropagationOperator deltaPropagationOperator = new DeltaPropagationOperator();
+
+  /**
+   * Should cycles of assignments be detected and collapsed while solving?
+   *
+   * <p>All variables on a cycle of assignments have the same points-to set, so they can be unified
+   * into a single variable. Cycles are found lazily: when evaluating an assignment leaves its
+   * left-hand side with the same (non-trivial) points-to set as its right-hand side, we look for a
+   * cycle through the two variables, once per assignment.
+   */
+  private boolean collapseAssignmentCycles = false;
+
+  /** assignments, as pairs of graph node numbers (lhs, rhs), that have triggered cycle detection */
+  private final IBinaryNaturalRelation cycleCheckedAssignments = new BasicNaturalRelation();
+
+  /** graph node numbers of variables for which {@link #isCollapsible} has been computed */
+  private final BitVector collapsibleComputed = new BitVector();
+
+  /** graph node numbers of variables for which {@link #isCollapsible} holds */
+  private final BitVector collapsible = new BitVector();
+
+  /**
+   * why each statement, instance key added directly to a variable and call graph edge exists, or
+   * null if this is not tracked; see {@link #setTrackOrigins(boolean)}
+   */
+  @Nullable private ConstraintOrigins origins;
+
+  /** the origin of the constraints added now; see {@link ConstraintOrigins} */
+  private Object currentOrigin = ConstraintOrigins.PERMANENT;
+
   public PropagationSystem(
       CallGraph cg, PointerKeyFactory pointerKeyFactory, InstanceKeyFactory instanceKeyFactory) {
+    this(cg, pointerKeyFactory, instanceKeyFactory, false);
+  }
+
+  /**
+   * @param offHeapStorage if true, index pointer keys and instance keys in hash tables outside the
+   *     heap, and let {@link #compactPointsToSets()} move the points-to sets outside the heap
+   */
+  @SuppressWarnings("unused")
+  public PropagationSystem(
+      CallGraph cg,
+      PointerKeyFactory pointerKeyFactory,
+      InstanceKeyFactory instanceKeyFactory,
+      boolean offHeapStorage) {
     if (cg == null) {
       throw new IllegalArgumentException("null cg");
     }
+    if (offHeapStorage) {
+      this.pointsToMap = new PointsToMap(OffHeapMutableMapping.makeOffHeap());
+      this.instanceKeys = OffHeapMutableMapping.makeOffHeap();
+    } else {
+      this.pointsToMap = new PointsToMap();
+      this.instanceKeys = MutableMapping.make();
+    }
+    this.offHeapStorage = offHeapStorage;
     this.cg = cg;
     this.pointerKeyFactory = pointerKeyFactory;
     this.instanceKeyFactory = instanceKeyFactory;
@@ -226,6 +312,9 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
         Assertions.UNREACHABLE("How can parameter be implicit?");
       }
     }
+    if (origins != null) {
+      origins.recordImplicitKey(currentOrigin, key);
+    }
     pointsToMap.recordImplicit(key);
   }
 
@@ -288,6 +377,16 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     int result = instanceKeys.getMappedIndex(key);
     if (result == -1) {
       result = instanceKeys.add(key);
+    } else if (origins != null) {
+      InstanceKey old = instanceKeys.getMappedObject(result);
+      if (old != key && !old.getConcreteType().equals(key.getConcreteType())) {
+        // allocation sites are identified by program counter, so after a change in the code the
+        // same site may allocate a different type
+        instanceKeys.replace(old, key);
+        for (MutableIntSet s : class2InstanceKey.values()) {
+          s.remove(result);
+        }
+      }
     }
     if (DEBUG) {
       System.err.println("getIndexForInstanceKey " + key + ' ' + result);
@@ -337,6 +436,17 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     return newStatement(L, op, R, true, true);
   }
 
+  /**
+   * @return the key of the variable that stands for key, which differs from key only if key has
+   *     been unified with other variables on an assignment cycle
+   */
+  private PointerKey getRepresentativeKey(PointerKey key) {
+    if (collapseAssignmentCycles && pointsToMap.isUnified(key)) {
+      return pointsToMap.getPointsToSet(key).getPointerKey();
+    }
+    return key;
+  }
+
   public boolean newConstraint(
       PointerKey lhs, AbstractOperator<PointsToSetVariable> op, PointerKey rhs) {
     if (lhs == null) {
@@ -351,6 +461,8 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     if (DEBUG) {
       System.err.println("Add constraint A: " + lhs + ' ' + op + ' ' + rhs);
     }
+    lhs = getRepresentativeKey(lhs);
+    rhs = getRepresentativeKey(rhs);
     assert !pointsToMap.isUnified(lhs);
     assert !pointsToMap.isUnified(rhs);
     PointsToSetVariable L = findOrCreatePointsToSet(lhs);
@@ -375,6 +487,9 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     if (DEBUG) {
       System.err.println("Add constraint A: " + lhs + ' ' + op + ' ' + rhs1 + ", " + rhs2);
     }
+    lhs = getRepresentativeKey(lhs);
+    rhs1 = getRepresentativeKey(rhs1);
+    rhs2 = getRepresentativeKey(rhs2);
     assert !pointsToMap.isUnified(lhs);
     assert !pointsToMap.isUnified(rhs1);
     assert !pointsToMap.isUnified(rhs2);
@@ -408,6 +523,9 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     // This works since the solver is monotonic with TOP = {}
     PointsToSetVariable L = findOrCreatePointsToSet(lhs);
     int index = findOrCreateIndexForInstanceKey(value);
+    if (origins != null) {
+      origins.recordInstance(currentOrigin, L, index);
+    }
     if (!L.add(index)) {
       // a no-op
       return false;
@@ -539,6 +657,7 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     if (DEBUG) {
       System.err.println("add constraint D: " + op + ' ' + arg0);
     }
+    arg0 = getRepresentativeKey(arg0);
     assert !pointsToMap.isUnified(arg0);
     PointsToSetVariable v1 = findOrCreatePointsToSet(arg0);
     newStatement(null, op, v1, true, true);
@@ -553,8 +672,9 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     }
     PointsToSetVariable[] vs = new PointsToSetVariable[arg0.length];
     for (int i = 0; i < arg0.length; i++) {
-      assert !pointsToMap.isUnified(arg0[i]);
-      vs[i] = findOrCreatePointsToSet(arg0[i]);
+      PointerKey arg = getRepresentativeKey(arg0[i]);
+      assert !pointsToMap.isUnified(arg);
+      vs[i] = findOrCreatePointsToSet(arg);
     }
     newStatement(null, op, vs, true, true);
   }
@@ -564,6 +684,8 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     if (DEBUG) {
       System.err.println("add constraint D: " + op + ' ' + arg0);
     }
+    arg0 = getRepresentativeKey(arg0);
+    arg1 = getRepresentativeKey(arg1);
     assert !pointsToMap.isUnified(arg0);
     assert !pointsToMap.isUnified(arg1);
     PointsToSetVariable v1 = findOrCreatePointsToSet(arg0);
@@ -576,6 +698,546 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     addAllStatementsToWorkList();
   }
 
+  @Override
+  public boolean newStatement(
+      PointsToSetVariable lhs,
+      UnaryOperator<PointsToSetVariable> operator,
+      PointsToSetVariable rhs,
+      boolean toWorkList,
+      boolean eager) {
+    unshareOffHeapValues();
+    if (useDifferencePropagation && lhs != null && operator instanceof IDeltaPointerOperator) {
+      rhs.setTrackDelta();
+      // the equation will only ever see deltas of rhs from now on, so make sure it is evaluated
+      // in full at least once
+      toWorkList = true;
+    }
+    if (origins != null) {
+      origins.recordStatement(currentOrigin, operator.makeEquation(lhs, rhs));
+    }
+    return super.newStatement(lhs, operator, rhs, toWorkList, eager);
+  }
+
+  @Override
+  public boolean newStatement(
+      PointsToSetVariable lhs,
+      AbstractOperator<PointsToSetVariable> operator,
+      PointsToSetVariable op1,
+      PointsToSetVariable op2,
+      boolean toWorkList,
+      boolean eager) {
+    unshareOffHeapValues();
+    if (origins != null) {
+      origins.recordStatement(currentOrigin, new Statement(lhs, operator, op1, op2));
+    }
+    return super.newStatement(lhs, operator, op1, op2, toWorkList, eager);
+  }
+
+  @Override
+  public boolean newStatement(
+      PointsToSetVariable lhs,
+      AbstractOperator<PointsToSetVariable> operator,
+      PointsToSetVariable[] rhs,
+      boolean toWorkList,
+      boolean eager) {
+    unshareOffHeapValues();
+    if (origins != null) {
+      origins.recordStatement(currentOrigin, new Statement(lhs, operator, rhs));
+    }
+    return super.newStatement(lhs, operator, rhs, toWorkList, eager);
+  }
+
+  /**
+   * Constraints added while a statement is evaluated are derived from that statement. A statement
+   * that was retracted may still be on the work list; it is skipped.
+   */
+  @Override
+  protected byte evaluate(AbstractStatement<PointsToSetVariable, ?> s) {
+    if (origins == null) {
+      return super.evaluate(s);
+    }
+    if (s.getOperator() != deltaPropagationOperator && flowGraph.findStatement(s) != s) {
+      return NOT_CHANGED;
+    }
+    Object previous = currentOrigin;
+    currentOrigin = s;
+    try {
+      return super.evaluate(s);
+    } finally {
+      currentOrigin = previous;
+    }
+  }
+
+  @Override
+  public void changedVariable(PointsToSetVariable v) {
+    if (!useDifferencePropagation || !v.isTrackingDelta()) {
+      super.changedVariable(v);
+      return;
+    }
+    for (AbstractStatement<?, ?> s :
+        Iterator2Iterable.make(flowGraph.getExplicitStatementsThatUse(v))) {
+      addToWorkList(s);
+    }
+    addToWorkList(deltaPropagationOperator.makeEquation(v, v));
+  }
+
+  /**
+   * Operator for difference propagation: v = DeltaPropagation(v) pushes the instances recently
+   * added to v along each assignment and filter that uses v. It never changes v itself; instead,
+   * it reports changes to the left-hand sides it updates directly.
+   */
+  private final class DeltaPropagationOperator extends UnaryOperator<PointsToSetVariable> {
+
+    @Override
+    public byte evaluate(PointsToSetVariable lhs, PointsToSetVariable rhs) {
+      IntSet delta = rhs.takeDelta();
+      if (delta == null || delta.isEmpty()) {
+        return NOT_CHANGED;
+      }
+      List<AssignEquation> cycleCandidates = null;
+      for (AbstractStatement<?, ?> s :
+          Iterator2Iterable.make(flowGraph.getImplicitStatementsThatUse(rhs))) {
+        UnaryStatement<?> u = (UnaryStatement<?>) s;
+        PointsToSetVariable def = (PointsToSetVariable) u.getLHS();
+        if (u.getOperator() instanceof IDeltaPointerOperator) {
+          IDeltaPointerOperator op = (IDeltaPointerOperator) u.getOperator();
+          incNumberOfEvaluations();
+          if (isChanged(op.evaluateDelta(def, rhs, delta))) {
+            changedVariable(def);
+            if (collapseAssignmentCycles && s instanceof AssignEquation) {
+              // collapsing modifies the graph, so wait until we're done iterating over it
+              if (cycleCandidates == null) {
+                cycleCandidates = new ArrayList<>();
+              }
+              cycleCandidates.add((AssignEquation) s);
+            }
+          }
+        } else {
+          addToWorkList(s);
+        }
+      }
+      if (cycleCandidates != null) {
+        for (AssignEquation s : cycleCandidates) {
+          collapseCycleThrough(s);
+        }
+      }
+      return NOT_CHANGED;
+    }
+
+    @Override
+    public String toString() {
+      return "DeltaPropagation";
+    }
+
+    @Override
+    public int hashCode() {
+      return 9931;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return this == o;
+    }
+  }
+
+  @Override
+  protected void updateWorkList(AbstractStatement<PointsToSetVariable, ?> s) {
+    if (collapseAssignmentCycles
+        && s instanceof AssignEquation
+        && collapseCycleThrough((AssignEquation) s)) {
+      return;
+    }
+    super.updateWorkList(s);
+  }
+
+  /**
+   * Lazy cycle detection: if evaluating assignment s left its left-hand side with the same
+   * points-to set as its right-hand side, and s has not been checked before, look for a cycle of
+   * assignments through s and unify the variables on it.
+   *
+   * @return true iff a cycle was collapsed. In this case, all equations that def or use the
+   *     representative variable have been added to the work list, since pending equations may
+   *     refer to the variables unified away.
+   */
+  private boolean collapseCycleThrough(AssignEquation s) {
+    PointsToSetVariable lhs = s.getLHS();
+    PointsToSetVariable rhs = s.getRightHandSide();
+    if (lhs == rhs
+        || lhs.size() < 2
+        || lhs.size() != rhs.size()
+        || pointsToMap.isUnified(lhs.getPointerKey())
+        || pointsToMap.isUnified(rhs.getPointerKey())) {
+      return false;
+    }
+    if (!cycleCheckedAssignments.add(lhs.getGraphNodeId(), rhs.getGraphNodeId())) {
+      return false;
+    }
+    if (!isCollapsibleCached(lhs) || !isCollapsibleCached(rhs)) {
+      return false;
+    }
+    List<PointsToSetVariable> cycle =
+        flowGraph.findAssignmentCycle(lhs, rhs, this::isCollapsibleCached);
+    if (cycle == null) {
+      return false;
+    }
+    MutableIntSet vars = IntSetUtil.make();
+    for (PointsToSetVariable p : cycle) {
+      vars.add(pointsToMap.getIndex(p.getPointerKey()));
+    }
+    unify(vars);
+    PointsToSetVariable rep = pointsToMap.getPointsToSet(vars.intIterator().next());
+    for (AbstractStatement<PointsToSetVariable, ?> def :
+        Iterator2Iterable.make(getStatementsThatDef(rep))) {
+      addToWorkList(def);
+    }
+    changedVariable(rep);
+    return true;
+  }
+
+  /**
+   * Cycle detection asks this for each variable it visits, so cache the answers. A variable may
+   * still acquire a type filter after the fact, so check for that each time.
+   */
+  private boolean isCollapsibleCached(PointsToSetVariable v) {
+    if (v.getPointerKey() instanceof FilteredPointerKey) {
+      return false;
+    }
+    int n = v.getGraphNodeId();
+    if (!collapsibleComputed.get(n)) {
+      collapsibleComputed.set(n);
+      if (isCollapsible(v)) {
+        collapsible.set(n);
+      }
+    }
+    return collapsible.get(n);
+  }
+
+  /**
+   * May the variable v be unified with others on a cycle of assignments? A variable can only carry
+   * one type filter, so we exclude variables that have a filter, and formal parameters that may
+   * acquire one when a call edge is added later (see {@link
+   * SSAPropagationCallGraphBuilder#getTargetPointerKey}).
+   */
+  protected boolean isCollapsible(PointsToSetVariable v) {
+    PointerKey key = v.getPointerKey();
+    if (key instanceof FilteredPointerKey) {
+      return false;
+    }
+    if (key instanceof LocalPointerKey) {
+      LocalPointerKey local = (LocalPointerKey) key;
+      IMethod m = local.getNode().getMethod();
+      int index = local.getValueNumber() - 1;
+      if (index < m.getNumberOfParameters()) {
+        return (index > 0 || m.isStatic())
+            && index < ContextKey.PARAMETERS.length
+            && local.getNode().getContext().get(ContextKey.PARAMETERS[index]) == null
+            && m.getParameterType(index).equals(TypeReference.JavaLangObject);
+      }
+    }
+    return true;
+  }
+
+  public boolean getCollapseAssignmentCycles() {
+    return collapseAssignmentCycles;
+  }
+
+  /**
+   * Enable or disable online collapsing of assignment cycles. This should be set before any
+   * constraints are added to the system.
+   */
+  public void setCollapseAssignmentCycles(boolean collapseAssignmentCycles) {
+    if (collapseAssignmentCycles && origins != null) {
+      throw new IllegalStateException(
+          "cannot collapse cycles while tracking origins of constraints");
+    }
+    this.collapseAssignmentCycles = collapseAssignmentCycles;
+  }
+
+  /** Are the origins of constraints tracked, so that {@link #retract} can be used? */
+  public boolean getTrackOrigins() {
+    return origins != null;
+  }
+
+  /**
+   * Track the origins of the constraints added from now on, so that those derived from changed
+   * code can later be retracted (see {@link PropagationCallGraphBuilder#updateCallGraph}). This
+   * costs memory for each statement, so it should be set before any constraint is added.
+   */
+  public void setTrackOrigins(boolean trackOrigins) {
+    if (trackOrigins && collapseAssignmentCycles) {
+      throw new IllegalStateException("cannot track origins of constraints with collapsed cycles");
+    }
+    origins = trackOrigins ? new ConstraintOrigins() : null;
+  }
+
+  /**
+   * Set the origin of the constraints added from now on: a {@link CGNode} whose code is being
+   * translated, or {@link ConstraintOrigins#PERMANENT}.
+   *
+   * @return the previous origin
+   */
+  Object setCurrentOrigin(Object origin) {
+    Object previous = currentOrigin;
+    currentOrigin = origin;
+    return previous;
+  }
+
+  /** Record that the code of the current origin added a call graph edge. */
+  void recordCallEdge(CGNode caller, CallSiteReference site, CGNode target) {
+    if (origins != null) {
+      origins.recordCallEdge(currentOrigin, new ConstraintOrigins.CallEdge(caller, site, target));
+    }
+  }
+
+  /**
+   * Retract everything derived from the code of some call graph nodes: the statements, instance
+   * keys and call graph edges they added, and transitively those added while evaluating retracted
+   * statements. Variables whose value may depend on retracted constraints are cleared and the
+   * statements that define them queued, so that solving again recomputes them from what remains.
+   *
+   * <p>A side effect statement that used a cleared variable remembers instances it can no longer
+   * see, so it is retracted as well, and the nodes that created it must be translated again.
+   *
+   * @param changed nodes whose code has changed; they must be translated again
+   * @param removed nodes that are no longer in the call graph
+   * @return the nodes that must be translated again
+   * @throws IllegalStateException if origins are not tracked
+   */
+  Set<CGNode> retract(Collection<CGNode> changed, Collection<CGNode> removed) {
+    if (origins == null) {
+      throw new IllegalStateException("origins of constraints are not tracked");
+    }
+    unshareOffHeapValues();
+    Set<CGNode> regenerate = HashSetFactory.make(changed);
+    regenerate.removeAll(removed);
+    ArrayDeque<Object> staleOrigins = new ArrayDeque<>(changed);
+    staleOrigins.addAll(removed);
+    Set<PointsToSetVariable> cleared = HashSetFactory.make();
+    ArrayDeque<PointsToSetVariable> toClear = new ArrayDeque<>();
+    while (!staleOrigins.isEmpty() || !toClear.isEmpty()) {
+      if (!staleOrigins.isEmpty()) {
+        Object o = staleOrigins.pop();
+        for (IFixedPointStatement<PointsToSetVariable> s : origins.takeStatements(o)) {
+          removeRetractedStatement(s, cleared, toClear);
+          staleOrigins.push(s);
+        }
+        for (PointsToSetVariable v : origins.takeInstanceTargets(o)) {
+          if (cleared.add(v)) {
+            toClear.push(v);
+          }
+        }
+        for (PointerKey key : origins.takeImplicitKeys(o)) {
+          pointsToMap.forgetImplicit(key);
+        }
+        for (ConstraintOrigins.CallEdge e : origins.takeCallEdges(o)) {
+          ((ExplicitCallGraph.ExplicitNode) e.caller).removeTarget(e.site, e.target);
+        }
+      } else {
+        PointsToSetVariable v = toClear.pop();
+        for (AbstractStatement<?, ?> s : Iterator2Iterable.make(getStatementsThatUse(v))) {
+          @SuppressWarnings("unchecked")
+          AbstractStatement<PointsToSetVariable, ?> use =
+              (AbstractStatement<PointsToSetVariable, ?>) s;
+          if (use.getLHS() != null) {
+            if (cleared.add(use.getLHS())) {
+              toClear.push(use.getLHS());
+            }
+          } else {
+            retractSideEffect(use, removed, regenerate, staleOrigins, cleared, toClear);
+          }
+        }
+      }
+    }
+    for (PointsToSetVariable v : cleared) {
+      v.removeAll();
+      v.takeDelta();
+      PointerKey key = v.getPointerKey();
+      // the filters of parameters come from the calls, which stay
+      if (key instanceof LocalPointerKey
+          && changed.contains(((LocalPointerKey) key).getNode())
+          && ((LocalPointerKey) key).getValueNumber()
+              > ((LocalPointerKey) key).getNode().getMethod().getNumberOfParameters()) {
+        pointsToMap.forgetFilter(v);
+      }
+    }
+    for (PointsToSetVariable v : cleared) {
+      IntSet instances = origins.getInstances(v);
+      if (instances != null && v.addAll(instances) && v.getGraphNodeId() > -1) {
+        changedVariable(v);
+      }
+      for (AbstractStatement<PointsToSetVariable, ?> s :
+          Iterator2Iterable.make(getStatementsThatDef(v))) {
+        addToWorkList(s);
+      }
+    }
+    return regenerate;
+  }
+
+  /**
+   * Retract a side effect statement that may have missed changes to the variables it uses, along
+   * with the statements that created it, and note the nodes that must be translated again to
+   * create it anew. Statements with a permanent origin stay.
+   */
+  private void retractSideEffect(
+      IFixedPointStatement<PointsToSetVariable> s,
+      Collection<CGNode> removed,
+      Set<CGNode> regenerate,
+      ArrayDeque<Object> staleOrigins,
+      Set<PointsToSetVariable> cleared,
+      ArrayDeque<PointsToSetVariable> toClear) {
+    if (origins.getOrigins(s).contains(ConstraintOrigins.PERMANENT)) {
+      return;
+    }
+    Set<Object> creators = origins.removeStatement(s);
+    if (creators.isEmpty()) {
+      // already retracted
+      return;
+    }
+    removeRetractedStatement(s, cleared, toClear);
+    staleOrigins.push(s);
+    for (Object o : creators) {
+      if (o instanceof CGNode) {
+        if (!removed.contains(o)) {
+          regenerate.add((CGNode) o);
+        }
+      } else {
+        @SuppressWarnings("unchecked")
+        IFixedPointStatement<PointsToSetVariable> creator =
+            (IFixedPointStatement<PointsToSetVariable>) o;
+        retractSideEffect(creator, removed, regenerate, staleOrigins, cleared, toClear);
+      }
+    }
+  }
+
+  private void removeRetractedStatement(
+      IFixedPointStatement<PointsToSetVariable> s,
+      Set<PointsToSetVariable> cleared,
+      ArrayDeque<PointsToSetVariable> toClear) {
+    IFixedPointStatement<PointsToSetVariable> canonical = flowGraph.findStatement(s);
+    if (canonical != null) {
+      flowGraph.removeStatement(canonical);
+    }
+    PointsToSetVariable lhs = s.getLHS();
+    if (lhs != null && cleared.add(lhs)) {
+      toClear.push(lhs);
+    }
+  }
+
+  public boolean getUseDifferencePropagation() {
+    return useDifferencePropagation;
+  }
+
+  /**
+   * Enable or disable difference propagation. This should be set before any constraints are added
+   * to the system.
+   */
+  public void setUseDifferencePropagation(boolean useDifferencePropagation) {
+    this.useDifferencePropagation = useDifferencePropagation;
+  }
+
+  /**
+   * Hash-cons the points-to sets: replace the value of each points-to set variable by a compact set
+   * shared with every variable of the same value. This is meant to run once the system is solved,
+   * to cut the heap retained by the pointer analysis result. If the system is solved again, each
+   * variable copies its set before it next changes.
+   *
+   * @return the number of distinct points-to sets
+   */
+  public int compactPointsToSets() {
+    // a fresh repository, and a fresh store, so that sets no variable holds any more are not
+    // retained; the store is append-only, and its chunks are freed with the last set they hold
+    return offHeapStorage
+        ? compactPointsToSets(new OffHeapIntSetStore())
+        : compactPointsToSets(new SharedIntSetRepository());
+  }
+
+  /**
+   * Hash-cons the points-to sets as {@link #compactPointsToSets()} does, and keep the shared sets
+   * in store, for instance one from {@link OffHeapIntSetStore#makeMapped(java.io.File)}. Before the
+   * system is solved again, or constraints are added or retracted, the variables get ordinary sets
+   * back.
+   *
+   * <p>Every set is copied into store, even one already in another store, so once this returns no
+   * variable holds a set of a store from an earlier call, and that store may be closed. A store is
+   * append-only, so it should not be passed to this method more than once.
+   *
+   * @return the number of distinct points-to sets
+   */
+  public int compactPointsToSets(OffHeapIntSetStore store) {
+    if (store == null) {
+      throw new IllegalArgumentException("null store");
+    }
+    offHeapValues = true;
+    return compactPointsToSets(new SharedIntSetRepository(store));
+  }
+
+  @Override
+  public boolean solve(IProgressMonitor monitor) throws CancelException {
+    unshareOffHeapValues();
+    return super.solve(monitor);
+  }
+
+  /**
+   * Off-heap sets are immutable and other sets only handle them element by element, so give the
+   * variables ordinary sets back before the system changes again: before solving, retracting
+   * constraints, or adding constraints, which may be evaluated at once.
+   */
+  private void unshareOffHeapValues() {
+    if (offHeapValues) {
+      for (PointerKey key : Iterator2Iterable.make(pointsToMap.iterateKeys())) {
+        if (!pointsToMap.isImplicit(key)) {
+          PointsToSetVariable v = pointsToMap.getPointsToSet(key);
+          if (v != null) {
+            v.unshareValue();
+          }
+        }
+      }
+      offHeapValues = false;
+    }
+  }
+
+  private int compactPointsToSets(SharedIntSetRepository repository) {
+    for (PointerKey key : Iterator2Iterable.make(pointsToMap.iterateKeys())) {
+      if (!pointsToMap.isImplicit(key)) {
+        PointsToSetVariable v = pointsToMap.getPointsToSet(key);
+        if (v != null) {
+          v.shareValue(repository);
+        }
+      }
+    }
+    if (pointerAnalysis instanceof PointerAnalysisImpl) {
+      ((PointerAnalysisImpl) pointerAnalysis).clearSharedPointsToSets();
+    }
+    return repository.size();
+  }
+
+  /**
+   * Assignments and filters by declared type only union their right-hand side into their left-hand
+   * side, so the parallel solver may evaluate them on worker threads. Other filters may create
+   * instance key numbers, and complex operators add new constraints, so they stay sequential. So do
+   * statements retracted from the flow graph but still on the work list, which {@link
+   * #evaluate(AbstractStatement)} skips.
+   */
+  @Override
+  protected boolean isConcurrentlyEvaluable(AbstractStatement<PointsToSetVariable, ?> s) {
+    if (origins != null && flowGraph.findStatement(s) != s) {
+      return false;
+    }
+    AbstractOperator<PointsToSetVariable> op = s.getOperator();
+    if (op instanceof AssignOperator) {
+      return true;
+    }
+    if (op instanceof FilterOperator) {
+      PointerKey pk = s.getLHS().getPointerKey();
+      if (pk instanceof FilteredPointerKey) {
+        FilteredPointerKey.TypeFilter filter = ((FilteredPointerKey) pk).getTypeFilter();
+        return filter instanceof FilteredPointerKey.SingleClassFilter
+            || filter instanceof FilteredPointerKey.MultipleClassesFilter;
+      }
+    }
+    return false;
+  }
+
   /** @return an object that encapsulates the pointer analysis results */
   public PointerAnalysis<InstanceKey> extractPointerAnalysis(PropagationCallGraphBuilder builder) {
     if (pointerAnalysis == null) {
@@ -653,7 +1315,7 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
   }
 
   /** Use with care. */
-  Worklist getWorklist() {
+  IWorklist getWorklist() {
     return workList;
   }
 
@@ -35,6 +35,7 @@ import com.ibm.wala.ipa.callgraph.impl.AbstractRootMethod;
 import com.ibm.wala.ipa.callgraph.impl.DefaultEntrypoint;
 import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ipa.summaries.SummarizedMethod;
 import com.ibm.wala.shrike.shrikeBT.ConditionalBranchInstruction;
 import com.ibm.wala.shrike.shrikeBT.IInvokeInstruction;
 import com.ibm.wala.ssa.DefUse;
@@ -175,6 +176,16 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
     return ikFactory.getInstanceKeyForPEI(node, x, type);
   }
 
+  /**
+   * A call from the fake world clinit to a class initializer is retracted with the code that made
+   * it, so the classes must be processed again; the ones whose initializer is still called are
+   * skipped then.
+   */
+  @Override
+  protected void forgetRetractedConstraints() {
+    clinitVisited.clear();
+  }
+
   /**
    * Visit all instructions in a node, and add dataflow constraints induced by each statement in the
    * SSA form.
@@ -490,8 +501,10 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
       if (DEBUG) {
         System.err.println("pred: " + pred);
       }
-      if (pred.isEntryBlock()) continue;
       int index = pred.getLastInstructionIndex();
+      // the entry block of a bytecode CFG is empty; that of a flow-insensitive summary may hold
+      // statements that throw
+      if (pred.isEntryBlock() && (index < 0 || !isFlowInsensitiveSummary(ir))) continue;
       SSAInstruction pei = ir.getInstructions()[index];
       // Note: pei might be null if pred is unreachable.
       // TODO: consider pruning CFG for unreachable blocks.
@@ -506,6 +519,12 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
     return result;
   }
 
+  /** @return true if ir is the IR of a summary whose statements hold in any order */
+  private static boolean isFlowInsensitiveSummary(IRView ir) {
+    return ir.getMethod() instanceof SummarizedMethod
+        && ((SummarizedMethod) ir.getMethod()).isFlowInsensitive();
+  }
+
   private class CrossProductRec {
     private final InstanceKey[][] invariants;
     private final Consumer<InstanceKey[]> f;
@@ -1345,7 +1364,7 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
 
     @Override
     public void visitPhi(SSAPhiInstruction instruction) {
-      if (ir.getMethod() instanceof AbstractRootMethod) {
+      if (ir.getMethod() instanceof AbstractRootMethod || isFlowInsensitiveSummary(ir)) {
         PointerKey dst = getPointerKeyForLocal(instruction.getDef());
         if (hasNoInterestingUses(instruction.getDef())) {
           system.recordImplicitPointsToSet(dst);
@@ -1622,6 +1641,8 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
       System.err.println("addTarget: " + caller + " ," + instruction + " , " + target);
     }
     caller.addTarget(instruction.getCallSite(), target);
+    system.recordCallEdge(caller, instruction.getCallSite(), target);
+    updateDepths(caller, target);
 
     if (callGraph.getFakeRootNode().equals(caller)) {
       if (entrypointCallSites.contains(instruction.getCallSite())) {
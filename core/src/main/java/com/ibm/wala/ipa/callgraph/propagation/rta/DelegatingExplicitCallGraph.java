@@ -135,6 +135,7 @@ public class DelegatingExplicitCallGraph extends ExplicitCallGraph {
 
     public void delegate(
         CallSiteReference site, CGNode delegateNode, CallSiteReference delegateSite) {
+      checkNotFrozen();
       CallSite d = new CallSite(delegateSite, delegateNode);
       targets.set(site.getProgramCounter(), d);
       int y = getCallGraph().getNumber(this);
@@ -4,8 +4,12 @@ import com.ibm.wala.core.util.strings.Atom;
 import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.types.Descriptor;
+import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.debug.Assertions;
+import com.ibm.wala.util.graph.ReachabilityIndex;
+import java.util.Collection;
+import java.util.Set;
 
 /**
  * Utility methods for searching call graphs, e.g., to find particular {@link CGNode}s or types of
@@ -73,4 +77,29 @@ public class CallGraphSearchUtil {
     Assertions.UNREACHABLE("failed to find method " + name);
     return null;
   }
+
+  /**
+   * Find the nodes of a call graph on a chain of calls from a source to a sink, e.g. from an
+   * entrypoint to a sensitive method
+   *
+   * @param cg the call graph
+   * @param sources nodes where the chains start
+   * @param sinks nodes where the chains end
+   * @return the nodes reachable from some source that reach some sink, including the sources and
+   *     sinks on such chains
+   */
+  public static Set<CGNode> findNodesBetween(
+      CallGraph cg, Collection<CGNode> sources, Collection<CGNode> sinks) {
+    if (cg == null) {
+      throw new IllegalArgumentException("cg is null");
+    }
+    ReachabilityIndex<CGNode> index = new ReachabilityIndex<>(cg);
+    Set<CGNode> result = HashSetFactory.make();
+    for (CGNode n : index.getReachableNodes(sources)) {
+      if (index.canReachAny(n, sinks)) {
+        result.add(n);
+      }
+    }
+    return result;
+  }
 }
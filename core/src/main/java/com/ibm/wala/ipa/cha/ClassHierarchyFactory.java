@@ -10,6 +10,7 @@
  */
 package com.ibm.wala.ipa.cha;
 
+import com.ibm.wala.classLoader.ClassHierarchySnapshot;
 import com.ibm.wala.classLoader.ClassLoaderFactory;
 import com.ibm.wala.classLoader.ClassLoaderFactoryImpl;
 import com.ibm.wala.classLoader.Language;
@@ -28,6 +29,38 @@ public class ClassHierarchyFactory {
     return make(scope, new ClassLoaderFactoryImpl(scope.getExclusions()));
   }
 
+  /**
+   * @param numberOfThreads how many threads should read and parse class files; the class hierarchy
+   *     itself is then linked sequentially, so the result is the same as with {@link
+   *     #make(AnalysisScope)}
+   * @return a ClassHierarchy object representing the analysis scope
+   */
+  public static ClassHierarchy make(AnalysisScope scope, int numberOfThreads)
+      throws ClassHierarchyException {
+    if (scope == null) {
+      throw new IllegalArgumentException("null scope");
+    }
+    ClassLoaderFactoryImpl factory = new ClassLoaderFactoryImpl(scope.getExclusions());
+    factory.setNumberOfThreads(numberOfThreads);
+    return make(scope, factory);
+  }
+
+  /**
+   * @param snapshot recorded class headers from which to create the classes of jar files that have
+   *     not changed since the snapshot was written, instead of parsing their class files; the
+   *     snapshot is updated with the classes of other jar files
+   * @return a ClassHierarchy object representing the analysis scope
+   */
+  public static ClassHierarchy make(AnalysisScope scope, ClassHierarchySnapshot snapshot)
+      throws ClassHierarchyException {
+    if (scope == null) {
+      throw new IllegalArgumentException("null scope");
+    }
+    ClassLoaderFactoryImpl factory = new ClassLoaderFactoryImpl(scope.getExclusions());
+    factory.setSnapshot(snapshot);
+    return make(scope, factory);
+  }
+
   /**
    * NOTE: phantom classes are a work-in-progress and this functionality has <a
    * href="https://github.com/wala/WALA/pull/335">known bugs</a>. At this point, we recommend using
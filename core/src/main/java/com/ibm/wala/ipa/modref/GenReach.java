@@ -17,13 +17,19 @@ import com.ibm.wala.dataflow.graph.BitVectorUnionVector;
 import com.ibm.wala.dataflow.graph.ITransferFunctionProvider;
 import com.ibm.wala.fixpoint.BitVectorVariable;
 import com.ibm.wala.fixpoint.UnaryOperator;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.graph.Graph;
+import com.ibm.wala.util.graph.traverse.SCCIterator;
 import com.ibm.wala.util.intset.BitVector;
+import com.ibm.wala.util.intset.BitVectorIntSet;
 import com.ibm.wala.util.intset.MutableMapping;
+import com.ibm.wala.util.intset.OrdinalSet;
 import com.ibm.wala.util.intset.OrdinalSetMapping;
 import java.util.Collection;
 import java.util.Map;
+import java.util.Set;
 
 /** Generic dataflow framework to accumulate reachable gen'ned values in a graph. */
 public class GenReach<T, L> extends BitVectorFramework<T, L> {
@@ -36,17 +42,92 @@ public class GenReach<T, L> extends BitVectorFramework<T, L> {
     g.domain = getLatticeValues();
   }
 
+  /**
+   * Compute the values that reach each node, without a dataflow solver. The strongly connected
+   * components of the graph are visited once each in topological order, so each one is visited
+   * after all the components that flow into it. All nodes of a component share one result, and a
+   * component that adds nothing to the result of one of its predecessors shares that result.
+   *
+   * @param flowGraph the graph along whose edges values flow
+   * @param gen the values generated at each node
+   * @return a map from each node to the values generated at the node and at the nodes that reach
+   *     it, which equals the solution of a {@link GenReach} problem
+   */
+  public static <T, L> Map<T, OrdinalSet<L>> solve(Graph<T> flowGraph, Map<T, Collection<L>> gen) {
+    return solve(flowGraph, gen, MutableMapping.make());
+  }
+
+  /**
+   * Like {@link #solve(Graph, Map)}, but number the values with a given mapping, which is extended
+   * with the generated values it does not yet map. Clients that solve several problems with the
+   * same mapping get results whose backing sets can be combined.
+   *
+   * @param flowGraph the graph along whose edges values flow
+   * @param gen the values generated at each node
+   * @param domain the mapping of the values in the results
+   * @return a map from each node to the values generated at the node and at the nodes that reach
+   *     it, over the given mapping
+   */
+  public static <T, L> Map<T, OrdinalSet<L>> solve(
+      Graph<T> flowGraph, Map<T, Collection<L>> gen, MutableMapping<L> domain) {
+    if (flowGraph == null) {
+      throw new IllegalArgumentException("null flowGraph");
+    }
+    if (domain == null) {
+      throw new IllegalArgumentException("null domain");
+    }
+    addToDomain(gen, domain);
+    Map<T, OrdinalSet<L>> result = HashMapFactory.make();
+    for (Set<T> component : Iterator2Iterable.make(new SCCIterator<>(flowGraph))) {
+      BitVectorIntSet values = new BitVectorIntSet();
+      for (T n : component) {
+        Collection<L> g = gen.get(n);
+        if (g != null) {
+          for (L p : g) {
+            values.add(domain.getMappedIndex(p));
+          }
+        }
+      }
+      OrdinalSet<L> largest = null;
+      for (T n : component) {
+        for (T pred : Iterator2Iterable.make(flowGraph.getPredNodes(n))) {
+          // only the predecessors in this component have no result yet
+          OrdinalSet<L> predResult = result.get(pred);
+          if (predResult != null) {
+            values.addAll(predResult.getBackingSet());
+            if (largest == null || predResult.size() > largest.size()) {
+              largest = predResult;
+            }
+          }
+        }
+      }
+      // the result includes each predecessor's, so it is the largest one if it is no bigger
+      OrdinalSet<L> set =
+          largest != null && largest.size() == values.size()
+              ? largest
+              : new OrdinalSet<>(values, domain);
+      for (T n : component) {
+        result.put(n, set);
+      }
+    }
+    return result;
+  }
+
   private static <T, L> OrdinalSetMapping<L> makeDomain(Map<T, Collection<L>> gen) {
     MutableMapping<L> result = MutableMapping.make();
+    addToDomain(gen, result);
+    return result;
+  }
+
+  private static <T, L> void addToDomain(Map<T, Collection<L>> gen, MutableMapping<L> domain) {
     if (gen == null) {
       throw new IllegalArgumentException("null gen");
     }
     for (Collection<L> c : gen.values()) {
       for (L p : c) {
-        result.add(p);
+        domain.add(p);
       }
     }
-    return result;
   }
 
   static class GenFunctions<T, L> implements ITransferFunctionProvider<T, BitVectorVariable> {
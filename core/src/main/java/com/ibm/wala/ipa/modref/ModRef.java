@@ -95,6 +95,36 @@ public class ModRef<T extends InstanceKey> {
     return computeRef(cg, pa, null);
   }
 
+  /**
+   * Like {@link #computeMod(CallGraph, PointerAnalysis, HeapExclusions)}, but the result for a
+   * node is computed when it is first looked up, scanning only that node and its transitive callees
+   *
+   * @throws IllegalArgumentException if cg is null
+   */
+  public Map<CGNode, OrdinalSet<PointerKey>> computeModOnDemand(
+      CallGraph cg, final PointerAnalysis<T> pa, final HeapExclusions heapExclude) {
+    if (cg == null) {
+      throw new IllegalArgumentException("cg is null");
+    }
+    return CallGraphTransitiveClosure.transitiveClosureOnDemand(
+        cg, n -> scanNodeForMod(n, pa, heapExclude));
+  }
+
+  /**
+   * Like {@link #computeRef(CallGraph, PointerAnalysis, HeapExclusions)}, but the result for a
+   * node is computed when it is first looked up, scanning only that node and its transitive callees
+   *
+   * @throws IllegalArgumentException if cg is null
+   */
+  public Map<CGNode, OrdinalSet<PointerKey>> computeRefOnDemand(
+      CallGraph cg, final PointerAnalysis<T> pa, final HeapExclusions heapExclude) {
+    if (cg == null) {
+      throw new IllegalArgumentException("cg is null");
+    }
+    return CallGraphTransitiveClosure.transitiveClosureOnDemand(
+        cg, n -> scanNodeForRef(n, pa, heapExclude));
+  }
+
   /**
    * For each call graph node, what heap locations (as determined by a heap model) may it write, <b>
    * NOT </b> including its callees transitively
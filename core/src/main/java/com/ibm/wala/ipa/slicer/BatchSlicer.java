@@ -0,0 +1,468 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.slicer;
+
+import com.ibm.wala.dataflow.IFDS.LocalPathEdges;
+import com.ibm.wala.dataflow.IFDS.LocalSummaryEdges;
+import com.ibm.wala.dataflow.IFDS.PartiallyBalancedTabulationSolver;
+import com.ibm.wala.dataflow.IFDS.PathEdge;
+import com.ibm.wala.dataflow.IFDS.TabulationSolver;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ipa.slicer.Slicer.ControlDependenceOptions;
+import com.ibm.wala.ipa.slicer.Slicer.SliceProblem;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.collections.MapUtil;
+import com.ibm.wala.util.concurrent.WorkerPool;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Computes many slices over one SDG, sharing work between them.
+ *
+ * <p>Each slice is tabulated on its own, as by {@link Slicer}, so the slices are the same as those
+ * computed one at a time. However, what a slice reaches after descending into a callee does not
+ * depend on where the slice started. So each callee entry is tabulated once, by a solver shared by
+ * all slices, and a slice that reaches the callee takes over its summary edges and the statements
+ * below it instead of tabulating the callee again.
+ *
+ * <p>Slices can be computed in parallel, see {@link #setNumberOfThreads(int)}. The SDG is built
+ * lazily and is not thread-safe, so parallel slices access it through a view that serializes SDG
+ * construction.
+ */
+public class BatchSlicer {
+
+  /**
+   * the only fact used by {@link SliceProblem}; the slicer tracks reachability of statements, not
+   * dataflow facts
+   */
+  private static final int FACT = 0;
+
+  private final ISDG sdg;
+
+  /** a view of {@link #sdg} for use by several threads */
+  private final ISDG synchronizedSDG;
+
+  private final boolean backward;
+
+  /** tabulates callee entries, shared by all slices */
+  private final CalleeSolver callees;
+
+  private int numberOfThreads = 1;
+
+  /**
+   * @param sdg governing system dependence graph
+   * @param backward compute backward slices?
+   * @throws IllegalArgumentException if sdg is null
+   */
+  public BatchSlicer(ISDG sdg, boolean backward) {
+    if (sdg == null) {
+      throw new IllegalArgumentException("sdg cannot be null");
+    }
+    this.sdg = sdg;
+    this.synchronizedSDG = new SynchronizedSDG(sdg);
+    this.backward = backward;
+    this.callees =
+        new CalleeSolver(new SliceProblem(Collections.emptySet(), synchronizedSDG, backward));
+  }
+
+  public int getNumberOfThreads() {
+    return numberOfThreads;
+  }
+
+  /** @param n how many slices to compute at once */
+  public void setNumberOfThreads(int n) {
+    if (n < 1) {
+      throw new IllegalArgumentException("invalid number of threads: " + n);
+    }
+    numberOfThreads = n;
+  }
+
+  /**
+   * @param root a statement of interest
+   * @return the slice of root
+   */
+  public Collection<Statement> slice(Statement root) throws CancelException {
+    return slice(root, sdg, null);
+  }
+
+  /**
+   * @param roots statements of interest
+   * @return a map from each root to its slice
+   */
+  public Map<Statement, Collection<Statement>> slice(Collection<Statement> roots)
+      throws CancelException {
+    return slice(roots, null);
+  }
+
+  /**
+   * @param roots statements of interest
+   * @param monitor to cancel analysis if needed
+   * @return a map from each root to its slice
+   */
+  public Map<Statement, Collection<Statement>> slice(
+      Collection<Statement> roots, IProgressMonitor monitor) throws CancelException {
+    if (roots == null) {
+      throw new IllegalArgumentException("roots cannot be null");
+    }
+    Map<Statement, Collection<Statement>> result = HashMapFactory.make();
+    if (numberOfThreads == 1 || roots.size() < 2) {
+      for (Statement root : roots) {
+        result.put(root, slice(root, sdg, monitor));
+      }
+      return result;
+    }
+    ExecutorService executor = WorkerPool.make(numberOfThreads, "batch slicer worker");
+    try {
+      Map<Statement, Future<Collection<Statement>>> slices = HashMapFactory.make();
+      for (Statement root : roots) {
+        slices.put(root, executor.submit(() -> slice(root, synchronizedSDG, monitor)));
+      }
+      for (Map.Entry<Statement, Future<Collection<Statement>>> e : slices.entrySet()) {
+        result.put(
+            e.getKey(),
+            WorkerPool.getResult(
+                e.getValue(),
+                CancelException.class,
+                ie -> CancelException.make("interrupted while slicing")));
+      }
+      return result;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private Collection<Statement> slice(Statement root, ISDG view, IProgressMonitor monitor)
+      throws CancelException {
+    if (root == null) {
+      throw new IllegalArgumentException("root cannot be null");
+    }
+    SliceSolver solver =
+        new SliceSolver(new SliceProblem(Collections.singleton(root), view, backward), monitor);
+    Collection<Statement> result = solver.solve().getSupergraphNodesReached();
+    callees.addStatementsBelow(solver.reused, result);
+    return result;
+  }
+
+  /**
+   * Tabulates one slice, taking the tabulation of callee entries from {@link #callees}.
+   *
+   * <p>The solver for a single slice uses the fake entry of the root's procedure as the source of
+   * the seed, and this may be the same node as a callee entry. Then the tabulation from the seed
+   * and from the callee entry are merged, so exits reached by the latter return to all callers as
+   * unbalanced returns. This solver does the same, by propagating path edges to the exits the
+   * shared solver reached, whenever a node is both a seed source and a reused callee entry.
+   */
+  private final class SliceSolver
+      extends PartiallyBalancedTabulationSolver<Statement, PDG<?>, Object> {
+
+    /** callee entries whose tabulation was taken from the shared solver */
+    private final Set<Statement> reused = HashSetFactory.make();
+
+    /** entries of the seeds added so far */
+    private final Set<Statement> seedEntries = HashSetFactory.make();
+
+    /** the callee entry being processed, which must not be tabulated by this solver */
+    private Statement skippedEntry;
+
+    private SliceSolver(SliceProblem p, IProgressMonitor monitor) {
+      super(p, monitor);
+    }
+
+    @Override
+    protected void processParticularCallee(
+        PathEdge<Statement> edge,
+        int callNodeNum,
+        Collection<Statement> allReturnSites,
+        Statement calleeEntry) {
+      if (reused.add(calleeEntry)) {
+        Collection<Statement> exits = callees.exitsReached(calleeEntry);
+        LocalSummaryEdges summaries =
+            findOrCreateLocalSummaryEdges(supergraph.getProcOf(calleeEntry));
+        int s_p = supergraph.getLocalBlockNumber(calleeEntry);
+        for (Statement x : exits) {
+          summaries.insertSummaryEdge(s_p, supergraph.getLocalBlockNumber(x), FACT, FACT);
+        }
+        if (seedEntries.contains(calleeEntry)) {
+          propagateToExits(calleeEntry, exits);
+        }
+      }
+      skippedEntry = calleeEntry;
+      try {
+        super.processParticularCallee(edge, callNodeNum, allReturnSites, calleeEntry);
+      } finally {
+        skippedEntry = null;
+      }
+    }
+
+    @Override
+    protected boolean propagate(Statement s_p, int i, Statement n, int j) {
+      if (s_p == skippedEntry && n == s_p && i == j) {
+        // the shared solver tabulates the callee; its summary edges are already installed
+        return false;
+      }
+      return super.propagate(s_p, i, n, j);
+    }
+
+    @Override
+    public void addSeed(PathEdge<Statement> seed) {
+      super.addSeed(seed);
+      if (seedEntries.add(seed.getEntry()) && reused.contains(seed.getEntry())) {
+        propagateToExits(seed.getEntry(), callees.exitsReached(seed.getEntry()));
+      }
+    }
+
+    private void propagateToExits(Statement entry, Collection<Statement> exits) {
+      for (Statement x : exits) {
+        propagate(entry, FACT, x, FACT);
+      }
+    }
+  }
+
+  /**
+   * Tabulates callee entries on demand. Each entry is tabulated only once, and the result is shared
+   * by all slices, so access is synchronized.
+   */
+  private static final class CalleeSolver extends TabulationSolver<Statement, PDG<?>, Object> {
+
+    /** for each callee entry tabulated, the entries of the callees it reaches */
+    private final Map<Statement, Set<Statement>> calleeEntries = HashMapFactory.make();
+
+    private CalleeSolver(SliceProblem p) {
+      super(p, null);
+    }
+
+    @Override
+    protected void recordCall(Statement callNode, Statement callee, int d1, boolean gotReuse) {
+      MapUtil.findOrCreateSet(calleeEntries, getCurPathEdge().getEntry()).add(callee);
+    }
+
+    /** @return the exits of the callee reached from entry */
+    private synchronized Collection<Statement> exitsReached(Statement entry) {
+      LocalPathEdges edges = tabulate(entry);
+      List<Statement> result = new ArrayList<>();
+      for (Statement x : supergraph.getExitsForProcedure(supergraph.getProcOf(entry))) {
+        if (edges.contains(FACT, supergraph.getLocalBlockNumber(x), FACT)) {
+          result.add(x);
+        }
+      }
+      return result;
+    }
+
+    /** add the statements reached from the given entries, and all callees below, to result */
+    private synchronized void addStatementsBelow(
+        Collection<Statement> entries, Collection<Statement> result) {
+      Set<Statement> visited = HashSetFactory.make(entries);
+      Deque<Statement> worklist = new ArrayDeque<>(entries);
+      while (!worklist.isEmpty()) {
+        Statement entry = worklist.pop();
+        PDG<?> proc = supergraph.getProcOf(entry);
+        IntSet reached = getLocalPathEdges(entry).getReachedNodeNumbers();
+        for (IntIterator it = reached.intIterator(); it.hasNext(); ) {
+          result.add(supergraph.getLocalBlock(proc, it.next()));
+        }
+        for (Statement callee : calleeEntries.getOrDefault(entry, Collections.emptySet())) {
+          if (visited.add(callee)) {
+            worklist.push(callee);
+          }
+        }
+      }
+    }
+
+    private LocalPathEdges tabulate(Statement entry) {
+      LocalPathEdges edges = getLocalPathEdges(entry);
+      if (edges == null) {
+        addSeed(PathEdge.createPathEdge(entry, FACT, entry, FACT));
+        try {
+          solve();
+        } catch (CancelException e) {
+          // there is no progress monitor, so this only happens if the thread is interrupted
+          throw new IllegalStateException(e);
+        }
+        edges = getLocalPathEdges(entry);
+      }
+      return edges;
+    }
+  }
+
+  /**
+   * A view of an SDG that serializes access to it. Neighbors are copied, since building the SDG
+   * lazily may add edges while another thread iterates.
+   */
+  private static final class SynchronizedSDG implements ISDG {
+
+    private final ISDG delegate;
+
+    private SynchronizedSDG(ISDG delegate) {
+      this.delegate = delegate;
+    }
+
+    private static <T> Iterator<T> copy(Iterator<? extends T> it) {
+      return Iterator2Collection.<T>toList(it).iterator();
+    }
+
+    @Override
+    public synchronized ControlDependenceOptions getCOptions() {
+      return delegate.getCOptions();
+    }
+
+    @Override
+    public synchronized PDG<? extends InstanceKey> getPDG(CGNode node) {
+      PDG<? extends InstanceKey> pdg = delegate.getPDG(node);
+      // populate the PDG while holding the lock
+      pdg.getNumberOfNodes();
+      return pdg;
+    }
+
+    @Override
+    public synchronized Iterator<? extends Statement> iterateLazyNodes() {
+      return copy(delegate.iterateLazyNodes());
+    }
+
+    @Override
+    public synchronized IClassHierarchy getClassHierarchy() {
+      return delegate.getClassHierarchy();
+    }
+
+    @Override
+    public synchronized void removeNodeAndEdges(Statement n) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public synchronized Iterator<Statement> iterator() {
+      return copy(delegate.iterator());
+    }
+
+    @Override
+    public synchronized Stream<Statement> stream() {
+      return Iterator2Collection.toList(delegate.iterator()).stream();
+    }
+
+    @Override
+    public synchronized int getNumberOfNodes() {
+      return delegate.getNumberOfNodes();
+    }
+
+    @Override
+    public void addNode(Statement n) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeNode(Statement n) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public synchronized boolean containsNode(Statement n) {
+      return delegate.containsNode(n);
+    }
+
+    @Override
+    public synchronized int getNumber(Statement n) {
+      return delegate.getNumber(n);
+    }
+
+    @Override
+    public synchronized Statement getNode(int number) {
+      return delegate.getNode(number);
+    }
+
+    @Override
+    public synchronized int getMaxNumber() {
+      return delegate.getMaxNumber();
+    }
+
+    @Override
+    public synchronized Iterator<Statement> iterateNodes(IntSet s) {
+      return copy(delegate.iterateNodes(s));
+    }
+
+    @Override
+    public synchronized Iterator<Statement> getPredNodes(Statement n) {
+      return copy(delegate.getPredNodes(n));
+    }
+
+    @Override
+    public synchronized int getPredNodeCount(Statement n) {
+      return delegate.getPredNodeCount(n);
+    }
+
+    @Override
+    public synchronized Iterator<Statement> getSuccNodes(Statement n) {
+      return copy(delegate.getSuccNodes(n));
+    }
+
+    @Override
+    public synchronized int getSuccNodeCount(Statement n) {
+      return delegate.getSuccNodeCount(n);
+    }
+
+    @Override
+    public void addEdge(Statement src, Statement dst) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeEdge(Statement src, Statement dst) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeAllIncidentEdges(Statement node) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeIncomingEdges(Statement node) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeOutgoingEdges(Statement node) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public synchronized boolean hasEdge(Statement src, Statement dst) {
+      return delegate.hasEdge(src, dst);
+    }
+
+    @Override
+    public synchronized IntSet getSuccNodeNumbers(Statement node) {
+      return MutableSparseIntSet.make(delegate.getSuccNodeNumbers(node));
+    }
+
+    @Override
+    public synchronized IntSet getPredNodeNumbers(Statement node) {
+      return MutableSparseIntSet.make(delegate.getPredNodeNumbers(node));
+    }
+  }
+}
@@ -129,6 +129,23 @@ public class SDG<T extends InstanceKey> extends AbstractNumberedGraph<Statement>
       ControlDependenceOptions cOptions,
       HeapExclusions heapExclude)
       throws IllegalArgumentException {
+    this(cg, pa, modRef, dOptions, cOptions, heapExclude, false);
+  }
+
+  /**
+   * @param demandDriven if true, compute the heap locations read and written by a call graph node
+   *     only when the SDG first needs them, rather than for the whole call graph up front. Together
+   *     with the lazy construction of PDGs, this lets a slice pay only for the nodes it reaches.
+   */
+  public SDG(
+      CallGraph cg,
+      PointerAnalysis<T> pa,
+      ModRef<T> modRef,
+      DataDependenceOptions dOptions,
+      ControlDependenceOptions cOptions,
+      HeapExclusions heapExclude,
+      boolean demandDriven)
+      throws IllegalArgumentException {
     super();
     if (dOptions == null) {
       throw new IllegalArgumentException("dOptions must not be null");
@@ -136,8 +153,16 @@ public class SDG<T extends InstanceKey> extends AbstractNumberedGraph<Statement>
     this.modRef = modRef;
     this.cg = cg;
     this.pa = pa;
-    this.mod = dOptions.isIgnoreHeap() ? null : modRef.computeMod(cg, pa, heapExclude);
-    this.ref = dOptions.isIgnoreHeap() ? null : modRef.computeRef(cg, pa, heapExclude);
+    if (dOptions.isIgnoreHeap()) {
+      this.mod = null;
+      this.ref = null;
+    } else if (demandDriven) {
+      this.mod = modRef.computeModOnDemand(cg, pa, heapExclude);
+      this.ref = modRef.computeRefOnDemand(cg, pa, heapExclude);
+    } else {
+      this.mod = modRef.computeMod(cg, pa, heapExclude);
+      this.ref = modRef.computeRef(cg, pa, heapExclude);
+    }
     this.dOptions = dOptions;
     this.cOptions = cOptions;
     this.heapExclude = heapExclude;
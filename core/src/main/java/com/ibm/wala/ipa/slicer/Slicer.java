@@ -29,6 +29,7 @@ import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
 import com.ibm.wala.util.collections.HashSetFactory;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Map;
 
 /**
  * A demand-driven context-sensitive slicer.
@@ -184,6 +185,27 @@ public class Slicer {
         new SDG<>(cg, pa, ModRef.<U>make(), dOptions, cOptions), Collections.singleton(s), true);
   }
 
+  /**
+   * Like {@link #computeBackwardSlice(Statement, CallGraph, PointerAnalysis,
+   * DataDependenceOptions, ControlDependenceOptions)}, but use a demand-driven SDG, which computes
+   * PDGs and heap side effects only for the call graph nodes the slice reaches.
+   *
+   * @param s a statement of interest
+   * @return the backward slice of s.
+   */
+  public static <U extends InstanceKey> Collection<Statement> computeBackwardSliceOnDemand(
+      Statement s,
+      CallGraph cg,
+      PointerAnalysis<U> pa,
+      DataDependenceOptions dOptions,
+      ControlDependenceOptions cOptions)
+      throws IllegalArgumentException, CancelException {
+    return computeSlice(
+        new SDG<>(cg, pa, ModRef.<U>make(), dOptions, cOptions, null, true),
+        Collections.singleton(s),
+        true);
+  }
+
   /**
    * @param s a statement of interest
    * @return the forward slice of s.
@@ -217,6 +239,22 @@ public class Slicer {
     return computeSlice(sdg, ss, true);
   }
 
+  /**
+   * Compute the backward slice of each of many statements, sharing the tabulation of callees
+   * between them.
+   *
+   * @param ss statements of interest
+   * @return a map from each statement to its backward slice
+   * @see BatchSlicer
+   */
+  public static Map<Statement, Collection<Statement>> computeBackwardSlices(
+      SDG<?> sdg, Collection<Statement> ss) throws IllegalArgumentException, CancelException {
+    if (sdg == null) {
+      throw new IllegalArgumentException("sdg cannot be null");
+    }
+    return new BatchSlicer(sdg, true).slice(ss);
+  }
+
   /** @param ss a collection of statements of interest */
   protected static Collection<Statement> computeSlice(
       SDG<?> sdg, Collection<Statement> ss, boolean backward) throws CancelException {
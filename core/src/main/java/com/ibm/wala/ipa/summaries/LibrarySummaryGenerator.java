@@ -0,0 +1,902 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.summaries;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.core.util.strings.Atom;
+import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.ConstantValue;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
+import com.ibm.wala.ssa.SSAArrayLoadInstruction;
+import com.ibm.wala.ssa.SSAArrayStoreInstruction;
+import com.ibm.wala.ssa.SSACheckCastInstruction;
+import com.ibm.wala.ssa.SSAGetCaughtExceptionInstruction;
+import com.ibm.wala.ssa.SSAGetInstruction;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSAInstructionFactory;
+import com.ibm.wala.ssa.SSAInvokeDynamicInstruction;
+import com.ibm.wala.ssa.SSANewInstruction;
+import com.ibm.wala.ssa.SSAPhiInstruction;
+import com.ibm.wala.ssa.SSAPiInstruction;
+import com.ibm.wala.ssa.SSAPutInstruction;
+import com.ibm.wala.ssa.SSAReturnInstruction;
+import com.ibm.wala.ssa.SSAThrowInstruction;
+import com.ibm.wala.ssa.SymbolTable;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeName;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.intset.MutableIntSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Predicate;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Computes {@link MethodSummary}s of library methods bottom-up, to be used in place of the code of
+ * the methods during call graph construction (see {@link BypassMethodTargetSelector}).
+ *
+ * <p>A summary keeps only what matters to pointer analysis: allocations, reads and writes of
+ * reference-typed fields and array elements, calls, returns and throws, and phis merging the
+ * values. Casts and pis are replaced by the value they copy. A call whose target is known
+ * statically (a constructor, a private or super method, or a static method of the same class) is
+ * replaced by the summary of the target if that is small, so the helpers of a library method are
+ * not expanded again at each of its uses. A summary only refers to the parameters of its method,
+ * and holds in every calling context.
+ *
+ * <p>Methods using values the summaries cannot express, such as caught exceptions, class constants
+ * or invokedynamic, get no summary and are analyzed from their code as usual. A summary throws the
+ * implicit exceptions of the statements it drops explicitly. The methods of {@link Class} and of
+ * the reflection packages keep their code too, since the call graph builder models reflection by
+ * interpreting it.
+ *
+ * <p>The summaries can be stored with {@link XMLMethodSummaryWriter}, read back with {@link
+ * XMLMethodSummaryReader} and installed with {@link
+ * com.ibm.wala.ipa.callgraph.impl.Util#addBypassLogic}.
+ */
+public class LibrarySummaryGenerator {
+
+  /** default for the largest summary inlined in place of a call */
+  public static final int DEFAULT_INLINE_LIMIT = 32;
+
+  /** packages whose code the call graph builder interprets to model reflection */
+  private static final Atom REFLECT = Atom.findOrCreateUnicodeAtom("java/lang/reflect");
+
+  private static final Atom INVOKE = Atom.findOrCreateUnicodeAtom("java/lang/invoke");
+
+  private static final Atom INTERNAL_REFLECT = Atom.findOrCreateUnicodeAtom("jdk/internal/reflect");
+
+  private final IClassHierarchy cha;
+
+  private final IAnalysisCacheView cache;
+
+  /** which methods to summarize */
+  private final Predicate<IMethod> isLibrary;
+
+  private int inlineLimit = DEFAULT_INLINE_LIMIT;
+
+  /** summaries computed so far; null for methods that cannot be summarized */
+  private final Map<IMethod, MethodSummary> summaries = HashMapFactory.make();
+
+  /** methods whose summaries are being computed, to stop inlining at recursion */
+  private final Set<IMethod> inProgress = HashSetFactory.make();
+
+  /** Summarize the methods of the primordial class loader. */
+  public LibrarySummaryGenerator(IClassHierarchy cha, IAnalysisCacheView cache) {
+    this(
+        cha,
+        cache,
+        m ->
+            m.getDeclaringClass()
+                .getClassLoader()
+                .getReference()
+                .equals(ClassLoaderReference.Primordial));
+  }
+
+  /**
+   * @param isLibrary which methods to summarize
+   * @throws IllegalArgumentException if any argument is null
+   */
+  public LibrarySummaryGenerator(
+      IClassHierarchy cha, IAnalysisCacheView cache, Predicate<IMethod> isLibrary) {
+    if (cha == null) {
+      throw new IllegalArgumentException("null cha");
+    }
+    if (cache == null) {
+      throw new IllegalArgumentException("null cache");
+    }
+    if (isLibrary == null) {
+      throw new IllegalArgumentException("null isLibrary");
+    }
+    this.cha = cha;
+    this.cache = cache;
+    this.isLibrary = isLibrary;
+  }
+
+  public int getInlineLimit() {
+    return inlineLimit;
+  }
+
+  /**
+   * @param inlineLimit the largest number of statements of a summary that is inlined in place of a
+   *     call; 0 turns inlining off
+   */
+  public void setInlineLimit(int inlineLimit) {
+    if (inlineLimit < 0) {
+      throw new IllegalArgumentException("negative inline limit " + inlineLimit);
+    }
+    this.inlineLimit = inlineLimit;
+  }
+
+  /**
+   * Summarize the methods declared by some classes, except class initializers.
+   *
+   * @return the summaries of the methods that could be summarized, by method
+   */
+  public Map<MethodReference, MethodSummary> summarize(Iterable<? extends IClass> classes) {
+    if (classes == null) {
+      throw new IllegalArgumentException("null classes");
+    }
+    Map<MethodReference, MethodSummary> result = HashMapFactory.make();
+    for (IClass klass : classes) {
+      for (IMethod m : klass.getDeclaredMethods()) {
+        if (!m.isClinit()) {
+          MethodSummary s = getSummary(m);
+          if (s != null) {
+            result.put(m.getReference(), s);
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the summary of method, or null if it is not a library method or cannot be summarized
+   */
+  public @Nullable MethodSummary getSummary(IMethod method) {
+    if (method == null) {
+      throw new IllegalArgumentException("null method");
+    }
+    if (summaries.containsKey(method)) {
+      return summaries.get(method);
+    }
+    MethodSummary result = null;
+    if (isLibrary.test(method)
+        && !method.isSynthetic()
+        && !method.isAbstract()
+        && !method.isNative()
+        && !isReflection(method.getDeclaringClass())) {
+      IR ir = cache.getIR(method);
+      if (ir != null) {
+        inProgress.add(method);
+        try {
+          result = new Summarizer(method, ir).summarize();
+        } finally {
+          inProgress.remove(method);
+        }
+      }
+    }
+    summaries.put(method, result);
+    return result;
+  }
+
+  /**
+   * The call graph builder models reflection by interpreting the code of these classes in the
+   * contexts of their calls, so they keep their code.
+   */
+  private static boolean isReflection(IClass klass) {
+    TypeName name = klass.getName();
+    if (name.equals(TypeReference.JavaLangClass.getName())) {
+      return true;
+    }
+    Atom pkg = name.getPackage();
+    return pkg != null
+        && (pkg.equals(REFLECT) || pkg.equals(INVOKE) || pkg.equals(INTERNAL_REFLECT));
+  }
+
+  /** Builds the summary of one method. */
+  private class Summarizer {
+    private final IMethod method;
+
+    private final IR ir;
+
+    private final SymbolTable symbolTable;
+
+    private final SSAInstructionFactory insts;
+
+    private final int numberOfParameters;
+
+    /**
+     * the statements of the summary, over value numbers of the IR and fresh value numbers for the
+     * statements of inlined summaries; positions and call sites are assigned at the end
+     */
+    private final List<SSAInstruction> statements = new ArrayList<>();
+
+    /** value number -&gt; the value number it is a copy of */
+    private final Map<Integer, Integer> copies = HashMapFactory.make();
+
+    private final Map<Integer, ConstantValue> constants = HashMapFactory.make();
+
+    /** value numbers that are always null */
+    private final MutableIntSet nulls = IntSetUtil.make();
+
+    /** values defined by catching an exception */
+    private final MutableIntSet caught = IntSetUtil.make();
+
+    private final List<Integer> returned = new ArrayList<>();
+
+    /** exceptions raised by the statements the summary drops */
+    private final Set<TypeReference> implicitExceptions = new LinkedHashSet<>();
+
+    private int nextValue;
+
+    /**
+     * the value number of an int constant, for array sizes, indices and primitive arguments. It is
+     * not 0, since the analysis gives arrays of constant length 0 no contents.
+     */
+    private int intConstant = -1;
+
+    Summarizer(IMethod method, IR ir) {
+      this.method = method;
+      this.ir = ir;
+      this.symbolTable = ir.getSymbolTable();
+      this.insts = method.getDeclaringClass().getClassLoader().getInstructionFactory();
+      this.numberOfParameters = method.getNumberOfParameters();
+      this.nextValue = symbolTable.getMaxValueNumber() + 1;
+    }
+
+    @Nullable
+    MethodSummary summarize() {
+      for (SSAInstruction s : Iterator2Iterable.make(ir.iterateAllInstructions())) {
+        if (!translate(s)) {
+          return null;
+        }
+      }
+      return finish();
+    }
+
+    /** @return the value number of the int constant */
+    private int intConstant() {
+      if (intConstant == -1) {
+        intConstant = nextValue++;
+        constants.put(intConstant, new ConstantValue(1));
+      }
+      return intConstant;
+    }
+
+    /** @return the value number for the use of value v of the IR */
+    private int value(int v) {
+      if (symbolTable.isNullConstant(v)) {
+        nulls.add(v);
+      } else if (symbolTable.isStringConstant(v)) {
+        constants.put(v, new ConstantValue(symbolTable.getStringValue(v)));
+      }
+      return v;
+    }
+
+    /** @return false if s cannot be summarized */
+    private boolean translate(SSAInstruction s) {
+      if (s instanceof SSAPhiInstruction) {
+        int[] uses = new int[s.getNumberOfUses()];
+        for (int i = 0; i < uses.length; i++) {
+          // a phi has no value from paths on which the value is undefined
+          uses[i] = s.getUse(i) > 0 ? value(s.getUse(i)) : -1;
+        }
+        statements.add(insts.PhiInstruction(-1, s.getDef(), uses));
+      } else if (s instanceof SSAPiInstruction) {
+        copies.put(s.getDef(), value(((SSAPiInstruction) s).getVal()));
+      } else if (s instanceof SSACheckCastInstruction) {
+        SSACheckCastInstruction c = (SSACheckCastInstruction) s;
+        copies.put(c.getResult(), value(c.getVal()));
+        raises(c);
+      } else if (s instanceof SSAGetCaughtExceptionInstruction) {
+        caught.add(s.getDef());
+      } else if (s instanceof SSANewInstruction) {
+        SSANewInstruction n = (SSANewInstruction) s;
+        TypeReference type = n.getConcreteType();
+        if (type.isArrayType()) {
+          if (n.getNumberOfUses() != 1 || type.getArrayElementType().isArrayType()) {
+            return false;
+          }
+          statements.add(
+              insts.NewInstruction(-1, n.getDef(), n.getNewSite(), new int[] {intConstant()}));
+        } else {
+          statements.add(insts.NewInstruction(-1, n.getDef(), n.getNewSite()));
+        }
+      } else if (s instanceof SSAGetInstruction) {
+        SSAGetInstruction g = (SSAGetInstruction) s;
+        if (g.getDeclaredFieldType().isReferenceType()) {
+          statements.add(
+              g.isStatic()
+                  ? insts.GetInstruction(-1, g.getDef(), g.getDeclaredField())
+                  : insts.GetInstruction(-1, g.getDef(), value(g.getRef()), g.getDeclaredField()));
+        } else {
+          raises(g);
+        }
+      } else if (s instanceof SSAPutInstruction) {
+        SSAPutInstruction p = (SSAPutInstruction) s;
+        if (p.getDeclaredFieldType().isReferenceType()) {
+          statements.add(
+              p.isStatic()
+                  ? insts.PutInstruction(-1, value(p.getVal()), p.getDeclaredField())
+                  : insts.PutInstruction(
+                      -1, value(p.getRef()), value(p.getVal()), p.getDeclaredField()));
+        } else {
+          raises(p);
+        }
+      } else if (s instanceof SSAArrayLoadInstruction) {
+        SSAArrayLoadInstruction l = (SSAArrayLoadInstruction) s;
+        if (!l.typeIsPrimitive()) {
+          statements.add(
+              insts.ArrayLoadInstruction(
+                  -1, l.getDef(), value(l.getArrayRef()), intConstant(), l.getElementType()));
+        } else {
+          raises(l);
+        }
+      } else if (s instanceof SSAArrayStoreInstruction) {
+        SSAArrayStoreInstruction a = (SSAArrayStoreInstruction) s;
+        if (!a.typeIsPrimitive()) {
+          statements.add(
+              insts.ArrayStoreInstruction(
+                  -1, value(a.getArrayRef()), 0, value(a.getValue()), a.getElementType()));
+        } else {
+          raises(a);
+        }
+      } else if (s instanceof SSAInvokeDynamicInstruction) {
+        return false;
+      } else if (s instanceof SSAAbstractInvokeInstruction) {
+        SSAAbstractInvokeInstruction call = (SSAAbstractInvokeInstruction) s;
+        if (!inline(call)) {
+          int[] params = new int[call.getNumberOfUses()];
+          for (int i = 0; i < params.length; i++) {
+            params[i] = argument(call, i);
+          }
+          int exception = nextValue++;
+          // calls keep even primitive results, as slicing expects of calls returning values
+          statements.add(
+              call.hasDef()
+                  ? insts.InvokeInstruction(
+                      -1, call.getDef(), params, exception, call.getCallSite(), null)
+                  : insts.InvokeInstruction(-1, params, exception, call.getCallSite(), null));
+        }
+      } else if (s instanceof SSAReturnInstruction) {
+        SSAReturnInstruction r = (SSAReturnInstruction) s;
+        if (!r.returnsVoid() && !r.returnsPrimitiveType()) {
+          returned.add(value(r.getResult()));
+        }
+      } else if (s instanceof SSAThrowInstruction) {
+        statements.add(insts.ThrowInstruction(-1, value(((SSAThrowInstruction) s).getException())));
+      } else if (s.isPEI()) {
+        raises(s);
+      }
+      return true;
+    }
+
+    /** Record that the summary must throw the exceptions s may raise, since s is dropped. */
+    private void raises(SSAInstruction s) {
+      implicitExceptions.addAll(s.getExceptionTypes());
+    }
+
+    private boolean returnsReference(SSAAbstractInvokeInstruction call) {
+      return call.hasDef() && call.getDeclaredResultType().isReferenceType();
+    }
+
+    /** @return the value number for the ith argument of call */
+    private int argument(SSAAbstractInvokeInstruction call, int i) {
+      MethodReference target = call.getDeclaredTarget();
+      TypeReference type =
+          call.isStatic()
+              ? target.getParameterType(i)
+              : i == 0 ? target.getDeclaringClass() : target.getParameterType(i - 1);
+      return type.isPrimitiveType() ? intConstant() : value(call.getUse(i));
+    }
+
+    /**
+     * Replace a call with a statically known target by the summary of the target, if that is small
+     * enough.
+     *
+     * @return true if the call was inlined
+     */
+    private boolean inline(SSAAbstractInvokeInstruction call) {
+      if (!call.isSpecial() && !call.isStatic()) {
+        return false;
+      }
+      IMethod target = cha.resolveMethod(call.getDeclaredTarget());
+      if (target == null
+          || inProgress.contains(target)
+          || (call.isStatic() && !target.getDeclaringClass().equals(method.getDeclaringClass()))) {
+        return false;
+      }
+      MethodSummary summary = getSummary(target);
+      if (summary == null || summary.getNumberOfStatements() > inlineLimit) {
+        return false;
+      }
+      raises(call);
+      SSAInstruction[] body = summary.getStatements();
+      int calleeParameters = summary.getNumberOfParameters();
+      int[] arguments = new int[calleeParameters];
+      for (int i = 0; i < calleeParameters; i++) {
+        arguments[i] = argument(call, i);
+      }
+      // the summary's own values are renumbered above the values used so far
+      int offset = nextValue;
+      IntUnaryOperator rename =
+          v -> v <= 0 ? v : v <= calleeParameters ? arguments[v - 1] : v + offset;
+      MutableIntSet defined = IntSetUtil.make();
+      int max = calleeParameters;
+      for (SSAInstruction s : body) {
+        for (int i = 0; i < s.getNumberOfDefs(); i++) {
+          defined.add(s.getDef(i));
+          max = Math.max(max, s.getDef(i));
+        }
+        for (int i = 0; i < s.getNumberOfUses(); i++) {
+          max = Math.max(max, s.getUse(i));
+        }
+      }
+      Map<Integer, ConstantValue> calleeConstants = summary.getConstants();
+      if (calleeConstants != null) {
+        for (Map.Entry<Integer, ConstantValue> c : calleeConstants.entrySet()) {
+          constants.put(rename.applyAsInt(c.getKey()), c.getValue());
+          max = Math.max(max, c.getKey());
+        }
+      }
+      nextValue += max + 1;
+      for (SSAInstruction s : body) {
+        // by the convention of XMLMethodSummaryReader, a value without a definition is null
+        for (int i = 0; i < s.getNumberOfUses(); i++) {
+          int u = s.getUse(i);
+          if (u > calleeParameters
+              && !defined.contains(u)
+              && (calleeConstants == null || !calleeConstants.containsKey(u))) {
+            nulls.add(rename.applyAsInt(u));
+          }
+        }
+        if (s instanceof SSAReturnInstruction) {
+          SSAReturnInstruction r = (SSAReturnInstruction) s;
+          if (returnsReference(call) && !r.returnsVoid()) {
+            copies.put(call.getDef(), rename.applyAsInt(r.getResult()));
+          }
+        } else {
+          statements.add(renumber(s, -1, rename));
+        }
+      }
+      return true;
+    }
+
+    /** @return the value v is a copy of, transitively */
+    private int find(int v) {
+      Integer c;
+      while ((c = copies.get(v)) != null) {
+        v = c;
+      }
+      return v;
+    }
+
+    /**
+     * Resolve copies and drop what null values make useless, order the statements so that each is
+     * preceded by the definitions it uses (except for phis, which may merge values defined later),
+     * and number the values the way {@link XMLMethodSummaryReader} would.
+     */
+    @Nullable
+    private MethodSummary finish() {
+      List<SSAInstruction> current = dropNulls();
+
+      // throw what the dropped statements may raise
+      for (TypeReference exception : implicitExceptions) {
+        int e = nextValue++;
+        current.add(insts.NewInstruction(-1, e, NewSiteReference.make(0, exception)));
+        current.add(insts.ThrowInstruction(-1, e));
+      }
+
+      // one return, of all the values returned
+      TypeReference returnType = method.getReturnType();
+      int result = -1;
+      if (returnType.isReferenceType()) {
+        Set<Integer> values = new LinkedHashSet<>();
+        for (int v : returned) {
+          v = find(v);
+          if (!nulls.contains(v)) {
+            values.add(v);
+          }
+        }
+        if (values.size() == 1) {
+          result = values.iterator().next();
+        } else if (values.size() > 1) {
+          result = nextValue++;
+          current.add(
+              insts.PhiInstruction(
+                  -1, result, values.stream().mapToInt(Integer::intValue).toArray()));
+        }
+      }
+
+      current = dropDeadPhis(current, result);
+
+      // every value used must now be defined
+      Map<Integer, SSAInstruction> definitions = HashMapFactory.make();
+      for (SSAInstruction s : current) {
+        for (int i = 0; i < s.getNumberOfDefs(); i++) {
+          definitions.put(s.getDef(i), s);
+        }
+      }
+      for (SSAInstruction s : current) {
+        for (int i = 0; i < s.getNumberOfUses(); i++) {
+          if (!isAvailable(s.getUse(i), definitions)) {
+            return null;
+          }
+        }
+        if (!isExpressible(s)) {
+          return null;
+        }
+      }
+      if (result != -1 && !isAvailable(result, definitions)) {
+        return null;
+      }
+
+      List<SSAInstruction> ordered = order(current, definitions);
+
+      // number the values as XMLMethodSummaryReader does: parameters, constants, then the values of
+      // each statement in turn
+      Map<Integer, Integer> numbers = HashMapFactory.make();
+      int next = numberOfParameters + 1;
+      for (int v = 1; v <= numberOfParameters; v++) {
+        numbers.put(v, v);
+      }
+      List<Integer> usedConstants = new ArrayList<>();
+      for (SSAInstruction s : ordered) {
+        for (int i = 0; i < s.getNumberOfUses(); i++) {
+          int u = s.getUse(i);
+          if (u > numberOfParameters && constants.containsKey(u) && !numbers.containsKey(u)) {
+            numbers.put(u, -1);
+            usedConstants.add(u);
+          }
+        }
+      }
+      if (constants.containsKey(result) && !numbers.containsKey(result)) {
+        usedConstants.add(result);
+      }
+      for (int c : usedConstants) {
+        Object value = constants.get(c).getValue();
+        if (value instanceof String && !XMLMethodSummaryWriter.canWrite((String) value)) {
+          return null;
+        }
+        numbers.put(c, next++);
+      }
+      int nullValue = -1;
+      for (SSAInstruction s : ordered) {
+        if (!(s instanceof SSAPhiInstruction)) {
+          for (int i = 0; i < s.getNumberOfUses(); i++) {
+            if (nullValue == -1 && nulls.contains(s.getUse(i))) {
+              nullValue = next++;
+            }
+          }
+        }
+        if (s instanceof SSAAbstractInvokeInstruction) {
+          SSAAbstractInvokeInstruction call = (SSAAbstractInvokeInstruction) s;
+          numbers.put(call.getException(), next++);
+          if (call.hasDef()) {
+            numbers.put(call.getDef(), next++);
+          }
+        } else if (s.hasDef()) {
+          numbers.put(s.getDef(), next++);
+        }
+      }
+      if (returnType.isReferenceType() && result == -1 && nullValue == -1) {
+        nullValue = next++;
+      }
+      int finalNull = nullValue;
+      IntUnaryOperator number = v -> v <= 0 ? v : nulls.contains(v) ? finalNull : numbers.get(v);
+
+      MethodSummary summary = new MethodSummary(method.getReference());
+      summary.setStatic(method.isStatic());
+      summary.setFlowInsensitive(true);
+      for (SSAInstruction s : ordered) {
+        summary.addStatement(renumber(s, summary.getNumberOfStatements(), number));
+      }
+      if (returnType.isReferenceType()) {
+        summary.addStatement(
+            insts.ReturnInstruction(
+                summary.getNumberOfStatements(),
+                result == -1 ? finalNull : number.applyAsInt(result),
+                false));
+      }
+      for (int c : usedConstants) {
+        summary.addConstant(numbers.get(c), constants.get(c));
+      }
+      return summary;
+    }
+
+    /**
+     * @return true if the types s refers to can be named in a summary of method, which resolves
+     *     them in the class loader of method
+     */
+    private boolean isExpressible(SSAInstruction s) {
+      if (s instanceof SSANewInstruction) {
+        return isVisible(((SSANewInstruction) s).getConcreteType());
+      } else if (s instanceof SSAGetInstruction || s instanceof SSAPutInstruction) {
+        FieldReference f =
+            s instanceof SSAGetInstruction
+                ? ((SSAGetInstruction) s).getDeclaredField()
+                : ((SSAPutInstruction) s).getDeclaredField();
+        return isVisible(f.getDeclaringClass()) && isVisible(f.getFieldType());
+      } else if (s instanceof SSAArrayLoadInstruction) {
+        return isVisible(((SSAArrayLoadInstruction) s).getElementType());
+      } else if (s instanceof SSAArrayStoreInstruction) {
+        return isVisible(((SSAArrayStoreInstruction) s).getElementType());
+      } else if (s instanceof SSAAbstractInvokeInstruction) {
+        MethodReference target = ((SSAAbstractInvokeInstruction) s).getDeclaredTarget();
+        if (!isVisible(target.getDeclaringClass()) || !isVisible(target.getReturnType())) {
+          return false;
+        }
+        for (int i = 0; i < target.getNumberOfParameters(); i++) {
+          if (!isVisible(target.getParameterType(i))) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    private boolean isVisible(TypeReference type) {
+      return type.isPrimitiveType()
+          || type.getClassLoader()
+              .equals(method.getDeclaringClass().getClassLoader().getReference());
+    }
+
+    private boolean isAvailable(int v, Map<Integer, SSAInstruction> definitions) {
+      return v <= numberOfParameters
+          || definitions.containsKey(v)
+          || constants.containsKey(v)
+          || nulls.contains(v);
+    }
+
+    /**
+     * Resolve copies, and drop the statements that have no effect because a value they use is null,
+     * until no more values turn out to be null.
+     */
+    private List<SSAInstruction> dropNulls() {
+      List<SSAInstruction> result;
+      boolean changed;
+      do {
+        changed = false;
+        result = new ArrayList<>(statements.size());
+        for (SSAInstruction s : statements) {
+          s = renumber(s, -1, this::find);
+          if (s instanceof SSAPhiInstruction) {
+            int[] values = new int[s.getNumberOfUses()];
+            int n = 0;
+            for (int i = 0; i < values.length; i++) {
+              if (s.getUse(i) > 0 && !nulls.contains(s.getUse(i))) {
+                values[n++] = s.getUse(i);
+              }
+            }
+            if (n == 0) {
+              changed |= nulls.add(s.getDef());
+            } else {
+              int[] nonNull = new int[n];
+              System.arraycopy(values, 0, nonNull, 0, n);
+              result.add(insts.PhiInstruction(-1, s.getDef(), nonNull));
+            }
+          } else if (s instanceof SSAThrowInstruction) {
+            int exception = ((SSAThrowInstruction) s).getException();
+            if (!nulls.contains(exception) && !caught.contains(exception)) {
+              result.add(s);
+            }
+          } else if (s instanceof SSAAbstractInvokeInstruction) {
+            SSAAbstractInvokeInstruction call = (SSAAbstractInvokeInstruction) s;
+            if (!call.isStatic() && nulls.contains(call.getReceiver())) {
+              if (call.hasDef()) {
+                changed |= nulls.add(call.getDef());
+              }
+            } else {
+              result.add(s);
+            }
+          } else if (s instanceof SSAArrayStoreInstruction) {
+            SSAArrayStoreInstruction a = (SSAArrayStoreInstruction) s;
+            if (!nulls.contains(a.getArrayRef()) && !nulls.contains(a.getValue())) {
+              result.add(s);
+            }
+          } else if (s instanceof SSAPutInstruction) {
+            SSAPutInstruction p = (SSAPutInstruction) s;
+            if ((p.isStatic() || !nulls.contains(p.getRef())) && !nulls.contains(p.getVal())) {
+              result.add(s);
+            }
+          } else if (s instanceof SSAGetInstruction || s instanceof SSAArrayLoadInstruction) {
+            // the reference is the first use
+            if (s.getNumberOfUses() > 0 && nulls.contains(s.getUse(0))) {
+              changed |= nulls.add(s.getDef());
+            } else {
+              result.add(s);
+            }
+          } else {
+            result.add(s);
+          }
+        }
+      } while (changed);
+      return result;
+    }
+
+    /** Drop the phis whose values are not used, except by such phis. */
+    private List<SSAInstruction> dropDeadPhis(List<SSAInstruction> current, int result) {
+      boolean changed;
+      do {
+        MutableIntSet used = IntSetUtil.make();
+        if (result != -1) {
+          used.add(result);
+        }
+        for (SSAInstruction s : current) {
+          for (int i = 0; i < s.getNumberOfUses(); i++) {
+            used.add(s.getUse(i));
+          }
+        }
+        List<SSAInstruction> live = new ArrayList<>(current.size());
+        for (SSAInstruction s : current) {
+          if (!(s instanceof SSAPhiInstruction) || used.contains(s.getDef())) {
+            live.add(s);
+          }
+        }
+        changed = live.size() < current.size();
+        current = live;
+      } while (changed);
+      return current;
+    }
+
+    /**
+     * Order the statements so that phis come first, each other statement comes after the
+     * definitions of the values it uses, and throws come last. Phis merge all of their values
+     * wherever they are in a summary, and at the start they do not end up in a basic block of their
+     * own.
+     */
+    private List<SSAInstruction> order(
+        List<SSAInstruction> current, Map<Integer, SSAInstruction> definitions) {
+      List<SSAInstruction> result = new ArrayList<>(current.size());
+      // instructions without positions are all equal, so compare them by identity
+      Set<SSAInstruction> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+      for (SSAInstruction s : current) {
+        if (s instanceof SSAPhiInstruction) {
+          order(s, definitions, visited, result);
+        }
+      }
+      for (SSAInstruction s : current) {
+        if (!(s instanceof SSAThrowInstruction)) {
+          order(s, definitions, visited, result);
+        }
+      }
+      for (SSAInstruction s : current) {
+        if (s instanceof SSAThrowInstruction) {
+          order(s, definitions, visited, result);
+        }
+      }
+      return result;
+    }
+
+    private void order(
+        SSAInstruction s,
+        Map<Integer, SSAInstruction> definitions,
+        Set<SSAInstruction> visited,
+        List<SSAInstruction> result) {
+      if (!visited.add(s)) {
+        return;
+      }
+      if (!(s instanceof SSAPhiInstruction)) {
+        for (int i = 0; i < s.getNumberOfUses(); i++) {
+          SSAInstruction d = definitions.get(s.getUse(i));
+          if (d != null) {
+            order(d, definitions, visited, result);
+          }
+        }
+      }
+      result.add(s);
+    }
+
+    /**
+     * @return a copy of summary statement s at position iindex (or at no position, keeping its
+     *     sites, if iindex is negative), with each value number v replaced by number(v)
+     */
+    private SSAInstruction renumber(SSAInstruction s, int iindex, IntUnaryOperator number) {
+      if (s instanceof SSAPhiInstruction) {
+        int[] values = new int[s.getNumberOfUses()];
+        for (int i = 0; i < values.length; i++) {
+          values[i] = number.applyAsInt(s.getUse(i));
+        }
+        return insts.PhiInstruction(iindex, number.applyAsInt(s.getDef()), values);
+      } else if (s instanceof SSANewInstruction) {
+        SSANewInstruction n = (SSANewInstruction) s;
+        NewSiteReference site =
+            iindex < 0 ? n.getNewSite() : NewSiteReference.make(iindex, n.getConcreteType());
+        return n.getNumberOfUses() == 0
+            ? insts.NewInstruction(iindex, number.applyAsInt(n.getDef()), site)
+            : insts.NewInstruction(
+                iindex,
+                number.applyAsInt(n.getDef()),
+                site,
+                new int[] {number.applyAsInt(n.getUse(0))});
+      } else if (s instanceof SSAGetInstruction) {
+        SSAGetInstruction g = (SSAGetInstruction) s;
+        return g.isStatic()
+            ? insts.GetInstruction(iindex, number.applyAsInt(g.getDef()), g.getDeclaredField())
+            : insts.GetInstruction(
+                iindex,
+                number.applyAsInt(g.getDef()),
+                number.applyAsInt(g.getRef()),
+                g.getDeclaredField());
+      } else if (s instanceof SSAPutInstruction) {
+        SSAPutInstruction p = (SSAPutInstruction) s;
+        return p.isStatic()
+            ? insts.PutInstruction(iindex, number.applyAsInt(p.getVal()), p.getDeclaredField())
+            : insts.PutInstruction(
+                iindex,
+                number.applyAsInt(p.getRef()),
+                number.applyAsInt(p.getVal()),
+                p.getDeclaredField());
+      } else if (s instanceof SSAArrayLoadInstruction) {
+        SSAArrayLoadInstruction l = (SSAArrayLoadInstruction) s;
+        return insts.ArrayLoadInstruction(
+            iindex,
+            number.applyAsInt(l.getDef()),
+            number.applyAsInt(l.getArrayRef()),
+            number.applyAsInt(l.getIndex()),
+            l.getElementType());
+      } else if (s instanceof SSAArrayStoreInstruction) {
+        SSAArrayStoreInstruction a = (SSAArrayStoreInstruction) s;
+        return insts.ArrayStoreInstruction(
+            iindex,
+            number.applyAsInt(a.getArrayRef()),
+            number.applyAsInt(a.getIndex()),
+            number.applyAsInt(a.getValue()),
+            a.getElementType());
+      } else if (s instanceof SSAAbstractInvokeInstruction) {
+        SSAAbstractInvokeInstruction call = (SSAAbstractInvokeInstruction) s;
+        CallSiteReference site =
+            iindex < 0
+                ? call.getCallSite()
+                : CallSiteReference.make(
+                    iindex, call.getDeclaredTarget(), call.getInvocationCode());
+        int[] params = new int[call.getNumberOfUses()];
+        for (int i = 0; i < params.length; i++) {
+          params[i] = number.applyAsInt(call.getUse(i));
+        }
+        int exception = number.applyAsInt(call.getException());
+        return call.hasDef()
+            ? insts.InvokeInstruction(
+                iindex, number.applyAsInt(call.getDef()), params, exception, site, null)
+            : insts.InvokeInstruction(iindex, params, exception, site, null);
+      } else if (s instanceof SSAReturnInstruction) {
+        SSAReturnInstruction r = (SSAReturnInstruction) s;
+        return r.returnsVoid()
+            ? insts.ReturnInstruction(iindex)
+            : insts.ReturnInstruction(
+                iindex, number.applyAsInt(r.getResult()), r.returnsPrimitiveType());
+      } else if (s instanceof SSAThrowInstruction) {
+        return insts.ThrowInstruction(
+            iindex, number.applyAsInt(((SSAThrowInstruction) s).getException()));
+      } else {
+        throw new IllegalArgumentException("unexpected statement in a summary: " + s);
+      }
+    }
+  }
+}
@@ -46,6 +46,9 @@ public class MethodSummary {
   /** Is this a "factory" method? */
   private boolean isFactory = false;
 
+  /** Do the statements hold in any order, as in a summary computed bottom-up? */
+  private boolean isFlowInsensitive = false;
+
   private final int numberOfParameters;
 
   /** Known names for values */
@@ -184,4 +187,17 @@ public class MethodSummary {
   public boolean isFactory() {
     return isFactory;
   }
+
+  /**
+   * Record if the statements of this summary hold in any order, as in the summaries of {@link
+   * LibrarySummaryGenerator}. Then a phi merges all of its values wherever they are defined, and
+   * the statements before the first phi may throw exceptions.
+   */
+  public void setFlowInsensitive(boolean b) {
+    this.isFlowInsensitive = b;
+  }
+
+  public boolean isFlowInsensitive() {
+    return isFlowInsensitive;
+  }
 }
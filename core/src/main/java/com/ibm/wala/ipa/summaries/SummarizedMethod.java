@@ -63,6 +63,11 @@ public class SummarizedMethod extends SyntheticMethod {
     return summary.hasPoison();
   }
 
+  /** @see MethodSummary#isFlowInsensitive() */
+  public boolean isFlowInsensitive() {
+    return summary.isFlowInsensitive();
+  }
+
   @SuppressWarnings("deprecation")
   @Override
   public SSAInstruction[] getStatements(SSAOptions options) {
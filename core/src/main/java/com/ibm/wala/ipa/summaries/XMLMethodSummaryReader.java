@@ -29,6 +29,7 @@ import com.ibm.wala.ssa.SSAGetInstruction;
 import com.ibm.wala.ssa.SSAInstruction;
 import com.ibm.wala.ssa.SSAInstructionFactory;
 import com.ibm.wala.ssa.SSANewInstruction;
+import com.ibm.wala.ssa.SSAPhiInstruction;
 import com.ibm.wala.ssa.SSAPutInstruction;
 import com.ibm.wala.ssa.SSAReturnInstruction;
 import com.ibm.wala.ssa.SSAThrowInstruction;
@@ -43,6 +44,7 @@ import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.debug.Assertions;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -108,7 +110,11 @@ public class XMLMethodSummaryReader implements BytecodeConstants {
 
   private static final int E_AALOAD = 15;
 
-  private static final Map<String, Integer> elementMap = HashMapFactory.make(14);
+  private static final int E_GETSTATIC = 16;
+
+  private static final int E_PHI = 17;
+
+  private static final Map<String, Integer> elementMap = HashMapFactory.make(18);
 
   static {
     elementMap.put("classloader", E_CLASSLOADER);
@@ -127,6 +133,8 @@ public class XMLMethodSummaryReader implements BytecodeConstants {
     elementMap.put("throw", E_ATHROW);
     elementMap.put("constant", E_CONSTANT);
     elementMap.put("aaload", E_AALOAD);
+    elementMap.put("getstatic", E_GETSTATIC);
+    elementMap.put("phi", E_PHI);
   }
 
   //
@@ -170,10 +178,14 @@ public class XMLMethodSummaryReader implements BytecodeConstants {
 
   private static final String A_FACTORY = "factory";
 
+  private static final String A_FLOW_INSENSITIVE = "flowInsensitive";
+
   private static final String A_NUM_ARGS = "numArgs";
 
   private static final String A_PARAM_NAMES = "paramNames";
 
+  private static final String A_VALUES = "values";
+
   private static final String V_NULL = "null";
 
   private static final String V_TRUE = "true";
@@ -250,6 +262,12 @@ public class XMLMethodSummaryReader implements BytecodeConstants {
     /** A mapping from String (variable name) -&gt; Integer (local number) */
     private Map<String, Integer> symbolTable = null;
 
+    /**
+     * phi instructions of the method being processed, with the names of their operands; these may
+     * be defined later in the method, so they are looked up at its end
+     */
+    private Map<SSAPhiInstruction, String[]> pendingPhis = null;
+
     /**
      * @see org.xml.sax.ContentHandler#startElement(java.lang.String, java.lang.String,
      *     java.lang.String, org.xml.sax.Attributes)
@@ -305,6 +323,12 @@ public class XMLMethodSummaryReader implements BytecodeConstants {
         case E_GETFIELD:
           processGetField(atts);
           break;
+        case E_GETSTATIC:
+          processGetStatic(atts);
+          break;
+        case E_PHI:
+          processPhi(atts);
+          break;
         case E_ATHROW:
           processAthrow(atts);
           break;
@@ -357,10 +381,12 @@ public class XMLMethodSummaryReader implements BytecodeConstants {
           break;
         case E_METHOD:
           if (governingMethod != null) {
+            resolvePhis();
             checkReturnValue(governingMethod);
           }
           governingMethod = null;
           symbolTable = null;
+          pendingPhis = null;
           break;
         case E_CLASS:
           governingClass = null;
@@ -370,6 +396,8 @@ public class XMLMethodSummaryReader implements BytecodeConstants {
           break;
         case E_CALL:
         case E_GETFIELD:
+        case E_GETSTATIC:
+        case E_PHI:
         case E_NEW:
         case E_POISON:
         case E_PUTSTATIC:
@@ -695,6 +723,93 @@ public class XMLMethodSummaryReader implements BytecodeConstants {
       governingMethod.addStatement(P);
     }
 
+    /** Process an element indicating a getstatic. */
+    private void processGetStatic(Attributes atts) {
+      Language lang = scope.getLanguage(governingLoader.getLanguage());
+      SSAInstructionFactory insts = lang.instructionFactory();
+
+      // deduce the field read
+      String classString = atts.getValue(A_CLASS);
+      TypeReference type =
+          TypeReference.findOrCreate(governingLoader, TypeName.string2TypeName(classString));
+
+      String fieldString = atts.getValue(A_FIELD);
+      Atom fieldName = Atom.findOrCreateAsciiAtom(fieldString);
+
+      String ftString = atts.getValue(A_FIELD_TYPE);
+      TypeReference fieldType =
+          TypeReference.findOrCreate(governingLoader, TypeName.string2TypeName(ftString));
+
+      FieldReference field = FieldReference.findOrCreate(type, fieldName, fieldType);
+
+      // get the value def'fed
+      String defVar = atts.getValue(A_DEF);
+      if (defVar == null) {
+        Assertions.UNREACHABLE("Must specify def for getstatic " + governingMethod);
+      }
+      if (symbolTable.containsKey(defVar)) {
+        Assertions.UNREACHABLE("Cannot def variable twice: " + defVar + " in " + governingMethod);
+      }
+      int defNum = nextLocal;
+      symbolTable.put(defVar, nextLocal++);
+
+      SSAGetInstruction G =
+          insts.GetInstruction(governingMethod.getNumberOfStatements(), defNum, field);
+      governingMethod.addStatement(G);
+    }
+
+    /**
+     * Process an element indicating a phi, which merges all of its values. The values are
+     * space-separated names, which may be defined further down in the method.
+     */
+    private void processPhi(Attributes atts) {
+      Language lang = scope.getLanguage(governingLoader.getLanguage());
+      SSAInstructionFactory insts = lang.instructionFactory();
+
+      String defVar = atts.getValue(A_DEF);
+      if (defVar == null) {
+        Assertions.UNREACHABLE("Must specify def for phi " + governingMethod);
+      }
+      if (symbolTable.containsKey(defVar)) {
+        Assertions.UNREACHABLE("Cannot def variable twice: " + defVar + " in " + governingMethod);
+      }
+      String valuesString = atts.getValue(A_VALUES);
+      if (valuesString == null) {
+        Assertions.UNREACHABLE("Must specify values for phi " + governingMethod);
+      }
+      String[] values = valuesString.trim().split("\\s+");
+
+      int defNum = nextLocal;
+      symbolTable.put(defVar, nextLocal++);
+
+      // the values are filled in at the end of the method
+      int[] unknown = new int[values.length];
+      Arrays.fill(unknown, -1);
+      SSAPhiInstruction phi =
+          insts.PhiInstruction(governingMethod.getNumberOfStatements(), defNum, unknown);
+      governingMethod.addStatement(phi);
+      pendingPhis.put(phi, values);
+    }
+
+    /** Look up the values of the phis of the method being processed. */
+    private void resolvePhis() {
+      for (Map.Entry<SSAPhiInstruction, String[]> p : pendingPhis.entrySet()) {
+        String[] names = p.getValue();
+        int[] values = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+          Integer valueNumber = symbolTable.get(names[i]);
+          if (valueNumber == null) {
+            if (!names[i].equals(V_NULL)) {
+              Assertions.UNREACHABLE("Cannot lookup value: " + names[i]);
+            }
+            valueNumber = getValueNumberForNull();
+          }
+          values[i] = valueNumber;
+        }
+        p.getKey().setValues(values);
+      }
+    }
+
     /** Process an element indicating an Aastore */
     private void processAastore(Attributes atts) {
       Language lang = scope.getLanguage(governingLoader.getLanguage());
@@ -832,17 +947,19 @@ public class XMLMethodSummaryReader implements BytecodeConstants {
 
       governingMethod.addConstant(
           valueNumber,
-          typeString.equals("int")
-              ? new ConstantValue(Integer.valueOf(valueString))
-              : typeString.equals("long")
-                  ? new ConstantValue(Long.valueOf(valueString))
-                  : typeString.equals("short")
-                      ? new ConstantValue(Short.valueOf(valueString))
-                      : typeString.equals("float")
-                          ? new ConstantValue(Float.valueOf(valueString))
-                          : typeString.equals("double")
-                              ? new ConstantValue(Double.valueOf(valueString))
-                              : null);
+          typeString.equals("string")
+              ? new ConstantValue(valueString)
+              : typeString.equals("int")
+                  ? new ConstantValue(Integer.valueOf(valueString))
+                  : typeString.equals("long")
+                      ? new ConstantValue(Long.valueOf(valueString))
+                      : typeString.equals("short")
+                          ? new ConstantValue(Short.valueOf(valueString))
+                          : typeString.equals("float")
+                              ? new ConstantValue(Float.valueOf(valueString))
+                              : typeString.equals("double")
+                                  ? new ConstantValue(Double.valueOf(valueString))
+                                  : null);
     }
 
     /** Process an element which indicates this method is "poison" */
@@ -934,10 +1051,27 @@ public class XMLMethodSummaryReader implements BytecodeConstants {
         }
       }
 
+      String flowInsensitiveString = atts.getValue(A_FLOW_INSENSITIVE);
+      if (flowInsensitiveString != null) {
+        switch (flowInsensitiveString) {
+          case "true":
+            governingMethod.setFlowInsensitive(true);
+            break;
+          case "false":
+            governingMethod.setFlowInsensitive(false);
+            break;
+          default:
+            Assertions.UNREACHABLE(
+                "Invalid attribute value " + A_FLOW_INSENSITIVE + ": " + flowInsensitiveString);
+            break;
+        }
+      }
+
       // note that symbol tables reserve v0 for "unknown", so v1 gets assigned
       // to the first parameter "arg0", and so forth.
       nextLocal = nParams + 1;
       symbolTable = HashMapFactory.make(5);
+      pendingPhis = HashMapFactory.make(1);
       // create symbols for the parameters
       for (int i = 0; i < nParams; i++) {
         symbolTable.put("arg" + i, i + 1);
@@ -0,0 +1,386 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.summaries;
+
+import com.ibm.wala.core.util.strings.Atom;
+import com.ibm.wala.core.util.warnings.Warning;
+import com.ibm.wala.shrike.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.ssa.ConstantValue;
+import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
+import com.ibm.wala.ssa.SSAArrayLoadInstruction;
+import com.ibm.wala.ssa.SSAArrayStoreInstruction;
+import com.ibm.wala.ssa.SSAGetInstruction;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSANewInstruction;
+import com.ibm.wala.ssa.SSAPhiInstruction;
+import com.ibm.wala.ssa.SSAPutInstruction;
+import com.ibm.wala.ssa.SSAReturnInstruction;
+import com.ibm.wala.ssa.SSAThrowInstruction;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeName;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.intset.MutableIntSet;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes {@link MethodSummary}s in the format read by {@link XMLMethodSummaryReader}.
+ *
+ * <p>Parameters are written as {@code arg0}, {@code arg1}, ..., values used without a definition
+ * as {@code null}, and all other values as {@code v}<i>n</i>. The summaries must only contain
+ * statements the reader understands, and each statement other than a phi must come after the
+ * definitions of the values it uses.
+ */
+public class XMLMethodSummaryWriter {
+
+  private XMLMethodSummaryWriter() {}
+
+  /**
+   * Write summaries to out, in UTF-8.
+   *
+   * @throws IllegalArgumentException if a summary cannot be expressed in the format
+   */
+  public static void write(Iterable<MethodSummary> summaries, OutputStream out)
+      throws IOException {
+    if (summaries == null) {
+      throw new IllegalArgumentException("null summaries");
+    }
+    if (out == null) {
+      throw new IllegalArgumentException("null out");
+    }
+    // loader -> package -> class -> summaries, in a stable order
+    Map<String, Map<String, Map<String, List<MethodSummary>>>> tree = new TreeMap<>();
+    for (MethodSummary summary : summaries) {
+      TypeName type = summary.getMethod().getDeclaringClass().getName();
+      Atom pkg = type.getPackage();
+      tree.computeIfAbsent(
+              summary.getMethod().getDeclaringClass().getClassLoader().getName().toUnicodeString(),
+              k -> new TreeMap<>())
+          .computeIfAbsent(pkg == null ? "" : pkg.toUnicodeString(), k -> new TreeMap<>())
+          .computeIfAbsent(type.getClassName().toUnicodeString(), k -> new ArrayList<>())
+          .add(summary);
+    }
+
+    PrintWriter w = new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    w.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+    w.println("<summary-spec>");
+    for (Map.Entry<String, Map<String, Map<String, List<MethodSummary>>>> loader :
+        tree.entrySet()) {
+      w.println("  <classloader name=\"" + escape(loader.getKey()) + "\">");
+      for (Map.Entry<String, Map<String, List<MethodSummary>>> pkg :
+          loader.getValue().entrySet()) {
+        String indent = "    ";
+        if (!pkg.getKey().isEmpty()) {
+          w.println(indent + "<package name=\"" + escape(pkg.getKey()) + "\">");
+          indent += "  ";
+        }
+        for (Map.Entry<String, List<MethodSummary>> klass : pkg.getValue().entrySet()) {
+          w.println(indent + "<class name=\"" + escape(klass.getKey()) + "\">");
+          for (MethodSummary summary : klass.getValue()) {
+            writeMethod(w, indent + "  ", summary);
+          }
+          w.println(indent + "</class>");
+        }
+        if (!pkg.getKey().isEmpty()) {
+          w.println("    </package>");
+        }
+      }
+      w.println("  </classloader>");
+    }
+    w.println("</summary-spec>");
+    w.flush();
+    if (w.checkError()) {
+      throw new IOException("error writing method summaries");
+    }
+  }
+
+  /** @return true if s can be written as an XML attribute value */
+  static boolean canWrite(String s) {
+    return s.codePoints()
+        .allMatch(
+            c ->
+                c == 0x9
+                    || c == 0xA
+                    || c == 0xD
+                    || (c >= 0x20 && c <= 0xD7FF)
+                    || (c >= 0xE000 && c <= 0xFFFD)
+                    || c >= 0x10000);
+  }
+
+  private static void writeMethod(PrintWriter w, String indent, MethodSummary summary)
+      throws IOException {
+    MethodReference method = summary.getMethod();
+    int numberOfParameters = summary.getNumberOfParameters();
+    StringBuilder header = new StringBuilder(indent);
+    header.append("<method name=\"").append(escape(method.getName().toUnicodeString()));
+    header.append("\" descriptor=\"").append(escape(method.getDescriptor().toUnicodeString()));
+    header.append('"');
+    if (summary.isStatic()) {
+      header.append(" static=\"true\"");
+    }
+    if (summary.isFactory()) {
+      header.append(" factory=\"true\"");
+    }
+    if (summary.isFlowInsensitive()) {
+      header.append(" flowInsensitive=\"true\"");
+    }
+    int defaultParameters = method.getNumberOfParameters() + (summary.isStatic() ? 0 : 1);
+    if (numberOfParameters != defaultParameters) {
+      header.append(" numArgs=\"").append(numberOfParameters).append('"');
+    }
+    w.println(header.append('>'));
+
+    String inner = indent + "  ";
+    MutableIntSet defined = IntSetUtil.make();
+    Map<Integer, ConstantValue> constants = summary.getConstants();
+    if (constants != null) {
+      for (Map.Entry<Integer, ConstantValue> c : new TreeMap<>(constants).entrySet()) {
+        Object value = c.getValue().getValue();
+        if (value != null) {
+          w.println(
+              inner
+                  + "<constant name=\"v"
+                  + c.getKey()
+                  + "\" type=\""
+                  + constantType(value)
+                  + "\" value=\""
+                  + escape(value.toString())
+                  + "\" />");
+          defined.add(c.getKey());
+        }
+      }
+    }
+    // values defined by some statement, for telling undefined (null) values apart
+    MutableIntSet defs = IntSetUtil.make();
+    for (SSAInstruction s : summary.getStatements()) {
+      for (int i = 0; i < s.getNumberOfDefs(); i++) {
+        defs.add(s.getDef(i));
+      }
+    }
+    ValueNames names = new ValueNames(numberOfParameters, defined, defs);
+    for (SSAInstruction s : summary.getStatements()) {
+      if (!(s instanceof SSAPhiInstruction)) {
+        for (int i = 0; i < s.getNumberOfUses(); i++) {
+          int v = s.getUse(i);
+          if (v > numberOfParameters && defs.contains(v) && !defined.contains(v)) {
+            throw new IllegalArgumentException(
+                "value " + v + " used before it is defined in " + summary + ": " + s);
+          }
+        }
+      }
+      w.println(inner + element(s, names));
+      for (int i = 0; i < s.getNumberOfDefs(); i++) {
+        defined.add(s.getDef(i));
+      }
+    }
+    if (summary.hasPoison()) {
+      byte level = summary.getPoisonLevel();
+      w.println(
+          inner
+              + "<poison reason=\""
+              + escape(summary.getPoison())
+              + "\" level=\""
+              + (level == Warning.SEVERE
+                  ? "severe"
+                  : level == Warning.MODERATE ? "moderate" : "mild")
+              + "\" />");
+    }
+    w.println(indent + "</method>");
+  }
+
+  private static String constantType(Object value) {
+    if (value instanceof String) {
+      return "string";
+    } else if (value instanceof Integer) {
+      return "int";
+    } else if (value instanceof Long) {
+      return "long";
+    } else if (value instanceof Short) {
+      return "short";
+    } else if (value instanceof Float) {
+      return "float";
+    } else if (value instanceof Double) {
+      return "double";
+    } else {
+      throw new IllegalArgumentException("unsupported constant " + value);
+    }
+  }
+
+  /** Names of the values of one summary. */
+  private static class ValueNames {
+    private final int numberOfParameters;
+
+    private final MutableIntSet constants;
+
+    private final MutableIntSet defs;
+
+    ValueNames(int numberOfParameters, MutableIntSet constants, MutableIntSet defs) {
+      this.numberOfParameters = numberOfParameters;
+      this.constants = IntSetUtil.makeMutableCopy(constants);
+      this.defs = defs;
+    }
+
+    String get(int v) {
+      if (v >= 1 && v <= numberOfParameters) {
+        return "arg" + (v - 1);
+      } else if (constants.contains(v) || defs.contains(v)) {
+        return "v" + v;
+      } else {
+        return "null";
+      }
+    }
+  }
+
+  private static String element(SSAInstruction s, ValueNames names) throws IOException {
+    StringBuilder result = new StringBuilder();
+    if (s instanceof SSANewInstruction) {
+      SSANewInstruction n = (SSANewInstruction) s;
+      result.append("<new def=\"").append(names.get(n.getDef())).append('"');
+      attribute(result, "class", n.getConcreteType().getName());
+      if (n.getNumberOfUses() > 0) {
+        result.append(" size=\"").append(names.get(n.getUse(0))).append('"');
+      }
+    } else if (s instanceof SSAGetInstruction) {
+      SSAGetInstruction g = (SSAGetInstruction) s;
+      result.append(g.isStatic() ? "<getstatic" : "<getfield");
+      result.append(" def=\"").append(names.get(g.getDef())).append('"');
+      if (!g.isStatic()) {
+        result.append(" ref=\"").append(names.get(g.getRef())).append('"');
+      }
+      field(result, g.getDeclaredField());
+    } else if (s instanceof SSAPutInstruction) {
+      SSAPutInstruction p = (SSAPutInstruction) s;
+      result.append(p.isStatic() ? "<putstatic" : "<putfield");
+      if (!p.isStatic()) {
+        result.append(" ref=\"").append(names.get(p.getRef())).append('"');
+      }
+      result.append(" value=\"").append(names.get(p.getVal())).append('"');
+      field(result, p.getDeclaredField());
+    } else if (s instanceof SSAArrayLoadInstruction) {
+      SSAArrayLoadInstruction l = (SSAArrayLoadInstruction) s;
+      result.append("<aaload def=\"").append(names.get(l.getDef()));
+      result.append("\" ref=\"").append(names.get(l.getArrayRef()));
+      result.append("\" index=\"").append(names.get(l.getIndex())).append('"');
+      attribute(result, "type", l.getElementType().getName());
+    } else if (s instanceof SSAArrayStoreInstruction) {
+      SSAArrayStoreInstruction a = (SSAArrayStoreInstruction) s;
+      result.append("<aastore ref=\"").append(names.get(a.getArrayRef()));
+      result.append("\" index=\"0\" value=\"").append(names.get(a.getValue())).append('"');
+      attribute(result, "type", a.getElementType().getName());
+    } else if (s instanceof SSAAbstractInvokeInstruction) {
+      SSAAbstractInvokeInstruction call = (SSAAbstractInvokeInstruction) s;
+      MethodReference target = call.getDeclaredTarget();
+      result.append("<call type=\"");
+      switch ((IInvokeInstruction.Dispatch) call.getInvocationCode()) {
+        case VIRTUAL:
+          result.append("virtual");
+          break;
+        case SPECIAL:
+          result.append("special");
+          break;
+        case INTERFACE:
+          result.append("interface");
+          break;
+        case STATIC:
+          result.append("static");
+          break;
+        default:
+          throw new IllegalArgumentException("unsupported call " + call);
+      }
+      result.append("\" name=\"").append(escape(target.getName().toUnicodeString())).append('"');
+      attribute(result, "class", target.getDeclaringClass().getName());
+      result.append(" descriptor=\"");
+      result.append(escape(target.getDescriptor().toUnicodeString())).append('"');
+      int expected = target.getNumberOfParameters() + (call.isStatic() ? 0 : 1);
+      if (call.getNumberOfUses() != expected) {
+        result.append(" numArgs=\"").append(call.getNumberOfUses()).append('"');
+      }
+      for (int i = 0; i < call.getNumberOfUses(); i++) {
+        result.append(" arg").append(i).append("=\"").append(names.get(call.getUse(i)));
+        result.append('"');
+      }
+      if (call.hasDef()) {
+        result.append(" def=\"").append(names.get(call.getDef())).append('"');
+      }
+    } else if (s instanceof SSAReturnInstruction) {
+      SSAReturnInstruction r = (SSAReturnInstruction) s;
+      result.append("<return");
+      if (!r.returnsVoid()) {
+        result.append(" value=\"").append(names.get(r.getResult())).append('"');
+      }
+    } else if (s instanceof SSAThrowInstruction) {
+      result.append("<throw value=\"");
+      result.append(names.get(((SSAThrowInstruction) s).getException())).append('"');
+    } else if (s instanceof SSAPhiInstruction) {
+      result.append("<phi def=\"").append(names.get(s.getDef())).append("\" values=\"");
+      for (int i = 0; i < s.getNumberOfUses(); i++) {
+        if (i > 0) {
+          result.append(' ');
+        }
+        result.append(names.get(s.getUse(i)));
+      }
+      result.append('"');
+    } else {
+      throw new IllegalArgumentException("unsupported statement " + s);
+    }
+    return result.append(" />").toString();
+  }
+
+  private static void field(StringBuilder result, FieldReference field)
+      throws IOException {
+    attribute(result, "class", field.getDeclaringClass().getName());
+    result.append(" field=\"").append(escape(field.getName().toUnicodeString())).append('"');
+    attribute(result, "fieldType", field.getFieldType().getName());
+  }
+
+  private static void attribute(StringBuilder result, String name, TypeName type) {
+    result.append(' ').append(name).append("=\"").append(escape(type.toUnicodeString()));
+    result.append('"');
+  }
+
+  /** Escape s for an XML attribute value; assumes {@link #canWrite(String)}. */
+  private static String escape(String s) {
+    StringBuilder result = new StringBuilder(s.length());
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      switch (c) {
+        case '&':
+          result.append("&amp;");
+          break;
+        case '<':
+          result.append("&lt;");
+          break;
+        case '>':
+          result.append("&gt;");
+          break;
+        case '"':
+          result.append("&quot;");
+          break;
+        default:
+          // keep control characters from being normalized away by the parser
+          if (c < 0x20 || (c >= 0x7F && c <= 0x9F)) {
+            result.append("&#").append((int) c).append(';');
+          } else {
+            result.append(c);
+          }
+      }
+    }
+    return result.toString();
+  }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ssa;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.Context;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * A cache for auxiliary information based on an SSA representation, which holds strong references
+ * to at most a fixed budget of entries.
+ *
+ * <p>Unlike {@link AuxiliaryCache}, which leaves it to the garbage collector to decide what to
+ * drop, this cache evicts entries itself, so its footprint is predictable. Each entry has a weight,
+ * given by a weigher function: with {@link #ENTRIES} the budget is a number of entries, and with
+ * {@link #ESTIMATED_BYTES} it is a rough number of bytes. When the total weight exceeds the budget,
+ * entries are evicted according to an {@link EvictionPolicy}.
+ */
+public class BoundedAuxiliaryCache implements IAuxiliaryCache {
+
+  /** Which entry is evicted first when the cache is over its budget. */
+  public enum EvictionPolicy {
+    /** evict the least recently used entry */
+    LRU,
+    /** evict the least frequently used entry; among those, the least recently used one */
+    LFU
+  }
+
+  /** A weigher that gives each entry weight 1, so the budget is a number of entries */
+  public static final ToLongFunction<Object> ENTRIES = aux -> 1;
+
+  /**
+   * A weigher that gives an {@link IR} or {@link DefUse} a rough estimate of its size in bytes, so
+   * the budget is a number of bytes
+   */
+  public static final ToLongFunction<Object> ESTIMATED_BYTES = BoundedAuxiliaryCache::estimateBytes;
+
+  /** A cache key: a method, context and options */
+  private static final class Key {
+    private final IMethod method;
+
+    private final Context context;
+
+    private final SSAOptions options;
+
+    Key(IMethod method, Context context, SSAOptions options) {
+      this.method = method;
+      this.context = context;
+      this.options = options;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return method.equals(other.method)
+          && Objects.equals(context, other.context)
+          && Objects.equals(options, other.options);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (31 * method.hashCode() + Objects.hashCode(context)) + Objects.hashCode(options);
+    }
+  }
+
+  /** A cached value with its weight and use count */
+  private static final class Entry {
+    private final Object value;
+
+    private final long weight;
+
+    private long uses = 1;
+
+    Entry(Object value, long weight) {
+      this.value = value;
+      this.weight = weight;
+    }
+  }
+
+  private final long capacity;
+
+  private final EvictionPolicy policy;
+
+  private final ToLongFunction<Object> weigher;
+
+  /** all cached entries, from least to most recently used */
+  private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  /**
+   * for {@link EvictionPolicy#LFU}, the keys of all entries grouped by use count, each group from
+   * least to most recently used
+   */
+  private final TreeMap<Long, LinkedHashSet<Key>> byUses = new TreeMap<>();
+
+  /** total weight of all cached entries */
+  private long weight = 0;
+
+  private long hits = 0;
+
+  private long misses = 0;
+
+  private long evictions = 0;
+
+  /**
+   * @param maxEntries the maximum number of entries to cache
+   * @throws IllegalArgumentException if maxEntries is not positive or policy is null
+   */
+  public BoundedAuxiliaryCache(int maxEntries, EvictionPolicy policy) {
+    this(maxEntries, policy, ENTRIES);
+  }
+
+  /**
+   * @param capacity the maximum total weight of the cached entries
+   * @param weigher computes the weight of a cached object, such as {@link #ENTRIES} or {@link
+   *     #ESTIMATED_BYTES}
+   * @throws IllegalArgumentException if capacity is not positive or policy or weigher is null
+   */
+  public BoundedAuxiliaryCache(
+      long capacity, EvictionPolicy policy, ToLongFunction<Object> weigher) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("invalid capacity: " + capacity);
+    }
+    if (policy == null) {
+      throw new IllegalArgumentException("null policy");
+    }
+    if (weigher == null) {
+      throw new IllegalArgumentException("null weigher");
+    }
+    this.capacity = capacity;
+    this.policy = policy;
+    this.weigher = weigher;
+  }
+
+  @Override
+  public synchronized void wipe() {
+    entries.clear();
+    byUses.clear();
+    weight = 0;
+  }
+
+  @Override
+  public synchronized Object find(IMethod m, Context c, SSAOptions options) {
+    Key key = new Key(m, c, options);
+    Entry e = entries.get(key);
+    if (e == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+    if (policy == EvictionPolicy.LFU) {
+      removeUse(key, e);
+      e.uses++;
+      addUse(key, e);
+    }
+    return e.value;
+  }
+
+  @Override
+  public synchronized void cache(IMethod m, Context c, SSAOptions options, Object aux) {
+    Key key = new Key(m, c, options);
+    remove(key);
+    Entry e = new Entry(aux, weigher.applyAsLong(aux));
+    entries.put(key, e);
+    weight += e.weight;
+    if (policy == EvictionPolicy.LFU) {
+      addUse(key, e);
+    }
+    // evict other entries first, but do not keep an entry that alone exceeds the budget
+    while (weight > capacity && !entries.isEmpty()) {
+      Key victim = pickVictim();
+      if (victim.equals(key) && entries.size() > 1) {
+        // the newest entry is the least frequently used one; evict an older one instead
+        victim = oldestOtherThan(key);
+      }
+      remove(victim);
+      evictions++;
+    }
+  }
+
+  @Override
+  public synchronized void invalidate(IMethod method, Context c) {
+    for (Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+      Map.Entry<Key, Entry> e = it.next();
+      Key key = e.getKey();
+      if (key.method.equals(method) && Objects.equals(key.context, c)) {
+        it.remove();
+        weight -= e.getValue().weight;
+        if (policy == EvictionPolicy.LFU) {
+          removeUse(key, e.getValue());
+        }
+      }
+    }
+  }
+
+  private void remove(Key key) {
+    Entry old = entries.remove(key);
+    if (old != null) {
+      weight -= old.weight;
+      if (policy == EvictionPolicy.LFU) {
+        removeUse(key, old);
+      }
+    }
+  }
+
+  private Key pickVictim() {
+    if (policy == EvictionPolicy.LFU) {
+      return byUses.firstEntry().getValue().iterator().next();
+    } else {
+      return entries.keySet().iterator().next();
+    }
+  }
+
+  private Key oldestOtherThan(Key key) {
+    if (policy == EvictionPolicy.LFU) {
+      for (LinkedHashSet<Key> keys : byUses.values()) {
+        for (Key k : keys) {
+          if (!k.equals(key)) {
+            return k;
+          }
+        }
+      }
+    }
+    for (Key k : entries.keySet()) {
+      if (!k.equals(key)) {
+        return k;
+      }
+    }
+    throw new IllegalStateException("no other entry");
+  }
+
+  private void addUse(Key key, Entry e) {
+    byUses.computeIfAbsent(e.uses, u -> new LinkedHashSet<>()).add(key);
+  }
+
+  private void removeUse(Key key, Entry e) {
+    LinkedHashSet<Key> keys = byUses.get(e.uses);
+    keys.remove(key);
+    if (keys.isEmpty()) {
+      byUses.remove(e.uses);
+    }
+  }
+
+  /** @return the number of lookups that found a cached entry */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /** @return the number of lookups that found no cached entry */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /** @return the number of entries evicted to stay within the budget */
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  /** @return the number of cached entries */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /** @return the total weight of the cached entries */
+  public synchronized long getWeight() {
+    return weight;
+  }
+
+  public long getCapacity() {
+    return capacity;
+  }
+
+  public EvictionPolicy getPolicy() {
+    return policy;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "BoundedAuxiliaryCache "
+        + policy
+        + ": "
+        + entries.size()
+        + " entries, weight "
+        + weight
+        + '/'
+        + capacity
+        + ", hits "
+        + hits
+        + ", misses "
+        + misses
+        + ", evictions "
+        + evictions;
+  }
+
+  /**
+   * A rough estimate of the memory held by an {@link IR} or {@link DefUse}, based on the number of
+   * instructions, values and basic blocks. Other objects count as one byte.
+   */
+  private static long estimateBytes(Object aux) {
+    if (aux instanceof IR) {
+      IR ir = (IR) aux;
+      return 64L * ir.getInstructions().length
+          + 32L * ir.getSymbolTable().getMaxValueNumber()
+          + 128L * ir.getControlFlowGraph().getNumberOfNodes()
+          + 256;
+    } else if (aux instanceof DefUse) {
+      DefUse du = (DefUse) aux;
+      return 48L * du.allInstructions.size() + 64;
+    } else {
+      return 1;
+    }
+  }
+}
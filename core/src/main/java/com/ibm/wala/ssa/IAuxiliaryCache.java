@@ -13,7 +13,11 @@ package com.ibm.wala.ssa;
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.ipa.callgraph.Context;
 
-interface IAuxiliaryCache {
+/**
+ * A cache for auxiliary information based on an SSA representation, such as {@link IR}s and {@link
+ * DefUse}s, keyed by method, context and {@link SSAOptions}.
+ */
+public interface IAuxiliaryCache {
 
   /** The existence of this is unfortunate. */
   void wipe();
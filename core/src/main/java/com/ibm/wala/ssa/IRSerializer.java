@@ -0,0 +1,953 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ssa;
+
+import com.ibm.wala.cfg.ShrikeCFG;
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IBytecodeMethod;
+import com.ibm.wala.classLoader.IClassLoader;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.core.util.strings.Atom;
+import com.ibm.wala.shrike.shrikeBT.IBinaryOpInstruction;
+import com.ibm.wala.shrike.shrikeBT.IComparisonInstruction;
+import com.ibm.wala.shrike.shrikeBT.IConditionalBranchInstruction;
+import com.ibm.wala.shrike.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.shrike.shrikeBT.IShiftInstruction;
+import com.ibm.wala.shrike.shrikeBT.IUnaryOpInstruction;
+import com.ibm.wala.shrike.shrikeBT.InvokeDynamicInstruction;
+import com.ibm.wala.shrike.shrikeCT.BootstrapMethodsReader.BootstrapMethod;
+import com.ibm.wala.shrike.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.Descriptor;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.Selector;
+import com.ibm.wala.types.TypeName;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.intset.IntPair;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact binary form for {@link IR}s built from bytecode by {@link
+ * com.ibm.wala.classLoader.ShrikeIRFactory}.
+ *
+ * <p>The form records the instruction array, the {@link SymbolTable}, the phis and catch
+ * instructions of each {@link SSACFG} basic block, and the local variable map. It does not record
+ * the control-flow graph itself; that is rebuilt from the bytecode, which is cheap compared to SSA
+ * construction, and then populated from the stored form.
+ *
+ * <p>IRs with pi nodes or indirection data are not representable; {@link #toBytes(IR)} returns
+ * null for them.
+ */
+public final class IRSerializer {
+
+  /** Version of the binary form. Bump whenever the layout or the IR construction changes. */
+  public static final int VERSION = 1;
+
+  private static final int ARRAY_LENGTH = 1;
+  private static final int ARRAY_LOAD = 2;
+  private static final int ARRAY_STORE = 3;
+  private static final int BINARY_OP = 4;
+  private static final int SHIFT_OP = 5;
+  private static final int CHECK_CAST = 6;
+  private static final int COMPARISON = 7;
+  private static final int CONDITIONAL_BRANCH = 8;
+  private static final int CONVERSION = 9;
+  private static final int GET_CAUGHT_EXCEPTION = 10;
+  private static final int GET = 11;
+  private static final int GOTO = 12;
+  private static final int INSTANCEOF = 13;
+  private static final int INVOKE = 14;
+  private static final int INVOKE_DYNAMIC = 15;
+  private static final int MONITOR = 16;
+  private static final int NEW = 17;
+  private static final int PUT = 18;
+  private static final int RETURN = 19;
+  private static final int SWITCH = 20;
+  private static final int THROW = 21;
+  private static final int UNARY_OP = 22;
+  private static final int LOAD_TYPE = 23;
+  private static final int LOAD_METHOD = 24;
+
+  private static final int VALUE_CONSTANT = 1;
+  private static final int VALUE_PHI = 2;
+
+  private static final int CONSTANT_NULL = 0;
+  private static final int CONSTANT_BOOLEAN = 1;
+  private static final int CONSTANT_INT = 2;
+  private static final int CONSTANT_LONG = 3;
+  private static final int CONSTANT_FLOAT = 4;
+  private static final int CONSTANT_DOUBLE = 5;
+  private static final int CONSTANT_STRING = 6;
+
+  private IRSerializer() {}
+
+  /** thrown internally when an IR uses a feature the binary form does not cover */
+  private static class UnsupportedIRException extends Exception {
+    private static final long serialVersionUID = -3311478925512633447L;
+
+    UnsupportedIRException(String msg) {
+      super(msg);
+    }
+  }
+
+  /**
+   * @return the binary form of ir, or null if ir cannot be represented
+   * @throws IllegalArgumentException if ir is null
+   */
+  public static byte[] toBytes(IR ir) {
+    if (ir == null) {
+      throw new IllegalArgumentException("null ir");
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (Output out = new Output(new DataOutputStream(bytes))) {
+      writeIR(ir, out);
+    } catch (UnsupportedIRException e) {
+      return null;
+    } catch (IOException e) {
+      // cannot happen with an in-memory stream
+      throw new AssertionError(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Populate an IR under construction from its binary form. The caller creates the instruction
+   * array, symbol table and {@link SSACFG} for method exactly as for a fresh build; this method
+   * fills them in.
+   *
+   * @return the local map for the IR, or null if none was recorded
+   * @throws IOException if the data is damaged or does not match the method's bytecode
+   */
+  public static IR.SSA2LocalMap fromBytes(
+      byte[] data,
+      IBytecodeMethod<?> method,
+      ShrikeCFG shrikeCFG,
+      SSACFG cfg,
+      SSAInstruction[] instructions,
+      SymbolTable symbolTable)
+      throws IOException {
+    if (data == null) {
+      throw new IllegalArgumentException("null data");
+    }
+    try (Input in =
+        new Input(new DataInputStream(new ByteArrayInputStream(data)), method, instructions)) {
+      return readIR(in, shrikeCFG, cfg, symbolTable);
+    } catch (IllegalArgumentException | ClassCastException | ArrayIndexOutOfBoundsException e) {
+      throw new IOException("damaged IR data for " + method, e);
+    }
+  }
+
+  private static void writeIR(IR ir, Output out) throws IOException, UnsupportedIRException {
+    if (ir.getIndirectionData() != null && !ir.getIndirectionData().getNames().isEmpty()) {
+      throw new UnsupportedIRException("indirection data");
+    }
+    SSAInstruction[] instructions = ir.getInstructions();
+    SymbolTable symbolTable = ir.getSymbolTable();
+    SSACFG cfg = ir.getControlFlowGraph();
+
+    out.writeInt(instructions.length);
+
+    // symbol table
+    int max = symbolTable.getMaxValueNumber();
+    out.writeInt(max);
+    for (int vn = 1; vn <= max; vn++) {
+      Value v = valueOrNull(symbolTable, vn);
+      if (v == null) {
+        continue;
+      }
+      out.writeInt(vn);
+      if (v instanceof ConstantValue) {
+        out.writeInt(VALUE_CONSTANT);
+        writeConstant(((ConstantValue) v).getValue(), out);
+      } else if (v instanceof PhiValue) {
+        out.writeInt(VALUE_PHI);
+        SSAPhiInstruction phi = ((PhiValue) v).getPhiInstruction();
+        if (phi.getDef() != vn) {
+          throw new UnsupportedIRException("phi " + phi + " at " + vn);
+        }
+        out.writeInt(phi.getNumberOfUses());
+        for (int i = 0; i < phi.getNumberOfUses(); i++) {
+          out.writeInt(phi.getUse(i));
+        }
+      } else {
+        throw new UnsupportedIRException("value " + v);
+      }
+    }
+    out.writeInt(0);
+
+    // instructions
+    for (int i = 0; i < instructions.length; i++) {
+      if (instructions[i] != null) {
+        out.writeInt(i + 1);
+        writeInstruction(instructions[i], out);
+      }
+    }
+    out.writeInt(0);
+
+    // basic blocks
+    out.writeInt(cfg.getNumberOfNodes());
+    for (int b = 0; b < cfg.getNumberOfNodes(); b++) {
+      SSACFG.BasicBlock bb = cfg.getNode(b);
+      if (bb.iteratePis().hasNext()) {
+        throw new UnsupportedIRException("pi nodes");
+      }
+      writePhis(bb.getStackSlotPhis(), symbolTable, out);
+      writePhis(bb.getLocalPhis(), symbolTable, out);
+      SSAGetCaughtExceptionInstruction c =
+          bb instanceof SSACFG.ExceptionHandlerBasicBlock
+              ? ((SSACFG.ExceptionHandlerBasicBlock) bb).getCatchInstruction()
+              : null;
+      if (c == null) {
+        out.writeInt(0);
+      } else {
+        out.writeInt(1);
+        writeInstruction(c, out);
+      }
+    }
+
+    // local map
+    IR.SSA2LocalMap localMap = ir.getLocalMap();
+    if (localMap == null) {
+      out.writeInt(0);
+    } else if (localMap instanceof SSABuilder.SSA2LocalMap) {
+      out.writeInt(1);
+      SSABuilder.SSA2LocalMap map = (SSABuilder.SSA2LocalMap) localMap;
+      IntPair[] stores = map.getLocalStoreMap();
+      out.writeInt(stores.length);
+      for (int pc = 0; pc < stores.length; pc++) {
+        if (stores[pc] != null) {
+          out.writeInt(pc + 1);
+          out.writeInt(stores[pc].getX());
+          out.writeInt(stores[pc].getY());
+        }
+      }
+      out.writeInt(0);
+      int[][] states = map.getBlock2LocalState();
+      out.writeInt(states.length);
+      for (int[] state : states) {
+        writeInts(state, out);
+      }
+    } else {
+      throw new UnsupportedIRException("local map " + localMap.getClass());
+    }
+  }
+
+  private static Value valueOrNull(SymbolTable symbolTable, int vn) {
+    try {
+      return symbolTable.getValue(vn);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  private static void writeConstant(Object value, Output out)
+      throws IOException, UnsupportedIRException {
+    if (value == null) {
+      out.writeInt(CONSTANT_NULL);
+    } else if (value instanceof Boolean) {
+      out.writeInt(CONSTANT_BOOLEAN);
+      out.writeInt((Boolean) value ? 1 : 0);
+    } else if (value instanceof Integer) {
+      out.writeInt(CONSTANT_INT);
+      out.writeInt((Integer) value);
+    } else if (value instanceof Long) {
+      out.writeInt(CONSTANT_LONG);
+      out.writeLong((Long) value);
+    } else if (value instanceof Float) {
+      out.writeInt(CONSTANT_FLOAT);
+      out.writeInt(Float.floatToRawIntBits((Float) value));
+    } else if (value instanceof Double) {
+      out.writeInt(CONSTANT_DOUBLE);
+      out.writeLong(Double.doubleToRawLongBits((Double) value));
+    } else if (value instanceof String) {
+      out.writeInt(CONSTANT_STRING);
+      out.writeString((String) value);
+    } else {
+      throw new UnsupportedIRException("constant " + value);
+    }
+  }
+
+  private static void writePhis(SSAPhiInstruction[] phis, SymbolTable symbolTable, Output out)
+      throws IOException, UnsupportedIRException {
+    if (phis == null) {
+      out.writeInt(0);
+      return;
+    }
+    out.writeInt(phis.length + 1);
+    for (SSAPhiInstruction phi : phis) {
+      if (phi == null) {
+        out.writeInt(0);
+      } else {
+        Value v = valueOrNull(symbolTable, phi.getDef());
+        if (!(v instanceof PhiValue) || ((PhiValue) v).getPhiInstruction() != phi) {
+          throw new UnsupportedIRException("phi not in symbol table: " + phi);
+        }
+        out.writeInt(phi.getDef());
+      }
+    }
+  }
+
+  private static void writeInts(int[] x, Output out) throws IOException {
+    if (x == null) {
+      out.writeInt(0);
+    } else {
+      out.writeInt(x.length + 1);
+      for (int i : x) {
+        out.writeInt(i);
+      }
+    }
+  }
+
+  private static void writeInstruction(SSAInstruction s, Output out)
+      throws IOException, UnsupportedIRException {
+    int iindex = s.iIndex();
+    if (s instanceof SSAArrayLengthInstruction) {
+      SSAArrayLengthInstruction x = (SSAArrayLengthInstruction) s;
+      out.writeInts(ARRAY_LENGTH, iindex, x.getDef(), x.getArrayRef());
+    } else if (s instanceof SSAArrayLoadInstruction) {
+      SSAArrayLoadInstruction x = (SSAArrayLoadInstruction) s;
+      out.writeInts(ARRAY_LOAD, iindex, x.getDef(), x.getArrayRef(), x.getIndex());
+      out.writeType(x.getElementType());
+    } else if (s instanceof SSAArrayStoreInstruction) {
+      SSAArrayStoreInstruction x = (SSAArrayStoreInstruction) s;
+      out.writeInts(ARRAY_STORE, iindex, x.getArrayRef(), x.getIndex(), x.getValue());
+      out.writeType(x.getElementType());
+    } else if (s instanceof SSABinaryOpInstruction) {
+      SSABinaryOpInstruction x = (SSABinaryOpInstruction) s;
+      IBinaryOpInstruction.IOperator op = x.getOperator();
+      if (op instanceof IBinaryOpInstruction.Operator) {
+        out.writeInts(BINARY_OP, iindex, ((IBinaryOpInstruction.Operator) op).ordinal());
+      } else if (op instanceof IShiftInstruction.Operator) {
+        out.writeInts(SHIFT_OP, iindex, ((IShiftInstruction.Operator) op).ordinal());
+      } else {
+        throw new UnsupportedIRException("operator " + op);
+      }
+      out.writeInts(x.getDef(), x.getUse(0), x.getUse(1), x.mayBeIntegerOp() ? 1 : 0);
+    } else if (s instanceof SSACheckCastInstruction) {
+      SSACheckCastInstruction x = (SSACheckCastInstruction) s;
+      TypeReference[] types = x.getDeclaredResultTypes();
+      out.writeInts(CHECK_CAST, iindex, x.getResult(), x.getVal(), x.isPEI() ? 1 : 0, types.length);
+      for (TypeReference t : types) {
+        out.writeType(t);
+      }
+    } else if (s instanceof SSAComparisonInstruction) {
+      SSAComparisonInstruction x = (SSAComparisonInstruction) s;
+      out.writeInts(
+          COMPARISON, iindex, x.getOperator().ordinal(), x.getDef(), x.getUse(0), x.getUse(1));
+    } else if (s instanceof SSAConditionalBranchInstruction) {
+      SSAConditionalBranchInstruction x = (SSAConditionalBranchInstruction) s;
+      if (!(x.getOperator() instanceof IConditionalBranchInstruction.Operator)) {
+        throw new UnsupportedIRException("operator " + x.getOperator());
+      }
+      out.writeInts(
+          CONDITIONAL_BRANCH,
+          iindex,
+          ((IConditionalBranchInstruction.Operator) x.getOperator()).ordinal(),
+          x.getUse(0),
+          x.getUse(1),
+          x.getTarget());
+      out.writeType(x.getType());
+    } else if (s instanceof SSAConversionInstruction) {
+      SSAConversionInstruction x = (SSAConversionInstruction) s;
+      out.writeInts(CONVERSION, iindex, x.getDef(), x.getUse(0));
+      out.writeType(x.getFromType());
+      out.writeType(x.getToType());
+    } else if (s instanceof SSAGetCaughtExceptionInstruction) {
+      SSAGetCaughtExceptionInstruction x = (SSAGetCaughtExceptionInstruction) s;
+      out.writeInts(GET_CAUGHT_EXCEPTION, iindex, x.getBasicBlockNumber(), x.getException());
+    } else if (s instanceof SSAGetInstruction) {
+      SSAGetInstruction x = (SSAGetInstruction) s;
+      out.writeInts(GET, iindex, x.getDef(), x.isStatic() ? 0 : x.getRef());
+      out.writeField(x.getDeclaredField());
+    } else if (s instanceof SSAGotoInstruction) {
+      out.writeInts(GOTO, iindex, ((SSAGotoInstruction) s).getTarget());
+    } else if (s instanceof SSAInstanceofInstruction) {
+      SSAInstanceofInstruction x = (SSAInstanceofInstruction) s;
+      out.writeInts(INSTANCEOF, iindex, x.getDef(), x.getRef());
+      out.writeType(x.getCheckedType());
+    } else if (s instanceof SSAInvokeInstruction) {
+      SSAInvokeInstruction x = (SSAInvokeInstruction) s;
+      CallSiteReference site = x.getCallSite();
+      if (!(site.getInvocationCode() instanceof IInvokeInstruction.Dispatch)) {
+        throw new UnsupportedIRException("dispatch " + site.getInvocationCode());
+      }
+      out.writeInts(
+          x instanceof SSAInvokeDynamicInstruction ? INVOKE_DYNAMIC : INVOKE,
+          iindex,
+          site.getProgramCounter(),
+          ((IInvokeInstruction.Dispatch) site.getInvocationCode()).ordinal(),
+          x.hasDef() ? x.getDef() : -1,
+          x.getException(),
+          x.getNumberOfUses());
+      for (int i = 0; i < x.getNumberOfUses(); i++) {
+        out.writeInt(x.getUse(i));
+      }
+      out.writeMethod(site.getDeclaredTarget());
+    } else if (s instanceof SSAMonitorInstruction) {
+      SSAMonitorInstruction x = (SSAMonitorInstruction) s;
+      out.writeInts(MONITOR, iindex, x.getRef(), x.isMonitorEnter() ? 1 : 0);
+    } else if (s instanceof SSANewInstruction) {
+      SSANewInstruction x = (SSANewInstruction) s;
+      out.writeInts(
+          NEW, iindex, x.getDef(), x.getNewSite().getProgramCounter(), x.getNumberOfUses());
+      for (int i = 0; i < x.getNumberOfUses(); i++) {
+        out.writeInt(x.getUse(i));
+      }
+      out.writeType(x.getNewSite().getDeclaredType());
+    } else if (s instanceof SSAPutInstruction) {
+      SSAPutInstruction x = (SSAPutInstruction) s;
+      out.writeInts(PUT, iindex, x.isStatic() ? 0 : x.getRef(), x.getVal());
+      out.writeField(x.getDeclaredField());
+    } else if (s instanceof SSAReturnInstruction) {
+      SSAReturnInstruction x = (SSAReturnInstruction) s;
+      out.writeInts(RETURN, iindex, x.getResult(), x.returnsPrimitiveType() ? 1 : 0);
+    } else if (s instanceof SSASwitchInstruction) {
+      SSASwitchInstruction x = (SSASwitchInstruction) s;
+      out.writeInts(SWITCH, iindex, x.getUse(0), x.getDefault());
+      writeInts(x.getCasesAndLabels(), out);
+    } else if (s instanceof SSAThrowInstruction) {
+      out.writeInts(THROW, iindex, ((SSAThrowInstruction) s).getException());
+    } else if (s instanceof SSAUnaryOpInstruction) {
+      SSAUnaryOpInstruction x = (SSAUnaryOpInstruction) s;
+      if (!(x.getOpcode() instanceof IUnaryOpInstruction.Operator)) {
+        throw new UnsupportedIRException("operator " + x.getOpcode());
+      }
+      out.writeInts(
+          UNARY_OP,
+          iindex,
+          ((IUnaryOpInstruction.Operator) x.getOpcode()).ordinal(),
+          x.getDef(),
+          x.getUse(0));
+    } else if (s instanceof SSALoadMetadataInstruction) {
+      SSALoadMetadataInstruction x = (SSALoadMetadataInstruction) s;
+      Object token = x.getToken();
+      if (token instanceof TypeReference) {
+        out.writeInts(LOAD_TYPE, iindex, x.getDef());
+        out.writeType((TypeReference) token);
+      } else if (token instanceof MethodReference) {
+        out.writeInts(LOAD_METHOD, iindex, x.getDef());
+        out.writeMethod((MethodReference) token);
+      } else {
+        throw new UnsupportedIRException("metadata " + token);
+      }
+      out.writeType(x.getType());
+    } else {
+      throw new UnsupportedIRException("instruction " + s);
+    }
+  }
+
+  private static IR.SSA2LocalMap readIR(
+      Input in, ShrikeCFG shrikeCFG, SSACFG cfg, SymbolTable symbolTable) throws IOException {
+    SSAInstruction[] instructions = in.instructions;
+    if (in.readInt() != instructions.length) {
+      throw new IOException("instruction count mismatch");
+    }
+
+    // symbol table
+    int max = in.readInt();
+    for (int vn = in.readInt(); vn != 0; vn = in.readInt()) {
+      switch (in.readInt()) {
+        case VALUE_CONSTANT:
+          symbolTable.restoreConstant(vn, new ConstantValue(readConstant(in)));
+          break;
+        case VALUE_PHI:
+          symbolTable.restorePhi(vn, in.readInts(in.readInt()));
+          break;
+        default:
+          throw new IOException("bad value tag");
+      }
+    }
+    if (max > 0) {
+      symbolTable.ensureSymbol(max);
+    }
+
+    // instructions
+    for (int i = in.readInt(); i != 0; i = in.readInt()) {
+      instructions[i - 1] = readInstruction(in);
+    }
+
+    // basic blocks
+    if (in.readInt() != cfg.getNumberOfNodes()) {
+      throw new IOException("basic block count mismatch");
+    }
+    for (int b = 0; b < cfg.getNumberOfNodes(); b++) {
+      SSACFG.BasicBlock bb = cfg.getNode(b);
+      int n = in.readInt() - 1;
+      for (int slot = 0; slot < n; slot++) {
+        int vn = in.readInt();
+        if (vn != 0) {
+          bb.addPhiForStackSlot(slot, symbolTable.getPhiValue(vn).getPhiInstruction());
+        }
+      }
+      n = in.readInt() - 1;
+      for (int local = 0; local < n; local++) {
+        int vn = in.readInt();
+        if (vn != 0) {
+          bb.addPhiForLocal(local, symbolTable.getPhiValue(vn).getPhiInstruction());
+        }
+      }
+      if (in.readInt() != 0) {
+        ((SSACFG.ExceptionHandlerBasicBlock) bb)
+            .setCatchInstruction((SSAGetCaughtExceptionInstruction) readInstruction(in));
+      }
+    }
+
+    // local map
+    if (in.readInt() == 0) {
+      return null;
+    }
+    IntPair[] stores = new IntPair[in.readInt()];
+    for (int pc = in.readInt(); pc != 0; pc = in.readInt()) {
+      stores[pc - 1] = new IntPair(in.readInt(), in.readInt());
+    }
+    int[][] states = new int[in.readInt()][];
+    for (int b = 0; b < states.length; b++) {
+      int n = in.readInt();
+      states[b] = n == 0 ? null : in.readInts(n - 1);
+    }
+    return new SSABuilder.SSA2LocalMap(shrikeCFG, stores, states);
+  }
+
+  private static Object readConstant(Input in) throws IOException {
+    switch (in.readInt()) {
+      case CONSTANT_NULL:
+        return null;
+      case CONSTANT_BOOLEAN:
+        return in.readInt() != 0;
+      case CONSTANT_INT:
+        return in.readInt();
+      case CONSTANT_LONG:
+        return in.readLong();
+      case CONSTANT_FLOAT:
+        return Float.intBitsToFloat(in.readInt());
+      case CONSTANT_DOUBLE:
+        return Double.longBitsToDouble(in.readLong());
+      case CONSTANT_STRING:
+        return in.readString();
+      default:
+        throw new IOException("bad constant tag");
+    }
+  }
+
+  private static SSAInstruction readInstruction(Input in) throws IOException {
+    SSAInstructionFactory insts = in.insts;
+    int tag = in.readInt();
+    int iindex = in.readInt();
+    switch (tag) {
+      case ARRAY_LENGTH:
+        return insts.ArrayLengthInstruction(iindex, in.readInt(), in.readInt());
+      case ARRAY_LOAD:
+        {
+          int def = in.readInt();
+          int ref = in.readInt();
+          int index = in.readInt();
+          return insts.ArrayLoadInstruction(iindex, def, ref, index, in.readType());
+        }
+      case ARRAY_STORE:
+        {
+          int ref = in.readInt();
+          int index = in.readInt();
+          int value = in.readInt();
+          return insts.ArrayStoreInstruction(iindex, ref, index, value, in.readType());
+        }
+      case BINARY_OP:
+      case SHIFT_OP:
+        {
+          int ordinal = in.readInt();
+          IBinaryOpInstruction.IOperator op =
+              tag == BINARY_OP
+                  ? IBinaryOpInstruction.Operator.values()[ordinal]
+                  : IShiftInstruction.Operator.values()[ordinal];
+          int def = in.readInt();
+          int val1 = in.readInt();
+          int val2 = in.readInt();
+          boolean mayBeInteger = in.readInt() != 0;
+          return insts.BinaryOpInstruction(
+              iindex, op, false, false, def, val1, val2, mayBeInteger);
+        }
+      case CHECK_CAST:
+        {
+          int def = in.readInt();
+          int val = in.readInt();
+          boolean isPEI = in.readInt() != 0;
+          TypeReference[] types = new TypeReference[in.readInt()];
+          for (int i = 0; i < types.length; i++) {
+            types[i] = in.readType();
+          }
+          return insts.CheckCastInstruction(iindex, def, val, types, isPEI);
+        }
+      case COMPARISON:
+        return insts.ComparisonInstruction(
+            iindex,
+            IComparisonInstruction.Operator.values()[in.readInt()],
+            in.readInt(),
+            in.readInt(),
+            in.readInt());
+      case CONDITIONAL_BRANCH:
+        {
+          IConditionalBranchInstruction.Operator op =
+              IConditionalBranchInstruction.Operator.values()[in.readInt()];
+          int val1 = in.readInt();
+          int val2 = in.readInt();
+          int target = in.readInt();
+          return insts.ConditionalBranchInstruction(iindex, op, in.readType(), val1, val2, target);
+        }
+      case CONVERSION:
+        {
+          int def = in.readInt();
+          int val = in.readInt();
+          TypeReference from = in.readType();
+          return insts.ConversionInstruction(iindex, def, val, from, in.readType(), false);
+        }
+      case GET_CAUGHT_EXCEPTION:
+        return insts.GetCaughtExceptionInstruction(iindex, in.readInt(), in.readInt());
+      case GET:
+        {
+          int def = in.readInt();
+          int ref = in.readInt();
+          FieldReference f = in.readField();
+          return ref == 0
+              ? insts.GetInstruction(iindex, def, f)
+              : insts.GetInstruction(iindex, def, ref, f);
+        }
+      case GOTO:
+        return insts.GotoInstruction(iindex, in.readInt());
+      case INSTANCEOF:
+        {
+          int def = in.readInt();
+          int ref = in.readInt();
+          return insts.InstanceofInstruction(iindex, def, ref, in.readType());
+        }
+      case INVOKE:
+      case INVOKE_DYNAMIC:
+        {
+          int pc = in.readInt();
+          IInvokeInstruction.Dispatch dispatch = IInvokeInstruction.Dispatch.values()[in.readInt()];
+          int def = in.readInt();
+          int exception = in.readInt();
+          int[] params = in.readInts(in.readInt());
+          CallSiteReference site = CallSiteReference.make(pc, in.readMethod(), dispatch);
+          BootstrapMethod bootstrap = tag == INVOKE_DYNAMIC ? in.getBootstrap(iindex) : null;
+          return insts.InvokeInstruction(iindex, def, params, exception, site, bootstrap);
+        }
+      case MONITOR:
+        return insts.MonitorInstruction(iindex, in.readInt(), in.readInt() != 0);
+      case NEW:
+        {
+          int def = in.readInt();
+          int pc = in.readInt();
+          int[] params = in.readInts(in.readInt());
+          NewSiteReference site = NewSiteReference.make(pc, in.readType());
+          return params.length == 0
+              ? insts.NewInstruction(iindex, def, site)
+              : insts.NewInstruction(iindex, def, site, params);
+        }
+      case PUT:
+        {
+          int ref = in.readInt();
+          int val = in.readInt();
+          FieldReference f = in.readField();
+          return ref == 0
+              ? insts.PutInstruction(iindex, val, f)
+              : insts.PutInstruction(iindex, ref, val, f);
+        }
+      case RETURN:
+        {
+          int result = in.readInt();
+          boolean isPrimitive = in.readInt() != 0;
+          return result == -1
+              ? insts.ReturnInstruction(iindex)
+              : insts.ReturnInstruction(iindex, result, isPrimitive);
+        }
+      case SWITCH:
+        {
+          int val = in.readInt();
+          int defaultLabel = in.readInt();
+          int n = in.readInt();
+          int[] casesAndLabels = n == 0 ? null : in.readInts(n - 1);
+          return insts.SwitchInstruction(iindex, val, defaultLabel, casesAndLabels);
+        }
+      case THROW:
+        return insts.ThrowInstruction(iindex, in.readInt());
+      case UNARY_OP:
+        return insts.UnaryOpInstruction(
+            iindex,
+            IUnaryOpInstruction.Operator.values()[in.readInt()],
+            in.readInt(),
+            in.readInt());
+      case LOAD_TYPE:
+      case LOAD_METHOD:
+        {
+          int def = in.readInt();
+          Object token = tag == LOAD_TYPE ? in.readType() : in.readMethod();
+          return insts.LoadMetadataInstruction(iindex, def, in.readType(), token);
+        }
+      default:
+        throw new IOException("bad instruction tag " + tag);
+    }
+  }
+
+  /**
+   * Writes variable-length integers and a table of strings shared by all type, field and method
+   * references in one IR.
+   */
+  private static class Output implements AutoCloseable {
+    private final DataOutputStream out;
+
+    private final Map<Object, Integer> table = HashMapFactory.make();
+
+    Output(DataOutputStream out) {
+      this.out = out;
+    }
+
+    /** zig-zag encoded, so that the small negative numbers used as markers stay short */
+    void writeInt(int v) throws IOException {
+      int x = (v << 1) ^ (v >> 31);
+      while ((x & ~0x7f) != 0) {
+        out.writeByte((x & 0x7f) | 0x80);
+        x >>>= 7;
+      }
+      out.writeByte(x);
+    }
+
+    void writeInts(int... vs) throws IOException {
+      for (int v : vs) {
+        writeInt(v);
+      }
+    }
+
+    void writeLong(long v) throws IOException {
+      out.writeLong(v);
+    }
+
+    void writeString(String s) throws IOException {
+      byte[] b = s.getBytes(StandardCharsets.UTF_8);
+      writeInt(b.length);
+      out.write(b);
+    }
+
+    /** write a back reference if key was seen before; otherwise assign it the next index */
+    private boolean writeReference(Object key) throws IOException {
+      Integer index = table.get(key);
+      if (index != null) {
+        writeInt(index);
+        return true;
+      }
+      table.put(key, table.size() + 1);
+      writeInt(0);
+      return false;
+    }
+
+    void writeName(TypeName name) throws IOException {
+      if (!writeReference(name)) {
+        writeString(name.toString());
+      }
+    }
+
+    void writeType(TypeReference t) throws IOException {
+      if (!writeReference(t)) {
+        writeString(t.getClassLoader().getName().toString());
+        writeName(t.getName());
+      }
+    }
+
+    void writeField(FieldReference f) throws IOException {
+      if (!writeReference(f)) {
+        writeType(f.getDeclaringClass());
+        writeString(f.getName().toString());
+        writeType(f.getFieldType());
+      }
+    }
+
+    void writeMethod(MethodReference m) throws IOException {
+      if (!writeReference(m)) {
+        writeType(m.getDeclaringClass());
+        writeString(m.getName().toString());
+        Descriptor d = m.getDescriptor();
+        writeInt(d.getNumberOfParameters());
+        for (int i = 0; i < d.getNumberOfParameters(); i++) {
+          writeName(d.getParameters()[i]);
+        }
+        writeName(d.getReturnType());
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.close();
+    }
+  }
+
+  /** The reading side of {@link Output} */
+  private static class Input implements AutoCloseable {
+    private final DataInputStream in;
+
+    private final IBytecodeMethod<?> method;
+
+    private final SSAInstruction[] instructions;
+
+    private final SSAInstructionFactory insts;
+
+    private final List<Object> table = new ArrayList<>();
+
+    private final Map<String, ClassLoaderReference> loaders = HashMapFactory.make();
+
+    Input(DataInputStream in, IBytecodeMethod<?> method, SSAInstruction[] instructions) {
+      this.in = in;
+      this.method = method;
+      this.instructions = instructions;
+      this.insts = method.getDeclaringClass().getClassLoader().getInstructionFactory();
+      for (ClassLoaderReference l :
+          new ClassLoaderReference[] {
+            ClassLoaderReference.Primordial,
+            ClassLoaderReference.Extension,
+            ClassLoaderReference.Application
+          }) {
+        loaders.put(l.getName().toString(), l);
+      }
+      for (IClassLoader l : method.getClassHierarchy().getLoaders()) {
+        loaders.put(l.getName().toString(), l.getReference());
+      }
+    }
+
+    int readInt() throws IOException {
+      int x = 0;
+      for (int shift = 0; shift < 35; shift += 7) {
+        int b = in.readByte();
+        x |= (b & 0x7f) << shift;
+        if ((b & 0x80) == 0) {
+          return (x >>> 1) ^ -(x & 1);
+        }
+      }
+      throw new IOException("bad integer");
+    }
+
+    int[] readInts(int n) throws IOException {
+      if (n < 0) {
+        throw new IOException("bad length " + n);
+      }
+      int[] result = new int[n];
+      for (int i = 0; i < n; i++) {
+        result[i] = readInt();
+      }
+      return result;
+    }
+
+    long readLong() throws IOException {
+      return in.readLong();
+    }
+
+    String readString() throws IOException {
+      int n = readInt();
+      if (n < 0 || n > in.available()) {
+        throw new EOFException();
+      }
+      byte[] b = new byte[n];
+      in.readFully(b);
+      return new String(b, StandardCharsets.UTF_8);
+    }
+
+    /** @return the object referenced, or null if a new one follows and must be registered */
+    private Object readReference() throws IOException {
+      int index = readInt();
+      if (index == 0) {
+        table.add(null);
+        return null;
+      }
+      return table.get(index - 1);
+    }
+
+    private <T> T register(int slot, T value) {
+      table.set(slot, value);
+      return value;
+    }
+
+    TypeName readName() throws IOException {
+      Object ref = readReference();
+      if (ref != null) {
+        return (TypeName) ref;
+      }
+      int slot = table.size() - 1;
+      return register(slot, TypeName.findOrCreate(readString()));
+    }
+
+    TypeReference readType() throws IOException {
+      Object ref = readReference();
+      if (ref != null) {
+        return (TypeReference) ref;
+      }
+      int slot = table.size() - 1;
+      String loaderName = readString();
+      ClassLoaderReference loader = loaders.get(loaderName);
+      if (loader == null) {
+        throw new IOException("unknown loader " + loaderName);
+      }
+      return register(slot, TypeReference.findOrCreate(loader, readName()));
+    }
+
+    FieldReference readField() throws IOException {
+      Object ref = readReference();
+      if (ref != null) {
+        return (FieldReference) ref;
+      }
+      int slot = table.size() - 1;
+      TypeReference declaringClass = readType();
+      Atom name = Atom.findOrCreateUnicodeAtom(readString());
+      return register(slot, FieldReference.findOrCreate(declaringClass, name, readType()));
+    }
+
+    MethodReference readMethod() throws IOException {
+      Object ref = readReference();
+      if (ref != null) {
+        return (MethodReference) ref;
+      }
+      int slot = table.size() - 1;
+      TypeReference declaringClass = readType();
+      Atom name = Atom.findOrCreateUnicodeAtom(readString());
+      TypeName[] parameters = new TypeName[readInt()];
+      for (int i = 0; i < parameters.length; i++) {
+        parameters[i] = readName();
+      }
+      Descriptor d = Descriptor.findOrCreate(parameters, readName());
+      return register(
+          slot, MethodReference.findOrCreate(declaringClass, new Selector(name, d)));
+    }
+
+    /** bootstrap methods are not written out; they are cheap to recover from the bytecode */
+    BootstrapMethod getBootstrap(int iindex) throws IOException {
+      try {
+        Object s = method.getInstructions()[iindex];
+        if (!(s instanceof InvokeDynamicInstruction)) {
+          throw new IOException("no invokedynamic at " + iindex);
+        }
+        return ((InvokeDynamicInstruction) s).getBootstrap();
+      } catch (InvalidClassFileException e) {
+        throw new IOException(e);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ssa;
+
+import com.ibm.wala.classLoader.IBytecodeMethod;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.ShrikeCTMethod;
+import com.ibm.wala.classLoader.ShrikeClass;
+import com.ibm.wala.classLoader.ShrikeIRFactory;
+import com.ibm.wala.core.util.io.HashedFileStore;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.shrike.shrikeBT.IInstruction;
+import com.ibm.wala.util.collections.HashMapFactory;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An {@link IRFactory} that keeps the IRs of bytecode methods on disk, so that later analysis runs
+ * over the same class files can skip SSA construction.
+ *
+ * <p>The factory keeps one file per class in a directory, named by the SHA-256 hash of the class
+ * loader name and the class file contents. The file maps each method selector to the form written
+ * by {@link IRSerializer}. A class file that has changed has a different hash, so its IRs are
+ * built afresh. IRs are built and restored by a {@link ShrikeIRFactory}.
+ *
+ * <p>The stored IRs do not record the {@link SSAOptions} they were built with, so only IRs built
+ * with the default options, without an {@link SSAPiNodePolicy} or {@link
+ * SSAOptions.DefaultValues}, are persisted. Other IRs, and the IRs of synthetic methods and methods
+ * not read from class files, are passed to the delegate factory. Call {@link #save()} to write the
+ * IRs built since the last save; it also drops the stored IRs held in memory, which are read again
+ * from disk when they are next needed.
+ */
+public class PersistentIRFactory implements IRFactory<IMethod> {
+
+  private static final int MAGIC = 0x57495243;
+
+  private static final int VERSION = 1;
+
+  private static final String SUFFIX = ".irc";
+
+  private final IRFactory<IMethod> delegate;
+
+  private final ShrikeIRFactory shrikeFactory = new ShrikeIRFactory();
+
+  /** the IR files */
+  private final HashedFileStore store;
+
+  /** the IRs of each class seen since the last save, indexed by the hash of its class file */
+  private final Map<String, ClassIRs> classes = new ConcurrentHashMap<>();
+
+  /** the hash of each class seen so far; the classes are not kept alive by this map */
+  private final Map<IClass, String> hashes = Collections.synchronizedMap(new WeakHashMap<>());
+
+  /** how many IRs were restored from disk */
+  private final AtomicInteger hits = new AtomicInteger();
+
+  /** how many IRs had to be built */
+  private final AtomicInteger misses = new AtomicInteger();
+
+  /** @throws IllegalArgumentException if directory is null */
+  public PersistentIRFactory(File directory) {
+    this(new DefaultIRFactory(), directory);
+  }
+
+  /**
+   * @param delegate factory for the methods whose IRs are not persisted
+   * @throws IllegalArgumentException if delegate or directory is null
+   */
+  public PersistentIRFactory(IRFactory<IMethod> delegate, File directory) {
+    if (delegate == null) {
+      throw new IllegalArgumentException("delegate is null");
+    }
+    this.delegate = delegate;
+    this.store = new HashedFileStore(directory, SUFFIX, MAGIC, VERSION, IRSerializer.VERSION);
+  }
+
+  public File getDirectory() {
+    return store.getDirectory();
+  }
+
+  /** @return how many IRs have been restored from disk */
+  public int getNumberOfHits() {
+    return hits.get();
+  }
+
+  /** @return how many IRs of persistable methods have been built because none was stored */
+  public int getNumberOfMisses() {
+    return misses.get();
+  }
+
+  /** The stored IRs of one class, indexed by method selector. */
+  private static final class ClassIRs {
+    private final String hash;
+
+    private final Map<String, byte[]> irs;
+
+    /** how many IRs have been added to this class */
+    private final AtomicInteger changes = new AtomicInteger();
+
+    /** the value of {@link #changes} when this class was last written */
+    private int savedChanges;
+
+    private ClassIRs(String hash, Map<String, byte[]> irs) {
+      this.hash = hash;
+      this.irs = irs;
+    }
+  }
+
+  @Override
+  public IR makeIR(IMethod method, Context c, SSAOptions options) {
+    if (method == null) {
+      throw new IllegalArgumentException("method cannot be null");
+    }
+    if (!isPersistable(method, options)) {
+      return delegate.makeIR(method, c, options);
+    }
+    @SuppressWarnings("unchecked")
+    IBytecodeMethod<IInstruction> castMethod = (IBytecodeMethod<IInstruction>) method;
+    ClassIRs irs = getClassIRs((ShrikeClass) method.getDeclaringClass());
+    String key = method.getSelector().toString();
+    byte[] data = irs.irs.get(key);
+    if (data != null) {
+      try {
+        IR ir = shrikeFactory.restoreIR(castMethod, options, data);
+        hits.incrementAndGet();
+        return ir;
+      } catch (IOException e) {
+        // a damaged entry is dropped and rebuilt below
+        irs.irs.remove(key);
+      }
+    }
+    misses.incrementAndGet();
+    IR ir = shrikeFactory.makeIR(castMethod, c, options);
+    data = IRSerializer.toBytes(ir);
+    if (data != null) {
+      irs.irs.put(key, data);
+      irs.changes.incrementAndGet();
+    }
+    return ir;
+  }
+
+  private static boolean isPersistable(IMethod method, SSAOptions options) {
+    return method instanceof ShrikeCTMethod
+        && method.getDeclaringClass() instanceof ShrikeClass
+        && SSAOptions.defaultOptions().equals(options)
+        && options.getDefaultValues() == null;
+  }
+
+  @Override
+  public boolean contextIsIrrelevant(IMethod method) {
+    if (method == null) {
+      throw new IllegalArgumentException("null method");
+    }
+    return method instanceof ShrikeCTMethod || delegate.contextIsIrrelevant(method);
+  }
+
+  private ClassIRs getClassIRs(ShrikeClass klass) {
+    String hash = hashes.get(klass);
+    if (hash == null) {
+      // hash outside the lock, so that threads do not wait for each other's class files
+      hash = hash(klass);
+      hashes.put(klass, hash);
+    }
+    return classes.computeIfAbsent(hash, h -> new ClassIRs(h, read(h)));
+  }
+
+  private static String hash(IClass klass) {
+    MessageDigest digest = HashedFileStore.makeDigest();
+    digest.update(
+        klass.getClassLoader().getName().toString().getBytes(StandardCharsets.UTF_8));
+    digest.update(((ShrikeClass) klass).getReader().getBytes());
+    return HashedFileStore.toHash(digest);
+  }
+
+  private Map<String, byte[]> read(String hash) {
+    Map<String, byte[]> irs = store.read(hash, PersistentIRFactory::readIRs);
+    // a missing or damaged file will be rewritten from the IRs built in this run
+    return irs == null ? new ConcurrentHashMap<>() : irs;
+  }
+
+  private static Map<String, byte[]> readIRs(ByteBuffer buffer) {
+    Map<String, byte[]> result = new ConcurrentHashMap<>();
+    int count = buffer.getInt();
+    for (int i = 0; i < count; i++) {
+      String selector = new String(HashedFileStore.readBytes(buffer), StandardCharsets.UTF_8);
+      result.put(selector, HashedFileStore.readBytes(buffer));
+    }
+    return result;
+  }
+
+  /**
+   * Write the IRs of all classes for which IRs have been built since they were last written, and
+   * drop the IRs held in memory for the classes that are then up to date on disk. A class whose
+   * file could not be written keeps its IRs, so that a later save can write them.
+   */
+  public void save() throws IOException {
+    for (Iterator<ClassIRs> it = classes.values().iterator(); it.hasNext(); ) {
+      ClassIRs c = it.next();
+      int changes = c.changes.get();
+      if (changes != c.savedChanges) {
+        write(c);
+        c.savedChanges = changes;
+      }
+      // IRs added while the file was written are kept for the next save
+      if (c.changes.get() == c.savedChanges) {
+        it.remove();
+      }
+    }
+  }
+
+  private void write(ClassIRs c) throws IOException {
+    Map<String, byte[]> irs = HashMapFactory.make(c.irs);
+    store.write(
+        c.hash,
+        out -> {
+          out.writeInt(irs.size());
+          for (Map.Entry<String, byte[]> e : irs.entrySet()) {
+            HashedFileStore.writeBytes(out, e.getKey().getBytes(StandardCharsets.UTF_8));
+            HashedFileStore.writeBytes(out, e.getValue());
+          }
+        });
+  }
+}
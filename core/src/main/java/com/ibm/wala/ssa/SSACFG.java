@@ -379,6 +379,18 @@ public class SSACFG
       localPhis[n] = phi;
     }
 
+    /** @return the phis for stack slots indexed by slot, or null; used by {@link IRSerializer} */
+    SSAPhiInstruction[] getStackSlotPhis() {
+      return stackSlotPhis;
+    }
+
+    /**
+     * @return the phis for locals indexed by local number, or null; used by {@link IRSerializer}
+     */
+    SSAPhiInstruction[] getLocalPhis() {
+      return localPhis;
+    }
+
     /** Remove any phis in the set. */
     public void removePhis(Set<SSAPhiInstruction> toRemove) {
       int nRemoved = 0;
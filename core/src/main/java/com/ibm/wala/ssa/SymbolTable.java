@@ -354,6 +354,29 @@ public class SymbolTable implements Cloneable {
     return result;
   }
 
+  /**
+   * Re-establish a constant at a given value number, as recorded by {@link IRSerializer}.
+   *
+   * @param vn the value number the constant had when the IR was written
+   */
+  void restoreConstant(int vn, ConstantValue v) {
+    ensureSymbol(vn);
+    values[vn] = v;
+    constants.putIfAbsent(v, vn);
+  }
+
+  /**
+   * Re-establish a phi at a given value number, as recorded by {@link IRSerializer}.
+   *
+   * @return the phi instruction which defines vn
+   */
+  SSAPhiInstruction restorePhi(int vn, int[] rhs) {
+    ensureSymbol(vn);
+    SSAPhiInstruction phi = new SSAPhiInstruction(SSAInstruction.NO_INDEX, vn, rhs);
+    values[vn] = new PhiValue(phi);
+    return phi;
+  }
+
   /** Return the PhiValue that is associated with a given value number */
   public PhiValue getPhiValue(int valueNumber) {
     try {
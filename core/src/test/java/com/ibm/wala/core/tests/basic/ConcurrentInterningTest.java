@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.basic;
+
+import com.ibm.wala.core.util.strings.Atom;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Check that names and references created on several threads at once are still canonical. */
+public class ConcurrentInterningTest {
+
+  private static final int THREADS = 4;
+
+  private static final int NAMES = 2000;
+
+  @Test
+  public void testConcurrentInterning() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<List<Object>>> results = new ArrayList<>();
+      for (int i = 0; i < THREADS; i++) {
+        results.add(executor.submit(ConcurrentInterningTest::intern));
+      }
+      List<Object> expected = results.get(0).get();
+      for (Future<List<Object>> f : results) {
+        List<Object> actual = f.get();
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+          Assert.assertSame(expected.get(i), actual.get(i));
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static List<Object> intern() {
+    List<Object> result = new ArrayList<>();
+    for (int i = 0; i < NAMES; i++) {
+      TypeReference type =
+          TypeReference.findOrCreate(
+              ClassLoaderReference.Application, "Linterning/C" + (i % (NAMES / 10)));
+      result.add(Atom.findOrCreateUnicodeAtom("name" + i));
+      result.add(type);
+      result.add(FieldReference.findOrCreate(type, Atom.findOrCreateUnicodeAtom("f" + i), type));
+      result.add(
+          MethodReference.findOrCreate(
+              type, "m" + i, "(Linterning/C" + (i % 7) + ";)Linterning/C" + (i % 3) + ';'));
+    }
+    return result;
+  }
+}
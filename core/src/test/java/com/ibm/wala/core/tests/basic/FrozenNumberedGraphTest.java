@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.basic;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.SSACFG;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.graph.dominators.Dominators;
+import com.ibm.wala.util.graph.impl.FrozenNumberedGraph;
+import com.ibm.wala.util.graph.impl.SlowSparseNumberedGraph;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.intset.MutableIntSet;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Check that a {@link FrozenNumberedGraph} has the nodes, numbers and edges of its original. */
+public class FrozenNumberedGraphTest extends WalaTestCase {
+
+  @Test
+  public void testRandomGraphs() {
+    Random r = new Random(31);
+    for (int round = 0; round < 50; round++) {
+      NumberedGraph<Integer> g = SlowSparseNumberedGraph.make();
+      int n = 1 + r.nextInt(60);
+      for (int i = 0; i < n; i++) {
+        g.addNode(i);
+      }
+      for (int e = r.nextInt(3 * n); e > 0; e--) {
+        g.addEdge(r.nextInt(n), r.nextInt(n));
+      }
+      // leave holes in the numbering
+      for (int i = r.nextInt(3); i > 0 && n > 2; i--) {
+        Integer victim = r.nextInt(n);
+        if (g.containsNode(victim)) {
+          g.removeNodeAndEdges(victim);
+        }
+      }
+      assertSameGraph(g, FrozenNumberedGraph.freeze(g));
+    }
+  }
+
+  @Test
+  public void testDominators() {
+    Random r = new Random(37);
+    for (int round = 0; round < 20; round++) {
+      NumberedGraph<Integer> g = SlowSparseNumberedGraph.make();
+      int n = 1 + r.nextInt(40);
+      for (int i = 0; i < n; i++) {
+        g.addNode(i);
+      }
+      for (int e = r.nextInt(2 * n); e > 0; e--) {
+        g.addEdge(r.nextInt(n), r.nextInt(n));
+      }
+      Dominators<Integer> expected = Dominators.make(g, 0);
+      Dominators<Integer> frozen = Dominators.make(FrozenNumberedGraph.freeze(g), 0);
+      for (Integer x : g) {
+        Assert.assertEquals(x.toString(), expected.getIdom(x), frozen.getIdom(x));
+      }
+    }
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testImmutable() {
+    NumberedGraph<String> g = SlowSparseNumberedGraph.make();
+    g.addNode("A");
+    g.addNode("B");
+    FrozenNumberedGraph.freeze(g).addEdge("A", "B");
+  }
+
+  @Test
+  public void testFreezeCallGraph()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(cha, "Ldemandpa/TestArrayList");
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    SSAPropagationCallGraphBuilder builder =
+        Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha);
+    CallGraph cg = builder.makeCallGraph(options, null);
+
+    NumberedGraph<CGNode> copy = SlowSparseNumberedGraph.duplicate(cg);
+    Map<String, Set<CGNode>> targets = HashMapFactory.make();
+    for (CGNode n : cg) {
+      for (Iterator<CallSiteReference> it = n.iterateCallSites(); it.hasNext(); ) {
+        CallSiteReference site = it.next();
+        targets.put(n + "@" + site, cg.getPossibleTargets(n, site));
+      }
+    }
+
+    ExplicitCallGraph explicit = (ExplicitCallGraph) cg;
+    explicit.freeze();
+    Assert.assertTrue(explicit.isFrozen());
+    assertSameGraph(copy, cg);
+    for (CGNode n : cg) {
+      for (Iterator<CallSiteReference> it = n.iterateCallSites(); it.hasNext(); ) {
+        CallSiteReference site = it.next();
+        Assert.assertEquals(targets.get(n + "@" + site), cg.getPossibleTargets(n, site));
+      }
+    }
+    CGNode root = cg.getFakeRootNode();
+    try {
+      root.addTarget(root.iterateCallSites().next(), cg.getFakeWorldClinitNode());
+      Assert.fail("added a target to a frozen call graph");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+
+    SSACFG cfg = cg.getEntrypointNodes().iterator().next().getIR().getControlFlowGraph();
+    assertSameGraph(cfg, FrozenNumberedGraph.freeze(cfg));
+  }
+
+  @Test
+  public void testFreezeCallGraphOption()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    IClassHierarchy cha = CallGraphTestUtil.makeRegressionClassHierarchy();
+    SSAPropagationCallGraphBuilder plain =
+        CallGraphTestUtil.makeZeroOneCFABuilder(cha, "Ldemandpa/TestArrayList");
+    CallGraph expected = plain.makeCallGraph(plain.getOptions(), null);
+    Assert.assertFalse(((ExplicitCallGraph) expected).isFrozen());
+
+    SSAPropagationCallGraphBuilder frozen =
+        CallGraphTestUtil.makeZeroOneCFABuilder(cha, "Ldemandpa/TestArrayList");
+    frozen.getOptions().setFreezeCallGraph(true);
+    CallGraph cg = frozen.makeCallGraph(frozen.getOptions(), null);
+    Assert.assertTrue(((ExplicitCallGraph) cg).isFrozen());
+    Assert.assertEquals(CallGraphTestUtil.edges(expected), CallGraphTestUtil.edges(cg));
+    Assert.assertEquals(
+        CallGraphTestUtil.pointsToSets(plain.getPointerAnalysis()),
+        CallGraphTestUtil.pointsToSets(frozen.getPointerAnalysis()));
+
+    // updates change the call graph, so it stays mutable
+    SSAPropagationCallGraphBuilder incremental =
+        CallGraphTestUtil.makeZeroOneCFABuilder(cha, "Ldemandpa/TestArrayList");
+    incremental.getOptions().setFreezeCallGraph(true);
+    incremental.getOptions().setIncrementalUpdates(true);
+    cg = incremental.makeCallGraph(incremental.getOptions(), null);
+    Assert.assertFalse(((ExplicitCallGraph) cg).isFrozen());
+  }
+
+  private static <T> void assertSameGraph(NumberedGraph<T> expected, NumberedGraph<T> actual) {
+    Assert.assertEquals(expected.getNumberOfNodes(), actual.getNumberOfNodes());
+    Assert.assertEquals(
+        Iterator2Collection.toSet(expected.iterator()),
+        Iterator2Collection.toSet(actual.iterator()));
+    for (T n : expected) {
+      int x = expected.getNumber(n);
+      Assert.assertEquals(x, actual.getNumber(n));
+      Assert.assertSame(n, actual.getNode(x));
+      assertSameNumbers(expected.getSuccNodeNumbers(n), actual.getSuccNodeNumbers(n));
+      // some graphs, such as CFGs, do not number their predecessors
+      MutableIntSet preds = IntSetUtil.make();
+      for (Iterator<T> it = expected.getPredNodes(n); it.hasNext(); ) {
+        preds.add(expected.getNumber(it.next()));
+      }
+      assertSameNumbers(preds, actual.getPredNodeNumbers(n));
+      Assert.assertEquals(
+          Iterator2Collection.toSet(expected.getSuccNodes(n)),
+          Iterator2Collection.toSet(actual.getSuccNodes(n)));
+      Assert.assertEquals(
+          Iterator2Collection.toSet(expected.getPredNodes(n)),
+          Iterator2Collection.toSet(actual.getPredNodes(n)));
+      Assert.assertEquals(expected.getSuccNodeCount(n), actual.getSuccNodeCount(n));
+      Assert.assertEquals(expected.getPredNodeCount(n), actual.getPredNodeCount(n));
+      for (T m : expected) {
+        Assert.assertEquals(n + " -> " + m, expected.hasEdge(n, m), actual.hasEdge(n, m));
+      }
+    }
+  }
+
+  private static void assertSameNumbers(IntSet expected, IntSet actual) {
+    if (expected == null || expected.isEmpty()) {
+      Assert.assertTrue(actual == null || actual.isEmpty());
+    } else {
+      Assert.assertTrue(expected + " vs " + actual, expected.sameValue(actual));
+    }
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.basic;
+
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.dataflow.graph.BitVectorSolver;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphTransitiveClosure;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ipa.modref.GenReach;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.graph.Graph;
+import com.ibm.wala.util.graph.impl.SlowSparseNumberedGraph;
+import com.ibm.wala.util.intset.OrdinalSet;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Check that the SCC-based solution of {@link GenReach} agrees with the dataflow solver, and that
+ * the call graph closures built on it agree with each other.
+ */
+public class GenReachTest extends WalaTestCase {
+
+  @Test
+  public void testCycle() throws CancelException {
+    Graph<Integer> g = SlowSparseNumberedGraph.make();
+    for (int i = 0; i < 5; i++) {
+      g.addNode(i);
+    }
+    // 0 -> 1 -> 2 -> 1, 2 -> 3, 4 alone
+    g.addEdge(0, 1);
+    g.addEdge(1, 2);
+    g.addEdge(2, 1);
+    g.addEdge(2, 3);
+    Map<Integer, Collection<String>> gen = HashMapFactory.make();
+    gen.put(0, Collections.singleton("a"));
+    gen.put(2, Collections.singleton("b"));
+    gen.put(4, Collections.singleton("c"));
+
+    Map<Integer, OrdinalSet<String>> result = GenReach.solve(g, gen);
+    Assert.assertEquals(Collections.singleton("a"), toSet(result.get(0)));
+    Assert.assertEquals(HashSetFactory.make(Arrays.asList("a", "b")), toSet(result.get(1)));
+    Assert.assertEquals(Collections.singleton("c"), toSet(result.get(4)));
+    // nodes of one cycle, and a node that adds nothing to its only predecessor, share a result
+    Assert.assertSame(result.get(1), result.get(2));
+    Assert.assertSame(result.get(2), result.get(3));
+    checkAgainstSolver(g, gen, result);
+  }
+
+  @Test
+  public void testRandomGraphs() throws CancelException {
+    Random r = new Random(17);
+    for (int round = 0; round < 20; round++) {
+      Graph<Integer> g = SlowSparseNumberedGraph.make();
+      int n = 1 + r.nextInt(60);
+      for (int i = 0; i < n; i++) {
+        g.addNode(i);
+      }
+      for (int e = r.nextInt(2 * n); e > 0; e--) {
+        g.addEdge(r.nextInt(n), r.nextInt(n));
+      }
+      Map<Integer, Collection<String>> gen = HashMapFactory.make();
+      for (int i = 0; i < n; i++) {
+        if (r.nextBoolean()) {
+          gen.put(i, Collections.singleton("v" + r.nextInt(10)));
+        }
+      }
+      checkAgainstSolver(g, gen, GenReach.solve(g, gen));
+    }
+  }
+
+  @Test
+  public void testTransitiveClosureOnDemand()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    IClassHierarchy cha = CallGraphTestUtil.makeRegressionClassHierarchy();
+    SSAPropagationCallGraphBuilder builder =
+        CallGraphTestUtil.makeZeroOneCFABuilder(cha, "Ldemandpa/TestArrayList");
+    CallGraph cg = builder.makeCallGraph(builder.getOptions(), null);
+    Function<CGNode, Collection<String>> declaringClass =
+        n -> Collections.singleton(n.getMethod().getDeclaringClass().getName().toString());
+    Map<CGNode, OrdinalSet<String>> expected =
+        CallGraphTransitiveClosure.transitiveClosure(
+            cg, CallGraphTransitiveClosure.collectNodeResults(cg, declaringClass));
+
+    // look up the nodes in a random order, so that later lookups reuse results of earlier ones
+    Map<CGNode, Integer> computed = HashMapFactory.make();
+    Map<CGNode, OrdinalSet<String>> onDemand =
+        CallGraphTransitiveClosure.transitiveClosureOnDemand(
+            cg,
+            n -> {
+              computed.merge(n, 1, Integer::sum);
+              return declaringClass.apply(n);
+            });
+    List<CGNode> nodes = new ArrayList<>(Iterator2Collection.toList(cg.iterator()));
+    Collections.shuffle(nodes, new Random(23));
+    for (CGNode n : nodes) {
+      Assert.assertEquals(n.toString(), toSet(expected.get(n)), toSet(onDemand.get(n)));
+    }
+    // each individual result is computed once
+    Assert.assertEquals(cg.getNumberOfNodes(), computed.size());
+    Assert.assertEquals(Collections.singleton(1), HashSetFactory.make(computed.values()));
+  }
+
+  private static void checkAgainstSolver(
+      Graph<Integer> g,
+      Map<Integer, Collection<String>> gen,
+      Map<Integer, OrdinalSet<String>> result)
+      throws CancelException {
+    GenReach<Integer, String> gr = new GenReach<>(g, gen);
+    BitVectorSolver<Integer> solver = new BitVectorSolver<>(gr);
+    solver.solve(null);
+    for (Integer n : g) {
+      Assert.assertEquals(
+          n.toString(),
+          toSet(new OrdinalSet<>(solver.getOut(n).getValue(), gr.getLatticeValues())),
+          toSet(result.get(n)));
+    }
+  }
+
+  private static Set<String> toSet(OrdinalSet<String> s) {
+    Set<String> result = HashSetFactory.make();
+    for (String x : s) {
+      result.add(x);
+    }
+    return result;
+  }
+}
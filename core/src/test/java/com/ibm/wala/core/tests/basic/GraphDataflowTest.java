@@ -19,8 +19,11 @@ import com.ibm.wala.dataflow.graph.BitVectorSolver;
 import com.ibm.wala.dataflow.graph.BitVectorUnion;
 import com.ibm.wala.dataflow.graph.BitVectorUnionConstant;
 import com.ibm.wala.dataflow.graph.ITransferFunctionProvider;
+import com.ibm.wala.fixedpoint.impl.IWorklist;
+import com.ibm.wala.fixedpoint.impl.WorklistStrategy;
 import com.ibm.wala.fixpoint.BitVectorVariable;
 import com.ibm.wala.fixpoint.UnaryOperator;
+import com.ibm.wala.fixpoint.UnaryStatement;
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.graph.Graph;
@@ -70,6 +73,36 @@ public class GraphDataflowTest extends WalaTestCase {
     Assert.assertEquals(expectedStringNodeOnly(), result);
   }
 
+  /** The result must not depend on the order in which the solver evaluates statements. */
+  @Test
+  public void testWorklistStrategies() throws CancelException {
+    for (WorklistStrategy strategy : WorklistStrategy.values()) {
+      Graph<String> G = buildGraph();
+      Assert.assertEquals(expectedStringNodeOnly(), solveNodeOnly(G, strategy));
+      Assert.assertEquals(expectedStringNodeEdge(), solveNodeEdge(G, strategy));
+    }
+  }
+
+  /** A statement that is numbered after it was inserted must still be pending only once. */
+  @Test
+  public void testWorklistRenumberedStatement() {
+    for (WorklistStrategy strategy : WorklistStrategy.values()) {
+      IWorklist worklist = strategy.makeWorklist();
+      UnaryStatement<BitVectorVariable> s =
+          BitVectorIdentity.instance()
+              .makeEquation(new BitVectorVariable(), new BitVectorVariable());
+      Assert.assertEquals(-1, s.getGraphNodeId());
+      worklist.insertStatement(s);
+      s.setGraphNodeId(3);
+      worklist.insertStatement(s);
+      Assert.assertEquals(strategy.toString(), 1, worklist.size());
+      Assert.assertSame(s, worklist.takeStatement());
+      Assert.assertTrue(strategy.toString(), worklist.isEmpty());
+      worklist.insertStatement(s);
+      Assert.assertEquals(strategy.toString(), 1, worklist.size());
+    }
+  }
+
   /** @return the expected dataflow result as a String */
   public static String expectedStringNodeOnly() {
     return "------\n"
@@ -114,6 +147,11 @@ public class GraphDataflowTest extends WalaTestCase {
 
   /** Solve the dataflow system and return the result as a string */
   public static String solveNodeOnly(Graph<String> G) throws CancelException {
+    return solveNodeOnly(G, WorklistStrategy.TOPOLOGICAL);
+  }
+
+  public static String solveNodeOnly(Graph<String> G, WorklistStrategy strategy)
+      throws CancelException {
     final OrdinalSetMapping<String> values = new MutableMapping<>(nodes);
     ITransferFunctionProvider<String, BitVectorVariable> functions =
         new ITransferFunctionProvider<>() {
@@ -147,11 +185,17 @@ public class GraphDataflowTest extends WalaTestCase {
 
     BitVectorFramework<String, String> F = new BitVectorFramework<>(G, functions, values);
     BitVectorSolver<String> s = new BitVectorSolver<>(F);
+    s.setWorklistStrategy(strategy);
     s.solve(null);
     return result2String(s);
   }
 
   public static String solveNodeEdge(Graph<String> G) throws CancelException {
+    return solveNodeEdge(G, WorklistStrategy.TOPOLOGICAL);
+  }
+
+  public static String solveNodeEdge(Graph<String> G, WorklistStrategy strategy)
+      throws CancelException {
     final OrdinalSetMapping<String> values = new MutableMapping<>(nodes);
     ITransferFunctionProvider<String, BitVectorVariable> functions =
         new ITransferFunctionProvider<>() {
@@ -188,6 +232,7 @@ public class GraphDataflowTest extends WalaTestCase {
 
     BitVectorFramework<String, String> F = new BitVectorFramework<>(G, functions, values);
     BitVectorSolver<String> s = new BitVectorSolver<>(F);
+    s.setWorklistStrategy(strategy);
     s.solve(null);
     return result2String(s);
   }
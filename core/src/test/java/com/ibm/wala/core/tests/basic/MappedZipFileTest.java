@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.basic;
+
+import com.ibm.wala.classLoader.JarFileModule;
+import com.ibm.wala.classLoader.ModuleEntry;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.core.util.io.MappedZipFile;
+import com.ibm.wala.core.util.shrike.ShrikeClassReaderHandle;
+import com.ibm.wala.shrike.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Random;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Check that archives read in place by {@link MappedZipFile} give the same contents as {@link
+ * ZipFile}, also through {@link JarFileModule} and for nested jar files.
+ */
+public class MappedZipFileTest extends WalaTestCase {
+
+  @Test
+  public void testSameContents() throws IOException {
+    File jar = makeJar();
+    MappedZipFile mapped = MappedZipFile.open(jar);
+    try (ZipFile zip = new ZipFile(jar)) {
+      Assert.assertEquals(zip.size(), mapped.getNames().size());
+      for (Enumeration<? extends ZipEntry> it = zip.entries(); it.hasMoreElements(); ) {
+        ZipEntry e = it.nextElement();
+        byte[] expected = zip.getInputStream(e).readAllBytes();
+        Assert.assertEquals(e.getName(), expected.length, mapped.getSize(e.getName()));
+        Assert.assertArrayEquals(e.getName(), expected, mapped.getBytes(e.getName()));
+        ByteBuffer contents = mapped.getContents(e.getName());
+        byte[] fromBuffer = new byte[contents.remaining()];
+        contents.get(fromBuffer);
+        Assert.assertArrayEquals(e.getName(), expected, fromBuffer);
+      }
+    }
+    // stored entries are slices of the mapped file
+    Assert.assertTrue(mapped.getContents("stored.bin").isDirect());
+  }
+
+  @Test
+  public void testJarFileModule() throws IOException, InvalidClassFileException {
+    File jar = makeJar();
+    int classes = 0;
+    try (JarFile jarFile = new JarFile(jar)) {
+      JarFileModule module = new JarFileModule(jarFile);
+      for (ModuleEntry e : Iterator2Iterable.make(module.getEntries())) {
+        if (e.isClassFile()) {
+          classes++;
+          Assert.assertEquals(
+              "com/ibm/wala/core/tests/util/WalaTestCase",
+              new ShrikeClassReaderHandle(e).get().getName());
+        } else if (e.isModuleFile()) {
+          for (ModuleEntry n : Iterator2Iterable.make(e.asModule().getEntries())) {
+            Assert.assertTrue(n.isClassFile());
+            classes++;
+            Assert.assertArrayEquals(classBytes(), n.getBytes());
+            Assert.assertArrayEquals(classBytes(), n.getInputStream().readAllBytes());
+          }
+        }
+      }
+    }
+    Assert.assertEquals(4, classes);
+  }
+
+  @Test(expected = IOException.class)
+  public void testNotAnArchive() throws IOException {
+    new MappedZipFile(ByteBuffer.wrap(new byte[100]));
+  }
+
+  private static byte[] classBytes() throws IOException {
+    try (InputStream s = WalaTestCase.class.getResourceAsStream("WalaTestCase.class")) {
+      return s.readAllBytes();
+    }
+  }
+
+  /**
+   * @return a jar file holding a stored and a deflated class, a stored and a deflated nested jar
+   *     file that each hold a class, and a larger stored and deflated entry
+   */
+  private static File makeJar() throws IOException {
+    byte[] random = new byte[100000];
+    new Random(7).nextBytes(random);
+    Map<String, byte[]> nested = HashMapFactory.make();
+    for (boolean stored : new boolean[] {true, false}) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (JarOutputStream out = new JarOutputStream(bytes)) {
+        put(out, "p/Nested.class", classBytes(), stored);
+      }
+      nested.put(stored ? "lib/stored.jar" : "lib/deflated.jar", bytes.toByteArray());
+    }
+
+    File f = File.createTempFile("mapped", ".jar");
+    f.deleteOnExit();
+    try (JarOutputStream out = new JarOutputStream(new FileOutputStream(f))) {
+      put(out, "a/Stored.class", classBytes(), true);
+      put(out, "a/Deflated.class", classBytes(), false);
+      put(out, "stored.bin", random, true);
+      put(out, "deflated.bin", random, false);
+      put(out, "lib/stored.jar", nested.get("lib/stored.jar"), true);
+      put(out, "lib/deflated.jar", nested.get("lib/deflated.jar"), false);
+    }
+    return f;
+  }
+
+  private static void put(JarOutputStream out, String name, byte[] contents, boolean stored)
+      throws IOException {
+    ZipEntry e = new ZipEntry(name);
+    if (stored) {
+      CRC32 crc = new CRC32();
+      crc.update(contents);
+      e.setMethod(ZipEntry.STORED);
+      e.setSize(contents.length);
+      e.setCompressedSize(contents.length);
+      e.setCrc(crc.getValue());
+    }
+    out.putNextEntry(e);
+    out.write(contents);
+    out.closeEntry();
+  }
+}
@@ -22,13 +22,16 @@ import com.ibm.wala.util.graph.dominators.Dominators;
 import com.ibm.wala.util.graph.impl.SlowSparseNumberedGraph;
 import com.ibm.wala.util.graph.traverse.BFSPathFinder;
 import com.ibm.wala.util.graph.traverse.BoundedBFSIterator;
+import com.ibm.wala.util.intset.ArraySliceIntSet;
 import com.ibm.wala.util.intset.BasicNaturalRelation;
 import com.ibm.wala.util.intset.BimodalMutableIntSetFactory;
 import com.ibm.wala.util.intset.BitVector;
 import com.ibm.wala.util.intset.BitVectorBase;
+import com.ibm.wala.util.intset.BitVectorIntSet;
 import com.ibm.wala.util.intset.BitVectorIntSetFactory;
 import com.ibm.wala.util.intset.IBinaryNaturalRelation;
 import com.ibm.wala.util.intset.IntPair;
+import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.IntegerUnionFind;
@@ -38,18 +41,28 @@ import com.ibm.wala.util.intset.MutableIntSet;
 import com.ibm.wala.util.intset.MutableIntSetFactory;
 import com.ibm.wala.util.intset.MutableLongSet;
 import com.ibm.wala.util.intset.MutableLongSetFactory;
+import com.ibm.wala.util.intset.MutableMapping;
 import com.ibm.wala.util.intset.MutableSharedBitVectorIntSetFactory;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
 import com.ibm.wala.util.intset.MutableSparseIntSetFactory;
 import com.ibm.wala.util.intset.MutableSparseLongSetFactory;
+import com.ibm.wala.util.intset.OffHeapIntSetStore;
+import com.ibm.wala.util.intset.OffHeapMutableMapping;
 import com.ibm.wala.util.intset.OffsetBitVector;
+import com.ibm.wala.util.intset.RoaringIntSet;
+import com.ibm.wala.util.intset.RoaringIntSetFactory;
 import com.ibm.wala.util.intset.SemiSparseMutableIntSet;
 import com.ibm.wala.util.intset.SemiSparseMutableIntSetFactory;
 import com.ibm.wala.util.intset.SparseIntSet;
 import com.ibm.wala.util.intset.SparseLongSet;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -355,6 +368,280 @@ public class PrimitivesTest extends WalaTestCase {
     doMutableIntSet(new SemiSparseMutableIntSetFactory());
   }
 
+  /** Test the RoaringIntSet implementation */
+  @Test
+  public void testRoaringIntSet() {
+    doMutableIntSet(new RoaringIntSetFactory());
+  }
+
+  /** Test that RoaringIntSet can be mixed with the other mutable int set implementations */
+  @Test
+  public void testRoaringIntSetMixed() {
+    Random r = new Random(19);
+    MutableIntSetFactory<?>[] factories = {
+      new BitVectorIntSetFactory(),
+      new MutableSparseIntSetFactory(),
+      new MutableSharedBitVectorIntSetFactory(),
+      new BimodalMutableIntSetFactory(),
+      new SemiSparseMutableIntSetFactory()
+    };
+    for (MutableIntSetFactory<?> factory : factories) {
+      for (int round = 0; round < 10; round++) {
+        RoaringIntSet roaring = new RoaringIntSet();
+        MutableIntSet same = factory.make();
+        MutableIntSet other = factory.make();
+        for (int i = 0; i < 200; i++) {
+          int x = r.nextInt(1000);
+          roaring.add(x);
+          same.add(x);
+          other.add(r.nextInt(1000));
+        }
+        String name = factory.getClass().getSimpleName();
+        Assert.assertTrue(name, same.sameValue(roaring));
+        Assert.assertTrue(name, roaring.sameValue(same));
+        Assert.assertFalse(name, other.sameValue(roaring));
+        Assert.assertFalse(name, roaring.sameValue(other));
+        Assert.assertEquals(name, roaring.containsAny(other), other.containsAny(roaring));
+
+        BitVectorIntSet expected = new BitVectorIntSet(other);
+        expected.intersectWith(new BitVectorIntSet(roaring));
+        IntSet i1 = other.intersection(roaring);
+        IntSet i2 = roaring.intersection(other);
+        Assert.assertTrue(name, expected.sameValue(new BitVectorIntSet(i1)));
+        Assert.assertTrue(name, expected.sameValue(new BitVectorIntSet(i2)));
+        MutableIntSet a = factory.makeCopy(other);
+        a.intersectWith(roaring);
+        Assert.assertTrue(name, expected.sameValue(new BitVectorIntSet(a)));
+
+        MutableIntSet b = factory.make();
+        b.copySet(roaring);
+        Assert.assertTrue(name, roaring.sameValue(b));
+        Assert.assertTrue(name, b.sameValue(roaring));
+        b.addAll(other);
+        RoaringIntSet c = new RoaringIntSet(roaring);
+        c.addAll(other);
+        Assert.assertTrue(name, c.sameValue(b));
+        Assert.assertTrue(name, b.sameValue(c));
+      }
+    }
+  }
+
+  /** Test that views of array slices can be mixed with the mutable int set implementations */
+  @Test
+  public void testArraySliceIntSetMixed() {
+    Random r = new Random(29);
+    MutableIntSetFactory<?>[] factories = {
+      new BitVectorIntSetFactory(),
+      new MutableSparseIntSetFactory(),
+      new MutableSharedBitVectorIntSetFactory(),
+      new BimodalMutableIntSetFactory(),
+      new SemiSparseMutableIntSetFactory(),
+      new RoaringIntSetFactory()
+    };
+    for (MutableIntSetFactory<?> factory : factories) {
+      for (int round = 0; round < 10; round++) {
+        MutableIntSet same = factory.make();
+        MutableIntSet other = factory.make();
+        for (int i = 0; i < 200; i++) {
+          same.add(r.nextInt(1000));
+          other.add(r.nextInt(1000));
+        }
+        // pad the run on both sides, to check that the view stays within it
+        int[] elements = new int[same.size() + 4];
+        elements[0] = -7;
+        elements[1] = -3;
+        int k = 2;
+        for (IntIterator it = same.intIterator(); it.hasNext(); ) {
+          elements[k++] = it.next();
+        }
+        Arrays.sort(elements, 2, k);
+        elements[k] = 2000;
+        elements[k + 1] = 3000;
+        ArraySliceIntSet slice = new ArraySliceIntSet(elements, 2, k);
+
+        String name = factory.getClass().getSimpleName();
+        Assert.assertEquals(name, same.size(), slice.size());
+        Assert.assertEquals(name, elements[k - 1], slice.max());
+        Assert.assertFalse(name, slice.contains(-3) || slice.contains(2000));
+        Assert.assertTrue(name, same.sameValue(slice));
+        Assert.assertTrue(name, slice.sameValue(same));
+        Assert.assertFalse(name, other.sameValue(slice));
+        Assert.assertFalse(name, slice.sameValue(other));
+        Assert.assertEquals(name, slice.containsAny(other), other.containsAny(slice));
+
+        BitVectorIntSet expected = new BitVectorIntSet(other);
+        expected.intersectWith(new BitVectorIntSet(same));
+        Assert.assertTrue(name, expected.sameValue(new BitVectorIntSet(other.intersection(slice))));
+        Assert.assertTrue(name, expected.sameValue(new BitVectorIntSet(slice.intersection(other))));
+        MutableIntSet a = factory.makeCopy(other);
+        a.intersectWith(slice);
+        Assert.assertTrue(name, expected.sameValue(new BitVectorIntSet(a)));
+
+        MutableIntSet b = factory.make();
+        b.copySet(slice);
+        Assert.assertTrue(name, slice.sameValue(b));
+        b.addAll(other);
+        Assert.assertTrue(name, b.sameValue(slice.union(other)));
+        Assert.assertTrue(name, same.sameValue(IntSetUtil.makeMutableCopy(slice)));
+      }
+    }
+    Assert.assertTrue(new ArraySliceIntSet(new int[] {1, 2}, 1, 1).isEmpty());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testArraySliceIntSetOutOfBounds() {
+    new ArraySliceIntSet(new int[] {1, 2}, 1, 3);
+  }
+
+  /**
+   * Test RoaringIntSet against BitVectorIntSet on sets that are sparse, dense and made of runs, so
+   * that each kind of container meets each other kind
+   */
+  @Test
+  public void testRoaringIntSetContainers() {
+    Random r = new Random(17);
+    for (int round = 0; round < 20; round++) {
+      RoaringIntSet[] roaring = new RoaringIntSet[3];
+      BitVectorIntSet[] expected = new BitVectorIntSet[3];
+      for (int k = 0; k < 3; k++) {
+        roaring[k] = new RoaringIntSet();
+        expected[k] = new BitVectorIntSet();
+        for (int chunk = 0; chunk < 4; chunk++) {
+          int base = r.nextInt(3) << 16;
+          switch (r.nextInt(3)) {
+            case 0: // sparse
+              for (int i = 0; i < 100; i++) {
+                int x = base + r.nextInt(1 << 16);
+                roaring[k].add(x);
+                expected[k].add(x);
+              }
+              break;
+            case 1: // dense
+              for (int i = 0; i < 10000; i++) {
+                int x = base + r.nextInt(1 << 16);
+                roaring[k].add(x);
+                expected[k].add(x);
+              }
+              break;
+            default: // runs
+              for (int run = 0; run < 5; run++) {
+                int start = base + r.nextInt(60000);
+                int length = r.nextInt(5000);
+                for (int x = start; x < start + length; x++) {
+                  roaring[k].add(x);
+                  expected[k].add(x);
+                }
+              }
+          }
+        }
+        if (r.nextBoolean()) {
+          roaring[k].runOptimize();
+        }
+        Assert.assertTrue(roaring[k].sameValue(expected[k]));
+        Assert.assertEquals(expected[k].max(), roaring[k].max());
+      }
+
+      Assert.assertEquals(expected[0].containsAny(expected[1]), roaring[0].containsAny(roaring[1]));
+      Assert.assertEquals(expected[0].isSubset(expected[1]), roaring[0].isSubset(roaring[1]));
+      Assert.assertTrue(roaring[0].union(roaring[1]).sameValue(expected[0].union(expected[1])));
+      Assert.assertTrue(
+          roaring[0].intersection(roaring[1]).sameValue(expected[0].intersection(expected[1])));
+      BitVectorIntSet diff = new BitVectorIntSet(expected[0]);
+      diff.removeAll(expected[1]);
+      Assert.assertTrue(IntSetUtil.diff(roaring[0], roaring[1]).sameValue(diff));
+
+      RoaringIntSet a = new RoaringIntSet(roaring[0]);
+      BitVectorIntSet b = new BitVectorIntSet(expected[0]);
+      Assert.assertEquals(
+          b.addAllInIntersection(expected[1], expected[2]),
+          a.addAllInIntersection(roaring[1], roaring[2]));
+      Assert.assertTrue(a.sameValue(b));
+      Assert.assertTrue(a.union(roaring[2]).isSubset(a.union(roaring[1]).union(roaring[2])));
+
+      a.runOptimize();
+      Assert.assertEquals(b.addAll(expected[1]), a.addAll(roaring[1]));
+      Assert.assertTrue(a.sameValue(b));
+      a.intersectWith(roaring[2]);
+      b.intersectWith(expected[2]);
+      Assert.assertTrue(a.sameValue(b));
+      a.removeAll(roaring[0]);
+      b.removeAll(expected[0]);
+      Assert.assertTrue(a.sameValue(b));
+
+      // element-wise removal takes containers from bitmaps and runs back to arrays
+      RoaringIntSet c = new RoaringIntSet(roaring[1]);
+      BitVectorIntSet d = new BitVectorIntSet(expected[1]);
+      for (int i = 0; i < 20000; i++) {
+        int x = r.nextInt(3 << 16);
+        Assert.assertEquals(d.remove(x), c.remove(x));
+      }
+      Assert.assertTrue(c.sameValue(d));
+      Assert.assertEquals(d.size(), c.size());
+    }
+  }
+
+  /** Test OffHeapMutableMapping against MutableMapping */
+  @Test
+  public void testOffHeapMutableMapping() {
+    MutableMapping<String> expected = MutableMapping.make();
+    MutableMapping<String> actual = OffHeapMutableMapping.makeOffHeap();
+    for (int i = 0; i < 1000; i++) {
+      String s = String.valueOf(i % 700);
+      Assert.assertEquals(expected.add(s), actual.add(s));
+    }
+    for (int i = 0; i < 700; i += 3) {
+      expected.deleteMappedObject(String.valueOf(i));
+      actual.deleteMappedObject(String.valueOf(i));
+    }
+    actual.replace("1", "one");
+    expected.replace("1", "one");
+    for (int i = 0; i < 1000; i++) {
+      String s = String.valueOf(i);
+      Assert.assertEquals(expected.getMappedIndex(s), actual.getMappedIndex(s));
+    }
+    Assert.assertEquals(expected.getMappedIndex("one"), actual.getMappedIndex("one"));
+    Assert.assertEquals(expected.getSize(), actual.getSize());
+    Assert.assertEquals(expected.getMaximumIndex(), actual.getMaximumIndex());
+    Assert.assertEquals(
+        HashSetFactory.make(expected.getObjects()), HashSetFactory.make(actual.getObjects()));
+    Assert.assertEquals("one", actual.getMappedObject(1));
+  }
+
+  /** Test OffHeapIntSetStore, in direct buffers and in a mapped file */
+  @Test
+  public void testOffHeapIntSetStore() throws IOException {
+    File file = File.createTempFile("intsets", ".bin");
+    file.deleteOnExit();
+    try (OffHeapIntSetStore direct = new OffHeapIntSetStore();
+        OffHeapIntSetStore mapped = OffHeapIntSetStore.makeMapped(file)) {
+      for (OffHeapIntSetStore store : new OffHeapIntSetStore[] {direct, mapped}) {
+        MutableSparseIntSet large = MutableSparseIntSet.makeEmpty();
+        for (int i = 0; i < 300000; i++) {
+          large.add(3 * i);
+        }
+        IntSet[] sets = {
+          SparseIntSet.pair(7, 2), IntSetUtil.make(), large, IntSetUtil.make(new int[] {9, 1, 5})
+        };
+        for (IntSet s : sets) {
+          IntSet stored = store.store(s);
+          Assert.assertTrue(s.sameValue(stored));
+          Assert.assertTrue(stored.sameValue(s));
+          Assert.assertEquals(s.size(), stored.size());
+          Assert.assertEquals(s.isEmpty() ? -1 : s.max(), stored.max());
+          Assert.assertTrue(stored.union(s).sameValue(s));
+          Assert.assertTrue(stored.intersection(SparseIntSet.singleton(9)).isSubset(s));
+          MutableIntSet copy = IntSetUtil.makeMutableCopy(stored);
+          copy.add(4);
+          Assert.assertTrue(copy.contains(4));
+          Assert.assertFalse(stored.contains(4));
+        }
+        Assert.assertFalse(store.store(large).contains(4));
+        Assert.assertTrue(store.store(large).contains(899997));
+        Assert.assertTrue(store.getSizeInBytes() <= store.getCapacityInBytes());
+      }
+    }
+  }
+
   /** Test the MutableSparseIntSet implementation */
   private static void doMutableLongSet(MutableLongSetFactory factory) {
     MutableLongSet v = factory.parse("{9,17}");
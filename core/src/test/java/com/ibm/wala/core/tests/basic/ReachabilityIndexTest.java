@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.basic;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.graph.ReachabilityIndex;
+import com.ibm.wala.util.graph.impl.SlowSparseNumberedGraph;
+import com.ibm.wala.util.graph.traverse.DFS;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Check that the answers of a {@link ReachabilityIndex} agree with a depth-first search. */
+public class ReachabilityIndexTest extends WalaTestCase {
+
+  @Test
+  public void testSmallGraph() {
+    NumberedGraph<String> g = SlowSparseNumberedGraph.make();
+    for (String n : Arrays.asList("A", "B", "C", "D", "E", "F")) {
+      g.addNode(n);
+    }
+    // A -> B -> C -> B, C -> D, E -> D, F alone
+    g.addEdge("A", "B");
+    g.addEdge("B", "C");
+    g.addEdge("C", "B");
+    g.addEdge("C", "D");
+    g.addEdge("E", "D");
+    ReachabilityIndex<String> index = new ReachabilityIndex<>(g);
+
+    Assert.assertTrue(index.canReach("A", "D"));
+    Assert.assertTrue(index.canReach("C", "B"));
+    Assert.assertTrue(index.canReach("F", "F"));
+    Assert.assertFalse(index.canReach("D", "C"));
+    Assert.assertFalse(index.canReach("E", "A"));
+    Assert.assertTrue(index.canReachAny("E", Arrays.asList("A", "D")));
+    Assert.assertFalse(index.canReachAny("B", Arrays.asList("A", "E", "F")));
+    Assert.assertEquals(
+        HashSetFactory.make(Arrays.asList("B", "C", "D")),
+        Iterator2Collection.toSet(index.iterateReachableNodes("B")));
+    Assert.assertEquals(
+        HashSetFactory.make(Arrays.asList("D", "E", "F")),
+        index.getReachableNodes(Arrays.asList("E", "F")));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownNode() {
+    NumberedGraph<String> g = SlowSparseNumberedGraph.make();
+    g.addNode("A");
+    new ReachabilityIndex<>(g).canReach("A", "B");
+  }
+
+  @Test
+  public void testRandomGraphs() {
+    Random r = new Random(42);
+    for (int round = 0; round < 30; round++) {
+      NumberedGraph<Integer> g = SlowSparseNumberedGraph.make();
+      int n = 1 + r.nextInt(80);
+      for (int i = 0; i < n; i++) {
+        g.addNode(i);
+      }
+      for (int e = r.nextInt(3 * n); e > 0; e--) {
+        g.addEdge(r.nextInt(n), r.nextInt(n));
+      }
+      // leave holes in the numbering
+      if (n > 2) {
+        g.removeNodeAndEdges(r.nextInt(n));
+      }
+      ReachabilityIndex<Integer> index = new ReachabilityIndex<>(g);
+      for (Integer src : g) {
+        Set<Integer> expected = DFS.getReachableNodes(g, Collections.singleton(src));
+        List<Integer> iterated = Iterator2Collection.toList(index.iterateReachableNodes(src));
+        Assert.assertEquals(expected.size(), iterated.size());
+        Assert.assertEquals(expected, HashSetFactory.make(iterated));
+        Assert.assertEquals(expected, index.getReachableNodes(Collections.singleton(src)));
+        for (Integer dst : g) {
+          Assert.assertEquals(src + " -> " + dst, expected.contains(dst), index.canReach(src, dst));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.basic;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.graph.dominators.Dominators;
+import com.ibm.wala.util.graph.dominators.GenericDominators;
+import com.ibm.wala.util.graph.dominators.SemiNCADominators;
+import com.ibm.wala.util.graph.impl.SlowSparseNumberedGraph;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Check that the Semi-NCA dominators agree with those of the Lengauer-Tarjan implementation, also
+ * after edges are added.
+ */
+public class SemiNCADominatorsTest extends WalaTestCase {
+
+  @Test
+  public void testRandomGraphs() {
+    Random r = new Random(23);
+    for (int round = 0; round < 100; round++) {
+      NumberedGraph<Integer> g = makeRandomGraph(r);
+      assertSameDominators(g, new SemiNCADominators<>(g, 0));
+    }
+  }
+
+  @Test
+  public void testAddEdges() {
+    Random r = new Random(29);
+    for (int round = 0; round < 100; round++) {
+      NumberedGraph<Integer> g = makeRandomGraph(r);
+      SemiNCADominators<Integer> dom = new SemiNCADominators<>(g, 0);
+      int n = g.getNumberOfNodes();
+      for (int i = 0; i < 10; i++) {
+        int src = r.nextInt(n);
+        int dst = r.nextInt(n);
+        g.addEdge(src, dst);
+        dom.addEdge(src, dst);
+        assertSameDominators(g, dom);
+      }
+    }
+  }
+
+  @Test
+  public void testMakeUsesSemiNCA() {
+    NumberedGraph<Integer> g = SlowSparseNumberedGraph.make();
+    g.addNode(0);
+    Assert.assertTrue(Dominators.make(g, 0) instanceof SemiNCADominators);
+  }
+
+  /** Subclasses may still ask for the per-node information of {@link Dominators}. */
+  @Test
+  public void testGetInfo() {
+    NumberedGraph<Integer> g = makeRandomGraph(new Random(31));
+    new SemiNCADominators<>(g, 0) {
+      {
+        for (Integer n : g) {
+          Assert.assertNotNull(getInfo(n));
+        }
+      }
+    };
+  }
+
+  private static NumberedGraph<Integer> makeRandomGraph(Random r) {
+    NumberedGraph<Integer> g = SlowSparseNumberedGraph.make();
+    int n = 1 + r.nextInt(40);
+    for (int i = 0; i < n; i++) {
+      g.addNode(i);
+    }
+    for (int e = r.nextInt(2 * n); e > 0; e--) {
+      g.addEdge(r.nextInt(n), r.nextInt(n));
+    }
+    return g;
+  }
+
+  private static void assertSameDominators(NumberedGraph<Integer> g, Dominators<Integer> dom) {
+    Dominators<Integer> expected = new GenericDominators<>(g, 0);
+    for (Integer n : g) {
+      Assert.assertEquals(n.toString(), expected.getIdom(n), dom.getIdom(n));
+      for (Integer m : g) {
+        Assert.assertEquals(
+            n + " by " + m, expected.isDominatedBy(n, m), dom.isDominatedBy(n, m));
+      }
+    }
+  }
+}
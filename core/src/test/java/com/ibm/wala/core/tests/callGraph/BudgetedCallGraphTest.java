@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysisImpl;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.CancelException;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Check that call graph construction on a time or heap budget returns a part of the complete call
+ * graph and points-to sets when it runs out, and all of them when it does not.
+ */
+public class BudgetedCallGraphTest extends WalaTestCase {
+
+  private static final String MAIN_CLASS = "Ldemandpa/TestArrayList";
+
+  @Test
+  public void testGenerousBudget()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    IClassHierarchy cha = CallGraphTestUtil.makeRegressionClassHierarchy();
+    SSAPropagationCallGraphBuilder full = CallGraphTestUtil.makeZeroOneCFABuilder(cha, MAIN_CLASS);
+    CallGraph fullCG = full.makeCallGraph(full.getOptions(), null);
+
+    SSAPropagationCallGraphBuilder budgeted =
+        CallGraphTestUtil.makeZeroOneCFABuilder(cha, MAIN_CLASS);
+    budgeted.getOptions().setTimeBudget(3600000);
+    budgeted.getOptions().setHeapBudget(Long.MAX_VALUE);
+    CallGraph budgetedCG = budgeted.makeCallGraph(budgeted.getOptions(), null);
+
+    Assert.assertTrue(budgeted.isComplete());
+    assertComplete(true, budgetedCG, budgeted.getPointerAnalysis());
+    Assert.assertEquals(CallGraphTestUtil.edges(fullCG), CallGraphTestUtil.edges(budgetedCG));
+    Assert.assertEquals(
+        CallGraphTestUtil.pointsToSets(full.getPointerAnalysis()),
+        CallGraphTestUtil.pointsToSets(budgeted.getPointerAnalysis()));
+  }
+
+  @Test
+  public void testTimeBudget()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    // a budget that is spent before the solver starts, so that the test does not depend on timing
+    doPartialTest(o -> o.setTimeBudget(0));
+  }
+
+  @Test
+  public void testHeapBudget()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    doPartialTest(o -> o.setHeapBudget(1));
+  }
+
+  @Test
+  public void testNodeBudget()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    CallGraph first = doPartialTest(o -> o.setNodeBudget(50));
+    CallGraph second = doPartialTest(o -> o.setNodeBudget(50));
+    Assert.assertEquals(CallGraphTestUtil.edges(first), CallGraphTestUtil.edges(second));
+  }
+
+  /** An update solves to the end, so it completes a call graph that ran out of budget. */
+  @Test
+  public void testUpdateCompletesPartialCallGraph()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    IClassHierarchy cha = CallGraphTestUtil.makeRegressionClassHierarchy();
+    SSAPropagationCallGraphBuilder full = CallGraphTestUtil.makeZeroOneCFABuilder(cha, MAIN_CLASS);
+    full.getOptions().setIncrementalUpdates(true);
+    CallGraph fullCG = full.makeCallGraph(full.getOptions(), null);
+
+    SSAPropagationCallGraphBuilder budgeted =
+        CallGraphTestUtil.makeZeroOneCFABuilder(cha, MAIN_CLASS);
+    budgeted.getOptions().setIncrementalUpdates(true);
+    budgeted.getOptions().setNodeBudget(50);
+    budgeted.makeCallGraph(budgeted.getOptions(), null);
+    Assert.assertFalse(budgeted.isComplete());
+    CallGraph updatedCG = budgeted.updateCallGraph(Collections.emptySet(), null);
+
+    Assert.assertTrue(budgeted.isComplete());
+    assertComplete(true, updatedCG, budgeted.getPointerAnalysis());
+    Assert.assertEquals(CallGraphTestUtil.edges(fullCG), CallGraphTestUtil.edges(updatedCG));
+    Assert.assertEquals(
+        CallGraphTestUtil.pointsToSets(full.getPointerAnalysis()),
+        CallGraphTestUtil.pointsToSets(budgeted.getPointerAnalysis()));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidBudget() {
+    new AnalysisOptions().setTimeBudget(-2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidNodeBudget() {
+    new AnalysisOptions().setNodeBudget(-2);
+  }
+
+  /** @return the partial call graph built with the given budget */
+  private static CallGraph doPartialTest(Consumer<AnalysisOptions> budget)
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    IClassHierarchy cha = CallGraphTestUtil.makeRegressionClassHierarchy();
+    SSAPropagationCallGraphBuilder full = CallGraphTestUtil.makeZeroOneCFABuilder(cha, MAIN_CLASS);
+    CallGraph fullCG = full.makeCallGraph(full.getOptions(), null);
+    Assert.assertTrue(full.isComplete());
+
+    SSAPropagationCallGraphBuilder budgeted =
+        CallGraphTestUtil.makeZeroOneCFABuilder(cha, MAIN_CLASS);
+    budget.accept(budgeted.getOptions());
+    CallGraph partialCG = budgeted.makeCallGraph(budgeted.getOptions(), null);
+
+    Assert.assertFalse(budgeted.isComplete());
+    assertComplete(false, partialCG, budgeted.getPointerAnalysis());
+    Assert.assertTrue(partialCG.getNumberOfNodes() < fullCG.getNumberOfNodes());
+    Assert.assertTrue(
+        CallGraphTestUtil.edges(fullCG).containsAll(CallGraphTestUtil.edges(partialCG)));
+    Map<String, Set<String>> fullSets = CallGraphTestUtil.pointsToSets(full.getPointerAnalysis());
+    for (Map.Entry<String, Set<String>> e :
+        CallGraphTestUtil.pointsToSets(budgeted.getPointerAnalysis()).entrySet()) {
+      Assert.assertTrue(e.getKey(), fullSets.get(e.getKey()).containsAll(e.getValue()));
+    }
+    return partialCG;
+  }
+
+  /** The call graph and pointer analysis themselves must tell whether they are partial. */
+  private static void assertComplete(
+      boolean complete, CallGraph cg, PointerAnalysis<InstanceKey> pointerAnalysis) {
+    Assert.assertEquals(complete, ((ExplicitCallGraph) cg).isComplete());
+    Assert.assertEquals(complete, ((PointerAnalysisImpl) pointerAnalysis).isComplete());
+  }
+}
@@ -0,0 +1,392 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import com.ibm.wala.cfg.ControlFlowGraph;
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.ClassFileModule;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.classLoader.ShrikeClass;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
+import com.ibm.wala.ipa.callgraph.impl.FakeRootClass;
+import com.ibm.wala.ipa.callgraph.propagation.SSAContextInterpreter;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.DelegatingSSAContextInterpreter;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.shrike.shrikeBT.IInstruction;
+import com.ibm.wala.shrike.shrikeBT.InvokeInstruction;
+import com.ibm.wala.shrike.shrikeBT.MethodData;
+import com.ibm.wala.shrike.shrikeBT.MethodEditor;
+import com.ibm.wala.shrike.shrikeBT.MethodEditor.Output;
+import com.ibm.wala.shrike.shrikeBT.analysis.ClassHierarchyStore;
+import com.ibm.wala.shrike.shrikeBT.shrikeCT.ClassInstrumenter;
+import com.ibm.wala.shrike.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.ssa.DefUse;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.IRView;
+import com.ibm.wala.ssa.ISSABasicBlock;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.Selector;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.EmptyIterator;
+import com.ibm.wala.util.collections.HashSetFactory;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Check that updating a call graph after the body of a method changes gives the same call graph
+ * and points-to sets as building it again.
+ */
+public class IncrementalCallGraphTest extends WalaTestCase {
+
+  @Test
+  public void testUnchangedBody()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    doIncrementalTest("Ldemandpa/TestHashSet", null);
+  }
+
+  @Test
+  public void testReplaceCollection()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    doIncrementalTest("Ldemandpa/TestHashSet", "Ldemandpa/TestLinkedList");
+  }
+
+  @Test
+  public void testReplaceFieldAccesses()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    doIncrementalTest("Ldemandpa/TestFields", "Ldemandpa/TestArraySetIter");
+  }
+
+  @Test
+  public void testReplaceCollectionWithTwoThreads()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    doIncrementalTest(
+        "Ldemandpa/TestHashSet", "Ldemandpa/TestLinkedList", o -> o.setNumberOfSolverThreads(2));
+  }
+
+  /** The update must first give back ordinary sets for the points-to sets moved off heap. */
+  @Test
+  public void testReplaceCollectionOffHeap()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    doIncrementalTest(
+        "Ldemandpa/TestHashSet", "Ldemandpa/TestLinkedList", o -> o.setUseOffHeapStorage(true));
+  }
+
+  /**
+   * Translating all the classes again, library included, must give back the calls to class
+   * initializers and the type filters of parameters.
+   */
+  @Test
+  public void testUnchangedLibraryBodies()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    IClassHierarchy cha = CallGraphTestUtil.makeRegressionClassHierarchy();
+    SSAPropagationCallGraphBuilder incremental =
+        CallGraphTestUtil.makeZeroOneCFABuilder(cha, "Ldemandpa/TestArrayList");
+    incremental.getOptions().setIncrementalUpdates(true);
+    CallGraph cg = incremental.makeCallGraph(incremental.getOptions(), null);
+    Set<IClass> classes = HashSetFactory.make();
+    for (CGNode n : cg) {
+      IClass klass = n.getMethod().getDeclaringClass();
+      // skip the synthetic classes, which are not in the class hierarchy
+      if (cha.lookupClass(klass.getReference()) == klass) {
+        classes.add(klass);
+      }
+    }
+    incremental.updateCallGraph(classes, null);
+
+    SSAPropagationCallGraphBuilder full =
+        CallGraphTestUtil.makeZeroOneCFABuilder(cha, "Ldemandpa/TestArrayList");
+    CallGraph expected = full.makeCallGraph(full.getOptions(), null);
+    Assert.assertEquals(CallGraphTestUtil.edges(expected), CallGraphTestUtil.edges(cg));
+    Assert.assertEquals(
+        CallGraphTestUtil.pointsToSets(full.getPointerAnalysis()),
+        CallGraphTestUtil.pointsToSets(incremental.getPointerAnalysis()));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testRequiresIncrementalUpdates()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    IClassHierarchy cha = CallGraphTestUtil.makeRegressionClassHierarchy();
+    SSAPropagationCallGraphBuilder builder =
+        CallGraphTestUtil.makeZeroOneCFABuilder(cha, "Ldemandpa/TestLocals");
+    builder.makeCallGraph(builder.getOptions(), null);
+    builder.updateCallGraph(Collections.emptySet(), null);
+  }
+
+  /**
+   * Read TestHashSet again from a class file in which main calls testThisVar where it called
+   * makeVarUsed, and update the call graph with the class of the new class hierarchy.
+   */
+  @Test
+  public void testChangedClassFile()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException,
+          InvalidClassFileException {
+    IClassHierarchy cha = CallGraphTestUtil.makeRegressionClassHierarchy();
+    SSAPropagationCallGraphBuilder incremental =
+        CallGraphTestUtil.makeZeroOneCFABuilder(cha, "Ldemandpa/TestHashSet");
+    incremental.getOptions().setIncrementalUpdates(true);
+    CallGraph cg = incremental.makeCallGraph(incremental.getOptions(), null);
+    Set<String> before = CallGraphTestUtil.edges(cg);
+
+    IMethod main = findMain(cha, "Ldemandpa/TestHashSet");
+    IClassHierarchy changed =
+        makeChangedClassHierarchy(
+            main.getDeclaringClass(), ci -> ci.visitMethods(IncrementalCallGraphTest::redirect));
+    IMethod newMain = findMain(changed, "Ldemandpa/TestHashSet");
+    incremental.updateCallGraph(Collections.singleton(newMain.getDeclaringClass()), null);
+    for (CGNode n : cg.getNodes(main.getReference())) {
+      Assert.assertSame(newMain, n.getMethod());
+    }
+
+    SSAPropagationCallGraphBuilder full =
+        CallGraphTestUtil.makeZeroOneCFABuilder(changed, "Ldemandpa/TestHashSet");
+    CallGraph expected = full.makeCallGraph(full.getOptions(), null);
+    Assert.assertNotEquals(before, CallGraphTestUtil.edges(expected));
+    Assert.assertEquals(CallGraphTestUtil.edges(expected), CallGraphTestUtil.edges(cg));
+    Assert.assertEquals(
+        CallGraphTestUtil.pointsToSets(full.getPointerAnalysis()),
+        CallGraphTestUtil.pointsToSets(incremental.getPointerAnalysis()));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRejectsAddedClass()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    IClassHierarchy cha = CallGraphTestUtil.makeRegressionClassHierarchy();
+    SSAPropagationCallGraphBuilder builder =
+        CallGraphTestUtil.makeZeroOneCFABuilder(cha, "Ldemandpa/TestLocals");
+    builder.getOptions().setIncrementalUpdates(true);
+    builder.makeCallGraph(builder.getOptions(), null);
+    TypeReference added =
+        TypeReference.findOrCreate(ClassLoaderReference.Application, "Ldemandpa/Added");
+    builder.updateCallGraph(Collections.singleton(new FakeRootClass(added, cha)), null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRejectsRemovedMethod()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException,
+          InvalidClassFileException {
+    IClassHierarchy cha = CallGraphTestUtil.makeRegressionClassHierarchy();
+    SSAPropagationCallGraphBuilder builder =
+        CallGraphTestUtil.makeZeroOneCFABuilder(cha, "Ldemandpa/TestHashSet");
+    builder.getOptions().setIncrementalUpdates(true);
+    builder.makeCallGraph(builder.getOptions(), null);
+    IClass klass = findMain(cha, "Ldemandpa/TestHashSet").getDeclaringClass();
+    // the constructor is the first method
+    IClassHierarchy changed = makeChangedClassHierarchy(klass, ci -> ci.deleteMethod(0));
+    builder.updateCallGraph(
+        Collections.singleton(findMain(changed, "Ldemandpa/TestHashSet").getDeclaringClass()),
+        null);
+  }
+
+  /**
+   * Build the call graph for mainClass, then give its main method the body of the main method of
+   * newBodyClass (if not null) and update the call graph; compare with a call graph built with the
+   * new body from the start.
+   */
+  private static void doIncrementalTest(String mainClass, String newBodyClass)
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    doIncrementalTest(mainClass, newBodyClass, o -> {});
+  }
+
+  /** As above, with the options of both call graphs changed by configuration. */
+  private static void doIncrementalTest(
+      String mainClass, String newBodyClass, Consumer<AnalysisOptions> configuration)
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    IClassHierarchy cha = CallGraphTestUtil.makeRegressionClassHierarchy();
+    IMethod main = findMain(cha, mainClass);
+    IMethod newBody = newBodyClass == null ? main : findMain(cha, newBodyClass);
+
+    BodySubstitution substitution = new BodySubstitution(main, newBody);
+    SSAPropagationCallGraphBuilder incremental =
+        makeBuilder(cha, mainClass, substitution, configuration);
+    CallGraph cg = incremental.makeCallGraph(incremental.getOptions(), null);
+    substitution.enabled = true;
+    incremental.updateCallGraph(Collections.singleton(main.getDeclaringClass()), null);
+
+    BodySubstitution fromScratch = new BodySubstitution(main, newBody);
+    fromScratch.enabled = true;
+    SSAPropagationCallGraphBuilder full = makeBuilder(cha, mainClass, fromScratch, configuration);
+    CallGraph expected = full.makeCallGraph(full.getOptions(), null);
+
+    Assert.assertEquals(CallGraphTestUtil.edges(expected), CallGraphTestUtil.edges(cg));
+    // the keys of removed nodes stay, with empty points-to sets, which are not compared
+    Assert.assertEquals(
+        CallGraphTestUtil.pointsToSets(full.getPointerAnalysis()),
+        CallGraphTestUtil.pointsToSets(incremental.getPointerAnalysis()));
+  }
+
+  private static IMethod findMain(IClassHierarchy cha, String klass) {
+    IClass c = cha.lookupClass(TypeReference.findOrCreate(ClassLoaderReference.Application, klass));
+    return c.getMethod(Selector.make("main([Ljava/lang/String;)V"));
+  }
+
+  /**
+   * @return a class hierarchy of the regression scope in which klass is read from a copy of its
+   *     class file, edited by editor
+   */
+  private static IClassHierarchy makeChangedClassHierarchy(IClass klass, ClassEditor editor)
+      throws ClassHierarchyException, IOException, InvalidClassFileException {
+    ClassInstrumenter ci =
+        new ClassInstrumenter(
+            klass.getName().toString(),
+            ((ShrikeClass) klass).getReader().getBytes(),
+            new ClassHierarchyStore());
+    editor.edit(ci);
+    File classFile = File.createTempFile("changed", ".class");
+    classFile.deleteOnExit();
+    Files.write(classFile.toPath(), ci.emitClass().makeBytes());
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    // the first module with a class wins
+    scope.addToScopeHead(ClassLoaderReference.Application, new ClassFileModule(classFile, null));
+    return ClassHierarchyFactory.make(scope);
+  }
+
+  private interface ClassEditor {
+    void edit(ClassInstrumenter ci) throws InvalidClassFileException;
+  }
+
+  /** Call testThisVar where data calls makeVarUsed. */
+  private static void redirect(MethodData data) {
+    MethodEditor me = new MethodEditor(data);
+    me.beginPass();
+    IInstruction[] instructions = data.getInstructions();
+    for (int i = 0; i < instructions.length; i++) {
+      if (instructions[i] instanceof InvokeInstruction) {
+        InvokeInstruction call = (InvokeInstruction) instructions[i];
+        if (call.getMethodName().equals("makeVarUsed")) {
+          me.replaceWith(
+              i,
+              new MethodEditor.Patch() {
+                @Override
+                public void emitTo(Output w) {
+                  w.emit(
+                      InvokeInstruction.make(
+                          call.getMethodSignature(),
+                          call.getClassType(),
+                          "testThisVar",
+                          call.getInvocationCode()));
+                }
+              });
+        }
+      }
+    }
+    me.applyPatches();
+    me.endPass();
+  }
+
+  private static SSAPropagationCallGraphBuilder makeBuilder(
+      IClassHierarchy cha,
+      String mainClass,
+      BodySubstitution substitution,
+      Consumer<AnalysisOptions> configuration) {
+    SSAPropagationCallGraphBuilder builder =
+        CallGraphTestUtil.makeZeroOneCFABuilder(cha, mainClass);
+    builder.getOptions().setIncrementalUpdates(true);
+    configuration.accept(builder.getOptions());
+    substitution.cache = builder.getAnalysisCache();
+    builder.setContextInterpreter(
+        new DelegatingSSAContextInterpreter(substitution, builder.getCFAContextInterpreter()));
+    return builder;
+  }
+
+  /** Once enabled, gives one method the body of another. */
+  private static class BodySubstitution implements SSAContextInterpreter {
+    private final IMethod method;
+
+    private final IMethod newBody;
+
+    private IAnalysisCacheView cache;
+
+    boolean enabled = false;
+
+    BodySubstitution(IMethod method, IMethod newBody) {
+      this.method = method;
+      this.newBody = newBody;
+    }
+
+    @Override
+    public boolean understands(CGNode node) {
+      return enabled && node.getMethod().equals(method);
+    }
+
+    @Override
+    public IR getIR(CGNode node) {
+      return cache.getIR(newBody, node.getContext());
+    }
+
+    @Override
+    public IRView getIRView(CGNode node) {
+      return getIR(node);
+    }
+
+    @Override
+    public DefUse getDU(CGNode node) {
+      return cache.getDefUse(getIR(node));
+    }
+
+    @Override
+    public int getNumberOfStatements(CGNode node) {
+      return getIR(node).getInstructions().length;
+    }
+
+    @Override
+    public ControlFlowGraph<SSAInstruction, ISSABasicBlock> getCFG(CGNode n) {
+      return getIR(n).getControlFlowGraph();
+    }
+
+    @Override
+    public Iterator<NewSiteReference> iterateNewSites(CGNode node) {
+      return getIR(node).iterateNewSites();
+    }
+
+    @Override
+    public Iterator<CallSiteReference> iterateCallSites(CGNode node) {
+      return getIR(node).iterateCallSites();
+    }
+
+    @Override
+    public Iterator<FieldReference> iterateFieldsRead(CGNode node) {
+      return EmptyIterator.instance();
+    }
+
+    @Override
+    public Iterator<FieldReference> iterateFieldsWritten(CGNode node) {
+      return EmptyIterator.instance();
+    }
+
+    @Override
+    public boolean recordFactoryType(CGNode node, IClass klass) {
+      return false;
+    }
+  }
+}
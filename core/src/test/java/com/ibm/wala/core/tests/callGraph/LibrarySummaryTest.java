@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.LocalPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ipa.summaries.LibrarySummaryGenerator;
+import com.ibm.wala.ipa.summaries.MethodSummary;
+import com.ibm.wala.ipa.summaries.XMLMethodSummaryReader;
+import com.ibm.wala.ipa.summaries.XMLMethodSummaryWriter;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Check that generated summaries of library methods survive being stored, and that a call graph
+ * built with them keeps the application part of the call graph and points-to sets.
+ */
+public class LibrarySummaryTest extends WalaTestCase {
+
+  @Test
+  public void testArrayList()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    doSummaryTest("Ldemandpa/TestArrayList");
+  }
+
+  @Test
+  public void testListIterator()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    doSummaryTest("Lslice/TestListIterator");
+  }
+
+  private static void doSummaryTest(String mainClass)
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    IClassHierarchy cha = CallGraphTestUtil.makeRegressionClassHierarchy();
+    AnalysisScope scope = cha.getScope();
+
+    SSAPropagationCallGraphBuilder full = CallGraphTestUtil.makeZeroOneCFABuilder(cha, mainClass);
+    CallGraph fullCG = full.makeCallGraph(full.getOptions(), null);
+
+    // summarize the library classes the program uses
+    Set<IClass> library = HashSetFactory.make();
+    for (CGNode n : fullCG) {
+      IClass klass = n.getMethod().getDeclaringClass();
+      if (klass.getClassLoader().getReference().equals(ClassLoaderReference.Primordial)) {
+        library.add(klass);
+      }
+    }
+    LibrarySummaryGenerator generator =
+        new LibrarySummaryGenerator(cha, new AnalysisCacheImpl());
+    Map<MethodReference, MethodSummary> summaries = generator.summarize(library);
+    Assert.assertFalse(summaries.isEmpty());
+
+    ByteArrayOutputStream stored = new ByteArrayOutputStream();
+    XMLMethodSummaryWriter.write(summaries.values(), stored);
+    XMLMethodSummaryReader reader =
+        new XMLMethodSummaryReader(new ByteArrayInputStream(stored.toByteArray()), scope);
+    Assert.assertEquals(summaries.keySet(), reader.getSummaries().keySet());
+    for (MethodSummary s : summaries.values()) {
+      MethodSummary read = reader.getSummaries().get(s.getMethod());
+      Assert.assertEquals(s.isStatic(), read.isStatic());
+      Assert.assertTrue(read.isFlowInsensitive());
+      Assert.assertEquals(statements(s), statements(read));
+    }
+
+    SSAPropagationCallGraphBuilder summarized =
+        CallGraphTestUtil.makeZeroOneCFABuilder(cha, mainClass);
+    Util.addBypassLogic(
+        summarized.getOptions(), LibrarySummaryTest.class.getClassLoader(), reader, cha);
+    CallGraph summarizedCG = summarized.makeCallGraph(summarized.getOptions(), null);
+
+    Assert.assertEquals(applicationNodes(fullCG), applicationNodes(summarizedCG));
+    Map<String, Set<String>> fullTypes = applicationTypes(full.getPointerAnalysis());
+    Map<String, Set<String>> summarizedTypes = applicationTypes(summarized.getPointerAnalysis());
+    for (Map.Entry<String, Set<String>> e : fullTypes.entrySet()) {
+      Set<String> types = summarizedTypes.get(e.getKey());
+      Assert.assertNotNull(e.getKey(), types);
+      Assert.assertTrue(e.getKey(), types.containsAll(e.getValue()));
+    }
+    // inlined helpers of library methods need no nodes of their own
+    Assert.assertTrue(summarizedCG.getNumberOfNodes() < fullCG.getNumberOfNodes());
+  }
+
+  private static String statements(MethodSummary s) {
+    return Arrays.toString(s.getStatements()) + s.getConstants();
+  }
+
+  private static Set<String> applicationNodes(CallGraph cg) {
+    Set<String> result = HashSetFactory.make();
+    for (CGNode n : cg) {
+      if (isApplication(n)) {
+        result.add(n.getMethod().getSignature());
+      }
+    }
+    return result;
+  }
+
+  private static boolean isApplication(CGNode n) {
+    return n.getMethod()
+        .getDeclaringClass()
+        .getClassLoader()
+        .getReference()
+        .equals(ClassLoaderReference.Application);
+  }
+
+  /** @return the concrete types each local of the application may point to */
+  private static Map<String, Set<String>> applicationTypes(PointerAnalysis<InstanceKey> pa) {
+    Map<String, Set<String>> result = HashMapFactory.make();
+    for (PointerKey pk : pa.getPointerKeys()) {
+      if (pk instanceof LocalPointerKey && isApplication(((LocalPointerKey) pk).getNode())) {
+        LocalPointerKey lpk = (LocalPointerKey) pk;
+        Set<String> types = HashSetFactory.make();
+        for (InstanceKey ik : pa.getPointsToSet(pk)) {
+          types.add(ik.getConcreteType().getName().toString());
+        }
+        result.put(lpk.getNode().getMethod().getSignature() + " v" + lpk.getValueNumber(), types);
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.cha;
+
+import com.ibm.wala.classLoader.ClassHierarchySnapshot;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Check that a class hierarchy built from a snapshot is the same as one built from class files. */
+public class ClassHierarchySnapshotTest extends WalaTestCase {
+
+  @Test
+  public void testSnapshot() throws IOException, ClassHierarchyException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    File dir = Files.createTempDirectory("snapshot").toFile();
+    try {
+      List<String> expected = describe(ClassHierarchyFactory.make(scope));
+
+      ClassHierarchySnapshot first = new ClassHierarchySnapshot(dir);
+      Assert.assertEquals(expected, describe(ClassHierarchyFactory.make(scope, first)));
+      Assert.assertEquals(0, first.getNumberOfHits());
+      Assert.assertTrue(first.getNumberOfMisses() > 0);
+
+      ClassHierarchySnapshot second = new ClassHierarchySnapshot(dir);
+      Assert.assertEquals(expected, describe(ClassHierarchyFactory.make(scope, second)));
+      Assert.assertEquals(first.getNumberOfMisses(), second.getNumberOfHits());
+      Assert.assertEquals(0, second.getNumberOfMisses());
+    } finally {
+      File[] files = dir.listFiles();
+      if (files != null) {
+        for (File f : files) {
+          Files.delete(f.toPath());
+        }
+      }
+      Files.delete(dir.toPath());
+    }
+  }
+
+  /** A damaged snapshot file is ignored, and the classes in its jar file are parsed again. */
+  @Test
+  public void testDamagedSnapshot() throws IOException, ClassHierarchyException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    File dir = Files.createTempDirectory("snapshot").toFile();
+    try {
+      List<String> expected = describe(ClassHierarchyFactory.make(scope));
+      ClassHierarchySnapshot first = new ClassHierarchySnapshot(dir);
+      ClassHierarchyFactory.make(scope, first);
+
+      // give the name of the first class in each file a negative length
+      File[] files = dir.listFiles();
+      Assert.assertNotNull(files);
+      Assert.assertTrue(files.length > 0);
+      for (File f : files) {
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+          raf.seek(12);
+          raf.writeInt(-1);
+        }
+      }
+
+      ClassHierarchySnapshot second = new ClassHierarchySnapshot(dir);
+      Assert.assertEquals(expected, describe(ClassHierarchyFactory.make(scope, second)));
+      Assert.assertEquals(0, second.getNumberOfHits());
+      Assert.assertEquals(first.getNumberOfMisses(), second.getNumberOfMisses());
+    } finally {
+      File[] files = dir.listFiles();
+      if (files != null) {
+        for (File f : files) {
+          Files.delete(f.toPath());
+        }
+      }
+      Files.delete(dir.toPath());
+    }
+  }
+
+  /** @return for each class in iteration order, its header, members and hierarchy number */
+  private static List<String> describe(ClassHierarchy cha) {
+    List<String> result = new ArrayList<>();
+    for (IClass klass : cha) {
+      result.add(
+          klass
+              + " extends "
+              + klass.getSuperclass()
+              + " implements "
+              + klass.getDirectInterfaces()
+              + " modifiers "
+              + klass.getModifiers()
+              + " fields "
+              + klass.getDeclaredInstanceFields()
+              + klass.getDeclaredStaticFields()
+              + " methods "
+              + klass.getDeclaredMethods().size()
+              + " #"
+              + cha.getNumber(klass));
+    }
+    return result;
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.cha;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Check that loading classes on several threads builds the same class hierarchy. */
+public class ParallelClassHierarchyTest extends WalaTestCase {
+
+  @Test
+  public void testParallelLoading() throws IOException, ClassHierarchyException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy expected = ClassHierarchyFactory.make(scope);
+    ClassHierarchy actual = ClassHierarchyFactory.make(scope, 4);
+    Assert.assertEquals(describe(expected), describe(actual));
+  }
+
+  /** @return for each class in iteration order, its super class and hierarchy number */
+  private static List<String> describe(ClassHierarchy cha) {
+    List<String> result = new ArrayList<>();
+    for (IClass klass : cha) {
+      result.add(klass + " extends " + klass.getSuperclass() + " #" + cha.getNumber(klass));
+    }
+    return result;
+  }
+}
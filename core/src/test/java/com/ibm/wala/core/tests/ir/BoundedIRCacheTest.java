@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.ir;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.AuxiliaryCache;
+import com.ibm.wala.ssa.BoundedAuxiliaryCache;
+import com.ibm.wala.ssa.BoundedAuxiliaryCache.EvictionPolicy;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.types.TypeReference;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Check the eviction order and counters of an IR cache with a bounded number of entries. */
+public class BoundedIRCacheTest extends WalaTestCase {
+
+  private static List<IMethod> methods;
+
+  @BeforeClass
+  public static void beforeClass() throws ClassHierarchyException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    IClass klass = cha.lookupClass(TypeReference.JavaUtilVector);
+    methods = new ArrayList<>();
+    for (IMethod m : klass.getDeclaredMethods()) {
+      if (!m.isAbstract() && !m.isNative() && methods.size() < 3) {
+        methods.add(m);
+      }
+    }
+    Assert.assertEquals(3, methods.size());
+  }
+
+  @Test
+  public void testLRU() {
+    BoundedAuxiliaryCache irs = new BoundedAuxiliaryCache(2, EvictionPolicy.LRU);
+    AnalysisCacheImpl cache = makeCache(irs);
+    IR a = getIR(cache, 0);
+    getIR(cache, 1);
+    // touch a, so that b is the least recently used
+    Assert.assertSame(a, getIR(cache, 0));
+    getIR(cache, 2);
+    Assert.assertEquals(2, irs.size());
+    Assert.assertEquals(1, irs.getEvictions());
+    Assert.assertSame(a, getIR(cache, 0));
+    Assert.assertEquals(2, irs.getHits());
+    // b was evicted and is rebuilt
+    getIR(cache, 1);
+    Assert.assertEquals(4, irs.getMisses());
+  }
+
+  @Test
+  public void testLFU() {
+    BoundedAuxiliaryCache irs = new BoundedAuxiliaryCache(2, EvictionPolicy.LFU);
+    AnalysisCacheImpl cache = makeCache(irs);
+    IR a = getIR(cache, 0);
+    IR b = getIR(cache, 1);
+    getIR(cache, 1);
+    getIR(cache, 1);
+    getIR(cache, 0);
+    // a is now the least frequently used entry, though b was used less recently
+    getIR(cache, 2);
+    Assert.assertSame(b, getIR(cache, 1));
+    Assert.assertNotSame(a, getIR(cache, 0));
+    Assert.assertEquals(2, irs.getEvictions());
+  }
+
+  @Test
+  public void testBytesBudget() {
+    BoundedAuxiliaryCache irs =
+        new BoundedAuxiliaryCache(
+            Long.MAX_VALUE, EvictionPolicy.LRU, BoundedAuxiliaryCache.ESTIMATED_BYTES);
+    AnalysisCacheImpl cache = makeCache(irs);
+    for (int i = 0; i < methods.size(); i++) {
+      getIR(cache, i);
+    }
+    Assert.assertEquals(methods.size(), irs.size());
+    Assert.assertTrue(irs.getWeight() > methods.size());
+    Assert.assertEquals(0, irs.getEvictions());
+    cache.clear();
+    Assert.assertEquals(0, irs.size());
+    Assert.assertEquals(0, irs.getWeight());
+  }
+
+  private static AnalysisCacheImpl makeCache(BoundedAuxiliaryCache irs) {
+    return new AnalysisCacheImpl(
+        new DefaultIRFactory(),
+        new AnalysisOptions().getSSAOptions(),
+        irs,
+        new AuxiliaryCache());
+  }
+
+  private static IR getIR(AnalysisCacheImpl cache, int i) {
+    return cache.getIR(methods.get(i), Everywhere.EVERYWHERE);
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.ir;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.PersistentIRFactory;
+import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.types.TypeReference;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Check that IRs restored from disk print the same as IRs built from bytecode. */
+public class PersistentIRFactoryTest extends WalaTestCase {
+
+  @Test
+  public void testRestore() throws IOException, ClassHierarchyException {
+    List<IMethod> methods = makeMethods();
+    SSAOptions options = SSAOptions.defaultOptions();
+    DefaultIRFactory plain = new DefaultIRFactory();
+    File dir = Files.createTempDirectory("irs").toFile();
+    try {
+      PersistentIRFactory first = new PersistentIRFactory(dir);
+      for (IMethod m : methods) {
+        first.makeIR(m, Everywhere.EVERYWHERE, options);
+      }
+      Assert.assertEquals(0, first.getNumberOfHits());
+      Assert.assertEquals(methods.size(), first.getNumberOfMisses());
+      first.save();
+
+      // save drops the IRs held in memory, so they are read again from disk
+      for (IMethod m : methods) {
+        first.makeIR(m, Everywhere.EVERYWHERE, options);
+      }
+      Assert.assertEquals(methods.size(), first.getNumberOfHits());
+      Assert.assertEquals(methods.size(), first.getNumberOfMisses());
+
+      PersistentIRFactory second = new PersistentIRFactory(dir);
+      for (IMethod m : methods) {
+        IR expected = plain.makeIR(m, Everywhere.EVERYWHERE, options);
+        IR actual = second.makeIR(m, Everywhere.EVERYWHERE, options);
+        Assert.assertEquals(expected.toString(), actual.toString());
+      }
+      Assert.assertEquals(methods.size(), second.getNumberOfHits());
+      Assert.assertEquals(0, second.getNumberOfMisses());
+    } finally {
+      File[] files = dir.listFiles();
+      if (files != null) {
+        for (File f : files) {
+          Files.delete(f.toPath());
+        }
+      }
+      Files.delete(dir.toPath());
+    }
+  }
+
+  /** IRs built with other options must not be restored from IRs built with the defaults. */
+  @Test
+  public void testOtherOptions() throws IOException, ClassHierarchyException {
+    List<IMethod> methods = makeMethods();
+    SSAOptions piNodes = new SSAOptions();
+    piNodes.setPiNodePolicy(SSAOptions.getAllBuiltInPiNodes());
+    SSAOptions defaultValues = new SSAOptions();
+    defaultValues.setDefaultValues((symtab, valueNumber) -> symtab.getNullConstant());
+    DefaultIRFactory plain = new DefaultIRFactory();
+    File dir = Files.createTempDirectory("irs").toFile();
+    try {
+      PersistentIRFactory first = new PersistentIRFactory(dir);
+      for (IMethod m : methods) {
+        first.makeIR(m, Everywhere.EVERYWHERE, SSAOptions.defaultOptions());
+      }
+      first.save();
+
+      PersistentIRFactory second = new PersistentIRFactory(dir);
+      for (SSAOptions options : new SSAOptions[] {piNodes, defaultValues}) {
+        for (IMethod m : methods) {
+          IR expected = plain.makeIR(m, Everywhere.EVERYWHERE, options);
+          IR actual = second.makeIR(m, Everywhere.EVERYWHERE, options);
+          Assert.assertEquals(expected.toString(), actual.toString());
+        }
+      }
+      Assert.assertEquals(0, second.getNumberOfHits());
+      Assert.assertEquals(0, second.getNumberOfMisses());
+    } finally {
+      File[] files = dir.listFiles();
+      if (files != null) {
+        for (File f : files) {
+          Files.delete(f.toPath());
+        }
+      }
+      Files.delete(dir.toPath());
+    }
+  }
+
+  private static List<IMethod> makeMethods() throws IOException, ClassHierarchyException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    List<IMethod> methods = new ArrayList<>();
+    for (TypeReference t :
+        new TypeReference[] {TypeReference.JavaUtilVector, TypeReference.JavaLangString}) {
+      IClass klass = cha.lookupClass(t);
+      for (IMethod m : klass.getDeclaredMethods()) {
+        if (!m.isAbstract() && !m.isNative()) {
+          methods.add(m);
+        }
+      }
+    }
+    return methods;
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.ptrs;
+
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.LocalPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationSystem;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.intset.OrdinalSet;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Check that hash-consing the points-to sets after solving keeps the pointer analysis result. */
+public class CompactPointsToSetsTest extends WalaTestCase {
+
+  @Test
+  public void testCompactPointsToSets()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    IClassHierarchy cha = CallGraphTestUtil.makeRegressionClassHierarchy();
+    Map<String, Set<String>> expected =
+        CallGraphTestUtil.zeroOneCFAPointsToSets(cha, "Ldemandpa/TestHashSet", o -> {});
+    Map<String, Set<String>> actual =
+        CallGraphTestUtil.zeroOneCFAPointsToSets(
+            cha, "Ldemandpa/TestHashSet", o -> o.setCompactPointsToSets(true));
+    Assert.assertFalse(expected.isEmpty());
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void testSharedPointsToSets()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    // equal points-to sets of locals the solver tracks are now one object
+    IClassHierarchy cha = CallGraphTestUtil.makeRegressionClassHierarchy();
+    SSAPropagationCallGraphBuilder builder =
+        CallGraphTestUtil.makeZeroOneCFABuilder(cha, "Ldemandpa/TestHashSet");
+    builder.getOptions().setCompactPointsToSets(true);
+    builder.makeCallGraph(builder.getOptions(), null);
+    PointerAnalysis<InstanceKey> pa = builder.getPointerAnalysis();
+    Map<Set<InstanceKey>, OrdinalSet<InstanceKey>> distinct = HashMapFactory.make();
+    int shared = 0;
+    PropagationSystem system = builder.getPropagationSystem();
+    for (PointerKey pk : pa.getPointerKeys()) {
+      if (!(pk instanceof LocalPointerKey) || system.isImplicit(pk)) {
+        continue;
+      }
+      OrdinalSet<InstanceKey> pts = pa.getPointsToSet(pk);
+      if (pts.size() > 0) {
+        Set<InstanceKey> value = Iterator2Collection.toSet(pts.iterator());
+        OrdinalSet<InstanceKey> previous = distinct.putIfAbsent(value, pts);
+        if (previous != null) {
+          Assert.assertSame(previous, pts);
+          shared++;
+        }
+      }
+    }
+    Assert.assertTrue(shared > 0);
+  }
+}
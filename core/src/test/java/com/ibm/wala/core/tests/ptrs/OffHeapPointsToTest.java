@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.ptrs;
+
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationSystem;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.intset.OffHeapIntSetStore;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Check that keeping pointer keys and points-to sets off heap keeps the pointer analysis result.
+ */
+public class OffHeapPointsToTest extends WalaTestCase {
+
+  @Test
+  public void testOffHeapStorage()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    IClassHierarchy cha = CallGraphTestUtil.makeRegressionClassHierarchy();
+    Map<String, Set<String>> expected =
+        CallGraphTestUtil.zeroOneCFAPointsToSets(cha, "Ldemandpa/TestArraySetIter", o -> {});
+    Map<String, Set<String>> actual =
+        CallGraphTestUtil.zeroOneCFAPointsToSets(
+            cha, "Ldemandpa/TestArraySetIter", o -> o.setUseOffHeapStorage(true));
+    Assert.assertFalse(expected.isEmpty());
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void testCompactOffHeapTwice()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    IClassHierarchy cha = CallGraphTestUtil.makeRegressionClassHierarchy();
+    SSAPropagationCallGraphBuilder builder =
+        CallGraphTestUtil.makeZeroOneCFABuilder(cha, "Ldemandpa/TestArraySetIter");
+    builder.makeCallGraph(builder.getOptions(), null);
+    PropagationSystem system = builder.getPropagationSystem();
+    Map<String, Set<String>> expected =
+        CallGraphTestUtil.pointsToSets(builder.getPointerAnalysis());
+    try (OffHeapIntSetStore first = new OffHeapIntSetStore();
+        OffHeapIntSetStore second = new OffHeapIntSetStore()) {
+      system.compactPointsToSets(first);
+      long size = first.getSizeInBytes();
+      // every set moves to the new store, and nothing more is appended to the old one
+      system.compactPointsToSets(second);
+      Assert.assertEquals(size, first.getSizeInBytes());
+      Assert.assertEquals(size, second.getSizeInBytes());
+    }
+    Assert.assertEquals(expected, CallGraphTestUtil.pointsToSets(builder.getPointerAnalysis()));
+  }
+}
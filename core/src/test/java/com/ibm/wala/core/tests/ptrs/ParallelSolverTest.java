@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.ptrs;
+
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.fixedpoint.impl.WorklistStrategy;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.CancelException;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Check that the optional modes of the points-to solver (parallel evaluation, difference
+ * propagation, cycle collapsing, work list order) compute the same result as the default
+ * sequential solver.
+ */
+public class ParallelSolverTest extends WalaTestCase {
+
+  @Test
+  public void testHashSet()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    doParallelTest("Ldemandpa/TestHashSet");
+  }
+
+  @Test
+  public void testArraySetIter()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    doParallelTest("Ldemandpa/TestArraySetIter");
+  }
+
+  @Test
+  public void testDifferencePropagation()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    doSolverTest("Ldemandpa/TestHashSet", o -> o.setUseDifferencePropagation(true));
+  }
+
+  @Test
+  public void testParallelDifferencePropagation()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    doSolverTest(
+        "Ldemandpa/TestArraySetIter",
+        o -> {
+          o.setNumberOfSolverThreads(4);
+          o.setUseDifferencePropagation(true);
+        });
+  }
+
+  @Test
+  public void testCollapseAssignmentCycles()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    doSolverTest("Ldemandpa/TestHashSet", o -> o.setCollapseAssignmentCycles(true));
+  }
+
+  @Test
+  public void testWorklistStrategies()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    doSolverTest("Ldemandpa/TestHashSet", o -> o.setSolverWorklistStrategy(WorklistStrategy.FIFO));
+    doSolverTest("Ldemandpa/TestHashSet", o -> o.setSolverWorklistStrategy(WorklistStrategy.LIFO));
+  }
+
+  @Test
+  public void testAllSolverOptions()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    doSolverTest(
+        "Ldemandpa/TestArraySetIter",
+        o -> {
+          o.setNumberOfSolverThreads(4);
+          o.setUseDifferencePropagation(true);
+          o.setCollapseAssignmentCycles(true);
+        });
+  }
+
+  private static void doParallelTest(String mainClass)
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    doSolverTest(mainClass, o -> o.setNumberOfSolverThreads(4));
+  }
+
+  private static void doSolverTest(String mainClass, Consumer<AnalysisOptions> configuration)
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    IClassHierarchy cha = CallGraphTestUtil.makeRegressionClassHierarchy();
+    Map<String, Set<String>> expected =
+        CallGraphTestUtil.zeroOneCFAPointsToSets(cha, mainClass, o -> {});
+    Map<String, Set<String>> actual =
+        CallGraphTestUtil.zeroOneCFAPointsToSets(cha, mainClass, configuration);
+    Assert.assertFalse(expected.isEmpty());
+    Assert.assertEquals(expected, actual);
+  }
+}
@@ -40,6 +40,9 @@ import com.ibm.wala.ipa.callgraph.util.CallGraphSearchUtil;
 import com.ibm.wala.ipa.cha.ClassHierarchyException;
 import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ipa.modref.ModRef;
+import com.ibm.wala.ipa.slicer.BatchSlicer;
+import com.ibm.wala.ipa.slicer.HeapExclusions;
 import com.ibm.wala.ipa.slicer.HeapStatement.HeapReturnCaller;
 import com.ibm.wala.ipa.slicer.MethodEntryStatement;
 import com.ibm.wala.ipa.slicer.NormalReturnCaller;
@@ -54,9 +57,13 @@ import com.ibm.wala.ipa.slicer.thin.ThinSlicer;
 import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.types.Descriptor;
 import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.config.FileOfClasses;
 import com.ibm.wala.util.graph.GraphIntegrity;
 import com.ibm.wala.util.graph.GraphIntegrity.UnsoundGraphException;
+import com.ibm.wala.util.graph.traverse.DFS;
+import com.ibm.wala.util.intset.OrdinalSet;
 import com.ibm.wala.util.io.FileUtil;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -64,6 +71,7 @@ import java.io.InputStream;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import org.junit.AfterClass;
 import org.junit.Assert;
@@ -659,6 +667,37 @@ public class SlicerTest {
     Assert.assertEquals(slice.toString(), 1, SlicerUtil.countPutfields(slice));
   }
 
+  @Test
+  public void testTestFieldsOnDemand()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = findOrCreateAnalysisScope();
+
+    IClassHierarchy cha = findOrCreateCHA(scope);
+    Iterable<Entrypoint> entrypoints =
+        com.ibm.wala.ipa.callgraph.impl.Util.makeMainEntrypoints(
+            cha, TestConstants.SLICE_TESTFIELDS);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+
+    CallGraphBuilder<InstanceKey> builder =
+        Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha);
+    CallGraph cg = builder.makeCallGraph(options, null);
+
+    CGNode main = CallGraphSearchUtil.findMainMethod(cg);
+
+    Statement s = findCallToDoNothing(main);
+    System.err.println("Statement: " + s);
+    // the demand-driven SDG must give the same slice as the eagerly computed one
+    final PointerAnalysis<InstanceKey> pointerAnalysis = builder.getPointerAnalysis();
+    Collection<Statement> expected =
+        Slicer.computeBackwardSlice(
+            s, cg, pointerAnalysis, DataDependenceOptions.FULL, ControlDependenceOptions.FULL);
+    Collection<Statement> slice =
+        Slicer.computeBackwardSliceOnDemand(
+            s, cg, pointerAnalysis, DataDependenceOptions.FULL, ControlDependenceOptions.FULL);
+    SlicerUtil.dumpSlice(slice);
+    Assert.assertEquals(HashSetFactory.make(expected), HashSetFactory.make(slice));
+  }
+
   @Test
   public void testThin1()
       throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
@@ -733,6 +772,67 @@ public class SlicerTest {
     Assert.assertEquals(slice.toString(), 2, SlicerUtil.countGetstatics(slice));
   }
 
+  @Test
+  public void testTestGlobalOnDemandCalleesFirst()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = findOrCreateAnalysisScope();
+
+    IClassHierarchy cha = findOrCreateCHA(scope);
+    Iterable<Entrypoint> entrypoints =
+        com.ibm.wala.ipa.callgraph.impl.Util.makeMainEntrypoints(
+            cha, TestConstants.SLICE_TESTGLOBAL);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+
+    CallGraphBuilder<InstanceKey> builder =
+        Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha);
+    CallGraph cg = builder.makeCallGraph(options, null);
+
+    CGNode main = CallGraphSearchUtil.findMainMethod(cg);
+
+    Statement s = findCallToDoNothing(main);
+    System.err.println("Statement: " + s);
+    // look up the heap side effects of each callee before those of its callers, so that each
+    // lookup of the demand-driven SDG computes the result of one more node
+    ModRef<InstanceKey> calleesFirst =
+        new ModRef<InstanceKey>() {
+          @Override
+          public Map<CGNode, OrdinalSet<PointerKey>> computeModOnDemand(
+              CallGraph cg, PointerAnalysis<InstanceKey> pa, HeapExclusions heapExclude) {
+            return lookUpCalleesFirst(cg, super.computeModOnDemand(cg, pa, heapExclude));
+          }
+
+          @Override
+          public Map<CGNode, OrdinalSet<PointerKey>> computeRefOnDemand(
+              CallGraph cg, PointerAnalysis<InstanceKey> pa, HeapExclusions heapExclude) {
+            return lookUpCalleesFirst(cg, super.computeRefOnDemand(cg, pa, heapExclude));
+          }
+        };
+    final PointerAnalysis<InstanceKey> pointerAnalysis = builder.getPointerAnalysis();
+    Collection<Statement> expected =
+        Slicer.computeBackwardSlice(
+            s, cg, pointerAnalysis, DataDependenceOptions.FULL, ControlDependenceOptions.NONE);
+    SDG<InstanceKey> sdg =
+        new SDG<>(
+            cg,
+            pointerAnalysis,
+            calleesFirst,
+            DataDependenceOptions.FULL,
+            ControlDependenceOptions.NONE,
+            null,
+            true);
+    Collection<Statement> slice = Slicer.computeBackwardSlice(sdg, s);
+    SlicerUtil.dumpSlice(slice);
+    Assert.assertEquals(HashSetFactory.make(expected), HashSetFactory.make(slice));
+  }
+
+  private static Map<CGNode, OrdinalSet<PointerKey>> lookUpCalleesFirst(
+      CallGraph cg, Map<CGNode, OrdinalSet<PointerKey>> result) {
+    for (CGNode n : Iterator2Iterable.make(DFS.iterateFinishTime(cg))) {
+      result.get(n);
+    }
+    return result;
+  }
+
   @Test
   public void testTestMultiTarget()
       throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
@@ -962,6 +1062,46 @@ public class SlicerTest {
     GraphIntegrity.check(sdg);
   }
 
+  @Test
+  public void testBatch()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = findOrCreateAnalysisScope();
+
+    IClassHierarchy cha = findOrCreateCHA(scope);
+    Iterable<Entrypoint> entrypoints =
+        com.ibm.wala.ipa.callgraph.impl.Util.makeMainEntrypoints(
+            cha, TestConstants.SLICE_TESTRECURSION);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+
+    CallGraphBuilder<InstanceKey> builder =
+        Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    SDG<?> sdg =
+        new SDG<>(
+            cg,
+            builder.getPointerAnalysis(),
+            DataDependenceOptions.FULL,
+            ControlDependenceOptions.FULL);
+
+    CGNode main = CallGraphSearchUtil.findMainMethod(cg);
+    List<Statement> roots =
+        sdg.getPDG(main).stream()
+            .filter(s -> s.getKind() == Statement.Kind.NORMAL)
+            .collect(Collectors.toList());
+
+    // each batched slice must be the same as the slice computed on its own
+    Map<Statement, Collection<Statement>> slices = Slicer.computeBackwardSlices(sdg, roots);
+    BatchSlicer parallel = new BatchSlicer(sdg, true);
+    parallel.setNumberOfThreads(2);
+    Map<Statement, Collection<Statement>> parallelSlices = parallel.slice(roots);
+    for (Statement s : roots) {
+      Collection<Statement> expected =
+          HashSetFactory.make(Slicer.computeBackwardSlice(sdg, Collections.singleton(s)));
+      Assert.assertEquals(s.toString(), expected, HashSetFactory.make(slices.get(s)));
+      Assert.assertEquals(s.toString(), expected, HashSetFactory.make(parallelSlices.get(s)));
+    }
+  }
+
   @Test
   public void testJustThrow()
       throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
@@ -16,7 +16,13 @@ import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
 import com.ibm.wala.core.tests.util.TestConstants;
 import com.ibm.wala.core.tests.util.WalaTestCase;
 import com.ibm.wala.core.util.config.AnalysisScopeReader;
+import com.ibm.wala.dataflow.IFDS.IMergeFunction;
+import com.ibm.wala.dataflow.IFDS.IPartiallyBalancedFlowFunctions;
 import com.ibm.wala.dataflow.IFDS.ISupergraph;
+import com.ibm.wala.dataflow.IFDS.PartiallyBalancedTabulationProblem;
+import com.ibm.wala.dataflow.IFDS.PartiallyBalancedTabulationSolver;
+import com.ibm.wala.dataflow.IFDS.PathEdge;
+import com.ibm.wala.dataflow.IFDS.TabulationDomain;
 import com.ibm.wala.dataflow.IFDS.TabulationResult;
 import com.ibm.wala.dataflow.graph.BitVectorSolver;
 import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
@@ -49,6 +55,8 @@ import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
 import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import org.junit.AfterClass;
 import org.junit.Assert;
@@ -224,4 +232,133 @@ public class DataflowTest extends WalaTestCase {
       }
     }
   }
+
+  @Test
+  public void testContextSensitiveConcurrent() throws IllegalArgumentException, CancelException {
+    Iterable<Entrypoint> entrypoints =
+        com.ibm.wala.ipa.callgraph.impl.Util.makeMainEntrypoints(cha, "Ldataflow/StaticDataflow");
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+
+    CallGraphBuilder<InstanceKey> builder =
+        Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    ContextSensitiveReachingDefs reachingDefs = new ContextSensitiveReachingDefs(cg);
+    TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
+        sequential = reachingDefs.analyze();
+    TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
+        concurrent = reachingDefs.analyze(4);
+    for (BasicBlockInContext<IExplodedBasicBlock> bb : reachingDefs.getSupergraph()) {
+      Assert.assertTrue(
+          bb.toString(), sequential.getResult(bb).sameValue(concurrent.getResult(bb)));
+    }
+    Assert.assertEquals(
+        sequential.getSupergraphNodesReached(), concurrent.getSupergraphNodesReached());
+  }
+
+  /** A second concurrent solve must process seeds added after the first one finished. */
+  @Test
+  public void testContextSensitiveConcurrentAddSeed()
+      throws IllegalArgumentException, CancelException {
+    Iterable<Entrypoint> entrypoints =
+        com.ibm.wala.ipa.callgraph.impl.Util.makeMainEntrypoints(cha, "Ldataflow/StaticDataflow");
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+
+    CallGraphBuilder<InstanceKey> builder =
+        Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    ContextSensitiveReachingDefs reachingDefs = new ContextSensitiveReachingDefs(cg);
+    TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
+        sequential = reachingDefs.analyze();
+
+    PartiallyBalancedTabulationProblem<
+            BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
+        problem = reachingDefs.makeProblem();
+    // the putstatic instructions generate their facts when they are reached, so most seeds are
+    // redundant; start from none so that only the added seeds can give the result
+    PartiallyBalancedTabulationSolver<
+            BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
+        solver =
+            PartiallyBalancedTabulationSolver.createPartiallyBalancedTabulationSolver(
+                new PartiallySeededProblem<>(problem, Collections.emptySet()), null);
+    solver.setNumberOfThreads(4);
+    Assert.assertTrue(solver.solve().getSupergraphNodesReached().isEmpty());
+    for (PathEdge<BasicBlockInContext<IExplodedBasicBlock>> seed : problem.initialSeeds()) {
+      solver.addSeed(seed);
+    }
+    TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
+        concurrent = solver.solve();
+    for (BasicBlockInContext<IExplodedBasicBlock> bb : reachingDefs.getSupergraph()) {
+      Assert.assertTrue(
+          bb.toString(), sequential.getResult(bb).sameValue(concurrent.getResult(bb)));
+    }
+    Assert.assertEquals(
+        sequential.getSupergraphNodesReached(), concurrent.getSupergraphNodesReached());
+  }
+
+  /** A problem that starts from given seeds rather than those of another problem. */
+  private static class PartiallySeededProblem<T, P, F>
+      implements PartiallyBalancedTabulationProblem<T, P, F> {
+
+    private final PartiallyBalancedTabulationProblem<T, P, F> delegate;
+
+    private final Collection<PathEdge<T>> seeds;
+
+    PartiallySeededProblem(
+        PartiallyBalancedTabulationProblem<T, P, F> delegate, Collection<PathEdge<T>> seeds) {
+      this.delegate = delegate;
+      this.seeds = seeds;
+    }
+
+    @Override
+    public T getFakeEntry(T n) {
+      return delegate.getFakeEntry(n);
+    }
+
+    @Override
+    public IPartiallyBalancedFlowFunctions<T> getFunctionMap() {
+      return delegate.getFunctionMap();
+    }
+
+    @Override
+    public ISupergraph<T, P> getSupergraph() {
+      return delegate.getSupergraph();
+    }
+
+    @Override
+    public TabulationDomain<F, T> getDomain() {
+      return delegate.getDomain();
+    }
+
+    @Override
+    public Collection<PathEdge<T>> initialSeeds() {
+      return seeds;
+    }
+
+    @Override
+    public IMergeFunction getMergeFunction() {
+      return delegate.getMergeFunction();
+    }
+  }
+
+  @Test
+  public void testContextSensitiveCompact() throws IllegalArgumentException, CancelException {
+    Iterable<Entrypoint> entrypoints =
+        com.ibm.wala.ipa.callgraph.impl.Util.makeMainEntrypoints(cha, "Ldataflow/StaticDataflow");
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+
+    CallGraphBuilder<InstanceKey> builder =
+        Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    ContextSensitiveReachingDefs reachingDefs = new ContextSensitiveReachingDefs(cg);
+    TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
+        full = reachingDefs.analyze();
+    for (int threads : new int[] {1, 4}) {
+      TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
+          compact = reachingDefs.analyze(threads, true);
+      for (BasicBlockInContext<IExplodedBasicBlock> bb : reachingDefs.getSupergraph()) {
+        Assert.assertTrue(bb.toString(), full.getResult(bb).sameValue(compact.getResult(bb)));
+      }
+      Assert.assertEquals(full.getSupergraphNodesReached(), compact.getSupergraphNodesReached());
+    }
+  }
 }
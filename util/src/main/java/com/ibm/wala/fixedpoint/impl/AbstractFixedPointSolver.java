@@ -22,11 +22,15 @@ import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.MonitorUtil;
 import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
 import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.concurrent.WorkerPool;
 import com.ibm.wala.util.debug.VerboseAction;
 import com.ibm.wala.util.graph.INodeWithNumber;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import org.jspecify.annotations.Nullable;
 
 /**
@@ -54,6 +58,12 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
 
   public static final int DEFAULT_PERIODIC_MAINTENANCE_INTERVAL = 100000;
 
+  /**
+   * In parallel mode, the maximum number of statements drained from the work list and evaluated
+   * concurrently in one round.
+   */
+  public static final int DEFAULT_PARALLEL_BATCH_SIZE = 4096;
+
   /**
    * A tuning parameter; how may new IStatementDefinitionss must be added before doing a new
    * topological sort? TODO: Tune this empirically.
@@ -89,12 +99,24 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
   /** During verbose evaluation, holds the number of dataflow equations created */
   private int nCreated = 0;
 
+  /** the order in which the iterative solver evaluates statements */
+  private WorklistStrategy worklistStrategy = WorklistStrategy.TOPOLOGICAL;
+
   /** worklist for the iterative solver */
-  protected Worklist workList = new Worklist();
+  protected IWorklist workList = worklistStrategy.makeWorklist();
 
   /** A boolean which is initially true, but set to false after the first call to solve(); */
   private boolean firstSolve = true;
 
+  /**
+   * How many threads should evaluate statements? A value of 1 (the default) selects the classic
+   * sequential solver.
+   */
+  private int numberOfThreads = 1;
+
+  /** In parallel mode, how many statements are evaluated in a single concurrent round? */
+  private int parallelBatchSize = DEFAULT_PARALLEL_BATCH_SIZE;
+
   protected abstract T[] makeStmtRHS(int size);
 
   /** Some setup which occurs only before the first solve */
@@ -127,6 +149,10 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
       initForFirstSolve();
     }
 
+    if (numberOfThreads > 1) {
+      return solveConcurrently(monitor);
+    }
+
     while (!workList.isEmpty()) {
       MonitorUtil.throwExceptionIfCanceled(monitor);
       orderStatements();
@@ -137,7 +163,7 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
       if (DEBUG) {
         System.err.println(("Before evaluation " + s));
       }
-      byte code = s.evaluate();
+      byte code = evaluate(s);
       nEvaluated++;
       if (verbose) {
         if (nEvaluated % getVerboseInterval() == 0) {
@@ -161,6 +187,159 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
     return globalChange;
   }
 
+  /**
+   * Parallel variant of the main solver loop.
+   *
+   * <p>Each round drains a batch of statements from the work list. Statements for which {@link
+   * #isConcurrentlyEvaluable(AbstractStatement)} holds are partitioned by left-hand side among the
+   * worker threads, so that all updates to a given variable happen on one thread; the variables a
+   * statement touches are locked in a global order while it is evaluated, since another worker may
+   * be writing the right-hand side. The remaining statements, which may have side effects on the
+   * system itself, are then evaluated sequentially on the calling thread. All work list and system
+   * bookkeeping happens on the calling thread between rounds.
+   *
+   * <p>Since the statements are monotone, this reaches the same fixed point as the sequential loop;
+   * only the order of evaluation differs.
+   */
+  @SuppressWarnings("unchecked")
+  private boolean solveConcurrently(IProgressMonitor monitor) throws CancelException {
+    boolean globalChange = false;
+    ExecutorService executor = WorkerPool.make(numberOfThreads, "fixed-point solver worker");
+    try {
+      while (!workList.isEmpty()) {
+        MonitorUtil.throwExceptionIfCanceled(monitor);
+        orderStatements();
+
+        List<List<AbstractStatement>> partitions = new ArrayList<>(numberOfThreads);
+        for (int i = 0; i < numberOfThreads; i++) {
+          partitions.add(new ArrayList<>());
+        }
+        List<AbstractStatement> sequential = new ArrayList<>();
+        for (int i = 0; i < parallelBatchSize && !workList.isEmpty(); i++) {
+          AbstractStatement s = workList.takeStatement();
+          if (s instanceof UnaryStatement
+              && s.getLHS() != null
+              && isConcurrentlyEvaluable((AbstractStatement<T, ?>) s)) {
+            int p = (s.getLHS().getGraphNodeId() & Integer.MAX_VALUE) % numberOfThreads;
+            partitions.get(p).add(s);
+          } else {
+            sequential.add(s);
+          }
+        }
+
+        List<Future<byte[]>> results = new ArrayList<>(numberOfThreads);
+        for (List<AbstractStatement> partition : partitions) {
+          if (!partition.isEmpty()) {
+            results.add(executor.submit(makeWorker(partition)));
+          }
+        }
+        // wait for all workers before any bookkeeping, which may itself modify the system
+        List<byte[]> codes = new ArrayList<>(results.size());
+        for (Future<byte[]> f : results) {
+          codes.add(
+              WorkerPool.getResult(
+                  f,
+                  CancelException.class,
+                  e -> CancelException.make("interrupted while solving")));
+        }
+        int r = 0;
+        for (List<AbstractStatement> partition : partitions) {
+          if (partition.isEmpty()) {
+            continue;
+          }
+          byte[] c = codes.get(r++);
+          for (int i = 0; i < c.length; i++) {
+            globalChange |= recordEvaluation(partition.get(i), c[i]);
+          }
+        }
+
+        for (AbstractStatement s : sequential) {
+          globalChange |= recordEvaluation(s, evaluate(s));
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    return globalChange;
+  }
+
+  /**
+   * Bookkeeping after statement s has been evaluated in parallel mode.
+   *
+   * @return true iff the evaluation changed the lhs
+   */
+  @SuppressWarnings("unchecked")
+  private boolean recordEvaluation(AbstractStatement s, byte code) {
+    nEvaluated++;
+    if (verbose) {
+      if (nEvaluated % getVerboseInterval() == 0) {
+        performVerboseAction();
+      }
+      if (nEvaluated % getPeriodicMaintainInterval() == 0) {
+        periodicMaintenance();
+      }
+    }
+    boolean changed = isChanged(code);
+    if (changed) {
+      updateWorkList(s);
+    }
+    if (isFixed(code)) {
+      removeStatement(s);
+    }
+    return changed;
+  }
+
+  private static Callable<byte[]> makeWorker(List<AbstractStatement> partition) {
+    return () -> {
+      byte[] codes = new byte[partition.size()];
+      for (int i = 0; i < codes.length; i++) {
+        codes[i] = evaluateLocked((UnaryStatement<?>) partition.get(i));
+      }
+      return codes;
+    };
+  }
+
+  /**
+   * Evaluate a unary statement while holding the monitors of both its variables. The monitors are
+   * acquired in order of hash code, which is unique for {@link
+   * com.ibm.wala.fixpoint.AbstractVariable}s, so workers cannot deadlock.
+   */
+  private static byte evaluateLocked(UnaryStatement<?> s) {
+    Object lhs = s.getLHS();
+    Object rhs = s.getRightHandSide();
+    if (lhs == rhs) {
+      synchronized (lhs) {
+        return s.evaluate();
+      }
+    }
+    Object first = lhs.hashCode() < rhs.hashCode() ? lhs : rhs;
+    Object second = first == lhs ? rhs : lhs;
+    synchronized (first) {
+      synchronized (second) {
+        return s.evaluate();
+      }
+    }
+  }
+
+  /**
+   * In parallel mode, may statement s be evaluated on a worker thread, concurrently with other
+   * statements? This is only safe if evaluating s reads its right-hand side and updates its
+   * left-hand side, without otherwise touching the system. Subclasses should override as desired;
+   * by default every statement is evaluated on the calling thread.
+   */
+  protected boolean isConcurrentlyEvaluable(AbstractStatement<T, ?> s) {
+    return false;
+  }
+
+  /**
+   * Evaluate statement s on the calling thread. Subclasses may override this to observe what an
+   * evaluation adds to the system; statements evaluated on parallel workers do not pass through
+   * here.
+   */
+  protected byte evaluate(AbstractStatement<T, ?> s) {
+    return s.evaluate();
+  }
+
   @Override
   public void performVerboseAction() {
     System.err.println("Evaluated " + nEvaluated);
@@ -279,7 +458,7 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
   @SuppressWarnings("unchecked")
   private void incorporateNewStatement(boolean toWorkList, boolean eager, AbstractStatement s) {
     if (eager) {
-      byte code = s.evaluate();
+      byte code = evaluate(s);
       if (verbose) {
         nEvaluated++;
         if (nEvaluated % getVerboseInterval() == 0) {
@@ -439,11 +618,12 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
   protected abstract void initializeWorkList();
 
   /**
-   * Update the worklist, assuming that a particular equation has been re-evaluated
+   * Update the worklist, assuming that a particular equation has been re-evaluated and changed its
+   * left-hand side
    *
    * @param s the equation that has been re-evaluated.
    */
-  private void updateWorkList(AbstractStatement<T, ?> s) {
+  protected void updateWorkList(AbstractStatement<T, ?> s) {
     // find each equation which uses this lattice cell, and
     // add it to the work list
     T v = s.getLHS();
@@ -472,6 +652,9 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
 
   /** */
   public void orderStatements() {
+    if (!worklistStrategy.usesTopologicalOrder()) {
+      return;
+    }
 
     if (nextOrderNumber > minSizeForTopSort) {
       if (((double) topologicalCounter / (double) nextOrderNumber) > topologicalGrowthFactor) {
@@ -494,7 +677,7 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
       AbstractStatement eq = workList.takeStatement();
       temp.add(eq);
     }
-    workList = new Worklist();
+    workList = worklistStrategy.makeWorklist();
 
     // compute new ordering
     getFixedPointSystem().reorder();
@@ -541,6 +724,49 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
     topologicalGrowthFactor = d;
   }
 
+  public int getNumberOfThreads() {
+    return numberOfThreads;
+  }
+
+  /** @param n how many threads should evaluate statements; 1 selects the sequential solver */
+  public void setNumberOfThreads(int n) {
+    if (n < 1) {
+      throw new IllegalArgumentException("invalid number of threads: " + n);
+    }
+    numberOfThreads = n;
+  }
+
+  public int getParallelBatchSize() {
+    return parallelBatchSize;
+  }
+
+  public void setParallelBatchSize(int n) {
+    if (n < 1) {
+      throw new IllegalArgumentException("invalid batch size: " + n);
+    }
+    parallelBatchSize = n;
+  }
+
+  public WorklistStrategy getWorklistStrategy() {
+    return worklistStrategy;
+  }
+
+  /**
+   * Select the order in which statements are evaluated. Statements already on the work list are
+   * carried over.
+   */
+  public void setWorklistStrategy(WorklistStrategy strategy) {
+    if (strategy == null) {
+      throw new IllegalArgumentException("null strategy");
+    }
+    IWorklist old = workList;
+    worklistStrategy = strategy;
+    workList = strategy.makeWorklist();
+    while (!old.isEmpty()) {
+      workList.insertStatement(old.takeStatement());
+    }
+  }
+
   public int getNumberOfEvaluations() {
     return nEvaluated;
   }
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.fixedpoint.impl;
+
+import com.ibm.wala.fixpoint.AbstractStatement;
+import java.util.ArrayDeque;
+import java.util.NoSuchElementException;
+
+/**
+ * Work list that takes statements in order of insertion, either first-in-first-out or
+ * last-in-first-out. Unlike {@link Worklist}, this does not rely on the solver's topological
+ * numbering of statements.
+ */
+@SuppressWarnings("rawtypes")
+public class DequeWorklist implements IWorklist {
+
+  private final ArrayDeque<AbstractStatement> statements = new ArrayDeque<>();
+
+  private final PendingStatements contents = new PendingStatements();
+
+  /** take the most recently inserted statement first? */
+  private final boolean lifo;
+
+  public DequeWorklist(boolean lifo) {
+    this.lifo = lifo;
+  }
+
+  @Override
+  public AbstractStatement takeStatement() throws NoSuchElementException {
+    AbstractStatement result = lifo ? statements.removeLast() : statements.removeFirst();
+    contents.remove(result);
+    return result;
+  }
+
+  @Override
+  public void insertStatement(AbstractStatement eq) {
+    if (contents.add(eq)) {
+      statements.addLast(eq);
+    }
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return statements.isEmpty();
+  }
+
+  @Override
+  public int size() {
+    return statements.size();
+  }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.fixedpoint.impl;
+
+import com.ibm.wala.fixpoint.AbstractStatement;
+import java.util.NoSuchElementException;
+
+/**
+ * The statements pending evaluation by a fixed-point solver. A statement is held at most once; the
+ * implementation determines the order in which statements are taken.
+ *
+ * @see WorklistStrategy
+ */
+@SuppressWarnings("rawtypes")
+public interface IWorklist {
+
+  /** @return the next statement to evaluate, which is removed from the work list */
+  AbstractStatement takeStatement() throws NoSuchElementException;
+
+  /** Add a statement to the work list, unless it is already pending. */
+  void insertStatement(AbstractStatement eq);
+
+  boolean isEmpty();
+
+  int size();
+}
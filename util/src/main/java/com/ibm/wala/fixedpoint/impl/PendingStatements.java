@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.fixedpoint.impl;
+
+import com.ibm.wala.fixpoint.AbstractStatement;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.intset.BitVector;
+import java.util.HashSet;
+
+/**
+ * Membership test for the statements on a work list. Statements that are nodes of the fixed-point
+ * system's graph are tracked by their graph number in a bit vector, which avoids hashing on every
+ * insertion. Statements that the system represents implicitly, and which hence have no number,
+ * fall back to a hash set.
+ */
+@SuppressWarnings("rawtypes")
+final class PendingStatements {
+
+  private final BitVector numbered = new BitVector();
+
+  private final HashSet<AbstractStatement> unnumbered = HashSetFactory.make();
+
+  /** @return true iff s was not already pending */
+  boolean add(AbstractStatement s) {
+    int n = s.getGraphNodeId();
+    if (n < 0) {
+      return unnumbered.add(s);
+    }
+    if (numbered.get(n)) {
+      return false;
+    }
+    numbered.set(n);
+    // s may have been added before it was numbered; if so, move it across rather than pend it twice
+    return unnumbered.isEmpty() || !unnumbered.remove(s);
+  }
+
+  void remove(AbstractStatement s) {
+    int n = s.getGraphNodeId();
+    if (n >= 0) {
+      numbered.clear(n);
+    }
+    // s may have been numbered since it was added
+    if (!unnumbered.isEmpty()) {
+      unnumbered.remove(s);
+    }
+  }
+}
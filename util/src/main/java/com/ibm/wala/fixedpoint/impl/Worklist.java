@@ -11,16 +11,17 @@
 package com.ibm.wala.fixedpoint.impl;
 
 import com.ibm.wala.fixpoint.AbstractStatement;
-import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Heap;
-import java.util.HashSet;
 import java.util.NoSuchElementException;
 
-/** Worklist for fixed-point solver implementation */
+/**
+ * Worklist for fixed-point solver implementation, which takes statements in order of their order
+ * numbers; i.e. in topological order.
+ */
 @SuppressWarnings("rawtypes")
-public class Worklist extends Heap<AbstractStatement> {
+public class Worklist extends Heap<AbstractStatement> implements IWorklist {
 
-  private final HashSet<AbstractStatement> contents = HashSetFactory.make();
+  private final PendingStatements contents = new PendingStatements();
 
   public Worklist() {
     super(100);
@@ -31,12 +32,14 @@ public class Worklist extends Heap<AbstractStatement> {
     return (eq1.getOrderNumber() < eq2.getOrderNumber());
   }
 
+  @Override
   public AbstractStatement takeStatement() throws NoSuchElementException {
     AbstractStatement result = super.take();
     contents.remove(result);
     return result;
   }
 
+  @Override
   public void insertStatement(AbstractStatement eq) {
     if (contents.add(eq)) {
       super.insert(eq);
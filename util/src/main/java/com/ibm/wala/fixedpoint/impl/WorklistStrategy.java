@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.fixedpoint.impl;
+
+/**
+ * The order in which a fixed-point solver evaluates the statements on its work list.
+ *
+ * @see AbstractFixedPointSolver#setWorklistStrategy(WorklistStrategy)
+ */
+public enum WorklistStrategy {
+
+  /**
+   * Evaluate statements in topological order of the dependences between them, which the solver
+   * recomputes periodically as the system grows. Statements in a strongly connected component are
+   * evaluated together.
+   */
+  TOPOLOGICAL {
+    @Override
+    public IWorklist makeWorklist() {
+      return new Worklist();
+    }
+  },
+
+  /** Evaluate statements in the order they were added to the work list. */
+  FIFO {
+    @Override
+    public IWorklist makeWorklist() {
+      return new DequeWorklist(false);
+    }
+  },
+
+  /** Evaluate the most recently added statement first. */
+  LIFO {
+    @Override
+    public IWorklist makeWorklist() {
+      return new DequeWorklist(true);
+    }
+  };
+
+  public abstract IWorklist makeWorklist();
+
+  /** Does this strategy depend on the solver maintaining a topological numbering of statements? */
+  public boolean usesTopologicalOrder() {
+    return this == TOPOLOGICAL;
+  }
+}
@@ -13,6 +13,7 @@ package com.ibm.wala.fixpoint;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.SharedIntSetRepository;
 import org.jspecify.annotations.NullUnmarked;
 import org.jspecify.annotations.Nullable;
 
@@ -24,18 +25,25 @@ import org.jspecify.annotations.Nullable;
 @SuppressWarnings("rawtypes")
 public abstract class IntSetVariable<T extends IntSetVariable<T>> extends AbstractVariable<T> {
 
-  @Nullable MutableIntSet V;
+  /** a {@link MutableIntSet} of this variable's own, unless it is shared */
+  @Nullable IntSet V;
+
+  /**
+   * true iff V came from a {@link SharedIntSetRepository}, so it must be copied before it changes
+   */
+  private boolean shared = false;
 
   @Override
   public void copyState(T other) {
-    if (V == null) {
+    if (V == null || shared) {
       if (other.V != null) {
         V = IntSetUtil.getDefaultIntSetFactory().makeCopy(other.V);
+        shared = false;
       }
       return;
     } else {
       if (other.V != null) {
-        V.copySet(other.V);
+        unshare().copySet(other.V);
       }
     }
   }
@@ -50,7 +58,7 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
       V = IntSetUtil.getDefaultIntSetFactory().makeCopy(B);
       return (B.size() > 0);
     } else {
-      boolean result = V.addAll(B);
+      boolean result = unshare().addAll(B);
       return result;
     }
   }
@@ -75,7 +83,9 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
   }
 
   public boolean sameValue(IntSetVariable other) {
-    if (V == null) {
+    if (V == other.V) {
+      return true;
+    } else if (V == null) {
       return (other.V == null);
     } else {
       if (other.V == null) {
@@ -102,8 +112,10 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
   public boolean add(int b) {
     if (V == null) {
       V = IntSetUtil.getDefaultIntSetFactory().make();
+    } else if (shared && V.contains(b)) {
+      return false;
     }
-    return V.add(b);
+    return unshare().add(b);
   }
 
   /**
@@ -119,15 +131,18 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
     }
   }
 
-  /** @return the value of this variable as a MutableSparseIntSet ... null if the set is empty. */
+  /**
+   * @return the value of this variable ... null if the set is empty. The result may be shared with
+   *     other variables.
+   */
   @NullUnmarked
-  public MutableIntSet getValue() {
+  public IntSet getValue() {
     return V;
   }
 
   public void remove(int i) {
-    if (V != null) {
-      V.remove(i);
+    if (V != null && V.contains(i)) {
+      unshare().remove(i);
     }
   }
 
@@ -146,7 +161,7 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
     if (V == null) {
       copyState(other);
       if (V != null) {
-        V.intersectWith(filter);
+        unshare().intersectWith(filter);
         if (V.isEmpty()) {
           V = null;
         }
@@ -164,19 +179,55 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
 
   public boolean addAllInIntersection(IntSet other, IntSet filter) {
     if (V == null) {
-      V = IntSetUtil.getDefaultIntSetFactory().makeCopy(other);
-      V.intersectWith(filter);
-      if (V.isEmpty()) {
-        V = null;
-      }
+      MutableIntSet copy = IntSetUtil.getDefaultIntSetFactory().makeCopy(other);
+      copy.intersectWith(filter);
+      V = copy.isEmpty() ? null : copy;
       return (V != null);
     } else {
-      boolean result = V.addAllInIntersection(other, filter);
+      boolean result = unshare().addAllInIntersection(other, filter);
       return result;
     }
   }
 
   public void removeAll() {
     V = null;
+    shared = false;
+  }
+
+  /**
+   * Replace the value of this variable with the equal set from repository, which is shared with
+   * every other variable of the same value. The variable copies the set again before it next
+   * changes.
+   */
+  public void shareValue(SharedIntSetRepository repository) {
+    if (repository == null) {
+      throw new IllegalArgumentException("null repository");
+    }
+    if (V != null) {
+      V = repository.findOrCreateSharedSet(V);
+      shared = true;
+    }
+  }
+
+  /** @return true iff the value of this variable is currently shared with other variables */
+  public boolean isValueShared() {
+    return shared;
+  }
+
+  /** Give this variable a private copy of its value again, if the value is shared. */
+  public void unshareValue() {
+    if (V != null) {
+      unshare();
+    }
+  }
+
+  /** @return V, first replaced by a private copy if it is shared */
+  @NullUnmarked
+  private MutableIntSet unshare() {
+    if (shared) {
+      V = IntSetUtil.getDefaultIntSetFactory().makeCopy(V);
+      shared = false;
+    }
+    return (MutableIntSet) V;
   }
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.concurrent;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/** Utilities for the worker threads of analyses that split their work among several threads. */
+public class WorkerPool {
+
+  // there's no reason to instantiate this class
+  private WorkerPool() {}
+
+  /**
+   * @return a pool of numberOfThreads daemon threads called name, so that workers left behind by
+   *     an aborted analysis do not keep the virtual machine alive; the caller must shut it down
+   * @throws IllegalArgumentException if numberOfThreads &lt; 1
+   */
+  public static ExecutorService make(int numberOfThreads, String name) {
+    if (numberOfThreads < 1) {
+      throw new IllegalArgumentException("invalid number of threads: " + numberOfThreads);
+    }
+    return Executors.newFixedThreadPool(
+        numberOfThreads,
+        r -> {
+          Thread t = new Thread(r, name);
+          t.setDaemon(true);
+          return t;
+        });
+  }
+
+  /**
+   * Wait for a worker and return its result. An unchecked exception of the worker is rethrown as
+   * is, as is a checked one of type exceptionType; any other is wrapped in an {@link
+   * IllegalStateException}.
+   *
+   * @param onInterrupt makes the exception to throw if the calling thread is interrupted while
+   *     waiting; the interrupt status of the thread is restored first
+   */
+  public static <T, E extends Exception> T getResult(
+      Future<T> f, Class<E> exceptionType, Function<InterruptedException, E> onInterrupt)
+      throws E {
+    try {
+      return f.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw onInterrupt.apply(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (exceptionType.isInstance(cause)) {
+        throw exceptionType.cast(cause);
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+}
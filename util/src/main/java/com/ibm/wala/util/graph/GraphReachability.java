@@ -37,6 +37,9 @@ import org.jspecify.annotations.Nullable;
 /**
  * A dataflow system that computes, for each graph node, the set of "interesting" nodes that are
  * reachable
+ *
+ * @see ReachabilityIndex for reachability queries on large numbered graphs, which do not need a
+ *     set for each node
  */
 public class GraphReachability<T, S> {
 
@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.graph;
+
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.graph.traverse.SCCIterator;
+import com.ibm.wala.util.intset.BitVector;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An index that answers reachability queries on a {@link NumberedGraph} without computing the set
+ * of reachable nodes for each node, as {@link GraphReachability} does.
+ *
+ * <p>The strongly connected components of the graph are condensed into an acyclic graph, whose
+ * components are numbered in post order of a depth-first spanning forest. Each component is
+ * labeled with the intervals of post order numbers it reaches: the numbers of its subtree in the
+ * forest form one interval, and the other edges add the intervals of their targets (tree cover
+ * labeling). On graphs that are close to a forest, such as most call graphs, a component needs
+ * few intervals.
+ *
+ * <p>A node reaches itself. The graph must not change once the index is built.
+ */
+public class ReachabilityIndex<T> {
+
+  private final NumberedGraph<T> g;
+
+  /** the component of each node, by node number, or -1 for numbers without a node */
+  private final int[] component;
+
+  /** the node numbers of the members of each component */
+  private final int[][] members;
+
+  /** the post order number of each component */
+  private final int[] post;
+
+  /** the component with each post order number */
+  private final int[] byPost;
+
+  /**
+   * for each component, the post order numbers of the components it reaches, as sorted disjoint
+   * intervals: intervals[c][2i] to intervals[c][2i+1], inclusive
+   */
+  private final int[][] intervals;
+
+  /** @throws IllegalArgumentException if g is null */
+  public ReachabilityIndex(NumberedGraph<T> g) {
+    if (g == null) {
+      throw new IllegalArgumentException("g is null");
+    }
+    this.g = g;
+
+    // the iterator returns the components in topological order
+    component = new int[g.getMaxNumber() + 1];
+    Arrays.fill(component, -1);
+    List<int[]> components = new ArrayList<>();
+    for (Set<T> scc : Iterator2Iterable.make(new SCCIterator<>(g))) {
+      int[] m = new int[scc.size()];
+      int i = 0;
+      for (T n : scc) {
+        m[i] = g.getNumber(n);
+        component[m[i++]] = components.size();
+      }
+      components.add(m);
+    }
+    members = components.toArray(new int[0][]);
+    int size = members.length;
+
+    int[][] succs = new int[size][];
+    for (int c = 0; c < size; c++) {
+      MutableSparseIntSet s = MutableSparseIntSet.makeEmpty();
+      for (int n : members[c]) {
+        IntSet numbers = g.getSuccNodeNumbers(g.getNode(n));
+        if (numbers != null) {
+          for (IntIterator it = numbers.intIterator(); it.hasNext(); ) {
+            int d = component[it.next()];
+            if (d != c) {
+              s.add(d);
+            }
+          }
+        }
+      }
+      succs[c] = s.toIntArray();
+    }
+
+    // number the components in post order, remembering the first number of each subtree
+    post = new int[size];
+    byPost = new int[size];
+    int[] low = new int[size];
+    boolean[] visited = new boolean[size];
+    int[] stack = new int[size];
+    int[] nextSucc = new int[size];
+    int count = 0;
+    for (int root = 0; root < size; root++) {
+      if (visited[root]) {
+        continue;
+      }
+      int sp = 0;
+      stack[sp++] = root;
+      visited[root] = true;
+      low[root] = count;
+      while (sp > 0) {
+        int c = stack[sp - 1];
+        if (nextSucc[c] < succs[c].length) {
+          int d = succs[c][nextSucc[c]++];
+          if (!visited[d]) {
+            visited[d] = true;
+            low[d] = count;
+            stack[sp++] = d;
+          }
+        } else {
+          sp--;
+          post[c] = count;
+          byPost[count++] = c;
+        }
+      }
+    }
+
+    // edges of the condensed graph go forward in topological order, so label the components
+    // backwards
+    intervals = new int[size][];
+    for (int c = size - 1; c >= 0; c--) {
+      int n = 1;
+      for (int d : succs[c]) {
+        n += intervals[d].length / 2;
+      }
+      long[] pairs = new long[n];
+      pairs[0] = interval(low[c], post[c]);
+      int i = 1;
+      for (int d : succs[c]) {
+        int[] di = intervals[d];
+        for (int j = 0; j < di.length; j += 2) {
+          pairs[i++] = interval(di[j], di[j + 1]);
+        }
+      }
+      intervals[c] = merge(pairs);
+    }
+  }
+
+  private static long interval(int lo, int hi) {
+    return ((long) lo << 32) | hi;
+  }
+
+  /** sort intervals and merge those that overlap or touch */
+  private static int[] merge(long[] pairs) {
+    Arrays.sort(pairs);
+    int[] result = new int[2 * pairs.length];
+    int n = 0;
+    for (long p : pairs) {
+      int lo = (int) (p >>> 32);
+      int hi = (int) p;
+      if (n > 0 && lo <= result[n - 1] + 1) {
+        result[n - 1] = Math.max(result[n - 1], hi);
+      } else {
+        result[n++] = lo;
+        result[n++] = hi;
+      }
+    }
+    return n == result.length ? result : Arrays.copyOf(result, n);
+  }
+
+  private int componentOf(T n) {
+    int number = n == null ? -1 : g.getNumber(n);
+    if (number < 0 || number >= component.length || component[number] == -1) {
+      throw new IllegalArgumentException("not a node of the graph: " + n);
+    }
+    return component[number];
+  }
+
+  private static boolean contains(int[] intervals, int x) {
+    int lo = 0;
+    int hi = intervals.length / 2 - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      if (x < intervals[2 * mid]) {
+        hi = mid - 1;
+      } else if (x > intervals[2 * mid + 1]) {
+        lo = mid + 1;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return true iff there is a path from src to dst
+   * @throws IllegalArgumentException if src or dst is not a node of the graph
+   */
+  public boolean canReach(T src, T dst) {
+    return contains(intervals[componentOf(src)], post[componentOf(dst)]);
+  }
+
+  /**
+   * @return true iff there is a path from src to one of the targets
+   * @throws IllegalArgumentException if src or a target is not a node of the graph
+   */
+  public boolean canReachAny(T src, Collection<? extends T> targets) {
+    if (targets == null) {
+      throw new IllegalArgumentException("targets is null");
+    }
+    int[] reached = intervals[componentOf(src)];
+    for (T t : targets) {
+      if (contains(reached, post[componentOf(t)])) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the nodes reachable from src, computed as they are iterated
+   * @throws IllegalArgumentException if src is not a node of the graph
+   */
+  public Iterator<T> iterateReachableNodes(T src) {
+    final int[] reached = intervals[componentOf(src)];
+    return new Iterator<T>() {
+      /** index of the current interval in reached */
+      int interval = 0;
+
+      /** post order number of the current component */
+      int current = reached[0];
+
+      /** index of the next member of the current component */
+      int member = 0;
+
+      @Override
+      public boolean hasNext() {
+        return interval < reached.length;
+      }
+
+      @Override
+      public T next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        int[] m = members[byPost[current]];
+        T result = g.getNode(m[member++]);
+        if (member == m.length) {
+          member = 0;
+          if (current < reached[interval + 1]) {
+            current++;
+          } else if ((interval += 2) < reached.length) {
+            current = reached[interval];
+          }
+        }
+        return result;
+      }
+    };
+  }
+
+  /**
+   * @return the nodes reachable from some root
+   * @throws IllegalArgumentException if a root is not a node of the graph
+   */
+  public Set<T> getReachableNodes(Collection<? extends T> roots) {
+    if (roots == null) {
+      throw new IllegalArgumentException("roots is null");
+    }
+    BitVector reached = new BitVector(post.length);
+    Set<T> result = HashSetFactory.make();
+    for (T root : roots) {
+      int[] r = intervals[componentOf(root)];
+      for (int i = 0; i < r.length; i += 2) {
+        for (int p = r[i]; p <= r[i + 1]; p++) {
+          if (!reached.get(p)) {
+            reached.set(p);
+            for (int n : members[byPost[p]]) {
+              result.add(g.getNode(n));
+            }
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /** @return the number of intervals in all labels, a measure of the size of the index */
+  public int getNumberOfIntervals() {
+    int result = 0;
+    for (int[] i : intervals) {
+      result += i.length / 2;
+    }
+    return result;
+  }
+}
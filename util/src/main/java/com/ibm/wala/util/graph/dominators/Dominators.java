@@ -40,7 +40,7 @@ public abstract class Dominators<T> {
   static final boolean DEBUG = false;
 
   /** a mapping from DFS number to node */
-  private final T[] vertex;
+  private T[] vertex;
 
   /** a convenient place to locate the graph to avoid passing it internally */
   protected final Graph<T> G;
@@ -56,7 +56,6 @@ public abstract class Dominators<T> {
    * @param root The root from which to compute dominators
    * @throws IllegalArgumentException if G is null
    */
-  @SuppressWarnings("unchecked")
   public Dominators(Graph<T> G, T root) throws IllegalArgumentException {
     if (G == null) {
       throw new IllegalArgumentException("G is null");
@@ -66,12 +65,17 @@ public abstract class Dominators<T> {
     if (G.getNumberOfNodes() == 0) {
       throw new IllegalArgumentException("G has no nodes");
     }
-    this.vertex = (T[]) new Object[G.getNumberOfNodes() + 1];
   }
 
+  /**
+   * @return the dominators of G; for a {@link NumberedGraph}, a {@link SemiNCADominators} that can
+   *     be updated as edges are added. That one does not run the algorithm of this class, so its
+   *     {@link #getInfo(Object)} only knows the immediate dominator of a node; subclasses that need
+   *     the rest of the per-node state should use {@link NumberedDominators} instead.
+   */
   public static <T> Dominators<T> make(Graph<T> G, T root) {
     if (G instanceof NumberedGraph) {
-      return new NumberedDominators<>((NumberedGraph<T>) G, root);
+      return new SemiNCADominators<>((NumberedGraph<T>) G, root);
     } else {
       return new GenericDominators<>(G, root);
     }
@@ -211,9 +215,12 @@ public abstract class Dominators<T> {
   //
 
   /** analyze dominators */
+  @SuppressWarnings("unchecked")
   protected void analyze() {
     if (DEBUG) System.out.println("Dominators for " + G);
 
+    vertex = (T[]) new Object[G.getNumberOfNodes() + 1];
+
     // Step 1: Perform a DFS numbering
     step1();
 
@@ -465,6 +472,12 @@ public abstract class Dominators<T> {
       size = 1;
       child = null;
     }
+
+    /** the state after the computation, for implementations that keep only the result */
+    DominatorInfo(@Nullable T node, @Nullable T dominator) {
+      this(node);
+      this.dominator = dominator;
+    }
   }
 
   /*
@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.graph.dominators;
+
+import com.ibm.wala.util.graph.NumberedGraph;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Calculate dominators using the Semi-NCA algorithm of Georgiadis (Linear-Time Algorithms for
+ * Dominators and Related Problems, PhD thesis, Princeton, 2005). Semidominators are computed as in
+ * Lengauer and Tarjan's algorithm, with simple path compression; the immediate dominator of each
+ * node is then the nearest common ancestor of its semidominator and its DFS parent in the tree
+ * built so far. All state is kept in int arrays indexed by node number or DFS number, with no
+ * object per node.
+ *
+ * <p>The dominators can be updated after edges are added to the graph: see {@link #addEdge(Object,
+ * Object)}.
+ */
+public class SemiNCADominators<T> extends Dominators<T> {
+
+  private final NumberedGraph<T> graph;
+
+  /** the DFS preorder number of each node, by node number, or 0 if the root does not reach it */
+  private int[] dfNumber;
+
+  /** the node number of each node, by DFS preorder number; the root has number 1 */
+  private int[] byDfNumber;
+
+  /** the immediate dominator of each node, by DFS preorder number; 0 for the root */
+  private int[] idom;
+
+  /** the depth of each node in the dominator tree, by DFS preorder number */
+  private int[] depth;
+
+  /**
+   * @param G The graph
+   * @param root The root from which to compute dominators
+   * @throws IllegalArgumentException if G is null
+   */
+  public SemiNCADominators(NumberedGraph<T> G, T root) throws IllegalArgumentException {
+    super(G, root);
+    this.graph = G;
+    analyze();
+  }
+
+  @Override
+  protected void analyze() {
+    int n = depthFirstSearch();
+    semiNCA(n);
+    computeDepths();
+  }
+
+  /**
+   * number the nodes reachable from the root in DFS preorder, and record the DFS parents in idom
+   *
+   * @return the number of nodes reachable from the root
+   */
+  private int depthFirstSearch() {
+    dfNumber = new int[graph.getMaxNumber() + 1];
+    byDfNumber = new int[graph.getNumberOfNodes() + 1];
+    idom = new int[byDfNumber.length];
+    int[] frames = new int[byDfNumber.length];
+    Deque<Iterator<? extends T>> succs = new ArrayDeque<>();
+
+    int count = 0;
+    int r = graph.getNumber(root);
+    dfNumber[r] = ++count;
+    byDfNumber[count] = r;
+    frames[0] = count;
+    int sp = 1;
+    succs.push(graph.getSuccNodes(root));
+    while (sp > 0) {
+      Iterator<? extends T> it = succs.peek();
+      if (it.hasNext()) {
+        T next = it.next();
+        int w = graph.getNumber(next);
+        if (dfNumber[w] == 0) {
+          dfNumber[w] = ++count;
+          byDfNumber[count] = w;
+          idom[count] = frames[sp - 1];
+          frames[sp++] = count;
+          succs.push(graph.getSuccNodes(next));
+        }
+      } else {
+        succs.pop();
+        sp--;
+      }
+    }
+    reachableNodeCount = count;
+    return count;
+  }
+
+  /** compute the immediate dominators of the n reachable nodes, starting from their DFS parents */
+  private void semiNCA(int n) {
+    // the ancestors in the forest of processed nodes, which path compression shortens
+    int[] ancestor = Arrays.copyOf(idom, n + 1);
+    int[] semi = new int[n + 1];
+    int[] label = new int[n + 1];
+    for (int i = 1; i <= n; i++) {
+      semi[i] = i;
+      label[i] = i;
+    }
+    int[] stack = new int[n + 1];
+    for (int i = n; i >= 2; i--) {
+      semi[i] = idom[i];
+      for (Iterator<? extends T> it = graph.getPredNodes(graph.getNode(byDfNumber[i]));
+          it.hasNext(); ) {
+        int v = dfNumber[graph.getNumber(it.next())];
+        if (v != 0) {
+          int u = eval(v, i + 1, ancestor, semi, label, stack);
+          if (semi[u] < semi[i]) {
+            semi[i] = semi[u];
+          }
+        }
+      }
+    }
+    for (int i = 2; i <= n; i++) {
+      int candidate = idom[i];
+      while (candidate > semi[i]) {
+        candidate = idom[candidate];
+      }
+      idom[i] = candidate;
+    }
+  }
+
+  /**
+   * @return the node with the least semidominator on the path from v to the root of its tree in
+   *     the forest of nodes numbered lastLinked and above, compressing that path
+   */
+  private static int eval(
+      int v, int lastLinked, int[] ancestor, int[] semi, int[] label, int[] stack) {
+    if (ancestor[v] < lastLinked) {
+      return label[v];
+    }
+    int sp = 0;
+    int x = v;
+    do {
+      stack[sp++] = x;
+      x = ancestor[x];
+    } while (ancestor[x] >= lastLinked);
+    int p = x;
+    do {
+      x = stack[--sp];
+      ancestor[x] = ancestor[p];
+      if (semi[label[p]] < semi[label[x]]) {
+        label[x] = label[p];
+      }
+      p = x;
+    } while (sp > 0);
+    return label[x];
+  }
+
+  /**
+   * compute the depths in the dominator tree; dominators precede the nodes they dominate in DFS
+   * preorder, also after edges are added, since adding edges only removes dominators
+   */
+  private void computeDepths() {
+    int n = reachableNodeCount;
+    if (depth == null || depth.length != n + 1) {
+      depth = new int[n + 1];
+    }
+    for (int i = 2; i <= n; i++) {
+      depth[i] = depth[idom[i]] + 1;
+    }
+  }
+
+  private int dfNumberOf(@Nullable T node) {
+    int n = node == null ? -1 : graph.getNumber(node);
+    return n < 0 || n >= dfNumber.length ? 0 : dfNumber[n];
+  }
+
+  @Nullable
+  @Override
+  public T getIdom(@Nullable T node) {
+    int d = dfNumberOf(node);
+    return d <= 1 ? null : graph.getNode(byDfNumber[idom[d]]);
+  }
+
+  @Override
+  public boolean isDominatedBy(T node, T master) {
+    int d = dfNumberOf(node);
+    int m = dfNumberOf(master);
+    if (d == 0 || m == 0) {
+      return super.isDominatedBy(node, master);
+    }
+    while (d > m) {
+      d = idom[d];
+    }
+    return d == m;
+  }
+
+  /**
+   * Update the dominators after the edge from src to dst has been added to the graph. This uses
+   * the depth-based search of Georgiadis et al. (An Experimental Study of Dynamic Dominators, ESA
+   * 2012): the nodes whose immediate dominator changes are found by a search from dst, and all
+   * become children of the nearest common dominator of src and dst. An edge that makes new nodes
+   * reachable from the root calls for computing the dominators again.
+   *
+   * @throws IllegalArgumentException if src is not a node of the graph
+   */
+  public void addEdge(T src, T dst) {
+    if (!graph.containsNode(src)) {
+      throw new IllegalArgumentException("not a node of the graph: " + src);
+    }
+    int x = dfNumberOf(src);
+    int y = dfNumberOf(dst);
+    if (x == 0) {
+      // the new edge is not reachable, so it changes nothing
+      return;
+    }
+    if (y == 0) {
+      analyze();
+      return;
+    }
+    int nca = x;
+    for (int b = y; nca != b; ) {
+      if (depth[nca] >= depth[b]) {
+        nca = idom[nca];
+      } else {
+        b = idom[b];
+      }
+    }
+    int limit = depth[nca] + 1;
+    if (depth[y] <= limit) {
+      return;
+    }
+
+    int n = reachableNodeCount;
+    boolean[] visited = new boolean[n + 1];
+    int[] bucket = new int[depth[y] + 1];
+    Arrays.fill(bucket, -1);
+    int[] nextInBucket = new int[n + 1];
+    int[] affected = new int[n];
+    int affectedCount = 0;
+    int[] stack = new int[n + 1];
+
+    visited[y] = true;
+    bucket[depth[y]] = y;
+    nextInBucket[y] = -1;
+    for (int level = depth[y]; level > limit; ) {
+      int z = bucket[level];
+      if (z == -1) {
+        level--;
+        continue;
+      }
+      bucket[level] = nextInBucket[z];
+      affected[affectedCount++] = z;
+      int sp = 0;
+      stack[sp++] = z;
+      while (sp > 0) {
+        int v = stack[--sp];
+        for (Iterator<? extends T> it = graph.getSuccNodes(graph.getNode(byDfNumber[v]));
+            it.hasNext(); ) {
+          int w = dfNumber[graph.getNumber(it.next())];
+          if (depth[w] > limit && !visited[w]) {
+            visited[w] = true;
+            if (depth[w] > level) {
+              stack[sp++] = w;
+            } else {
+              nextInBucket[w] = bucket[depth[w]];
+              bucket[depth[w]] = w;
+            }
+          }
+        }
+      }
+    }
+    for (int i = 0; i < affectedCount; i++) {
+      idom[affected[i]] = nca;
+    }
+    computeDepths();
+  }
+
+  /**
+   * No per-node state is kept for the algorithm of {@link Dominators}, so the information for a
+   * node is made afresh from its immediate dominator; changing it has no effect.
+   */
+  @Override
+  protected DominatorInfo getInfo(@Nullable T node) {
+    return new DominatorInfo(node, getIdom(node));
+  }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.graph.impl;
+
+import com.ibm.wala.util.graph.NumberedEdgeManager;
+import com.ibm.wala.util.graph.NumberedNodeManager;
+import com.ibm.wala.util.intset.ArraySliceIntSet;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * An immutable edge manager that keeps the edges of a graph in compressed sparse row form: the
+ * successors of all nodes are stored in one int array, sorted by source and then by target number,
+ * and an array of offsets indexed by node number gives the start of the successors of each node.
+ * The predecessors are stored the same way. This needs two ints per edge and two per node number,
+ * and traversals read contiguous memory. The sets of successor and predecessor numbers are
+ * read-only views of these arrays, so asking for them copies nothing.
+ *
+ * <p>The edges are copied when the edge manager is created, so later changes to the original edges
+ * are not seen. Attempts to change the edges throw {@link UnsupportedOperationException}.
+ */
+public class CompressedSparseRowEdgeManager<T> implements NumberedEdgeManager<T> {
+
+  private final NumberedNodeManager<T> nodeManager;
+
+  /** the successors of node n are at succTargets[succOffsets[n]] up to succOffsets[n+1] */
+  private final int[] succOffsets;
+
+  private final int[] succTargets;
+
+  /** the predecessors of node n are at predTargets[predOffsets[n]] up to predOffsets[n+1] */
+  private final int[] predOffsets;
+
+  private final int[] predTargets;
+
+  /**
+   * @param nodeManager the nodes, numbered as in edges
+   * @param edges the edges to copy
+   * @throws IllegalArgumentException if an argument is null
+   */
+  public CompressedSparseRowEdgeManager(
+      NumberedNodeManager<T> nodeManager, NumberedEdgeManager<T> edges) {
+    if (nodeManager == null) {
+      throw new IllegalArgumentException("nodeManager is null");
+    }
+    if (edges == null) {
+      throw new IllegalArgumentException("edges is null");
+    }
+    this.nodeManager = nodeManager;
+    int size = nodeManager.getMaxNumber() + 1;
+
+    // gather the successors, one node at a time
+    int[] count = new int[size + 1];
+    int[][] succs = new int[size][];
+    int edgeCount = 0;
+    for (T n : nodeManager) {
+      int x = nodeManager.getNumber(n);
+      IntSet s = edges.getSuccNodeNumbers(n);
+      if (s != null && !s.isEmpty()) {
+        int[] targets = new int[s.size()];
+        int i = 0;
+        for (IntIterator it = s.intIterator(); it.hasNext(); ) {
+          targets[i++] = it.next();
+        }
+        Arrays.sort(targets);
+        succs[x] = targets;
+        edgeCount += targets.length;
+        for (int y : targets) {
+          count[y + 1]++;
+        }
+      }
+    }
+
+    succOffsets = new int[size + 1];
+    succTargets = new int[edgeCount];
+    for (int x = 0; x < size; x++) {
+      int[] targets = succs[x];
+      int start = succOffsets[x];
+      if (targets != null) {
+        System.arraycopy(targets, 0, succTargets, start, targets.length);
+        succs[x] = null;
+        start += targets.length;
+      }
+      succOffsets[x + 1] = start;
+    }
+
+    // transpose; visiting sources in order leaves each run of predecessors sorted
+    predOffsets = count;
+    for (int y = 0; y < size; y++) {
+      predOffsets[y + 1] += predOffsets[y];
+    }
+    predTargets = new int[edgeCount];
+    int[] next = Arrays.copyOf(predOffsets, size);
+    for (int x = 0; x < size; x++) {
+      for (int i = succOffsets[x]; i < succOffsets[x + 1]; i++) {
+        predTargets[next[succTargets[i]]++] = x;
+      }
+    }
+  }
+
+  private int numberOf(@Nullable T n) {
+    if (n == null) {
+      throw new IllegalArgumentException("n is null");
+    }
+    int x = nodeManager.getNumber(n);
+    if (x < 0 || x >= succOffsets.length - 1) {
+      throw new IllegalArgumentException("not a node of the graph: " + n);
+    }
+    return x;
+  }
+
+  /** @return the total number of edges */
+  public int getNumberOfEdges() {
+    return succTargets.length;
+  }
+
+  @Override
+  public IntSet getSuccNodeNumbers(@Nullable T node) {
+    int x = numberOf(node);
+    return new ArraySliceIntSet(succTargets, succOffsets[x], succOffsets[x + 1]);
+  }
+
+  @Override
+  public IntSet getPredNodeNumbers(@Nullable T node) {
+    int x = numberOf(node);
+    return new ArraySliceIntSet(predTargets, predOffsets[x], predOffsets[x + 1]);
+  }
+
+  @Override
+  public Iterator<T> getSuccNodes(@Nullable T n) {
+    int x = numberOf(n);
+    return new SliceIterator(succTargets, succOffsets[x], succOffsets[x + 1]);
+  }
+
+  @Override
+  public Iterator<T> getPredNodes(@Nullable T n) {
+    int x = numberOf(n);
+    return new SliceIterator(predTargets, predOffsets[x], predOffsets[x + 1]);
+  }
+
+  @Override
+  public int getSuccNodeCount(T N) {
+    int x = numberOf(N);
+    return succOffsets[x + 1] - succOffsets[x];
+  }
+
+  @Override
+  public int getPredNodeCount(T n) {
+    int x = numberOf(n);
+    return predOffsets[x + 1] - predOffsets[x];
+  }
+
+  @Override
+  public boolean hasEdge(@Nullable T src, @Nullable T dst) {
+    if (src == null || dst == null) {
+      return false;
+    }
+    int x = nodeManager.getNumber(src);
+    int y = nodeManager.getNumber(dst);
+    if (x < 0 || x >= succOffsets.length - 1 || y < 0) {
+      return false;
+    }
+    return Arrays.binarySearch(succTargets, succOffsets[x], succOffsets[x + 1], y) >= 0;
+  }
+
+  @Override
+  public void addEdge(T src, T dst) {
+    throw new UnsupportedOperationException("the edges are frozen");
+  }
+
+  @Override
+  public void removeEdge(T src, T dst) throws UnsupportedOperationException {
+    throw new UnsupportedOperationException("the edges are frozen");
+  }
+
+  @Override
+  public void removeAllIncidentEdges(T node) throws UnsupportedOperationException {
+    throw new UnsupportedOperationException("the edges are frozen");
+  }
+
+  @Override
+  public void removeIncomingEdges(T node) throws UnsupportedOperationException {
+    throw new UnsupportedOperationException("the edges are frozen");
+  }
+
+  @Override
+  public void removeOutgoingEdges(T node) throws UnsupportedOperationException {
+    throw new UnsupportedOperationException("the edges are frozen");
+  }
+
+  /** iterates the nodes numbered in one run of a targets array */
+  private class SliceIterator implements Iterator<T> {
+    private final int[] targets;
+
+    private int next;
+
+    private final int end;
+
+    SliceIterator(int[] targets, int start, int end) {
+      this.targets = targets;
+      this.next = start;
+      this.end = end;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next < end;
+    }
+
+    @Override
+    public T next() {
+      if (next >= end) {
+        throw new NoSuchElementException();
+      }
+      return nodeManager.getNode(targets[next++]);
+    }
+  }
+}
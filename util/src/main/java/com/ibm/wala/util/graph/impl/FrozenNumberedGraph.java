@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.graph.impl;
+
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.graph.AbstractNumberedGraph;
+import com.ibm.wala.util.graph.INodeWithNumber;
+import com.ibm.wala.util.graph.NumberedEdgeManager;
+import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.graph.NumberedNodeManager;
+import com.ibm.wala.util.intset.IntSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * An immutable copy of a {@link NumberedGraph}, for traversing a graph that is finished. The nodes
+ * keep their numbers and are held in an array indexed by number; the edges are held by a {@link
+ * CompressedSparseRowEdgeManager}.
+ */
+public class FrozenNumberedGraph<T> extends AbstractNumberedGraph<T> {
+
+  private final FrozenNodeManager<T> nodeManager;
+
+  private final CompressedSparseRowEdgeManager<T> edgeManager;
+
+  private FrozenNumberedGraph(NumberedGraph<T> g) {
+    nodeManager = new FrozenNodeManager<>(g);
+    edgeManager = new CompressedSparseRowEdgeManager<>(nodeManager, g);
+  }
+
+  /**
+   * @return an immutable copy of g, with the same node numbers
+   * @throws IllegalArgumentException if g is null
+   */
+  public static <T> FrozenNumberedGraph<T> freeze(NumberedGraph<T> g) {
+    if (g == null) {
+      throw new IllegalArgumentException("g is null");
+    }
+    return new FrozenNumberedGraph<>(g);
+  }
+
+  @Override
+  protected NumberedNodeManager<T> getNodeManager() {
+    return nodeManager;
+  }
+
+  @Override
+  protected NumberedEdgeManager<T> getEdgeManager() {
+    return edgeManager;
+  }
+
+  /** @return the total number of edges */
+  public int getNumberOfEdges() {
+    return edgeManager.getNumberOfEdges();
+  }
+
+  private static class FrozenNodeManager<T> implements NumberedNodeManager<T> {
+
+    /** the nodes, by number, with null for numbers without a node */
+    private final T[] nodes;
+
+    private final int size;
+
+    /**
+     * the number of each node, or null if every node is an {@link INodeWithNumber} whose graph node
+     * id is its number
+     */
+    private final @Nullable Map<T, Integer> numbers;
+
+    @SuppressWarnings("unchecked")
+    FrozenNodeManager(NumberedGraph<T> g) {
+      nodes = (T[]) new Object[g.getMaxNumber() + 1];
+      boolean numbered = true;
+      int count = 0;
+      for (T n : g) {
+        int x = g.getNumber(n);
+        nodes[x] = n;
+        count++;
+        numbered &= n instanceof INodeWithNumber && ((INodeWithNumber) n).getGraphNodeId() == x;
+      }
+      size = count;
+      if (numbered) {
+        numbers = null;
+      } else {
+        numbers = HashMapFactory.make(count);
+        for (int x = 0; x < nodes.length; x++) {
+          if (nodes[x] != null) {
+            numbers.put(nodes[x], x);
+          }
+        }
+      }
+    }
+
+    @Override
+    public int getNumber(@Nullable T N) {
+      if (N == null) {
+        return -1;
+      }
+      if (numbers != null) {
+        Integer x = numbers.get(N);
+        return x == null ? -1 : x;
+      }
+      if (!(N instanceof INodeWithNumber)) {
+        return -1;
+      }
+      int x = ((INodeWithNumber) N).getGraphNodeId();
+      return x >= 0 && x < nodes.length && N.equals(nodes[x]) ? x : -1;
+    }
+
+    @Override
+    public T getNode(int number) {
+      if (number < 0) {
+        throw new IllegalArgumentException("number must be >= 0");
+      }
+      return number < nodes.length ? nodes[number] : null;
+    }
+
+    @Override
+    public int getMaxNumber() {
+      return nodes.length - 1;
+    }
+
+    @Override
+    public Iterator<T> iterateNodes(IntSet s) {
+      return new NumberedNodeIterator<>(s, this);
+    }
+
+    @Override
+    public Stream<T> stream() {
+      return Arrays.stream(nodes).filter(Objects::nonNull);
+    }
+
+    @Override
+    public int getNumberOfNodes() {
+      return size;
+    }
+
+    @Override
+    public void addNode(T n) {
+      throw new UnsupportedOperationException("the nodes are frozen");
+    }
+
+    @Override
+    public void removeNode(T n) throws UnsupportedOperationException {
+      throw new UnsupportedOperationException("the nodes are frozen");
+    }
+
+    @Override
+    public boolean containsNode(@Nullable T n) {
+      return getNumber(n) != -1;
+    }
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A read-only view of a sorted run of an int array as an {@link IntSet}. Nothing is copied, so the
+ * run must not change while the view is in use.
+ */
+public final class ArraySliceIntSet implements IntSet {
+
+  private static final long serialVersionUID = 3592436012818412873L;
+
+  /** the elements are elements[start] up to elements[end - 1], in increasing order */
+  private final int[] elements;
+
+  private final int start;
+
+  private final int end;
+
+  /**
+   * @param elements an array holding the run
+   * @param start index of the first element of the run
+   * @param end index after the last element of the run
+   * @throws IllegalArgumentException if elements is null, or the run is not within it
+   */
+  public ArraySliceIntSet(int[] elements, int start, int end) {
+    if (elements == null) {
+      throw new IllegalArgumentException("null elements");
+    }
+    if (start < 0 || end < start || end > elements.length) {
+      throw new IllegalArgumentException("invalid run [" + start + ", " + end + ')');
+    }
+    this.elements = elements;
+    this.start = start;
+    this.end = end;
+  }
+
+  @Override
+  public boolean contains(int i) {
+    return Arrays.binarySearch(elements, start, end, i) >= 0;
+  }
+
+  @Override
+  public boolean containsAny(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("null set");
+    }
+    if (set.size() < size()) {
+      for (IntIterator it = set.intIterator(); it.hasNext(); ) {
+        if (contains(it.next())) {
+          return true;
+        }
+      }
+    } else {
+      for (int i = start; i < end; i++) {
+        if (set.contains(elements[i])) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public IntSet intersection(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("null that");
+    }
+    MutableSparseIntSet result = MutableSparseIntSet.makeEmpty();
+    for (int i = start; i < end; i++) {
+      if (that.contains(elements[i])) {
+        result.add(elements[i]);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public IntSet union(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("null that");
+    }
+    MutableSparseIntSet result = MutableSparseIntSet.make(this);
+    result.addAll(that);
+    return result;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return start == end;
+  }
+
+  @Override
+  public int size() {
+    return end - start;
+  }
+
+  /** @return the largest element, or -1 if this set is empty */
+  @Override
+  public int max() {
+    return start == end ? -1 : elements[end - 1];
+  }
+
+  @Override
+  public IntIterator intIterator() {
+    return new IntIterator() {
+      private int i = start;
+
+      @Override
+      public boolean hasNext() {
+        return i < end;
+      }
+
+      @Override
+      public int next() {
+        if (i >= end) {
+          throw new NoSuchElementException();
+        }
+        return elements[i++];
+      }
+    };
+  }
+
+  @Override
+  public void foreach(IntSetAction action) {
+    if (action == null) {
+      throw new IllegalArgumentException("null action");
+    }
+    for (int i = start; i < end; i++) {
+      action.act(elements[i]);
+    }
+  }
+
+  @Override
+  public void foreachExcluding(IntSet X, IntSetAction action) {
+    if (action == null) {
+      throw new IllegalArgumentException("null action");
+    }
+    for (int i = start; i < end; i++) {
+      if (!X.contains(elements[i])) {
+        action.act(elements[i]);
+      }
+    }
+  }
+
+  @Override
+  public boolean sameValue(@Nullable IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    return that == this || (size() == that.size() && isSubset(that));
+  }
+
+  @Override
+  public boolean isSubset(@Nullable IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    if (size() > that.size()) {
+      return false;
+    }
+    for (int i = start; i < end; i++) {
+      if (!that.contains(elements[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Serialize as an ordinary sparse set, rather than with the whole array. */
+  private Object writeReplace() {
+    return new SparseIntSet(Arrays.copyOfRange(elements, start, end));
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("{ ");
+    for (int i = start; i < end; i++) {
+      sb.append(elements[i]).append(' ');
+    }
+    sb.append('}');
+    return sb.toString();
+  }
+}
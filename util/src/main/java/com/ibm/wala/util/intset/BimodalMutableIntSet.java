@@ -10,7 +10,6 @@
  */
 package com.ibm.wala.util.intset;
 
-import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.debug.UnimplementedError;
 import org.jspecify.annotations.NullUnmarked;
 import org.jspecify.annotations.Nullable;
@@ -40,7 +39,7 @@ public class BimodalMutableIntSet implements MutableIntSet {
     } else if (set instanceof MutableSharedBitVectorIntSet) {
       impl = IntSetUtil.makeMutableCopy(((MutableSharedBitVectorIntSet) set).makeSparseCopy());
     } else {
-      Assertions.UNREACHABLE("Unexpected type " + set.getClass());
+      copySet(IntSetUtil.toSparseIntSet(set));
     }
     assert impl instanceof BitVectorIntSet || impl instanceof MutableSparseIntSet;
   }
@@ -136,7 +135,7 @@ public class BimodalMutableIntSet implements MutableIntSet {
       BimodalMutableIntSet that = (BimodalMutableIntSet) set;
       impl.intersectWith(that.impl);
     } else {
-      Assertions.UNREACHABLE();
+      impl.intersectWith(IntSetUtil.toSparseIntSet(set));
     }
   }
 
@@ -157,8 +156,7 @@ public class BimodalMutableIntSet implements MutableIntSet {
     } else if (that instanceof BitVectorIntSet) {
       return impl.intersection(that);
     } else {
-      Assertions.UNREACHABLE("Unexpected: " + that);
-      return null;
+      return impl.intersection(IntSetUtil.toSparseIntSet(that));
     }
   }
 
@@ -227,9 +225,13 @@ public class BimodalMutableIntSet implements MutableIntSet {
       result.impl = IntSetUtil.makeMutableCopy(s.makeSparseCopy());
       assert result.impl instanceof BitVectorIntSet || result.impl instanceof MutableSparseIntSet;
       return result;
-    } else {
+    } else if (B instanceof BitVectorIntSet) {
       BimodalMutableIntSet result = new BimodalMutableIntSet();
       result.impl = IntSetUtil.makeMutableCopy(B);
+      return result;
+    } else {
+      BimodalMutableIntSet result = new BimodalMutableIntSet();
+      result.impl = MutableSparseIntSet.make(B);
       assert result.impl instanceof BitVectorIntSet || result.impl instanceof MutableSparseIntSet;
       return result;
     }
@@ -304,8 +306,7 @@ public class BimodalMutableIntSet implements MutableIntSet {
     } else if (that instanceof BitVectorIntSet) {
       return impl.containsAny(that);
     } else {
-      Assertions.UNREACHABLE("unsupported " + that.getClass());
-      return false;
+      return impl.containsAny(IntSetUtil.toSparseIntSet(that));
     }
   }
 
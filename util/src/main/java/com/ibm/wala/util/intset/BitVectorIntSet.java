@@ -10,7 +10,6 @@
  */
 package com.ibm.wala.util.intset;
 
-import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.debug.UnimplementedError;
 import org.jspecify.annotations.NullUnmarked;
 import org.jspecify.annotations.Nullable;
@@ -338,8 +337,7 @@ public final class BitVectorIntSet implements MutableIntSet {
     } else if (that instanceof MutableSharedBitVectorIntSet) {
       return sameValue(((MutableSharedBitVectorIntSet) that).makeDenseCopy());
     } else {
-      Assertions.UNREACHABLE("unexpected argument type " + that.getClass());
-      return false;
+      return sameValueInternal(IntSetUtil.toSparseIntSet(that));
     }
   }
 
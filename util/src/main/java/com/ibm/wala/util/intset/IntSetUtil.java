@@ -10,7 +10,6 @@
  */
 package com.ibm.wala.util.intset;
 
-import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.debug.UnimplementedError;
 import java.util.Set;
 import org.jspecify.annotations.NullUnmarked;
@@ -68,7 +67,6 @@ public class IntSetUtil {
    * This method constructs an appropriate mutable copy of set.
    *
    * @return a new {@link MutableIntSet} object with the same value as set
-   * @throws UnimplementedError if we haven't supported the set type yet.
    * @throws IllegalArgumentException if set == null
    */
   @NullUnmarked
@@ -87,6 +85,8 @@ public class IntSetUtil {
       return new MutableSharedBitVectorIntSet((MutableSharedBitVectorIntSet) set);
     } else if (set instanceof SemiSparseMutableIntSet) {
       return new SemiSparseMutableIntSet((SemiSparseMutableIntSet) set);
+    } else if (set instanceof RoaringIntSet) {
+      return new RoaringIntSet(set);
     } else if (set instanceof DebuggingMutableIntSet) {
       MutableIntSet pCopy = makeMutableCopy(((DebuggingMutableIntSet) set).primaryImpl);
       MutableIntSet sCopy = makeMutableCopy(((DebuggingMutableIntSet) set).secondaryImpl);
@@ -94,11 +94,20 @@ public class IntSetUtil {
     } else if (set instanceof EmptyIntSet) {
       return IntSetUtil.make();
     } else {
-      Assertions.UNREACHABLE(set.getClass().toString());
-      return null;
+      // any other representation, e.g. an immutable OffHeapIntSet
+      return MutableSparseIntSet.make(set);
     }
   }
 
+  /**
+   * @return set itself if it is a {@link SparseIntSet}, or else a sparse copy of it. The sets of
+   *     this package that dispatch on the representation of another set fall back to this for the
+   *     representations they do not handle directly.
+   */
+  static SparseIntSet toSparseIntSet(IntSet set) {
+    return set instanceof SparseIntSet ? (SparseIntSet) set : MutableSparseIntSet.make(set);
+  }
+
   /** Compute the asymmetric difference of two sets, a \ b. */
   public static IntSet diff(IntSet A, IntSet B) {
     if (A == null) {
@@ -146,6 +155,8 @@ public class IntSetUtil {
       IntSet d =
           SemiSparseMutableIntSet.diff((SemiSparseMutableIntSet) A, (SemiSparseMutableIntSet) B);
       return d;
+    } else if (A instanceof RoaringIntSet && B instanceof RoaringIntSet) {
+      return RoaringIntSet.diff((RoaringIntSet) A, (RoaringIntSet) B);
     } else {
       return defaultSlowDiff(A, B, factory);
     }
@@ -168,6 +179,8 @@ public class IntSetUtil {
         System.err.println("call SemiSparseMutableIntSet.removeAll");
       }
       return ((SemiSparseMutableIntSet) A).removeAll((SemiSparseMutableIntSet) B);
+    } else if (A instanceof RoaringIntSet && B instanceof RoaringIntSet) {
+      return ((RoaringIntSet) A).removeAll(B);
     } else {
       for (IntIterator it = B.intIterator(); it.hasNext(); ) {
         int I = it.next();
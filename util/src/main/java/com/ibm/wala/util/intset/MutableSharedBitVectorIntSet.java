@@ -318,8 +318,7 @@ public class MutableSharedBitVectorIntSet implements MutableIntSet {
     } else if (that instanceof SemiSparseMutableIntSet) {
       return that.sameValue(this);
     } else {
-      Assertions.UNREACHABLE("unexpected class " + that.getClass());
-      return false;
+      return sameValue(IntSetUtil.toSparseIntSet(that));
     }
   }
 
@@ -792,13 +791,8 @@ public class MutableSharedBitVectorIntSet implements MutableIntSet {
     } else if (set instanceof BitVectorIntSet) {
       intersectWithInternal(new MutableSharedBitVectorIntSet((BitVectorIntSet) set));
     } else {
-      // this is really slow. optimize as needed.
-      for (IntIterator it = intIterator(); it.hasNext(); ) {
-        int x = it.next();
-        if (!set.contains(x)) {
-          remove(x);
-        }
-      }
+      // removing elements while iterating over them would skip some, so copy the other set
+      intersectWithInternal(new MutableSharedBitVectorIntSet(new BitVectorIntSet(set)));
     }
     if (DEBUG) {
       if (privatePart != null && sharedPart != null)
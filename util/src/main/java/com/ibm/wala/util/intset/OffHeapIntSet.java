@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+import java.nio.IntBuffer;
+import java.util.NoSuchElementException;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * An immutable set of integers, kept as a sorted run of ints in an {@link OffHeapIntSetStore}.
+ *
+ * <p>Note that this is NOT a value with regard to hashCode and equals.
+ */
+public final class OffHeapIntSet implements IntSet {
+
+  private static final long serialVersionUID = -2185911327506240716L;
+
+  /** the chunk of the store holding the elements; read with absolute gets only */
+  private final transient IntBuffer buffer;
+
+  private final int offset;
+
+  private final int size;
+
+  OffHeapIntSet(IntBuffer buffer, int offset, int size) {
+    this.buffer = buffer;
+    this.offset = offset;
+    this.size = size;
+  }
+
+  private int get(int i) {
+    return buffer.get(offset + i);
+  }
+
+  @Override
+  public boolean contains(int x) {
+    int lo = 0, hi = size - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      int v = get(mid);
+      if (v < x) {
+        lo = mid + 1;
+      } else if (v > x) {
+        hi = mid - 1;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean containsAny(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("null set");
+    }
+    if (set.size() < size) {
+      for (IntIterator it = set.intIterator(); it.hasNext(); ) {
+        if (contains(it.next())) {
+          return true;
+        }
+      }
+    } else {
+      for (int i = 0; i < size; i++) {
+        if (set.contains(get(i))) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public IntSet intersection(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("null that");
+    }
+    MutableSparseIntSet result = MutableSparseIntSet.makeEmpty();
+    for (int i = 0; i < size; i++) {
+      int x = get(i);
+      if (that.contains(x)) {
+        result.add(x);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public IntSet union(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("null that");
+    }
+    MutableSparseIntSet result = MutableSparseIntSet.make(this);
+    result.addAll(that);
+    return result;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /** @return the largest element, or -1 if this set is empty */
+  @Override
+  public int max() {
+    return size == 0 ? -1 : get(size - 1);
+  }
+
+  @Override
+  public IntIterator intIterator() {
+    return new IntIterator() {
+      private int i = 0;
+
+      @Override
+      public boolean hasNext() {
+        return i < size;
+      }
+
+      @Override
+      public int next() {
+        if (i >= size) {
+          throw new NoSuchElementException();
+        }
+        return get(i++);
+      }
+    };
+  }
+
+  @Override
+  public void foreach(IntSetAction action) {
+    if (action == null) {
+      throw new IllegalArgumentException("null action");
+    }
+    for (int i = 0; i < size; i++) {
+      action.act(get(i));
+    }
+  }
+
+  @Override
+  public void foreachExcluding(IntSet X, IntSetAction action) {
+    if (action == null) {
+      throw new IllegalArgumentException("null action");
+    }
+    for (int i = 0; i < size; i++) {
+      int x = get(i);
+      if (!X.contains(x)) {
+        action.act(x);
+      }
+    }
+  }
+
+  @Override
+  public boolean sameValue(@Nullable IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    return that == this || (size == that.size() && isSubset(that));
+  }
+
+  @Override
+  public boolean isSubset(@Nullable IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    if (size > that.size()) {
+      return false;
+    }
+    for (int i = 0; i < size; i++) {
+      if (!that.contains(get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Serialize as an ordinary sparse set, since the buffer does not outlive this process. */
+  private Object writeReplace() {
+    return new SparseIntSet(this);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("{ ");
+    for (int i = 0; i < size; i++) {
+      sb.append(get(i)).append(' ');
+    }
+    sb.append('}');
+    return sb.toString();
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * An append-only store of immutable int sets outside the Java heap, either in direct byte buffers
+ * or in a memory-mapped file.
+ *
+ * <p>Each stored set is a sorted run of ints in a large chunk, so the heap holds one small {@link
+ * OffHeapIntSet} per set and no per-set arrays, and the garbage collector never scans the contents.
+ */
+public class OffHeapIntSetStore implements Closeable {
+
+  /** number of ints in a chunk; larger sets get a chunk of their own */
+  private static final int CHUNK_INTS = 1 << 18;
+
+  private static final IntBuffer NO_INTS = IntBuffer.allocate(0);
+
+  /** the file chunks are mapped from, or null for direct buffers */
+  @Nullable private final FileChannel channel;
+
+  /** the end of the file */
+  private long fileSize = 0;
+
+  /** the chunk sets are currently appended to */
+  @Nullable private IntBuffer current;
+
+  /** number of ints used in the current chunk */
+  private int used = 0;
+
+  /** total ints in all chunks */
+  private long capacity = 0;
+
+  /** total ints stored */
+  private long stored = 0;
+
+  /** Create a store in direct byte buffers. */
+  public OffHeapIntSetStore() {
+    this.channel = null;
+  }
+
+  private OffHeapIntSetStore(FileChannel channel) {
+    this.channel = channel;
+  }
+
+  /**
+   * Create a store in a memory-mapped file, which the operating system may page out under memory
+   * pressure. The file is overwritten, and may be deleted once the store is no longer used.
+   *
+   * @throws IllegalArgumentException if file is null
+   */
+  @SuppressWarnings("resource")
+  public static OffHeapIntSetStore makeMapped(File file) throws IOException {
+    if (file == null) {
+      throw new IllegalArgumentException("null file");
+    }
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    raf.setLength(0);
+    return new OffHeapIntSetStore(raf.getChannel());
+  }
+
+  /**
+   * @return an immutable copy of s in this store
+   * @throws IllegalArgumentException if s is null
+   */
+  public OffHeapIntSet store(IntSet s) {
+    if (s == null) {
+      throw new IllegalArgumentException("null s");
+    }
+    if (s instanceof OffHeapIntSet) {
+      return (OffHeapIntSet) s;
+    }
+    int[] elements = new int[s.size()];
+    int n = 0;
+    for (IntIterator it = s.intIterator(); it.hasNext(); ) {
+      elements[n++] = it.next();
+    }
+    return store(elements);
+  }
+
+  /** @return an immutable set of the given elements, in any order, in this store */
+  synchronized OffHeapIntSet store(int[] elements) {
+    Arrays.sort(elements);
+    IntBuffer chunk;
+    int offset;
+    if (elements.length == 0) {
+      chunk = NO_INTS;
+      offset = 0;
+    } else if (elements.length > CHUNK_INTS) {
+      chunk = allocate(elements.length);
+      offset = 0;
+    } else {
+      if (current == null || used + elements.length > current.capacity()) {
+        current = allocate(CHUNK_INTS);
+        used = 0;
+      }
+      chunk = current;
+      offset = used;
+      used += elements.length;
+    }
+    for (int i = 0; i < elements.length; i++) {
+      chunk.put(offset + i, elements[i]);
+    }
+    stored += elements.length;
+    return new OffHeapIntSet(chunk, offset, elements.length);
+  }
+
+  private IntBuffer allocate(int ints) {
+    ByteBuffer bytes;
+    if (channel == null) {
+      bytes = ByteBuffer.allocateDirect(4 * ints);
+    } else {
+      try {
+        bytes = channel.map(FileChannel.MapMode.READ_WRITE, fileSize, 4L * ints);
+      } catch (IOException e) {
+        throw new IllegalStateException("could not map int set storage", e);
+      }
+      fileSize += 4L * ints;
+    }
+    capacity += ints;
+    return bytes.order(ByteOrder.nativeOrder()).asIntBuffer();
+  }
+
+  /** @return the number of bytes this store has reserved outside the heap */
+  public synchronized long getCapacityInBytes() {
+    return 4 * capacity;
+  }
+
+  /** @return the number of bytes used by the stored sets */
+  public synchronized long getSizeInBytes() {
+    return 4 * stored;
+  }
+
+  /**
+   * Close the backing file, if any. Sets already stored stay readable until they are garbage
+   * collected.
+   */
+  @Override
+  public void close() throws IOException {
+    if (channel != null) {
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.stream.Stream;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A {@link MutableMapping} whose index from objects to numbers is an open-addressing hash table of
+ * ints in a direct byte buffer, rather than a {@link java.util.HashMap} with a node and a boxed
+ * Integer per object.
+ *
+ * <p>The mapped objects themselves stay in one array on the heap, so a mapping of millions of
+ * objects adds no small objects for the garbage collector to trace. Null cannot be mapped.
+ */
+public class OffHeapMutableMapping<T> extends MutableMapping<T> {
+
+  private static final long serialVersionUID = 6311522839447130918L;
+
+  private static final int INITIAL_CAPACITY = 20;
+
+  /** table entry of a free slot */
+  private static final int FREE = 0;
+
+  /** table entry of a slot whose object was deleted */
+  private static final int DELETED = -1;
+
+  public static <T> OffHeapMutableMapping<T> makeOffHeap() {
+    return new OffHeapMutableMapping<>();
+  }
+
+  /** the mapped objects, by number */
+  private @Nullable Object[] objects = new Object[INITIAL_CAPACITY];
+
+  private int nextIndex = 0;
+
+  /** number of mapped objects */
+  private int size = 0;
+
+  /**
+   * slots of the hash table, each holding FREE, DELETED or the number of an object plus one; the
+   * length is a power of two
+   */
+  private transient IntBuffer table = allocateTable(64);
+
+  /** number of slots that are not FREE */
+  private int usedSlots = 0;
+
+  protected OffHeapMutableMapping() {}
+
+  private static IntBuffer allocateTable(int slots) {
+    return ByteBuffer.allocateDirect(4 * slots).order(ByteOrder.nativeOrder()).asIntBuffer();
+  }
+
+  private static int hash(Object o) {
+    int h = o.hashCode() * 0x9e3779b9;
+    return h ^ (h >>> 16);
+  }
+
+  /** @return the slot holding o, or -1 if o is not mapped */
+  private int findSlot(Object o) {
+    int mask = table.capacity() - 1;
+    for (int slot = hash(o) & mask; ; slot = (slot + 1) & mask) {
+      int entry = table.get(slot);
+      if (entry == FREE) {
+        return -1;
+      } else if (entry != DELETED && o.equals(objects[entry - 1])) {
+        return slot;
+      }
+    }
+  }
+
+  /** Record in the table that o has number i; o must not be in the table yet. */
+  private void insert(Object o, int i) {
+    if (2 * (usedSlots + 1) > table.capacity()) {
+      rehash();
+    }
+    int mask = table.capacity() - 1;
+    int slot = hash(o) & mask;
+    while (table.get(slot) != FREE && table.get(slot) != DELETED) {
+      slot = (slot + 1) & mask;
+    }
+    if (table.get(slot) == FREE) {
+      usedSlots++;
+    }
+    table.put(slot, i + 1);
+  }
+
+  /** Rebuild the table without deleted slots, with room for twice the mapped objects. */
+  private void rehash() {
+    int slots = 64;
+    while (slots < 4 * (size + 1)) {
+      slots *= 2;
+    }
+    IntBuffer old = table;
+    table = allocateTable(slots);
+    usedSlots = 0;
+    int mask = slots - 1;
+    for (int s = 0; s < old.capacity(); s++) {
+      int entry = old.get(s);
+      if (entry != FREE && entry != DELETED) {
+        int slot = hash(objects[entry - 1]) & mask;
+        while (table.get(slot) != FREE) {
+          slot = (slot + 1) & mask;
+        }
+        table.put(slot, entry);
+        usedSlots++;
+      }
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T getMappedObject(int n) {
+    if (n < 0 || n >= objects.length) {
+      throw new IllegalArgumentException("n out of range " + n);
+    }
+    return (T) objects[n];
+  }
+
+  @Override
+  public int getMappedIndex(@Nullable Object o) {
+    if (o == null) {
+      return -1;
+    }
+    int slot = findSlot(o);
+    return slot == -1 ? -1 : table.get(slot) - 1;
+  }
+
+  @Override
+  public boolean hasMappedIndex(T o) {
+    return getMappedIndex(o) != -1;
+  }
+
+  @Override
+  public int add(T o) {
+    if (o == null) {
+      throw new IllegalArgumentException("null o");
+    }
+    int i = getMappedIndex(o);
+    if (i != -1) {
+      return i;
+    }
+    if (nextIndex >= objects.length) {
+      objects = Arrays.copyOf(objects, 2 * objects.length);
+    }
+    i = nextIndex++;
+    objects[i] = o;
+    size++;
+    insert(o, i);
+    return i;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < nextIndex; i++) {
+      result.append(i).append("  ").append(objects[i]).append('\n');
+    }
+    return result.toString();
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Stream<T> stream() {
+    return Arrays.stream(objects, 0, nextIndex).filter(Objects::nonNull).map(o -> (T) o);
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    return stream().iterator();
+  }
+
+  @Override
+  public void deleteMappedObject(T n) {
+    if (n == null) {
+      return;
+    }
+    int slot = findSlot(n);
+    if (slot != -1) {
+      objects[table.get(slot) - 1] = null;
+      table.put(slot, DELETED);
+      size--;
+    }
+  }
+
+  @Override
+  public Collection<T> getObjects() {
+    return new AbstractCollection<>() {
+      @Override
+      public Iterator<T> iterator() {
+        return OffHeapMutableMapping.this.iterator();
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  @Override
+  public void replace(T a, T b) throws IllegalArgumentException {
+    if (b == null) {
+      throw new IllegalArgumentException("null b");
+    }
+    int i = getMappedIndex(a);
+    if (i == -1) {
+      throw new IllegalArgumentException("first element does not exist in map");
+    }
+    table.put(findSlot(a), DELETED);
+    objects[i] = b;
+    insert(b, i);
+  }
+
+  @Override
+  public void put(int i, T o) {
+    if (i < 0 || i > Integer.MAX_VALUE / 4) {
+      throw new IllegalArgumentException("invalid i: " + i);
+    }
+    if (o == null) {
+      throw new IllegalArgumentException("null o");
+    }
+    if (i >= objects.length) {
+      objects = Arrays.copyOf(objects, 2 * i);
+    }
+    int slot = findSlot(o);
+    if (slot != -1) {
+      // o moves to number i
+      objects[table.get(slot) - 1] = null;
+      table.put(slot, DELETED);
+      size--;
+    }
+    if (objects[i] != null) {
+      table.put(findSlot(objects[i]), DELETED);
+      size--;
+    }
+    objects[i] = o;
+    size++;
+    insert(o, i);
+    nextIndex = Math.max(nextIndex, i + 1);
+  }
+
+  @Override
+  public int getMaximumIndex() {
+    return nextIndex - 1;
+  }
+
+  @Override
+  public int getSize() {
+    return size;
+  }
+
+  /** The table does not outlive this process, so rebuild it from the objects. */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    table = allocateTable(64);
+    usedSlots = 0;
+    for (int i = 0; i < nextIndex; i++) {
+      if (objects[i] != null) {
+        insert(objects[i], i);
+      }
+    }
+  }
+}
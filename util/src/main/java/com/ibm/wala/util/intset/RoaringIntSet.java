@@ -0,0 +1,1190 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A compressed {@link MutableIntSet}, after the Roaring bitmaps of Lemire et al.
+ *
+ * <p>The set splits each element into its high and low 16 bits. For each distinct high half, it
+ * keeps a container of the low halves, which is a sorted array if there are at most {@link
+ * #ARRAY_MAX} of them, and a bitmap of 1024 words otherwise. {@link #runOptimize()} turns
+ * containers that consist of a few long runs of consecutive elements into lists of runs; a run
+ * container that is modified becomes an array or bitmap again.
+ *
+ * <p>So sparse sets cost about two bytes per element, dense sets about one bit per element, and
+ * clustered sets little more than their number of clusters. Operations on two bitmaps run word by
+ * word over {@code long} arrays.
+ *
+ * <p>Elements must be non-negative. Note that this is NOT a value with regard to hashCode and
+ * equals.
+ */
+public final class RoaringIntSet implements MutableIntSet {
+
+  private static final long serialVersionUID = -3380264546457239871L;
+
+  /** the largest number of elements in an array container */
+  static final int ARRAY_MAX = 4096;
+
+  /** the number of words in a bitmap container */
+  private static final int WORDS = 1 << 10;
+
+  private static final char[] NO_KEYS = new char[0];
+
+  private static final Container[] NO_CONTAINERS = new Container[0];
+
+  /** a container with no elements, only used transiently */
+  private static final Container EMPTY = new ArrayContainer();
+
+  /** the high halves of the elements, sorted; only the first {@link #count} are used */
+  private char[] keys = NO_KEYS;
+
+  /** the container for each key; never empty */
+  private Container[] containers = NO_CONTAINERS;
+
+  /** the number of containers */
+  private int count = 0;
+
+  public RoaringIntSet() {}
+
+  /** @throws IllegalArgumentException if set is null */
+  public RoaringIntSet(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("null set");
+    }
+    copySet(set);
+  }
+
+  private static char high(int i) {
+    return (char) (i >>> 16);
+  }
+
+  private static int low(int i) {
+    return i & 0xffff;
+  }
+
+  /** @return the index of key, or -(insertion point + 1) if it is not present */
+  private int indexOf(char key) {
+    return Arrays.binarySearch(keys, 0, count, key);
+  }
+
+  private void insertContainer(int index, char key, Container c) {
+    if (count == keys.length) {
+      int n = Math.max(4, 2 * count);
+      keys = Arrays.copyOf(keys, n);
+      containers = Arrays.copyOf(containers, n);
+    }
+    System.arraycopy(keys, index, keys, index + 1, count - index);
+    System.arraycopy(containers, index, containers, index + 1, count - index);
+    keys[index] = key;
+    containers[index] = c;
+    count++;
+  }
+
+  private void removeContainer(int index) {
+    System.arraycopy(keys, index + 1, keys, index, count - index - 1);
+    System.arraycopy(containers, index + 1, containers, index, count - index - 1);
+    count--;
+    containers[count] = null;
+  }
+
+  /** drop the empty containers */
+  private void compact() {
+    int j = 0;
+    for (int i = 0; i < count; i++) {
+      if (containers[i].cardinality() > 0) {
+        keys[j] = keys[i];
+        containers[j] = containers[i];
+        j++;
+      }
+    }
+    Arrays.fill(containers, j, count, null);
+    count = j;
+  }
+
+  @Override
+  public boolean contains(int i) {
+    if (i < 0) {
+      return false;
+    }
+    int k = indexOf(high(i));
+    return k >= 0 && containers[k].contains(low(i));
+  }
+
+  @Override
+  public boolean add(int i) {
+    if (i < 0) {
+      throw new IllegalArgumentException("negative element: " + i);
+    }
+    int k = indexOf(high(i));
+    if (k < 0) {
+      insertContainer(-k - 1, high(i), new ArrayContainer(low(i)));
+      return true;
+    }
+    Container c = containers[k];
+    int before = c.cardinality();
+    c = c.add(low(i));
+    containers[k] = c;
+    return c.cardinality() != before;
+  }
+
+  @Override
+  public boolean remove(int i) {
+    if (i < 0) {
+      return false;
+    }
+    int k = indexOf(high(i));
+    if (k < 0) {
+      return false;
+    }
+    Container c = containers[k];
+    int before = c.cardinality();
+    c = c.remove(low(i));
+    if (c.cardinality() == 0) {
+      removeContainer(k);
+    } else {
+      containers[k] = c;
+    }
+    return c.cardinality() != before;
+  }
+
+  @Override
+  public void clear() {
+    keys = NO_KEYS;
+    containers = NO_CONTAINERS;
+    count = 0;
+  }
+
+  @Override
+  public void copySet(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("null set");
+    }
+    if (set == this) {
+      return;
+    }
+    if (set instanceof RoaringIntSet) {
+      RoaringIntSet that = (RoaringIntSet) set;
+      keys = Arrays.copyOf(that.keys, that.count);
+      containers = new Container[that.count];
+      for (int i = 0; i < that.count; i++) {
+        containers[i] = that.containers[i].copy();
+      }
+      count = that.count;
+    } else {
+      clear();
+      for (IntIterator it = set.intIterator(); it.hasNext(); ) {
+        add(it.next());
+      }
+    }
+  }
+
+  @Override
+  public boolean addAll(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("null set");
+    }
+    if (!(set instanceof RoaringIntSet)) {
+      boolean result = false;
+      for (IntIterator it = set.intIterator(); it.hasNext(); ) {
+        result |= add(it.next());
+      }
+      return result;
+    }
+    RoaringIntSet that = (RoaringIntSet) set;
+    if (that == this) {
+      return false;
+    }
+    boolean result = false;
+    int newKeys = 0;
+    for (int j = 0; j < that.count; j++) {
+      int k = indexOf(that.keys[j]);
+      if (k < 0) {
+        newKeys++;
+      } else {
+        Container c = containers[k];
+        int before = c.cardinality();
+        c = c.or(that.containers[j]);
+        containers[k] = c;
+        result |= c.cardinality() != before;
+      }
+    }
+    if (newKeys > 0) {
+      // merge the new containers in, in one pass
+      char[] mergedKeys = new char[count + newKeys];
+      Container[] merged = new Container[count + newKeys];
+      int i = 0, j = 0, n = 0;
+      while (i < count || j < that.count) {
+        if (j == that.count || (i < count && keys[i] < that.keys[j])) {
+          mergedKeys[n] = keys[i];
+          merged[n++] = containers[i++];
+        } else if (i == count || that.keys[j] < keys[i]) {
+          mergedKeys[n] = that.keys[j];
+          merged[n++] = that.containers[j++].copy();
+        } else {
+          // already merged above
+          mergedKeys[n] = keys[i];
+          merged[n++] = containers[i++];
+          j++;
+        }
+      }
+      keys = mergedKeys;
+      containers = merged;
+      count = n;
+      result = true;
+    }
+    return result;
+  }
+
+  @Override
+  public void intersectWith(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("null set");
+    }
+    if (set instanceof RoaringIntSet) {
+      RoaringIntSet that = (RoaringIntSet) set;
+      for (int i = 0; i < count; i++) {
+        int k = that.indexOf(keys[i]);
+        containers[i] = k < 0 ? EMPTY : containers[i].and(that.containers[k]);
+      }
+    } else {
+      for (int i = 0; i < count; i++) {
+        Container c = new ArrayContainer();
+        int base = keys[i] << 16;
+        for (IntIterator it = containers[i].intIterator(); it.hasNext(); ) {
+          int x = it.next();
+          if (set.contains(base | x)) {
+            c = c.add(x);
+          }
+        }
+        containers[i] = c;
+      }
+    }
+    compact();
+  }
+
+  /**
+   * Remove all elements of set from this.
+   *
+   * @return this
+   */
+  public RoaringIntSet removeAll(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("null set");
+    }
+    if (set instanceof RoaringIntSet) {
+      RoaringIntSet that = (RoaringIntSet) set;
+      for (int i = 0; i < count; i++) {
+        int k = that.indexOf(keys[i]);
+        if (k >= 0) {
+          containers[i] = containers[i].andNot(that.containers[k]);
+        }
+      }
+      compact();
+    } else {
+      for (IntIterator it = set.intIterator(); it.hasNext(); ) {
+        remove(it.next());
+      }
+    }
+    return this;
+  }
+
+  /** @return a new set holding A \ B */
+  public static RoaringIntSet diff(RoaringIntSet A, RoaringIntSet B) {
+    if (A == null) {
+      throw new IllegalArgumentException("null A");
+    }
+    if (B == null) {
+      throw new IllegalArgumentException("null B");
+    }
+    return new RoaringIntSet(A).removeAll(B);
+  }
+
+  @Override
+  public boolean addAllInIntersection(IntSet other, IntSet filter) {
+    if (other == null) {
+      throw new IllegalArgumentException("null other");
+    }
+    if (filter == null) {
+      throw new IllegalArgumentException("null filter");
+    }
+    if (other instanceof RoaringIntSet && filter instanceof RoaringIntSet) {
+      RoaringIntSet o = (RoaringIntSet) other;
+      RoaringIntSet f = (RoaringIntSet) filter;
+      RoaringIntSet both = new RoaringIntSet();
+      for (int j = 0; j < o.count; j++) {
+        int k = f.indexOf(o.keys[j]);
+        if (k >= 0) {
+          Container c = o.containers[j].copy().and(f.containers[k]);
+          if (c.cardinality() > 0) {
+            both.insertContainer(both.count, o.keys[j], c);
+          }
+        }
+      }
+      return addAll(both);
+    }
+    boolean result = false;
+    for (IntIterator it = other.intIterator(); it.hasNext(); ) {
+      int x = it.next();
+      if (filter.contains(x)) {
+        result |= add(x);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public boolean containsAny(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("null set");
+    }
+    if (set instanceof RoaringIntSet) {
+      RoaringIntSet that = (RoaringIntSet) set;
+      for (int i = 0, j = 0; i < count && j < that.count; ) {
+        if (keys[i] < that.keys[j]) {
+          i++;
+        } else if (keys[i] > that.keys[j]) {
+          j++;
+        } else if (containers[i++].intersects(that.containers[j++])) {
+          return true;
+        }
+      }
+      return false;
+    }
+    for (IntIterator it = set.intIterator(); it.hasNext(); ) {
+      if (contains(it.next())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public IntSet intersection(IntSet that) {
+    RoaringIntSet result = new RoaringIntSet(this);
+    result.intersectWith(that);
+    return result;
+  }
+
+  @Override
+  public IntSet union(IntSet that) {
+    RoaringIntSet result = new RoaringIntSet(this);
+    result.addAll(that);
+    return result;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return count == 0;
+  }
+
+  @Override
+  public int size() {
+    int result = 0;
+    for (int i = 0; i < count; i++) {
+      result += containers[i].cardinality();
+    }
+    return result;
+  }
+
+  /** @return the largest element, or -1 if this set is empty */
+  @Override
+  public int max() {
+    return count == 0 ? -1 : (keys[count - 1] << 16) | containers[count - 1].last();
+  }
+
+  @Override
+  public IntIterator intIterator() {
+    return new IntIterator() {
+      private int i = 0;
+
+      private IntIterator current = count == 0 ? EMPTY.intIterator() : containers[0].intIterator();
+
+      @Override
+      public boolean hasNext() {
+        while (!current.hasNext() && i < count - 1) {
+          current = containers[++i].intIterator();
+        }
+        return current.hasNext();
+      }
+
+      @Override
+      public int next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return (keys[i] << 16) | current.next();
+      }
+    };
+  }
+
+  @Override
+  public void foreach(IntSetAction action) {
+    if (action == null) {
+      throw new IllegalArgumentException("null action");
+    }
+    for (IntIterator it = intIterator(); it.hasNext(); ) {
+      action.act(it.next());
+    }
+  }
+
+  @Override
+  public void foreachExcluding(IntSet X, IntSetAction action) {
+    if (action == null) {
+      throw new IllegalArgumentException("null action");
+    }
+    for (IntIterator it = intIterator(); it.hasNext(); ) {
+      int x = it.next();
+      if (!X.contains(x)) {
+        action.act(x);
+      }
+    }
+  }
+
+  @Override
+  public boolean sameValue(@Nullable IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    if (that instanceof RoaringIntSet) {
+      RoaringIntSet o = (RoaringIntSet) that;
+      if (count != o.count) {
+        return false;
+      }
+      for (int i = 0; i < count; i++) {
+        if (keys[i] != o.keys[i] || !containers[i].sameValue(o.containers[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return size() == that.size() && isSubset(that);
+  }
+
+  @Override
+  public boolean isSubset(@Nullable IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    if (that instanceof RoaringIntSet) {
+      RoaringIntSet o = (RoaringIntSet) that;
+      for (int i = 0; i < count; i++) {
+        int k = o.indexOf(keys[i]);
+        if (k < 0 || !containers[i].isSubset(o.containers[k])) {
+          return false;
+        }
+      }
+      return true;
+    }
+    for (IntIterator it = intIterator(); it.hasNext(); ) {
+      if (!that.contains(it.next())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Store containers that consist of few runs of consecutive elements as lists of runs, where that
+   * takes less space.
+   *
+   * @return true iff any container was converted
+   */
+  public boolean runOptimize() {
+    boolean result = false;
+    for (int i = 0; i < count; i++) {
+      Container c = containers[i].runOptimize();
+      result |= c != containers[i];
+      containers[i] = c;
+    }
+    return result;
+  }
+
+  /** @return an estimate of the bytes used by the containers of this set */
+  public long getSizeInBytes() {
+    long result = 3L * keys.length;
+    for (int i = 0; i < count; i++) {
+      result += containers[i].getSizeInBytes();
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("{ ");
+    for (IntIterator it = intIterator(); it.hasNext(); ) {
+      sb.append(it.next()).append(' ');
+    }
+    sb.append('}');
+    return sb.toString();
+  }
+
+  /** The low halves of the elements with one high half. */
+  private abstract static class Container implements Serializable {
+
+    private static final long serialVersionUID = 3893415186422546541L;
+
+    abstract int cardinality();
+
+    abstract boolean contains(int x);
+
+    /** @return the container holding this and x, which may be this */
+    abstract Container add(int x);
+
+    /** @return the container holding this without x, which may be this */
+    abstract Container remove(int x);
+
+    /** @return the largest element */
+    abstract int last();
+
+    abstract Container copy();
+
+    abstract IntIterator intIterator();
+
+    abstract long getSizeInBytes();
+
+    /** @return an array or bitmap container with the same elements, which may be this */
+    abstract Container toMutable();
+
+    /** @return the union of this and other, which may be this modified in place */
+    abstract Container or(Container other);
+
+    /** @return the intersection of this and other, which may be this modified in place */
+    abstract Container and(Container other);
+
+    /** @return this without the elements of other, which may be this modified in place */
+    abstract Container andNot(Container other);
+
+    boolean intersects(Container other) {
+      for (IntIterator it = intIterator(); it.hasNext(); ) {
+        if (other.contains(it.next())) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    boolean isSubset(Container other) {
+      if (cardinality() > other.cardinality()) {
+        return false;
+      }
+      for (IntIterator it = intIterator(); it.hasNext(); ) {
+        if (!other.contains(it.next())) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    boolean sameValue(Container other) {
+      return cardinality() == other.cardinality() && isSubset(other);
+    }
+
+    /** @return the number of maximal runs of consecutive elements */
+    abstract int numberOfRuns();
+
+    /** @return a run container with the same elements, if it is smaller, or else this */
+    Container runOptimize() {
+      int runs = numberOfRuns();
+      return RunContainer.sizeInBytes(runs) < getSizeInBytes()
+          ? new RunContainer(this, runs)
+          : this;
+    }
+  }
+
+  /** A sorted array of at most {@link #ARRAY_MAX} elements. */
+  private static final class ArrayContainer extends Container {
+
+    private static final long serialVersionUID = -1271585813590384862L;
+
+    private char[] values;
+
+    private int cardinality;
+
+    ArrayContainer() {
+      values = NO_KEYS;
+    }
+
+    ArrayContainer(int x) {
+      values = new char[] {(char) x};
+      cardinality = 1;
+    }
+
+    ArrayContainer(char[] values, int cardinality) {
+      this.values = values;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(int x) {
+      return Arrays.binarySearch(values, 0, cardinality, (char) x) >= 0;
+    }
+
+    @Override
+    Container add(int x) {
+      int k = Arrays.binarySearch(values, 0, cardinality, (char) x);
+      if (k >= 0) {
+        return this;
+      }
+      if (cardinality == ARRAY_MAX) {
+        return toBitmap().add(x);
+      }
+      k = -k - 1;
+      if (cardinality == values.length) {
+        values = Arrays.copyOf(values, Math.min(ARRAY_MAX, Math.max(4, 2 * cardinality)));
+      }
+      System.arraycopy(values, k, values, k + 1, cardinality - k);
+      values[k] = (char) x;
+      cardinality++;
+      return this;
+    }
+
+    @Override
+    Container remove(int x) {
+      int k = Arrays.binarySearch(values, 0, cardinality, (char) x);
+      if (k >= 0) {
+        System.arraycopy(values, k + 1, values, k, cardinality - k - 1);
+        cardinality--;
+      }
+      return this;
+    }
+
+    @Override
+    int last() {
+      return values[cardinality - 1];
+    }
+
+    @Override
+    Container copy() {
+      return new ArrayContainer(Arrays.copyOf(values, cardinality), cardinality);
+    }
+
+    @Override
+    IntIterator intIterator() {
+      return new IntIterator() {
+        private int i = 0;
+
+        @Override
+        public boolean hasNext() {
+          return i < cardinality;
+        }
+
+        @Override
+        public int next() {
+          if (i >= cardinality) {
+            throw new NoSuchElementException();
+          }
+          return values[i++];
+        }
+      };
+    }
+
+    @Override
+    long getSizeInBytes() {
+      return 2L * values.length + 8;
+    }
+
+    @Override
+    Container toMutable() {
+      return this;
+    }
+
+    BitmapContainer toBitmap() {
+      BitmapContainer result = new BitmapContainer();
+      for (int i = 0; i < cardinality; i++) {
+        result.words[values[i] >>> 6] |= 1L << values[i];
+      }
+      result.cardinality = cardinality;
+      return result;
+    }
+
+    @Override
+    Container or(Container other) {
+      other = other.toMutable();
+      if (other instanceof BitmapContainer) {
+        BitmapContainer result = (BitmapContainer) other.copy();
+        for (int i = 0; i < cardinality; i++) {
+          result.set(values[i]);
+        }
+        return result;
+      }
+      ArrayContainer that = (ArrayContainer) other;
+      char[] merged = new char[cardinality + that.cardinality];
+      int i = 0, j = 0, n = 0;
+      while (i < cardinality && j < that.cardinality) {
+        char a = values[i], b = that.values[j];
+        if (a < b) {
+          merged[n++] = a;
+          i++;
+        } else if (b < a) {
+          merged[n++] = b;
+          j++;
+        } else {
+          merged[n++] = a;
+          i++;
+          j++;
+        }
+      }
+      while (i < cardinality) {
+        merged[n++] = values[i++];
+      }
+      while (j < that.cardinality) {
+        merged[n++] = that.values[j++];
+      }
+      if (n > ARRAY_MAX) {
+        return new ArrayContainer(merged, n).toBitmap();
+      }
+      values = merged;
+      cardinality = n;
+      return this;
+    }
+
+    @Override
+    Container and(Container other) {
+      int n = 0;
+      for (int i = 0; i < cardinality; i++) {
+        if (other.contains(values[i])) {
+          values[n++] = values[i];
+        }
+      }
+      cardinality = n;
+      return this;
+    }
+
+    @Override
+    Container andNot(Container other) {
+      int n = 0;
+      for (int i = 0; i < cardinality; i++) {
+        if (!other.contains(values[i])) {
+          values[n++] = values[i];
+        }
+      }
+      cardinality = n;
+      return this;
+    }
+
+    @Override
+    int numberOfRuns() {
+      int runs = cardinality == 0 ? 0 : 1;
+      for (int i = 1; i < cardinality; i++) {
+        if (values[i] != values[i - 1] + 1) {
+          runs++;
+        }
+      }
+      return runs;
+    }
+  }
+
+  /** A bitmap of all 2^16 possible elements, for more than {@link #ARRAY_MAX} elements. */
+  private static final class BitmapContainer extends Container {
+
+    private static final long serialVersionUID = 7012954371936483557L;
+
+    private final long[] words = new long[WORDS];
+
+    private int cardinality;
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(int x) {
+      return (words[x >>> 6] & (1L << x)) != 0;
+    }
+
+    void set(int x) {
+      long w = words[x >>> 6];
+      long b = 1L << x;
+      if ((w & b) == 0) {
+        words[x >>> 6] = w | b;
+        cardinality++;
+      }
+    }
+
+    @Override
+    Container add(int x) {
+      set(x);
+      return this;
+    }
+
+    @Override
+    Container remove(int x) {
+      long w = words[x >>> 6];
+      long b = 1L << x;
+      if ((w & b) != 0) {
+        words[x >>> 6] = w & ~b;
+        cardinality--;
+      }
+      return shrink();
+    }
+
+    /** @return an array container if the elements fit into one, or else this */
+    private Container shrink() {
+      if (cardinality > ARRAY_MAX) {
+        return this;
+      }
+      char[] values = new char[cardinality];
+      int n = 0;
+      for (int k = 0; k < WORDS; k++) {
+        for (long w = words[k]; w != 0; w &= w - 1) {
+          values[n++] = (char) ((k << 6) + Long.numberOfTrailingZeros(w));
+        }
+      }
+      return new ArrayContainer(values, n);
+    }
+
+    @Override
+    int last() {
+      for (int k = WORDS - 1; ; k--) {
+        if (words[k] != 0) {
+          return (k << 6) + 63 - Long.numberOfLeadingZeros(words[k]);
+        }
+      }
+    }
+
+    @Override
+    Container copy() {
+      BitmapContainer result = new BitmapContainer();
+      System.arraycopy(words, 0, result.words, 0, WORDS);
+      result.cardinality = cardinality;
+      return result;
+    }
+
+    @Override
+    IntIterator intIterator() {
+      return new IntIterator() {
+        private int k = 0;
+
+        private long w = words[0];
+
+        @Override
+        public boolean hasNext() {
+          while (w == 0 && k < WORDS - 1) {
+            w = words[++k];
+          }
+          return w != 0;
+        }
+
+        @Override
+        public int next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          int result = (k << 6) + Long.numberOfTrailingZeros(w);
+          w &= w - 1;
+          return result;
+        }
+      };
+    }
+
+    @Override
+    long getSizeInBytes() {
+      return 8L * WORDS + 8;
+    }
+
+    @Override
+    Container toMutable() {
+      return this;
+    }
+
+    @Override
+    Container or(Container other) {
+      other = other.toMutable();
+      if (other instanceof ArrayContainer) {
+        ArrayContainer that = (ArrayContainer) other;
+        for (int i = 0; i < that.cardinality; i++) {
+          set(that.values[i]);
+        }
+        return this;
+      }
+      long[] o = ((BitmapContainer) other).words;
+      int c = 0;
+      for (int k = 0; k < WORDS; k++) {
+        long w = words[k] | o[k];
+        words[k] = w;
+        c += Long.bitCount(w);
+      }
+      cardinality = c;
+      return this;
+    }
+
+    @Override
+    Container and(Container other) {
+      other = other.toMutable();
+      if (other instanceof ArrayContainer) {
+        // the result fits into an array
+        ArrayContainer that = (ArrayContainer) other;
+        char[] values = new char[that.cardinality];
+        int n = 0;
+        for (int i = 0; i < that.cardinality; i++) {
+          if (contains(that.values[i])) {
+            values[n++] = that.values[i];
+          }
+        }
+        return new ArrayContainer(values, n);
+      }
+      long[] o = ((BitmapContainer) other).words;
+      int c = 0;
+      for (int k = 0; k < WORDS; k++) {
+        long w = words[k] & o[k];
+        words[k] = w;
+        c += Long.bitCount(w);
+      }
+      cardinality = c;
+      return shrink();
+    }
+
+    @Override
+    Container andNot(Container other) {
+      other = other.toMutable();
+      if (other instanceof ArrayContainer) {
+        ArrayContainer that = (ArrayContainer) other;
+        for (int i = 0; i < that.cardinality; i++) {
+          char x = that.values[i];
+          long w = words[x >>> 6];
+          long b = 1L << x;
+          if ((w & b) != 0) {
+            words[x >>> 6] = w & ~b;
+            cardinality--;
+          }
+        }
+        return shrink();
+      }
+      long[] o = ((BitmapContainer) other).words;
+      int c = 0;
+      for (int k = 0; k < WORDS; k++) {
+        long w = words[k] & ~o[k];
+        words[k] = w;
+        c += Long.bitCount(w);
+      }
+      cardinality = c;
+      return shrink();
+    }
+
+    @Override
+    boolean intersects(Container other) {
+      if (other instanceof BitmapContainer) {
+        long[] o = ((BitmapContainer) other).words;
+        for (int k = 0; k < WORDS; k++) {
+          if ((words[k] & o[k]) != 0) {
+            return true;
+          }
+        }
+        return false;
+      }
+      return other.intersects(this);
+    }
+
+    @Override
+    boolean isSubset(Container other) {
+      if (other instanceof BitmapContainer) {
+        long[] o = ((BitmapContainer) other).words;
+        for (int k = 0; k < WORDS; k++) {
+          if ((words[k] & ~o[k]) != 0) {
+            return false;
+          }
+        }
+        return true;
+      }
+      return super.isSubset(other);
+    }
+
+    @Override
+    int numberOfRuns() {
+      int runs = 0;
+      long carry = 0;
+      for (int k = 0; k < WORDS; k++) {
+        long w = words[k];
+        // a run starts at each set bit whose lower neighbor is clear
+        runs += Long.bitCount(w & ~((w << 1) | carry));
+        carry = w >>> 63;
+      }
+      return runs;
+    }
+  }
+
+  /** Maximal runs of consecutive elements, each stored as its start and its length minus one. */
+  private static final class RunContainer extends Container {
+
+    private static final long serialVersionUID = -4254318342232564426L;
+
+    /** start and length - 1 of each run, in order */
+    private final char[] runs;
+
+    private final int cardinality;
+
+    static long sizeInBytes(int runs) {
+      return 4L * runs + 8;
+    }
+
+    RunContainer(Container c, int numberOfRuns) {
+      runs = new char[2 * numberOfRuns];
+      int n = -1;
+      int previous = -2;
+      for (IntIterator it = c.intIterator(); it.hasNext(); ) {
+        int x = it.next();
+        if (x == previous + 1) {
+          runs[2 * n + 1]++;
+        } else {
+          n++;
+          runs[2 * n] = (char) x;
+        }
+        previous = x;
+      }
+      cardinality = c.cardinality();
+    }
+
+    private int numberOfRunsStored() {
+      return runs.length / 2;
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(int x) {
+      // find the last run starting at or before x
+      int lo = 0, hi = numberOfRunsStored() - 1;
+      while (lo <= hi) {
+        int mid = (lo + hi) >>> 1;
+        if (runs[2 * mid] <= x) {
+          lo = mid + 1;
+        } else {
+          hi = mid - 1;
+        }
+      }
+      return hi >= 0 && x <= runs[2 * hi] + runs[2 * hi + 1];
+    }
+
+    @Override
+    Container add(int x) {
+      return contains(x) ? this : toMutable().add(x);
+    }
+
+    @Override
+    Container remove(int x) {
+      return contains(x) ? toMutable().remove(x) : this;
+    }
+
+    @Override
+    int last() {
+      int r = numberOfRunsStored() - 1;
+      return runs[2 * r] + runs[2 * r + 1];
+    }
+
+    @Override
+    Container copy() {
+      // immutable
+      return this;
+    }
+
+    @Override
+    IntIterator intIterator() {
+      return new IntIterator() {
+        private int r = 0;
+
+        private int next = runs.length == 0 ? 0 : runs[0];
+
+        @Override
+        public boolean hasNext() {
+          return r < numberOfRunsStored();
+        }
+
+        @Override
+        public int next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          int result = next;
+          if (result == runs[2 * r] + runs[2 * r + 1]) {
+            r++;
+            if (r < numberOfRunsStored()) {
+              next = runs[2 * r];
+            }
+          } else {
+            next++;
+          }
+          return result;
+        }
+      };
+    }
+
+    @Override
+    long getSizeInBytes() {
+      return sizeInBytes(numberOfRunsStored());
+    }
+
+    @Override
+    Container toMutable() {
+      if (cardinality <= ARRAY_MAX) {
+        char[] values = new char[cardinality];
+        int n = 0;
+        for (IntIterator it = intIterator(); it.hasNext(); ) {
+          values[n++] = (char) it.next();
+        }
+        return new ArrayContainer(values, n);
+      }
+      BitmapContainer result = new BitmapContainer();
+      for (int r = 0; r < numberOfRunsStored(); r++) {
+        int start = runs[2 * r];
+        int end = start + runs[2 * r + 1];
+        for (int x = start; x <= end; x++) {
+          result.words[x >>> 6] |= 1L << x;
+        }
+      }
+      result.cardinality = cardinality;
+      return result;
+    }
+
+    @Override
+    Container or(Container other) {
+      return toMutable().or(other);
+    }
+
+    @Override
+    Container and(Container other) {
+      return toMutable().and(other);
+    }
+
+    @Override
+    Container andNot(Container other) {
+      return toMutable().andNot(other);
+    }
+
+    @Override
+    boolean intersects(Container other) {
+      return toMutable().intersects(other);
+    }
+
+    @Override
+    int numberOfRuns() {
+      return numberOfRunsStored();
+    }
+
+    @Override
+    Container runOptimize() {
+      return this;
+    }
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+/** A factory for {@link RoaringIntSet}s. */
+public class RoaringIntSetFactory implements MutableIntSetFactory<RoaringIntSet> {
+
+  /** @throws IllegalArgumentException if set is null */
+  @Override
+  public RoaringIntSet make(int[] set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set is null");
+    }
+    RoaringIntSet result = new RoaringIntSet();
+    for (int element : set) {
+      result.add(element);
+    }
+    return result;
+  }
+
+  @Override
+  public RoaringIntSet parse(String string) throws NumberFormatException {
+    return make(SparseIntSet.parseIntArray(string));
+  }
+
+  @Override
+  public RoaringIntSet makeCopy(IntSet x) {
+    return new RoaringIntSet(x);
+  }
+
+  @Override
+  public RoaringIntSet make() {
+    return new RoaringIntSet();
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+import com.ibm.wala.util.collections.HashMapFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A repository of hash-consed int sets: equal sets are represented by one shared object, so they
+ * are stored once and can be compared by reference.
+ *
+ * <p>The shared sets must never be modified. Each is stored compactly, as an exactly sized sparse
+ * set or, for dense sets, as a bit vector, or else outside the heap in an {@link
+ * OffHeapIntSetStore}.
+ */
+public class SharedIntSetRepository {
+
+  /** shared sets, indexed by their {@link #hash(IntSet)} */
+  private final Map<Integer, List<IntSet>> buckets = HashMapFactory.make();
+
+  /** number of shared sets */
+  private int size = 0;
+
+  /** where the shared sets are kept, or null to keep them on the heap */
+  @Nullable private final OffHeapIntSetStore store;
+
+  /** Create a repository that keeps the shared sets on the heap. */
+  public SharedIntSetRepository() {
+    this.store = null;
+  }
+
+  /**
+   * Create a repository that keeps the shared sets in store.
+   *
+   * @throws IllegalArgumentException if store is null
+   */
+  public SharedIntSetRepository(OffHeapIntSetStore store) {
+    if (store == null) {
+      throw new IllegalArgumentException("null store");
+    }
+    this.store = store;
+  }
+
+  /**
+   * @return the shared set in this repository with the same value as s
+   * @throws IllegalArgumentException if s is null
+   */
+  public synchronized IntSet findOrCreateSharedSet(IntSet s) {
+    if (s == null) {
+      throw new IllegalArgumentException("s is null");
+    }
+    int h = hash(s);
+    List<IntSet> bucket = buckets.computeIfAbsent(h, k -> new ArrayList<>(1));
+    for (IntSet shared : bucket) {
+      if (shared == s || sameElements(shared, s)) {
+        return shared;
+      }
+    }
+    IntSet shared = makeCompactCopy(s);
+    bucket.add(shared);
+    size++;
+    return shared;
+  }
+
+  /** @return the number of distinct sets in this repository */
+  public synchronized int size() {
+    return size;
+  }
+
+  /** @return a hash code of the value of s, which does not depend on the representation of s */
+  private static int hash(IntSet s) {
+    int h = s.size();
+    for (IntIterator it = s.intIterator(); it.hasNext(); ) {
+      // a sum, so that the order of iteration does not matter
+      int x = it.next() * 0x9e3779b9;
+      h += x ^ (x >>> 16);
+    }
+    return h;
+  }
+
+  /**
+   * Compare by membership only, since not every {@link IntSet#sameValue(IntSet)} accepts every
+   * other kind of set.
+   */
+  private static boolean sameElements(IntSet a, IntSet b) {
+    if (a.size() != b.size()) {
+      return false;
+    }
+    for (IntIterator it = b.intIterator(); it.hasNext(); ) {
+      if (!a.contains(it.next())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private IntSet makeCompactCopy(IntSet s) {
+    int[] elements = new int[s.size()];
+    int n = 0;
+    for (IntIterator it = s.intIterator(); it.hasNext(); ) {
+      elements[n++] = it.next();
+    }
+    if (store != null) {
+      return store.store(elements);
+    }
+    Arrays.sort(elements);
+    MutableSparseIntSet sparse = new MutableSparseIntSet(elements);
+    // a bit vector costs a bit per possible element, a sparse set 32 bits per element
+    if (!sparse.isEmpty() && sparse.max() < 32L * sparse.size()) {
+      return new BitVectorIntSet(sparse);
+    }
+    return sparse;
+  }
+}
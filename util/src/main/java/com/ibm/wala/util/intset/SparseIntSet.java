@@ -10,7 +10,6 @@
  */
 package com.ibm.wala.util.intset;
 
-import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.debug.UnimplementedError;
 import java.util.NoSuchElementException;
 import java.util.StringTokenizer;
@@ -165,8 +164,7 @@ public class SparseIntSet implements IntSet {
     } else if (that instanceof MutableSharedBitVectorIntSet) {
       return sameValue(((MutableSharedBitVectorIntSet) that).makeSparseCopy());
     } else {
-      Assertions.UNREACHABLE(that.getClass().toString());
-      return false;
+      return sameValueInternal(IntSetUtil.toSparseIntSet(that));
     }
   }
 